@@ -2,8 +2,10 @@ package com.example.taskmanager;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
-@SpringBootApplication
+// The reactive read API brings its own R2DBC pool (ReactiveTaskConfig); Boot's would need a URL
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class TaskManagerApplication {
     public static void main(String[] args) {
         SpringApplication.run(TaskManagerApplication.class, args);
@@ -0,0 +1,192 @@
+package com.example.taskmanager.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides whether a request may proceed.
+ *
+ * Three checks, cheapest first:
+ * <ol>
+ *   <li>a per-caller {@link TokenBucket} (JWT user id, or client IP when anonymous);</li>
+ *   <li>a concurrency limit per {@link EndpointClass};</li>
+ *   <li>the SEARCH and READ limits adapt to database pressure: while the average wait for a
+ *       Hikari connection is above target they shrink multiplicatively, and grow back by one
+ *       per sample once it recovers (AIMD). Writes and logins keep their fixed limits.</li>
+ * </ol>
+ * All state is lock-free: buckets are CAS based and limits are atomic counters.
+ */
+@Component
+public class AdmissionControl {
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControl.class);
+
+    public enum Outcome { ADMITTED, RATE_LIMITED, CONCURRENCY_LIMITED, SHED }
+
+    /** Result of {@link #tryAdmit}; admitted decisions must be {@link #release released}. */
+    public record Decision(Outcome outcome, EndpointClass endpointClass, long retryAfterSeconds) {
+        public boolean admitted() {
+            return outcome == Outcome.ADMITTED;
+        }
+    }
+
+    private static final class Limit {
+        final int max;
+        final AtomicInteger current;
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        Limit(int max) {
+            this.max = max;
+            this.current = new AtomicInteger(max);
+        }
+    }
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<EndpointClass, Limit> limits = new EnumMap<>(EndpointClass.class);
+    private final Map<String, Counter> outcomes = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final long startNanos = System.nanoTime();
+
+    private final boolean enabled;
+    private final double ratePerSecond;
+    private final int burst;
+    private final double targetPoolWaitMillis;
+    private volatile double poolWaitMillis;
+    private long lastAcquireCount;
+    private double lastAcquireTotalMillis;
+
+    @Autowired
+    public AdmissionControl(MeterRegistry meterRegistry,
+                            @Value("${taskmanager.admission.enabled:true}") boolean enabled,
+                            @Value("${taskmanager.admission.rate-per-second:20}") double ratePerSecond,
+                            @Value("${taskmanager.admission.burst:40}") int burst,
+                            @Value("${taskmanager.admission.max-concurrent.auth:8}") int maxAuth,
+                            @Value("${taskmanager.admission.max-concurrent.search:8}") int maxSearch,
+                            @Value("${taskmanager.admission.max-concurrent.write:16}") int maxWrite,
+                            @Value("${taskmanager.admission.max-concurrent.read:32}") int maxRead,
+                            @Value("${taskmanager.admission.target-pool-wait-ms:20}") double targetPoolWaitMillis) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.targetPoolWaitMillis = targetPoolWaitMillis;
+        limits.put(EndpointClass.AUTH, new Limit(maxAuth));
+        limits.put(EndpointClass.SEARCH, new Limit(maxSearch));
+        limits.put(EndpointClass.WRITE, new Limit(maxWrite));
+        limits.put(EndpointClass.READ, new Limit(maxRead));
+
+        limits.forEach((endpointClass, limit) -> {
+            String name = endpointClass.name().toLowerCase();
+            Gauge.builder("taskmanager.admission.limit", limit.current, AtomicInteger::get)
+                    .tag("endpoint", name).register(meterRegistry);
+            Gauge.builder("taskmanager.admission.in_flight", limit.inFlight, AtomicInteger::get)
+                    .tag("endpoint", name).register(meterRegistry);
+        });
+        Gauge.builder("taskmanager.admission.pool_wait", this, control -> control.poolWaitMillis)
+                .baseUnit("milliseconds").register(meterRegistry);
+        Gauge.builder("taskmanager.admission.buckets", buckets, Map::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Decision tryAdmit(String callerKey, EndpointClass endpointClass) {
+        long now = System.nanoTime() - startNanos;
+        TokenBucket bucket = buckets.computeIfAbsent(callerKey, key -> new TokenBucket(ratePerSecond, burst, now));
+        long waitNanos = bucket.tryAcquire(endpointClass.cost(), now);
+        if (waitNanos > 0) {
+            return record(new Decision(Outcome.RATE_LIMITED, endpointClass,
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L))));
+        }
+
+        Limit limit = limits.get(endpointClass);
+        while (true) {
+            int inFlight = limit.inFlight.get();
+            if (inFlight >= limit.current.get()) {
+                // Below the configured maximum means the limit was lowered because of pool pressure
+                Outcome outcome = limit.current.get() < limit.max ? Outcome.SHED : Outcome.CONCURRENCY_LIMITED;
+                return record(new Decision(outcome, endpointClass, 1));
+            }
+            if (limit.inFlight.compareAndSet(inFlight, inFlight + 1)) {
+                return record(new Decision(Outcome.ADMITTED, endpointClass, 0));
+            }
+        }
+    }
+
+    public void release(Decision decision) {
+        if (decision.admitted()) {
+            limits.get(decision.endpointClass()).inFlight.decrementAndGet();
+        }
+    }
+
+    private Decision record(Decision decision) {
+        String key = decision.outcome() + ":" + decision.endpointClass();
+        outcomes.computeIfAbsent(key, k -> Counter.builder("taskmanager.admission.requests")
+                .tag("outcome", decision.outcome().name().toLowerCase())
+                .tag("endpoint", decision.endpointClass().name().toLowerCase())
+                .register(meterRegistry)).increment();
+        return decision;
+    }
+
+    /**
+     * Samples the average Hikari connection wait since the previous sample and adapts the limits.
+     * With several pools (one per shard) the waits of all of them are averaged.
+     */
+    @Scheduled(fixedDelayString = "${taskmanager.admission.sample-interval-ms:250}")
+    public void samplePoolPressure() {
+        Collection<Timer> pools = meterRegistry.find("hikaricp.connections.acquire").timers();
+        if (pools.isEmpty()) {
+            return;
+        }
+        long count = pools.stream().mapToLong(Timer::count).sum();
+        double totalMillis = pools.stream().mapToDouble(acquire -> acquire.totalTime(TimeUnit.MILLISECONDS)).sum();
+        long acquisitions = count - lastAcquireCount;
+        double waitMillis = acquisitions > 0 ? (totalMillis - lastAcquireTotalMillis) / acquisitions : 0;
+        lastAcquireCount = count;
+        lastAcquireTotalMillis = totalMillis;
+        adaptToPoolWait(waitMillis);
+    }
+
+    void adaptToPoolWait(double waitMillis) {
+        poolWaitMillis = waitMillis;
+        boolean congested = waitMillis > targetPoolWaitMillis;
+        for (EndpointClass endpointClass : new EndpointClass[] { EndpointClass.SEARCH, EndpointClass.READ }) {
+            Limit limit = limits.get(endpointClass);
+            int current = limit.current.get();
+            int next = congested ? Math.max(1, (int) (current * 0.75)) : Math.min(limit.max, current + 1);
+            if (next != current) {
+                limit.current.set(next);
+                if (congested) {
+                    logger.warn("Connection pool wait {} ms above target, {} limit lowered to {}",
+                            String.format("%.1f", waitMillis), endpointClass, next);
+                }
+            }
+        }
+    }
+
+    int currentLimit(EndpointClass endpointClass) {
+        return limits.get(endpointClass).current.get();
+    }
+
+    /** Forgets buckets that have fully refilled; they would be recreated in the same state. */
+    @Scheduled(fixedDelayString = "${taskmanager.admission.bucket-sweep-interval-ms:60000}")
+    public void sweepIdleBuckets() {
+        long now = System.nanoTime() - startNanos;
+        buckets.values().removeIf(bucket -> bucket.isIdle(now));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.taskmanager.admission;
+
+import com.example.taskmanager.entities.User;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies {@link AdmissionControl} to API requests. Registered in the security chain right
+ * after JWT authentication so that authenticated callers are limited per user rather than
+ * per IP. Not a bean on purpose: as a bean it would also be registered as a servlet filter.
+ *
+ * Rate limited callers get 429, shed or over-limit requests get 503; both with Retry-After.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    private final AdmissionControl admissionControl;
+
+    public AdmissionControlFilter(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !admissionControl.isEnabled() || EndpointClass.of(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(@org.springframework.lang.NonNull HttpServletRequest request, @org.springframework.lang.NonNull HttpServletResponse response, @org.springframework.lang.NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        AdmissionControl.Decision decision = admissionControl.tryAdmit(callerKey(request), EndpointClass.of(request));
+        if (!decision.admitted()) {
+            reject(response, decision);
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            admissionControl.release(decision);
+        }
+    }
+
+    static String callerKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user && user.getId() != null) {
+            return "user:" + user.getId();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, AdmissionControl.Decision decision) throws IOException {
+        boolean rateLimited = decision.outcome() == AdmissionControl.Outcome.RATE_LIMITED;
+        HttpStatus status = rateLimited ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE;
+        String message = rateLimited
+                ? "Too many requests, retry after " + decision.retryAfterSeconds() + "s"
+                : "Server is busy, retry after " + decision.retryAfterSeconds() + "s";
+        response.setStatus(status.value());
+        response.setHeader("Retry-After", String.valueOf(decision.retryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"" + status.getReasonPhrase() + "\",\"message\":\""
+                + message + "\",\"status\":" + status.value() + "}");
+    }
+}
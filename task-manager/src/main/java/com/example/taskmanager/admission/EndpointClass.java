@@ -0,0 +1,50 @@
+package com.example.taskmanager.admission;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Endpoint classes with their own concurrency limit. The cost is charged against the
+ * caller's token bucket, so expensive requests use up a user's budget faster.
+ */
+public enum EndpointClass {
+    /** Login and registration: BCrypt makes these CPU-heavy. */
+    AUTH(5),
+    /** Filtered task listings: LIKE search and counts dominate database time. */
+    SEARCH(4),
+    /** Any create, update or delete. */
+    WRITE(2),
+    /** Lookups by id and the remaining reads. */
+    READ(1);
+
+    private final int cost;
+
+    EndpointClass(int cost) {
+        this.cost = cost;
+    }
+
+    public int cost() {
+        return cost;
+    }
+
+    /**
+     * @return the class of an API request, or null for requests that are never limited
+     *         (health checks, API docs, CORS preflight)
+     */
+    public static EndpointClass of(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+        if ("OPTIONS".equals(method) || !path.startsWith("/api/")) {
+            return null;
+        }
+        if (path.startsWith("/api/auth/")) {
+            return AUTH;
+        }
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return WRITE;
+        }
+        if (path.equals("/api/v1/tasks") || path.equals("/api/v1/tasks/")) {
+            return SEARCH;
+        }
+        return READ;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.taskmanager.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket implemented as a generic cell rate algorithm (GCRA).
+ *
+ * Instead of a token count and a refill timestamp the bucket keeps a single
+ * "theoretical arrival time": the instant at which the bucket would be full again.
+ * A request of cost c is admitted when that instant, pushed forward by c emission
+ * intervals, is no further ahead of now than the burst allows. One CAS per request.
+ */
+final class TokenBucket {
+    private final long emissionIntervalNanos;
+    private final long capacityNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param ratePerSecond sustained rate of cost units per second
+     * @param burst         cost units that may be spent at once after being idle
+     */
+    TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+        this.emissionIntervalNanos = (long) (1_000_000_000L / ratePerSecond);
+        this.capacityNanos = emissionIntervalNanos * burst;
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * @return 0 if the request was admitted, otherwise the nanoseconds until it would be
+     */
+    long tryAcquire(int cost, long nowNanos) {
+        long increment = emissionIntervalNanos * cost;
+        while (true) {
+            long current = theoreticalArrival.get();
+            long base = Math.max(current, nowNanos);
+            long next = base + increment;
+            long ahead = next - nowNanos;
+            if (ahead > capacityNanos) {
+                return ahead - capacityNanos;
+            }
+            if (theoreticalArrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /** True when the bucket has fully refilled, i.e. it carries no state worth keeping. */
+    boolean isIdle(long nowNanos) {
+        return theoreticalArrival.get() <= nowNanos;
+    }
+}
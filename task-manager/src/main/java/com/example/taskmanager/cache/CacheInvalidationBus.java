@@ -0,0 +1,347 @@
+package com.example.taskmanager.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the in-process caches of all instances coherent.
+ *
+ * Writers announce the entities they change with {@link #invalidate}; inside a transaction the
+ * announcement waits for the commit and is dropped on rollback, so no instance reloads a value
+ * before it is visible. Caches {@link #subscribe} to the entity types they hold and hear of
+ * changes made on this instance right away, and of changes made on the others through the
+ * {@link InvalidationTransport} ({@code taskmanager.cache.invalidation.transport}; none for a
+ * single instance).
+ *
+ * Outgoing invalidations wait for the coalesce window, so a burst of writes to the same rows
+ * goes out once, and are packed many to a message; more than collapse-threshold ids of one type
+ * go out as a single invalidation of the whole type. A message is
+ * {@code node|oldest commit millis|T12:version,T*:version,...}; an instance ignores its own.
+ * The lag metric is the time from the commit of the oldest invalidation in a message to its
+ * arrival on another instance.
+ */
+@Component
+public class CacheInvalidationBus {
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+    private record Key(Invalidation.Type type, long id) {}
+
+    private final InvalidationTransport transport;
+    private final Clock clock;
+    private final String nodeId;
+    private final Duration coalesceWindow;
+    private final int collapseThreshold;
+    private final Map<Invalidation.Type, List<Consumer<Invalidation>>> subscribers = new EnumMap<>(Invalidation.Type.class);
+    private final AtomicLong lastVersion = new AtomicLong();
+    /** Outgoing invalidations by type, id to version; guarded by itself. */
+    private final Map<Invalidation.Type, Map<Long, Long>> pending = new EnumMap<>(Invalidation.Type.class);
+    private long oldestPending;
+    private int pendingCount;
+    private final Counter published;
+    private final Counter coalesced;
+    private final Counter collapsed;
+    private final Counter received;
+    private final Counter resets;
+    private final Timer lag;
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public CacheInvalidationBus(ObjectProvider<InvalidationTransport> transport,
+                                MeterRegistry meterRegistry,
+                                @Value("${taskmanager.cache.invalidation.node-id:}") String nodeId,
+                                @Value("${taskmanager.cache.invalidation.coalesce-window:PT0.05S}") Duration coalesceWindow,
+                                @Value("${taskmanager.cache.invalidation.collapse-threshold:256}") int collapseThreshold) {
+        this(transport.getIfAvailable(), meterRegistry, Clock.systemUTC(),
+                nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId, coalesceWindow, collapseThreshold);
+    }
+
+    CacheInvalidationBus(InvalidationTransport transport, MeterRegistry meterRegistry, Clock clock, String nodeId,
+                         Duration coalesceWindow, int collapseThreshold) {
+        if (nodeId.indexOf('|') >= 0) {
+            throw new IllegalArgumentException("Node id must not contain '|': " + nodeId);
+        }
+        this.transport = transport;
+        this.clock = clock;
+        this.nodeId = nodeId;
+        this.coalesceWindow = coalesceWindow;
+        this.collapseThreshold = collapseThreshold;
+        for (Invalidation.Type type : Invalidation.Type.values()) {
+            subscribers.put(type, new CopyOnWriteArrayList<>());
+        }
+        this.published = meterRegistry.counter("taskmanager.cache.invalidations", "result", "published");
+        this.coalesced = meterRegistry.counter("taskmanager.cache.invalidations", "result", "coalesced");
+        this.collapsed = meterRegistry.counter("taskmanager.cache.invalidations", "result", "collapsed");
+        this.received = meterRegistry.counter("taskmanager.cache.invalidations", "result", "received");
+        this.resets = meterRegistry.counter("taskmanager.cache.invalidation.resets");
+        this.lag = Timer.builder("taskmanager.cache.invalidation.lag")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("taskmanager.cache.invalidation.pending", this, CacheInvalidationBus::pendingCount)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (transport == null) {
+            return;
+        }
+        transport.start(new InvalidationTransport.Receiver() {
+            @Override
+            public void received(String payload) {
+                CacheInvalidationBus.this.received(payload);
+            }
+
+            @Override
+            public void reset() {
+                CacheInvalidationBus.this.reset();
+            }
+        });
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-invalidation-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long window = Math.max(1, coalesceWindow.toMillis());
+        flusher.scheduleWithFixedDelay(this::flush, window, window, TimeUnit.MILLISECONDS);
+        logger.info("Cache invalidations of node {} go out every {} ms", nodeId, window);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (transport == null) {
+            return;
+        }
+        flusher.shutdownNow();
+        flush();
+        transport.stop();
+    }
+
+    /** Receives the invalidations of one entity type, local ones on the committing thread. */
+    public void subscribe(Invalidation.Type type, Consumer<Invalidation> subscriber) {
+        subscribers.get(type).add(subscriber);
+    }
+
+    /**
+     * Announces a change of an entity, once the current transaction (if any) committed. An
+     * entity without an id has never been stored, so nothing is announced.
+     */
+    public void invalidate(Invalidation.Type type, Long id) {
+        if (id == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            committed(List.of(new Key(type, id)));
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof Batch batch && batch.bus() == this) {
+                batch.keys.add(new Key(type, id));
+                return;
+            }
+        }
+        Batch batch = new Batch();
+        batch.keys.add(new Key(type, id));
+        TransactionSynchronizationManager.registerSynchronization(batch);
+    }
+
+    /** Announces a change of every entity of a type. */
+    public void invalidateAll(Invalidation.Type type) {
+        invalidate(type, Invalidation.ALL);
+    }
+
+    /** The invalidations of one transaction, sent when it commits. */
+    private final class Batch implements TransactionSynchronization {
+        final Set<Key> keys = new LinkedHashSet<>();
+
+        CacheInvalidationBus bus() {
+            return CacheInvalidationBus.this;
+        }
+
+        @Override
+        public void afterCommit() {
+            committed(keys);
+        }
+    }
+
+    private void committed(Collection<Key> keys) {
+        long version = lastVersion.updateAndGet(last -> Math.max(last + 1, clock.millis()));
+        for (Key key : keys) {
+            deliver(new Invalidation(key.type(), key.id(), version));
+        }
+        published.increment(keys.size());
+        if (transport == null) {
+            return;
+        }
+        long now = clock.millis();
+        synchronized (pending) {
+            for (Key key : keys) {
+                enqueue(key.type(), key.id(), version, now);
+            }
+        }
+    }
+
+    /** Adds to the pending invalidations; the caller holds their lock. */
+    private void enqueue(Invalidation.Type type, long id, long version, long committedAt) {
+        if (pendingCount == 0 || committedAt < oldestPending) {
+            oldestPending = committedAt;
+        }
+        Map<Long, Long> ids = pending.computeIfAbsent(type, t -> new LinkedHashMap<>());
+        Long all = ids.get(Invalidation.ALL);
+        if (all != null) {
+            ids.put(Invalidation.ALL, Math.max(all, version));
+            coalesced.increment();
+            return;
+        }
+        if (id == Invalidation.ALL) {
+            coalesced.increment(ids.size());
+            pendingCount -= ids.size();
+            ids.clear();
+        }
+        Long previous = ids.put(id, version);
+        if (previous != null) {
+            ids.put(id, Math.max(previous, version));
+            coalesced.increment();
+            return;
+        }
+        pendingCount++;
+        if (ids.size() > collapseThreshold) {
+            long newest = ids.values().stream().mapToLong(Long::longValue).max().orElse(version);
+            collapsed.increment(ids.size());
+            pendingCount -= ids.size() - 1;
+            ids.clear();
+            ids.put(Invalidation.ALL, newest);
+        }
+    }
+
+    /** Sends the pending invalidations to the other instances; runs every coalesce window. */
+    void flush() {
+        if (transport == null) {
+            return;
+        }
+        Map<Invalidation.Type, Map<Long, Long>> batch = new EnumMap<>(Invalidation.Type.class);
+        long oldest;
+        synchronized (pending) {
+            if (pendingCount == 0) {
+                return;
+            }
+            batch.putAll(pending);
+            pending.clear();
+            pendingCount = 0;
+            oldest = oldestPending;
+        }
+        try {
+            for (String payload : encode(batch, oldest)) {
+                transport.send(payload);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to send cache invalidations, will retry", e);
+            synchronized (pending) {
+                batch.forEach((type, ids) -> ids.forEach((id, version) -> enqueue(type, id, version, oldest)));
+            }
+        }
+    }
+
+    private List<String> encode(Map<Invalidation.Type, Map<Long, Long>> batch, long oldest) {
+        String header = nodeId + '|' + oldest + '|';
+        int maxLength = transport.maxPayloadLength();
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(header);
+        for (Map.Entry<Invalidation.Type, Map<Long, Long>> ids : batch.entrySet()) {
+            for (Map.Entry<Long, Long> id : ids.getValue().entrySet()) {
+                String entry = String.valueOf(ids.getKey().code())
+                        + (id.getKey() == Invalidation.ALL ? "*" : String.valueOf(id.getKey())) + ':' + id.getValue();
+                if (payload.length() > header.length() && payload.length() + 1 + entry.length() > maxLength) {
+                    payloads.add(payload.toString());
+                    payload.setLength(header.length());
+                }
+                if (payload.length() > header.length()) {
+                    payload.append(',');
+                }
+                payload.append(entry);
+            }
+        }
+        if (payload.length() > header.length()) {
+            payloads.add(payload.toString());
+        }
+        return payloads;
+    }
+
+    void received(String payload) {
+        String[] parts = payload.split("\\|", 3);
+        if (parts.length != 3) {
+            logger.warn("Ignoring malformed cache invalidation message: {}", payload);
+            return;
+        }
+        if (parts[0].equals(nodeId)) {
+            return;
+        }
+        try {
+            lag.record(Math.max(0, clock.millis() - Long.parseLong(parts[1])), TimeUnit.MILLISECONDS);
+            for (String entry : parts[2].split(",")) {
+                int colon = entry.indexOf(':');
+                Invalidation.Type type = Invalidation.Type.of(entry.charAt(0));
+                String id = entry.substring(1, colon);
+                long version = Long.parseLong(entry.substring(colon + 1));
+                deliver(new Invalidation(type, id.equals("*") ? Invalidation.ALL : Long.parseLong(id), version));
+                received.increment();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Ignoring malformed cache invalidation message: {}", payload, e);
+        }
+    }
+
+    /** Messages were lost: every cache starts over. */
+    void reset() {
+        resets.increment();
+        long version = lastVersion.updateAndGet(last -> Math.max(last + 1, clock.millis()));
+        for (Invalidation.Type type : Invalidation.Type.values()) {
+            deliver(new Invalidation(type, Invalidation.ALL, version));
+        }
+    }
+
+    private void deliver(Invalidation invalidation) {
+        for (Consumer<Invalidation> subscriber : subscribers.get(invalidation.type())) {
+            try {
+                subscriber.accept(invalidation);
+            } catch (RuntimeException e) {
+                logger.warn("Cache subscriber failed on {}", invalidation, e);
+            }
+        }
+    }
+
+    private double pendingCount() {
+        synchronized (pending) {
+            return pendingCount;
+        }
+    }
+}
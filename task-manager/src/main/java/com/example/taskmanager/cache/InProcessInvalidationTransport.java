@@ -0,0 +1,70 @@
+package com.example.taskmanager.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Connects the instances running in one JVM ({@code taskmanager.cache.invalidation.transport=in-process}),
+ * for tests that start several application contexts side by side. Payloads are handed over
+ * synchronously on the sending thread.
+ */
+@Component
+@ConditionalOnProperty(name = "taskmanager.cache.invalidation.transport", havingValue = "in-process")
+public class InProcessInvalidationTransport implements InvalidationTransport {
+
+    /** The instances connected to each other. */
+    public static final class Hub {
+        static final Hub SHARED = new Hub();
+
+        private final List<Receiver> receivers = new CopyOnWriteArrayList<>();
+
+        void send(String payload) {
+            receivers.forEach(receiver -> receiver.received(payload));
+        }
+
+        /** Tells every instance that messages were lost, as a dropped connection would. */
+        public void reset() {
+            receivers.forEach(Receiver::reset);
+        }
+    }
+
+    private final Hub hub;
+    private volatile Receiver receiver;
+
+    @Autowired
+    public InProcessInvalidationTransport() {
+        this(Hub.SHARED);
+    }
+
+    InProcessInvalidationTransport(Hub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void send(String payload) {
+        hub.send(payload);
+    }
+
+    @Override
+    public int maxPayloadLength() {
+        return 8000;
+    }
+
+    @Override
+    public void start(Receiver receiver) {
+        this.receiver = receiver;
+        hub.receivers.add(receiver);
+    }
+
+    @Override
+    public void stop() {
+        Receiver current = receiver;
+        if (current != null) {
+            hub.receivers.remove(current);
+        }
+    }
+}
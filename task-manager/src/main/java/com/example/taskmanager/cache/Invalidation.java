@@ -0,0 +1,37 @@
+package com.example.taskmanager.cache;
+
+/**
+ * Announces that cached copies of an entity are stale. {@code id} {@link #ALL} stands for every
+ * entity of the type, e.g. after a bulk change. {@code version} is the commit time of the change
+ * on the node that made it, in milliseconds, made strictly increasing per node.
+ */
+public record Invalidation(Type type, long id, long version) {
+    public static final long ALL = -1;
+
+    public enum Type {
+        USER('U'), ROLE('R'), PROJECT('P'), TASK('T'), SAVED_FILTER('F');
+
+        private final char code;
+
+        Type(char code) {
+            this.code = code;
+        }
+
+        char code() {
+            return code;
+        }
+
+        static Type of(char code) {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown entity type code " + code);
+        }
+    }
+
+    public boolean isAll() {
+        return id == ALL;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.taskmanager.cache;
+
+/**
+ * Carries invalidation messages between the instances of the application. Delivery is
+ * best-effort and at most once; a transport that may have lost messages (a dropped connection)
+ * reports it through {@link Receiver#reset}, after which caches start over.
+ */
+public interface InvalidationTransport {
+
+    interface Receiver {
+        void received(String payload);
+
+        /** Messages may have been missed. */
+        void reset();
+    }
+
+    /** Sends a payload of at most {@link #maxPayloadLength} ASCII characters to every instance. */
+    void send(String payload);
+
+    int maxPayloadLength();
+
+    /** Starts passing the payloads sent by any instance, this one included, to the receiver. */
+    void start(Receiver receiver);
+
+    void stop();
+}
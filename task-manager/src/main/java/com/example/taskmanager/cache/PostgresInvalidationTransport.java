@@ -0,0 +1,126 @@
+package com.example.taskmanager.cache;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * LISTEN/NOTIFY on the (home) database ({@code taskmanager.cache.invalidation.transport=postgres}).
+ *
+ * A listener thread keeps one connection of the pool for itself, LISTENs on the channel and
+ * polls it for notifications. When that connection breaks it reconnects after the retry delay
+ * and reports a reset, since notifications sent meanwhile are lost. Sending is a plain
+ * {@code pg_notify}, autocommitted, so it reaches the other instances at once. PostgreSQL caps
+ * a payload at 8000 bytes.
+ */
+@Component
+@ConditionalOnProperty(name = "taskmanager.cache.invalidation.transport", havingValue = "postgres")
+public class PostgresInvalidationTransport implements InvalidationTransport {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresInvalidationTransport.class);
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final String channel;
+    private final Duration pollTimeout;
+    private final Duration retryDelay;
+    private volatile boolean running;
+    private Thread listener;
+
+    @Autowired
+    public PostgresInvalidationTransport(DataSource dataSource,
+                                         @Value("${taskmanager.cache.invalidation.channel:taskmanager_invalidations}") String channel,
+                                         @Value("${taskmanager.cache.invalidation.poll-timeout:PT0.5S}") Duration pollTimeout,
+                                         @Value("${taskmanager.cache.invalidation.retry-delay:PT5S}") Duration retryDelay) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            // The channel goes into LISTEN unquoted
+            throw new IllegalArgumentException("Invalid notification channel name: " + channel);
+        }
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.channel = channel;
+        this.pollTimeout = pollTimeout;
+        this.retryDelay = retryDelay;
+    }
+
+    @Override
+    public void send(String payload) {
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", resultSet -> {}, channel, payload);
+    }
+
+    @Override
+    public int maxPayloadLength() {
+        return 7999;
+    }
+
+    @Override
+    public synchronized void start(Receiver receiver) {
+        running = true;
+        listener = new Thread(() -> listen(receiver), "cache-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    private void listen(Receiver receiver) {
+        boolean missed = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                if (missed) {
+                    logger.info("Listening on channel {} again, dropping cached entries", channel);
+                    receiver.reset();
+                    missed = false;
+                }
+                while (running) {
+                    PGNotification[] received = notifications.getNotifications((int) pollTimeout.toMillis());
+                    if (received != null) {
+                        for (PGNotification notification : received) {
+                            receiver.received(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    break;
+                }
+                missed = true;
+                logger.warn("Lost the invalidation listener connection, reconnecting in {}", retryDelay, e);
+                try {
+                    Thread.sleep(retryDelay.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            try {
+                listener.join(pollTimeout.toMillis() * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            listener = null;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.taskmanager.config;
+
+import com.example.taskmanager.controller.TaskController;
+import com.example.taskmanager.dto.EntityToDTOMapper;
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.entities.Project;
+import com.example.taskmanager.entities.Role;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.entities.User;
+import com.example.taskmanager.security.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs synthetic, read-only calls through the hot request paths after startup, so the JIT has
+ * compiled them and Hibernate has cached their query plans before the first real request: task
+ * list queries through {@link TaskController}, entity to DTO mapping, JWT signing and parsing,
+ * and JSON writing and reading.
+ *
+ * It runs on {@link ApplicationReadyEvent}, after the other listeners of it. Spring Boot only
+ * reports the readiness probe ({@code /actuator/health/readiness}) UP once those return, so the
+ * instance takes no traffic until the warm-up is done. It stops after {@code iterations} rounds
+ * or the {@code duration}, whichever comes first, or at the first failing call; a failing
+ * warm-up is logged and does not hold back readiness.
+ *
+ * The latency of each path is recorded as {@code taskmanager.warmup.latency}, tagged
+ * {@code phase=cold} for the first tenth of the rounds and {@code phase=warm} for the last.
+ */
+@Component
+public class JitWarmup {
+    private static final Logger logger = LoggerFactory.getLogger(JitWarmup.class);
+
+    private record Path(String name, Callable<?> call) {}
+
+    private final TaskController taskController;
+    private final JwtUtil jwtUtil;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int iterations;
+    private final Duration duration;
+    private final AtomicLong rounds = new AtomicLong();
+
+    @Autowired
+    public JitWarmup(TaskController taskController,
+                     JwtUtil jwtUtil,
+                     ObjectMapper objectMapper,
+                     MeterRegistry meterRegistry,
+                     @Value("${taskmanager.warmup.enabled:true}") boolean enabled,
+                     @Value("${taskmanager.warmup.iterations:5000}") int iterations,
+                     @Value("${taskmanager.warmup.duration:PT60S}") Duration duration) {
+        this.taskController = taskController;
+        this.jwtUtil = jwtUtil;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.duration = duration;
+        meterRegistry.gauge("taskmanager.warmup.rounds", rounds);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void warmUp() {
+        if (!enabled || iterations < 1) {
+            return;
+        }
+        List<Path> paths = paths();
+        // Nanoseconds per round and path
+        List<long[]> latencies = new ArrayList<>();
+        long deadline = System.nanoTime() + duration.toNanos();
+        try {
+            for (int round = 0; round < iterations && System.nanoTime() < deadline; round++) {
+                long[] latency = new long[paths.size()];
+                for (int path = 0; path < paths.size(); path++) {
+                    long start = System.nanoTime();
+                    paths.get(path).call().call();
+                    latency[path] = System.nanoTime() - start;
+                }
+                latencies.add(latency);
+                rounds.incrementAndGet();
+            }
+        } catch (Exception e) {
+            logger.warn("Warm-up stopped after {} rounds: {}", latencies.size(), e.toString());
+        }
+        report(paths, latencies);
+    }
+
+    private List<Path> paths() {
+        Task task = syntheticTask();
+        String[][] statuses = {null, {"PENDING"}, {"IN_PROGRESS", "COMPLETED"}};
+        AtomicLong calls = new AtomicLong();
+        return List.of(
+                new Path("filter", () -> {
+                    // Rotates through filter combinations so each query shape gets compiled and cached
+                    int shape = (int) (calls.getAndIncrement() % 6);
+                    String[] status = statuses[shape % statuses.length];
+                    return taskController.getTasks(
+                            shape == 5 ? "warmup" : null,
+                            status != null ? List.of(status) : null,
+                            shape == 2 ? List.of("HIGH") : null,
+                            shape == 3 ? 1L : null,
+                            shape == 4 ? 1L : null,
+                            shape == 4 ? LocalDate.now() : null,
+                            shape == 4 ? LocalDate.now().plusDays(7) : null,
+                            shape == 3 ? List.of("warmup") : null, null, null,
+                            0, 10, shape % 2 == 0, false, false);
+                }),
+                new Path("mapping", () -> List.of(EntityToDTOMapper.toProjectDTO(task.getProject()),
+                        EntityToDTOMapper.toUserDTO(task.getAssignee()))),
+                new Path("jwt", () -> {
+                    String token = jwtUtil.generateToken("warmup", 0L, List.of("ROLE_USER"));
+                    return jwtUtil.validateToken(token, "warmup");
+                }),
+                new Path("json", () -> objectMapper.readValue(
+                        objectMapper.writeValueAsString(EntityToDTOMapper.toTaskDTO(task)), TaskDTO.class)));
+    }
+
+    /** A task with its project and users, never persisted. */
+    private static Task syntheticTask() {
+        User user = new User();
+        user.setId(0L);
+        user.setUsername("warmup");
+        user.setRoles(new HashSet<>(Set.of(new Role(0L, "ROLE_USER"))));
+        Project project = new Project();
+        project.setId(0L);
+        project.setName("Warm-up");
+        project.setOwner(user);
+        Task task = Task.builder()
+                .id(0L)
+                .title("Warm-up task")
+                .description("Synthetic task for the warm-up")
+                .status(Task.Status.IN_PROGRESS)
+                .priority(Task.Priority.HIGH)
+                .dueDate(LocalDateTime.now().plusDays(1))
+                .project(project)
+                .creator(user)
+                .assignee(user)
+                .build();
+        project.setTasks(new HashSet<>(Set.of(task)));
+        return task;
+    }
+
+    private void report(List<Path> paths, List<long[]> latencies) {
+        if (latencies.isEmpty()) {
+            return;
+        }
+        int sample = Math.max(1, latencies.size() / 10);
+        List<String> summary = new ArrayList<>();
+        for (int path = 0; path < paths.size(); path++) {
+            String name = paths.get(path).name();
+            Timer cold = Timer.builder("taskmanager.warmup.latency").tag("path", name).tag("phase", "cold")
+                    .register(meterRegistry);
+            Timer warm = Timer.builder("taskmanager.warmup.latency").tag("path", name).tag("phase", "warm")
+                    .register(meterRegistry);
+            for (int round = 0; round < sample; round++) {
+                cold.record(latencies.get(round)[path], TimeUnit.NANOSECONDS);
+                warm.record(latencies.get(latencies.size() - 1 - round)[path], TimeUnit.NANOSECONDS);
+            }
+            summary.add(String.format("%s %.3f -> %.3f ms", name, cold.mean(TimeUnit.MILLISECONDS),
+                    warm.mean(TimeUnit.MILLISECONDS)));
+        }
+        logger.info("Warm-up ran {} rounds: {}", latencies.size(), String.join(", ", summary));
+    }
+}
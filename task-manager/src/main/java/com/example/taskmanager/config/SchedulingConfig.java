@@ -0,0 +1,12 @@
+package com.example.taskmanager.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} background jobs (admission control sampling, cache maintenance, ...).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
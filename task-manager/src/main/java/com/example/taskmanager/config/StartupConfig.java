@@ -0,0 +1,118 @@
+package com.example.taskmanager.config;
+
+import com.example.taskmanager.cache.InProcessInvalidationTransport;
+import com.example.taskmanager.cache.PostgresInvalidationTransport;
+import com.example.taskmanager.reactive.ReactiveTaskConfig;
+import com.example.taskmanager.sharding.ShardDataSources;
+import org.flywaydb.core.Flyway;
+import org.springframework.aot.AotDetector;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+@Configuration
+public class StartupConfig {
+
+    /**
+     * Marks beans that are not needed to serve the API (springdoc by default) as lazy,
+     * so they are created on first use instead of during startup. Unlike
+     * spring.main.lazy-initialization this leaves security, JPA and the controllers eager.
+     * Runs at build time too when the context is AOT-processed (-Pstartup).
+     */
+    @Bean
+    public static BeanFactoryPostProcessor lazyNonCriticalBeans(Environment environment) {
+        List<String> prefixes = Arrays.stream(environment
+                        .getProperty("taskmanager.startup.lazy-bean-packages", String[].class, new String[0]))
+                .map(String::trim)
+                .filter(prefix -> !prefix.isEmpty())
+                .toList();
+        return beanFactory -> {
+            if (prefixes.isEmpty()) {
+                return;
+            }
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                String type = definition.getBeanClassName() != null
+                        ? definition.getBeanClassName()
+                        : definition.getFactoryBeanName() != null
+                                ? beanFactory.getBeanDefinition(definition.getFactoryBeanName()).getBeanClassName()
+                                : null;
+                if (type != null && prefixes.stream().anyMatch(type::startsWith)) {
+                    definition.setLazyInit(true);
+                }
+            }
+        };
+    }
+
+    /**
+     * Lets spring.flyway.enabled=false skip the migrations of an AOT-processed build, whose
+     * Flyway beans exist whatever the property says at runtime. The Docker image's training
+     * run relies on it to start without a database.
+     */
+    @Bean
+    public static BeanFactoryPostProcessor aotFlywaySwitch(Environment environment) {
+        return beanFactory -> {
+            if (AotDetector.useGeneratedArtifacts() && !environment.getProperty("spring.flyway.enabled", Boolean.class, true)) {
+                skipFlywayMigration(beanFactory);
+            }
+        };
+    }
+
+    static void skipFlywayMigration(ConfigurableListableBeanFactory beanFactory) {
+        if (beanFactory.containsBeanDefinition("flywayInitializer")) {
+            ((AbstractBeanDefinition) beanFactory.getBeanDefinition("flywayInitializer")).setInstanceSupplier(() ->
+                    new FlywayMigrationInitializer(beanFactory.getBean(Flyway.class), flyway -> {}));
+        }
+    }
+
+    /**
+     * Fails the start of an AOT-processed build whose properties select other optional
+     * components than the build did: AOT processing evaluates {@code @ConditionalOnProperty}
+     * once, with the build's properties, so they would otherwise be ignored. The Dockerfile
+     * takes them as the AOT_PROPERTIES build argument.
+     */
+    @Bean
+    public static BeanFactoryPostProcessor aotConditionsCheck(Environment environment) {
+        return beanFactory -> {
+            if (AotDetector.useGeneratedArtifacts()) {
+                checkAotConditions(environment, beanFactory);
+            }
+        };
+    }
+
+    static void checkAotConditions(Environment environment, ListableBeanFactory beanFactory) {
+        requireBuiltWith(environment, "taskmanager.sharding.enabled",
+                value -> "true".equalsIgnoreCase(value) ? "true" : "false",
+                has(beanFactory, ShardDataSources.class) ? "true" : "false");
+        requireBuiltWith(environment, "taskmanager.cache.invalidation.transport",
+                value -> "postgres".equalsIgnoreCase(value) || "in-process".equalsIgnoreCase(value) ? value.toLowerCase() : "none",
+                has(beanFactory, PostgresInvalidationTransport.class) ? "postgres"
+                        : has(beanFactory, InProcessInvalidationTransport.class) ? "in-process" : "none");
+        requireBuiltWith(environment, "taskmanager.reactive.enabled",
+                value -> "true".equalsIgnoreCase(value) ? "true" : "false",
+                has(beanFactory, ReactiveTaskConfig.ReactiveServer.class) ? "true" : "false");
+    }
+
+    private static void requireBuiltWith(Environment environment, String property, UnaryOperator<String> normalize, String built) {
+        String value = normalize.apply(environment.getProperty(property));
+        if (!value.equals(built)) {
+            throw new IllegalStateException(property + "=" + value + ", but this build was AOT-processed with "
+                    + property + "=" + built + ". Rebuild with the property set (Dockerfile: --build-arg "
+                    + "AOT_PROPERTIES=\"-D" + property + "=" + value + "\") or start without -Dspring.aot.enabled=true");
+        }
+    }
+
+    private static boolean has(ListableBeanFactory beanFactory, Class<?> type) {
+        return beanFactory.getBeanNamesForType(type, true, false).length > 0;
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import com.example.taskmanager.security.JwtUtil;
 import com.example.taskmanager.security.CustomUserDetailsService;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -31,6 +32,12 @@ public class AuthController {
         return ResponseEntity.ok(EntityToDTOMapper.toUserDTO(created));
     }
 
+    /** Whether a username can still be registered; registration re-checks. */
+    @GetMapping("/username-available")
+    public Map<String, Object> usernameAvailable(@RequestParam String username) {
+        return Map.of("username", username, "available", userService.isUsernameAvailable(username));
+    }
+
     @Autowired
     private AuthenticationManager authenticationManager;
     @Autowired
@@ -0,0 +1,47 @@
+package com.example.taskmanager.controller;
+
+import com.example.taskmanager.service.BulkJob;
+import com.example.taskmanager.service.BulkTaskOperations;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+
+/**
+ * Progress of bulk operations started from the project and user endpoints, and the maintenance
+ * jobs started here.
+ */
+@RestController
+@RequestMapping("/api/v1/bulk-jobs")
+public class BulkJobController {
+    private final BulkTaskOperations bulkTaskOperations;
+
+    @Autowired
+    public BulkJobController(BulkTaskOperations bulkTaskOperations) {
+        this.bulkTaskOperations = bulkTaskOperations;
+    }
+
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @GetMapping("/{id}")
+    public ResponseEntity<BulkJob> getJob(@PathVariable String id) {
+        return bulkTaskOperations.getJob(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /** Gives tasks from before the status history an entry in it; see TaskHistoryService. */
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @PostMapping("/task-history-backfill")
+    public ResponseEntity<BulkJob> backfillTaskHistory() {
+        return accepted(bulkTaskOperations.backfillTaskHistory());
+    }
+
+    /** 202 Accepted pointing at the job's progress resource. */
+    static ResponseEntity<BulkJob> accepted(BulkJob job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/bulk-jobs/" + job.getId()))
+                .body(job);
+    }
+}
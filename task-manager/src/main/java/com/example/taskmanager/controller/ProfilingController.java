@@ -0,0 +1,85 @@
+package com.example.taskmanager.controller;
+
+import com.example.taskmanager.dto.RecordingDTO;
+import com.example.taskmanager.profiling.FlightRecordings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Java Flight Recorder recordings on demand, for looking inside a slow instance without a
+ * redeploy. Open the downloaded .jfr file in JDK Mission Control; the application events are
+ * under "Task Manager".
+ */
+@RestController
+@RequestMapping("/api/v1/admin/recordings")
+@PreAuthorize("hasAuthority('ROLE_ADMIN')")
+public class ProfilingController {
+    private final FlightRecordings flightRecordings;
+
+    @Autowired
+    public ProfilingController(FlightRecordings flightRecordings) {
+        this.flightRecordings = flightRecordings;
+    }
+
+    /** Starts a recording, e.g. {@code ?duration=PT2M&settings=profile}. */
+    @PostMapping
+    public ResponseEntity<RecordingDTO> startRecording(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) Duration duration,
+            @RequestParam(defaultValue = "default") String settings) {
+        try {
+            RecordingDTO recording = flightRecordings.start(name, duration, settings);
+            return ResponseEntity.created(URI.create("/api/v1/admin/recordings/" + recording.id())).body(recording);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<List<RecordingDTO>> getRecordings() {
+        return ResponseEntity.ok(flightRecordings.list());
+    }
+
+    @PostMapping("/{id}/stop")
+    public ResponseEntity<RecordingDTO> stopRecording(@PathVariable long id) {
+        return ResponseEntity.ok(flightRecordings.stop(id));
+    }
+
+    /** What the recording holds so far; it keeps running if it was. */
+    @GetMapping("/{id}/file")
+    public ResponseEntity<StreamingResponseBody> downloadRecording(@PathVariable long id) throws IOException {
+        Path file = flightRecordings.dump(id);
+        StreamingResponseBody body = output -> {
+            try {
+                Files.copy(file, output);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(Files.size(file))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("recording-" + id + ".jfr").build().toString())
+                .body(body);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> discardRecording(@PathVariable long id) {
+        flightRecordings.discard(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,18 +1,32 @@
 package com.example.taskmanager.controller;
 
+import com.example.taskmanager.dto.CycleTimeDTO;
 import com.example.taskmanager.dto.ProjectDTO;
+import com.example.taskmanager.dto.ProjectMembershipDTO;
+import com.example.taskmanager.dto.ProjectStatsDTO;
+import com.example.taskmanager.dto.TaskBoardDTO;
 import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.dto.TaskTrendDTO;
 import com.example.taskmanager.dto.EntityToDTOMapper;
 import com.example.taskmanager.entities.Project;
 import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.entities.TaskLabels;
 import com.example.taskmanager.entities.User;
+import com.example.taskmanager.service.BulkJob;
+import com.example.taskmanager.service.BulkTaskOperations;
+import com.example.taskmanager.service.ProjectMembershipService;
 import com.example.taskmanager.service.ProjectService;
+import com.example.taskmanager.service.ProjectStatsService;
+import com.example.taskmanager.service.TaskBoardService;
+import com.example.taskmanager.service.TaskHistoryService;
 import com.example.taskmanager.service.TaskService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -23,19 +37,123 @@ import java.util.stream.Collectors;
 public class ProjectController {
     private final ProjectService projectService;
     private final TaskService taskService;
+    private final BulkTaskOperations bulkTaskOperations;
+    private final ProjectStatsService projectStatsService;
+    private final TaskBoardService taskBoardService;
+    private final TaskHistoryService taskHistoryService;
+    private final ProjectMembershipService projectMembership;
 
     @Autowired
-    public ProjectController(ProjectService projectService, TaskService taskService) {
+    public ProjectController(ProjectService projectService, TaskService taskService,
+                             BulkTaskOperations bulkTaskOperations, ProjectStatsService projectStatsService,
+                             TaskBoardService taskBoardService, TaskHistoryService taskHistoryService,
+                             ProjectMembershipService projectMembership) {
         this.projectService = projectService;
         this.taskService = taskService;
+        this.bulkTaskOperations = bulkTaskOperations;
+        this.projectStatsService = projectStatsService;
+        this.taskBoardService = taskBoardService;
+        this.taskHistoryService = taskHistoryService;
+        this.projectMembership = projectMembership;
     }
 
     @GetMapping
-    public List<ProjectDTO> getAllProjects() {
-        return projectService.getAllProjects()
+    public List<ProjectDTO> getAllProjects(@RequestParam(defaultValue = "false") boolean withStats) {
+        List<ProjectDTO> projects = projectService.getAllProjects()
                 .stream()
                 .map(EntityToDTOMapper::toProjectDTO)
                 .collect(Collectors.toList());
+        if (withStats) {
+            Map<Long, ProjectStatsDTO> stats = projectStatsService.getStats(
+                    projects.stream().map(ProjectDTO::getId).toList());
+            projects.forEach(project -> project.setStats(stats.get(project.getId())));
+        }
+        return projects;
+    }
+
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<ProjectStatsDTO> getProjectStats(@PathVariable Long id) {
+        return projectStatsService.getStats(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /** Every status column of the project with its first {@code limit} tasks and its total. */
+    @GetMapping("/{id}/board")
+    public ResponseEntity<TaskBoardDTO> getBoard(@PathVariable Long id,
+                                                 @RequestParam(defaultValue = "10") int limit,
+                                                 @RequestParam(required = false) Long assigneeId,
+                                                 @RequestParam(required = false) List<String> priority) {
+        if (projectService.getProjectById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(taskBoardService.getBoard(id, limit, assigneeId, priorities(priority)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /** The next tasks of one board column, after the column's {@code nextCursor}. */
+    @GetMapping("/{id}/board/{status}")
+    public ResponseEntity<TaskBoardDTO.Column> getBoardColumn(@PathVariable Long id,
+                                                              @PathVariable String status,
+                                                              @RequestParam String cursor,
+                                                              @RequestParam(defaultValue = "10") int limit,
+                                                              @RequestParam(required = false) Long assigneeId,
+                                                              @RequestParam(required = false) List<String> priority) {
+        try {
+            return ResponseEntity.ok(taskBoardService.getColumn(id, Task.Status.valueOf(status.toUpperCase()), cursor,
+                    limit, assigneeId, priorities(priority)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /** Open tasks at the end of each hour or day of a range, and the tasks completed in it. */
+    @GetMapping("/{id}/burndown")
+    public ResponseEntity<TaskTrendDTO> getBurndown(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "day") String resolution) {
+        if (projectService.getProjectById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(taskHistoryService.getBurndown(id, from, to,
+                    TaskHistoryService.Resolution.parse(resolution)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /** Cycle time percentiles, in hours, of the tasks of the project completed in a range. */
+    @GetMapping("/{id}/cycle-time")
+    public ResponseEntity<CycleTimeDTO> getCycleTime(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "day") String resolution,
+            @RequestParam(defaultValue = "50,85,95") List<Integer> percentiles) {
+        if (projectService.getProjectById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(taskHistoryService.getCycleTime(TaskHistoryService.Scope.PROJECT, id, from, to,
+                    TaskHistoryService.Resolution.parse(resolution), percentiles));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static Task.Priority[] priorities(List<String> priority) {
+        if (priority == null || priority.isEmpty()) {
+            return null;
+        }
+        return priority.stream()
+                .map(p -> Task.Priority.valueOf(p.toUpperCase()))
+                .toArray(Task.Priority[]::new);
     }
 
     @GetMapping("/{id}")
@@ -71,7 +189,7 @@ public class ProjectController {
             }
 
             // Get the existing project
-            Project existingProject = projectService.getProjectById(projectId)
+            Project existingProject = projectService.getProjectForUpdate(projectId)
                     .orElseThrow(() -> new RuntimeException("Project not found with id: " + projectId));
 
             // Update only the fields that are present in the request
@@ -108,11 +226,61 @@ public class ProjectController {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteProject(@PathVariable Long id) {
+    public ResponseEntity<?> deleteProject(@PathVariable Long id) {
         projectService.deleteProject(id);
         return ResponseEntity.noContent().build();
     }
 
+    /** Deletes the project and every one of its tasks in the background, like the other bulk jobs. */
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @DeleteMapping(value = "/{id}", params = "withTasks=true")
+    public ResponseEntity<BulkJob> deleteProjectWithTasks(@PathVariable Long id) {
+        return BulkJobController.accepted(bulkTaskOperations.deleteProjectWithTasks(id));
+    }
+
+    /** Completes or cancels every open task of the project in the background. */
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @PostMapping("/{projectId}/tasks/close")
+    public ResponseEntity<BulkJob> closeOpenTasks(@PathVariable Long projectId,
+                                                  @RequestParam(defaultValue = "COMPLETED") String status) {
+        try {
+            Task.Status target = Task.Status.valueOf(status.toUpperCase());
+            return BulkJobController.accepted(bulkTaskOperations.closeOpenTasks(projectId, target));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /** Moves every archived task of the project back to the active tasks, in the background. */
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @PostMapping("/{projectId}/tasks/restore")
+    public ResponseEntity<BulkJob> restoreArchivedTasks(@PathVariable Long projectId) {
+        return BulkJobController.accepted(bulkTaskOperations.restoreArchivedTasks(projectId));
+    }
+
+    /**
+     * Moves the tasks with the given ids (a JSON array) into the project, from whichever
+     * project they are in; the project's other tasks are not read.
+     */
+    @PostMapping("/{projectId}/tasks/add")
+    public ResponseEntity<ProjectMembershipDTO> addTasks(@PathVariable Long projectId, @RequestBody List<Long> taskIds) {
+        try {
+            return ResponseEntity.ok(projectMembership.addTasks(projectId, taskIds));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /** Takes the tasks with the given ids (a JSON array) out of the project, leaving them without one. */
+    @PostMapping("/{projectId}/tasks/remove")
+    public ResponseEntity<ProjectMembershipDTO> removeTasks(@PathVariable Long projectId, @RequestBody List<Long> taskIds) {
+        try {
+            return ResponseEntity.ok(projectMembership.removeTasks(projectId, taskIds));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{projectId}/tasks")
     public ResponseEntity<List<TaskDTO>> getTasksByProject(@PathVariable Long projectId) {
         Optional<Project> projectOpt = projectService.getProjectById(projectId);
@@ -158,6 +326,7 @@ public class ProjectController {
             }
 
             task.setDueDate(taskDTO.getDueDate());
+            task.setLabels(TaskLabels.normalize(taskDTO.getLabels()));
 
             // Create task via service
             Task created = taskService.createTask(
@@ -0,0 +1,94 @@
+package com.example.taskmanager.controller;
+
+import com.example.taskmanager.dto.EntityToDTOMapper;
+import com.example.taskmanager.dto.SavedFilterDTO;
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.dto.TaskListResult;
+import com.example.taskmanager.entities.User;
+import com.example.taskmanager.service.SavedFilterService;
+import com.example.taskmanager.service.TaskService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The saved task filters of the signed-in user. Opening one returns a page of its tasks in the
+ * shape of the task list, with the saved filter and its live match count.
+ */
+@RestController
+@RequestMapping("/api/v1/saved-filters")
+public class SavedFilterController {
+    private final SavedFilterService savedFilterService;
+    private final TaskService taskService;
+
+    @Autowired
+    public SavedFilterController(SavedFilterService savedFilterService, TaskService taskService) {
+        this.savedFilterService = savedFilterService;
+        this.taskService = taskService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<SavedFilterDTO>> getSavedFilters(@AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(savedFilterService.list(user.getId()));
+    }
+
+    /** Saves {@code {"name": ..., "filter": {...}}}, the filter taking the task list's parameters. */
+    @PostMapping
+    public ResponseEntity<SavedFilterDTO> createSavedFilter(@AuthenticationPrincipal User user,
+                                                            @RequestBody SavedFilterDTO request) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(savedFilterService.create(user.getId(), request.name(), request.filter()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> openSavedFilter(@AuthenticationPrincipal User user,
+                                                               @PathVariable Long id,
+                                                               @RequestParam(defaultValue = "0") int page,
+                                                               @RequestParam(defaultValue = "10") int size) {
+        SavedFilterService.Opened opened;
+        try {
+            opened = savedFilterService.open(user.getId(), id, page, size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        TaskListResult result;
+        if (opened.ids() != null) {
+            long total = opened.filter().matchCount();
+            result = new TaskListResult(taskService.getTasksByIds(opened.ids()), page, size,
+                    (long) (page + 1) * size < total, total, true);
+        } else {
+            result = taskService.listTasks(opened.query());
+        }
+
+        List<TaskDTO> tasks = result.content().stream()
+                .map(EntityToDTOMapper::toTaskDTO)
+                .toList();
+        Map<String, Object> response = new HashMap<>();
+        response.put("filter", opened.filter());
+        response.put("data", tasks);
+        response.put("page", result.page());
+        response.put("limit", result.size());
+        response.put("hasNext", result.hasNext());
+        response.put("total", result.total());
+        response.put("totalPages", result.totalPages());
+        response.put("totalExact", result.totalExact());
+        return ResponseEntity.ok(response);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteSavedFilter(@AuthenticationPrincipal User user, @PathVariable Long id) {
+        savedFilterService.delete(user.getId(), id);
+        return ResponseEntity.noContent().build();
+    }
+}
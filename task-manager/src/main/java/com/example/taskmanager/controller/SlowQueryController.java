@@ -0,0 +1,45 @@
+package com.example.taskmanager.controller;
+
+import com.example.taskmanager.dto.SlowQueryDTO;
+import com.example.taskmanager.profiling.SlowQueryLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * The slow-query log: statement shapes over the threshold with their timings, the parameters,
+ * origin and route of their slowest run, and their plan once captured.
+ */
+@RestController
+@RequestMapping("/api/v1/admin/slow-queries")
+@PreAuthorize("hasAuthority('ROLE_ADMIN')")
+public class SlowQueryController {
+    private final SlowQueryLog slowQueryLog;
+
+    @Autowired
+    public SlowQueryController(SlowQueryLog slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    /** The worst shapes, e.g. {@code ?sort=max&limit=10}; sort is total, max, mean or count. */
+    @GetMapping
+    public ResponseEntity<List<SlowQueryDTO>> getSlowQueries(
+            @RequestParam(defaultValue = "total") String sort,
+            @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(slowQueryLog.findings(sort, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /** Starts over, e.g. after adding an index. */
+    @DeleteMapping
+    public ResponseEntity<Void> clearSlowQueries() {
+        slowQueryLog.clear();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.taskmanager.controller;
 
+import com.example.taskmanager.dto.TaskAggregateDTO;
 import com.example.taskmanager.dto.TaskDTO;
 import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.dto.TaskListResult;
 import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.entities.TaskLabels;
+import com.example.taskmanager.service.TaskAggregationService;
+import com.example.taskmanager.service.TaskLabelIndex;
 import com.example.taskmanager.service.TaskService;
 import com.example.taskmanager.dto.EntityToDTOMapper;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -19,10 +23,14 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/v1/tasks")
 public class TaskController {
     private final TaskService taskService;
+    private final TaskAggregationService taskAggregates;
+    private final TaskLabelIndex taskLabels;
 
     @Autowired
-    public TaskController(TaskService taskService) {
+    public TaskController(TaskService taskService, TaskAggregationService taskAggregates, TaskLabelIndex taskLabels) {
         this.taskService = taskService;
+        this.taskAggregates = taskAggregates;
+        this.taskLabels = taskLabels;
     }
 
     @GetMapping
@@ -34,8 +42,14 @@ public class TaskController {
             @RequestParam(required = false) Long projectId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDateFrom,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDateTo,
+            @RequestParam(required = false) List<String> labels,
+            @RequestParam(required = false) List<String> anyLabels,
+            @RequestParam(required = false) List<String> notLabels,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "true") boolean withTotal,
+            @RequestParam(defaultValue = "false") boolean estimateTotal,
+            @RequestParam(defaultValue = "false") boolean includeArchived) {
             
         TaskFilterDTO filterDTO = new TaskFilterDTO();
         filterDTO.setSearch(search);
@@ -62,25 +76,81 @@ public class TaskController {
         filterDTO.setProjectId(projectId);
         filterDTO.setDueDateFrom(dueDateFrom);
         filterDTO.setDueDateTo(dueDateTo);
+        try {
+            // e.g. ?labels=bug&anyLabels=backend,api&notLabels=wontfix
+            filterDTO.setLabels(labels != null ? labels.toArray(String[]::new) : null);
+            filterDTO.setAnyLabels(anyLabels != null ? anyLabels.toArray(String[]::new) : null);
+            filterDTO.setNotLabels(notLabels != null ? notLabels.toArray(String[]::new) : null);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
         filterDTO.setPage(page);
         filterDTO.setSize(size);
+        filterDTO.setWithTotal(withTotal);
+        filterDTO.setEstimateTotal(estimateTotal);
+        filterDTO.setIncludeArchived(includeArchived);
         
-        Page<Task> pageTasks = taskService.getTasksWithFilters(filterDTO);
+        TaskListResult result = taskService.listTasks(filterDTO);
         
-        List<TaskDTO> tasks = pageTasks.getContent().stream()
+        List<TaskDTO> tasks = result.content().stream()
                 .map(EntityToDTOMapper::toTaskDTO)
                 .collect(Collectors.toList());
                 
         Map<String, Object> response = new HashMap<>();
         response.put("data", tasks);
-        response.put("total", pageTasks.getTotalElements());
-        response.put("page", pageTasks.getNumber());
-        response.put("limit", pageTasks.getSize());
-        response.put("totalPages", pageTasks.getTotalPages());
+        response.put("page", result.page());
+        response.put("limit", result.size());
+        response.put("hasNext", result.hasNext());
+        // total, totalPages and totalExact are omitted when the caller asked for no total
+        if (result.total() != null) {
+            response.put("total", result.total());
+            response.put("totalPages", result.totalPages());
+            response.put("totalExact", result.totalExact());
+        }
         
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Task counts with the filters of the task list (except search), grouped by any of status,
+     * priority, project and assignee, e.g. {@code ?groupBy=project,status}.
+     */
+    @GetMapping("/aggregate")
+    public ResponseEntity<TaskAggregateDTO> aggregateTasks(
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(required = false) List<String> priority,
+            @RequestParam(required = false) Long assigneeId,
+            @RequestParam(required = false) Long projectId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dueDateTo,
+            @RequestParam(required = false) List<String> groupBy) {
+        try {
+            TaskFilterDTO filterDTO = new TaskFilterDTO();
+            filterDTO.setStatus(status != null ? status.stream()
+                    .map(s -> Task.Status.valueOf(s.toUpperCase()))
+                    .toArray(Task.Status[]::new) : null);
+            filterDTO.setPriority(priority != null ? priority.stream()
+                    .map(p -> Task.Priority.valueOf(p.toUpperCase()))
+                    .toArray(Task.Priority[]::new) : null);
+            filterDTO.setAssigneeId(assigneeId);
+            filterDTO.setProjectId(projectId);
+            filterDTO.setDueDateFrom(dueDateFrom);
+            filterDTO.setDueDateTo(dueDateTo);
+            List<TaskAggregationService.Dimension> dimensions = groupBy != null
+                    ? groupBy.stream().map(TaskAggregationService.Dimension::parse).toList()
+                    : List.of();
+            return ResponseEntity.ok(taskAggregates.aggregate(filterDTO, dimensions));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /** The labels in use on active tasks, with how many tasks carry each. */
+    @GetMapping("/labels")
+    public ResponseEntity<Map<String, Long>> getLabels() {
+        return ResponseEntity.ok(taskLabels.labelCounts());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<TaskDTO> getTaskById(@PathVariable Long id) {
         Optional<Task> taskOpt = taskService.getTaskById(id);
@@ -97,6 +167,7 @@ public class TaskController {
             task.setStatus(taskDTO.getStatus() != null ? Task.Status.valueOf(taskDTO.getStatus()) : null);
             task.setPriority(taskDTO.getPriority() != null ? Task.Priority.valueOf(taskDTO.getPriority()) : null);
             task.setDueDate(taskDTO.getDueDate());
+            task.setLabels(TaskLabels.normalize(taskDTO.getLabels()));
             
             // These relationships will be set in the service layer
             Task created = taskService.createTask(task, taskDTO.getProjectId(), taskDTO.getCreatorId(), taskDTO.getAssigneeId());
@@ -115,9 +186,12 @@ public class TaskController {
             task.setStatus(taskDTO.getStatus() != null ? Task.Status.valueOf(taskDTO.getStatus()) : null);
             task.setPriority(taskDTO.getPriority() != null ? Task.Priority.valueOf(taskDTO.getPriority()) : null);
             task.setDueDate(taskDTO.getDueDate());
+            task.setLabels(TaskLabels.normalize(taskDTO.getLabels()));
             
             Task updated = taskService.updateTask(id, task, taskDTO.getProjectId(), taskDTO.getAssigneeId());
             return ResponseEntity.ok(EntityToDTOMapper.toTaskDTO(updated));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (RuntimeException e) {
             return ResponseEntity.notFound().build();
         }
@@ -149,6 +223,13 @@ public class TaskController {
         }
     }
     
+    /** Moves an archived task back to the active tasks. */
+    @PostMapping("/{id}/restore")
+    public ResponseEntity<TaskDTO> restoreTask(@PathVariable Long id) {
+        Task restored = taskService.restoreTask(id);
+        return ResponseEntity.ok(EntityToDTOMapper.toTaskDTO(restored));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteTask(@PathVariable Long id) {
         taskService.deleteTask(id);
@@ -1,13 +1,25 @@
 package com.example.taskmanager.controller;
 
+import com.example.taskmanager.dto.CycleTimeDTO;
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.dto.TaskTrendDTO;
 import com.example.taskmanager.dto.UserDTO;
+import com.example.taskmanager.dto.UserListResult;
 import com.example.taskmanager.entities.User;
+import com.example.taskmanager.service.AssigneeQueueIndex;
+import com.example.taskmanager.service.BulkJob;
+import com.example.taskmanager.service.BulkTaskOperations;
+import com.example.taskmanager.service.TaskHistoryService;
+import com.example.taskmanager.service.UserDirectory;
 import com.example.taskmanager.service.UserService;
 import com.example.taskmanager.dto.EntityToDTOMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -17,10 +29,17 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/v1/users")
 public class UserController {
     private final UserService userService;
+    private final BulkTaskOperations bulkTaskOperations;
+    private final AssigneeQueueIndex assigneeQueues;
+    private final TaskHistoryService taskHistoryService;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, BulkTaskOperations bulkTaskOperations,
+                          AssigneeQueueIndex assigneeQueues, TaskHistoryService taskHistoryService) {
         this.userService = userService;
+        this.bulkTaskOperations = bulkTaskOperations;
+        this.assigneeQueues = assigneeQueues;
+        this.taskHistoryService = taskHistoryService;
     }
 
     @GetMapping
@@ -31,6 +50,34 @@ public class UserController {
                 .collect(Collectors.toList());
     }
 
+    /** The listing one page at a time ({@code ?page=}), in the shape of the task listing. */
+    @GetMapping(params = "page")
+    public ResponseEntity<Map<String, Object>> getUsersPage(
+            @RequestParam int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "true") boolean withTotal) {
+        if (page < 0 || size < 1 || size > 500) {
+            return ResponseEntity.badRequest().build();
+        }
+        UserListResult result = userService.listUsers(page, size, withTotal);
+        Map<String, Object> response = new HashMap<>();
+        response.put("data", result.content().stream().map(EntityToDTOMapper::toUserDTO).collect(Collectors.toList()));
+        response.put("page", result.page());
+        response.put("limit", result.size());
+        response.put("hasNext", result.hasNext());
+        if (result.total() != null) {
+            response.put("total", result.total());
+            response.put("totalPages", result.totalPages());
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    /** Usernames starting with {@code q}, ignoring case, for the assignee picker. */
+    @GetMapping("/suggest")
+    public List<UserDirectory.Suggestion> suggest(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        return userService.suggestUsers(q, Math.max(1, Math.min(limit, 50)));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<UserDTO> getUserById(@PathVariable Long id) {
         Optional<User> userOpt = userService.getUserById(id);
@@ -38,6 +85,47 @@ public class UserController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /** The user's open tasks in work order: priority, then due date. */
+    @GetMapping("/{id}/queue")
+    public ResponseEntity<List<TaskDTO>> getQueue(@PathVariable Long id, @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(assigneeQueues.queue(id, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /** Tasks the user completed in each hour or day of a range. */
+    @GetMapping("/{id}/throughput")
+    public ResponseEntity<TaskTrendDTO> getThroughput(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "day") String resolution) {
+        try {
+            return ResponseEntity.ok(taskHistoryService.getThroughput(id, from, to,
+                    TaskHistoryService.Resolution.parse(resolution)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /** Cycle time percentiles, in hours, of the tasks the user completed in a range. */
+    @GetMapping("/{id}/cycle-time")
+    public ResponseEntity<CycleTimeDTO> getCycleTime(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "day") String resolution,
+            @RequestParam(defaultValue = "50,85,95") List<Integer> percentiles) {
+        try {
+            return ResponseEntity.ok(taskHistoryService.getCycleTime(TaskHistoryService.Scope.ASSIGNEE, id, from, to,
+                    TaskHistoryService.Resolution.parse(resolution), percentiles));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping
     public ResponseEntity<UserDTO> createUser(@RequestBody User user) {
         User created = userService.createUser(user);
@@ -60,4 +148,15 @@ public class UserController {
         userService.deleteUser(id);
         return ResponseEntity.noContent().build();
     }
+
+    /** Moves every task assigned to this user to another user, in the background. */
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @PostMapping("/{id}/tasks/reassign")
+    public ResponseEntity<BulkJob> reassignTasks(@PathVariable Long id, @RequestParam("to") Long toUserId) {
+        try {
+            return BulkJobController.accepted(bulkTaskOperations.reassignTasks(id, toUserId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 }
@@ -0,0 +1,17 @@
+package com.example.taskmanager.dto;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Cycle time of the tasks a project or an assignee completed between {@code from} and
+ * {@code to}: percentiles in hours, keyed like {@code p85}, estimated from histogram bins.
+ * {@code completions} counts the completions whose start is known; the percentiles cover those.
+ */
+public record CycleTimeDTO(String scope,
+                           Long id,
+                           LocalDateTime from,
+                           LocalDateTime to,
+                           long completions,
+                           Map<String, Double> percentileHours) {
+}
@@ -1,18 +1,28 @@
 package com.example.taskmanager.dto;
 
 import com.example.taskmanager.entities.*;
+import com.example.taskmanager.profiling.DtoMappingEvent;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 public class EntityToDTOMapper {
     public static UserDTO toUserDTO(User user) {
         if (user == null) return null;
+        DtoMappingEvent event = new DtoMappingEvent();
+        event.begin();
         Set<String> roles = user.getRoles() != null ? user.getRoles().stream().map(Role::getName).collect(Collectors.toSet()) : null;
-        return new UserDTO(user.getId(), user.getUsername(), roles);
+        UserDTO dto = new UserDTO(user.getId(), user.getUsername(), roles);
+        event.entity = "User";
+        event.commit();
+        return dto;
     }
 
     public static ProjectDTO toProjectDTO(Project project) {
         if (project == null) return null;
+        DtoMappingEvent event = new DtoMappingEvent();
+        event.begin();
         Set<TaskDTO> tasks = project.getTasks() != null ? project.getTasks().stream().map(EntityToDTOMapper::toTaskDTO).collect(Collectors.toSet()) : null;
         Long ownerId = project.getOwner() != null ? project.getOwner().getId() : null;
         String ownerName = project.getOwner() != null ? project.getOwner().getUsername() : null;
@@ -20,17 +30,22 @@ public class EntityToDTOMapper {
         ProjectDTO dto = new ProjectDTO(project.getId(), project.getName(), project.getDescription(), ownerId, tasks);
         dto.setOwnerName(ownerName);
         dto.setCreatedAt(createdAt);
+        event.entity = "Project";
+        event.tasks = tasks != null ? tasks.size() : 0;
+        event.commit();
         return dto;
     }
 
     public static TaskDTO toTaskDTO(Task task) {
         if (task == null) return null;
+        DtoMappingEvent event = new DtoMappingEvent();
+        event.begin();
         
         Long projectId = task.getProject() != null ? task.getProject().getId() : null;
         Long creatorId = task.getCreator() != null ? task.getCreator().getId() : null;
         Long assigneeId = task.getAssignee() != null ? task.getAssignee().getId() : null;
         
-        return new TaskDTO(
+        TaskDTO dto = new TaskDTO(
             task.getId(), 
             task.getTitle(), 
             task.getDescription(), 
@@ -41,5 +56,10 @@ public class EntityToDTOMapper {
             assigneeId,
             projectId
         );
+        dto.setLabels(task.getLabels() != null ? List.copyOf(new TreeSet<>(task.getLabels())) : List.of());
+        event.entity = "Task";
+        event.tasks = 1;
+        event.commit();
+        return dto;
     }
 }
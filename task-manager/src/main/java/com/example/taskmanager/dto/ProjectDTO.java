@@ -2,6 +2,7 @@ package com.example.taskmanager.dto;
 
 import java.util.Set;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -22,6 +23,10 @@ public class ProjectDTO {
 
     private Set<TaskDTO> tasks;
 
+    /** Only present on listings that asked for it. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ProjectStatsDTO stats;
+
     public ProjectDTO() {}
 
     public String getOwnerName() { return ownerName; }
@@ -52,4 +57,7 @@ public class ProjectDTO {
 
     public Set<TaskDTO> getTasks() { return tasks; }
     public void setTasks(Set<TaskDTO> tasks) { this.tasks = tasks; }
+
+    public ProjectStatsDTO getStats() { return stats; }
+    public void setStats(ProjectStatsDTO stats) { this.stats = stats; }
 }
@@ -0,0 +1,10 @@
+package com.example.taskmanager.dto;
+
+import java.util.List;
+
+/**
+ * The outcome of adding tasks to a project or removing them from it: {@code changed} tasks
+ * changed project, the others were already where asked; {@code notFound} are the ids that are
+ * not active tasks (removal also lists the tasks that are not in the project).
+ */
+public record ProjectMembershipDTO(Long projectId, int requested, int changed, List<Long> notFound) {}
@@ -0,0 +1,15 @@
+package com.example.taskmanager.dto;
+
+import java.util.Map;
+
+/**
+ * Task statistics of one project. {@code overdueTasks} counts open tasks due before today;
+ * {@code completionPercentage} is the completed share of all tasks that were not cancelled.
+ */
+public record ProjectStatsDTO(Long projectId,
+                              long totalTasks,
+                              Map<String, Long> byStatus,
+                              Map<String, Long> byPriority,
+                              long overdueTasks,
+                              double completionPercentage) {
+}
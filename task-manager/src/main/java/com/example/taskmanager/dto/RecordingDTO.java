@@ -0,0 +1,11 @@
+package com.example.taskmanager.dto;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A Flight Recorder recording taken through the profiling endpoint. {@code duration} is the
+ * limit it stops at; {@code sizeBytes} is what it has written so far.
+ */
+public record RecordingDTO(long id, String name, String state, String settings, Instant startTime, Duration duration,
+                           long sizeBytes) {}
@@ -0,0 +1,53 @@
+package com.example.taskmanager.dto;
+
+import com.example.taskmanager.entities.Task;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * A saved task filter with the live number of hot tasks it matches; {@code matchCount} is
+ * null when its matches are not held in memory.
+ */
+public record SavedFilterDTO(Long id, String name, Criteria filter, Long matchCount) {
+
+    /** The filters of the task list, as given when saving; stored as JSON. */
+    public record Criteria(String search,
+                           List<String> status,
+                           List<String> priority,
+                           Long assigneeId,
+                           Long projectId,
+                           LocalDate dueDateFrom,
+                           LocalDate dueDateTo,
+                           List<String> labels,
+                           List<String> anyLabels,
+                           List<String> notLabels) {
+
+        /**
+         * The task list filter; throws IllegalArgumentException for an unknown status or priority
+         * or a bad label. An empty list is no filter, as an omitted one.
+         */
+        public TaskFilterDTO toFilter() {
+            TaskFilterDTO filter = new TaskFilterDTO();
+            filter.setSearch(search);
+            filter.setStatus(present(status) ? status.stream()
+                    .map(s -> Task.Status.valueOf(s.toUpperCase()))
+                    .toArray(Task.Status[]::new) : null);
+            filter.setPriority(present(priority) ? priority.stream()
+                    .map(p -> Task.Priority.valueOf(p.toUpperCase()))
+                    .toArray(Task.Priority[]::new) : null);
+            filter.setAssigneeId(assigneeId);
+            filter.setProjectId(projectId);
+            filter.setDueDateFrom(dueDateFrom);
+            filter.setDueDateTo(dueDateTo);
+            filter.setLabels(present(labels) ? labels.toArray(String[]::new) : null);
+            filter.setAnyLabels(present(anyLabels) ? anyLabels.toArray(String[]::new) : null);
+            filter.setNotLabels(present(notLabels) ? notLabels.toArray(String[]::new) : null);
+            return filter;
+        }
+
+        private static boolean present(List<String> values) {
+            return values != null && !values.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.taskmanager.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A statement shape from the slow-query log. {@code sql}, {@code parameters}, {@code origin}
+ * and {@code route} describe its slowest run; {@code plan} is null until it has been explained.
+ */
+public record SlowQueryDTO(String statement, long count, double totalMillis, double maxMillis, double meanMillis,
+                           Instant lastSeen, String sql, List<String> parameters, String origin, String route,
+                           String plan) {}
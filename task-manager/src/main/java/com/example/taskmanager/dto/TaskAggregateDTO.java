@@ -0,0 +1,14 @@
+package com.example.taskmanager.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Task counts grouped by the fields in {@code groupBy}: the matching tasks and, of those, the open
+ * ones due before today. Each group's key maps the grouped fields to their value (null for tasks
+ * without one); groups without tasks are left out.
+ */
+public record TaskAggregateDTO(List<String> groupBy, long total, long overdue, List<Group> groups) {
+
+    public record Group(Map<String, Object> key, long count, long overdue) {}
+}
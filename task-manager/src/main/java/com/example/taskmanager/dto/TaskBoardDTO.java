@@ -0,0 +1,13 @@
+package com.example.taskmanager.dto;
+
+import java.util.List;
+
+/**
+ * The kanban board of a project: one column per task status, each with its first tasks (by
+ * priority, then due date) and the number of tasks in it. {@code nextCursor} continues a column
+ * and is null once it has been read to the end.
+ */
+public record TaskBoardDTO(Long projectId, List<Column> columns) {
+
+    public record Column(String status, Long total, List<TaskDTO> tasks, String nextCursor) {}
+}
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import java.time.LocalDateTime;
+import java.util.List;
 
 public class TaskDTO {
     private Long id;
@@ -30,6 +31,9 @@ public class TaskDTO {
     
     private Long projectId;
 
+    // Normalized on write (TaskLabels); listed in order
+    private List<String> labels;
+
     public TaskDTO() {}
 
     public TaskDTO(Long id, String title, String description, String status, 
@@ -73,4 +77,7 @@ public class TaskDTO {
     
     public Long getProjectId() { return projectId; }
     public void setProjectId(Long projectId) { this.projectId = projectId; }
+
+    public List<String> getLabels() { return labels; }
+    public void setLabels(List<String> labels) { this.labels = labels; }
 }
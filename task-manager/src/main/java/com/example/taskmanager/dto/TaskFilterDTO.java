@@ -1,9 +1,12 @@
 package com.example.taskmanager.dto;
 
 import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.entities.TaskLabels;
 import lombok.Data;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.stream.Collectors;
 
 
 @Data
@@ -15,8 +18,19 @@ public class TaskFilterDTO {
     private Long projectId;
     private LocalDate dueDateFrom;
     private LocalDate dueDateTo;
+    // Label filters, normalized (TaskLabels): tasks with all of labels, at least one of
+    // anyLabels (if given) and none of notLabels
+    private String[] labels;
+    private String[] anyLabels;
+    private String[] notLabels;
     private Integer page = 0;
     private Integer size = 10;
+    // false: skip the COUNT query and only report whether a next page exists
+    private Boolean withTotal = true;
+    // true: report a cached, possibly stale total instead of counting on every request
+    private Boolean estimateTotal = false;
+    // true: also read archived (finished, long unchanged) tasks from the cold tier
+    private Boolean includeArchived = false;
     
     public void setStatus(Task.Status[] status) {
         this.status = status != null && status.length > 0 ? status : null;
@@ -26,6 +40,36 @@ public class TaskFilterDTO {
         this.priority = priority != null && priority.length > 0 ? priority : null;
     }
     
+    public void setLabels(String[] labels) {
+        this.labels = normalized(labels);
+    }
+
+    public void setAnyLabels(String[] anyLabels) {
+        this.anyLabels = normalized(anyLabels);
+    }
+
+    public void setNotLabels(String[] notLabels) {
+        this.notLabels = normalized(notLabels);
+    }
+
+    private static String[] normalized(String[] labels) {
+        return labels != null && labels.length > 0
+                ? TaskLabels.normalize(Arrays.asList(labels)).toArray(String[]::new) : null;
+    }
+
+    public boolean hasLabelFilters() {
+        return labels != null || anyLabels != null || notLabels != null;
+    }
+
+    /** Whether a filter the label index cannot answer is set, that is any but status, priority and labels. */
+    public boolean hasNonIndexedFilters() {
+        return search != null && !search.isEmpty() ||
+               assigneeId != null ||
+               projectId != null ||
+               dueDateFrom != null ||
+               dueDateTo != null;
+    }
+
     public boolean hasFilters() {
         return search != null || 
                status != null || 
@@ -33,6 +77,25 @@ public class TaskFilterDTO {
                assigneeId != null || 
                projectId != null || 
                dueDateFrom != null || 
-               dueDateTo != null;
+               dueDateTo != null ||
+               hasLabelFilters();
+    }
+
+    /**
+     * Identifies the set of matching tasks, independent of paging and of the order or case
+     * in which the filter values were given. Used to share counts between requests.
+     */
+    public String filterKey() {
+        return String.join("|",
+                search != null && !search.isEmpty() ? search.toLowerCase() : "",
+                status != null ? Arrays.stream(status).map(Enum::name).sorted().distinct().collect(Collectors.joining(",")) : "",
+                priority != null ? Arrays.stream(priority).map(Enum::name).sorted().distinct().collect(Collectors.joining(",")) : "",
+                String.valueOf(assigneeId),
+                String.valueOf(projectId),
+                String.valueOf(dueDateFrom),
+                String.valueOf(dueDateTo),
+                labels != null ? String.join(",", labels) : "",
+                anyLabels != null ? String.join(",", anyLabels) : "",
+                notLabels != null ? String.join(",", notLabels) : "");
     }
 }
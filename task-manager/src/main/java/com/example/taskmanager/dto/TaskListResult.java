@@ -0,0 +1,19 @@
+package com.example.taskmanager.dto;
+
+import com.example.taskmanager.entities.Task;
+
+import java.util.List;
+
+/**
+ * One page of a filtered task listing. {@code total} is null when the caller asked for
+ * no total; {@code totalExact} is false when the total came from the count cache.
+ */
+public record TaskListResult(List<Task> content, int page, int size, boolean hasNext, Long total, boolean totalExact) {
+
+    public Integer totalPages() {
+        if (total == null) {
+            return null;
+        }
+        return size == 0 ? 1 : (int) Math.ceil((double) total / (double) size);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.taskmanager.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Task flow of a project ({@code PROJECT}) or an assignee ({@code ASSIGNEE}) over consecutive
+ * hours or days. Each bucket holds the tasks completed in it and, for a project, the open tasks
+ * at its end (null for an assignee).
+ */
+public record TaskTrendDTO(String scope, Long id, String resolution, List<Bucket> buckets) {
+
+    public record Bucket(LocalDateTime start, Long open, long completed) {}
+}
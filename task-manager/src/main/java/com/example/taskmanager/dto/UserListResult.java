@@ -0,0 +1,16 @@
+package com.example.taskmanager.dto;
+
+import com.example.taskmanager.entities.User;
+
+import java.util.List;
+
+/** One page of the user listing, by id. {@code total} is null when the caller asked for no total. */
+public record UserListResult(List<User> content, int page, int size, boolean hasNext, Long total) {
+
+    public Integer totalPages() {
+        if (total == null) {
+            return null;
+        }
+        return size == 0 ? 1 : (int) Math.ceil((double) total / (double) size);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.taskmanager.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * A finished task moved to the cold tier (tasks_archive). Read-only; rows are moved in and
+ * out with set-based SQL by TaskArchiver. References are plain ids because the archive has
+ * no foreign keys.
+ */
+@Entity
+@Table(name = "tasks_archive")
+@org.hibernate.annotations.Immutable
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedTask {
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(length = 1024)
+    private String description;
+
+    @Enumerated(EnumType.STRING)
+    private Task.Status status;
+
+    @Enumerated(EnumType.STRING)
+    private Task.Priority priority;
+
+    @Column(name = "due_date")
+    private LocalDateTime dueDate;
+
+    @Column(name = "project_id")
+    private Long projectId;
+
+    @Column(name = "creator_id", nullable = false)
+    private Long creatorId;
+
+    @Column(name = "assignee_id")
+    private Long assigneeId;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    @Convert(converter = TaskLabels.Converter.class)
+    @Column(length = 1024)
+    private Set<String> labels;
+
+    /** A detached task with the same values, its references holding only ids. */
+    public Task toTask() {
+        return Task.builder()
+                .id(id)
+                .title(title)
+                .description(description)
+                .status(status)
+                .priority(priority)
+                .dueDate(dueDate)
+                .project(projectId != null ? Project.builder().id(projectId).build() : null)
+                .creator(User.builder().id(creatorId).build())
+                .assignee(assigneeId != null ? User.builder().id(assigneeId).build() : null)
+                .updatedAt(updatedAt)
+                .labels(labels != null ? labels : Set.of())
+                .build();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.taskmanager.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * A task filter saved by a user under a name. The filter is kept as JSON
+ * ({@link com.example.taskmanager.dto.SavedFilterDTO.Criteria}); its matching tasks are held
+ * in memory by SavedFilterService. The owner is a plain id, as for archived tasks.
+ */
+@Entity
+@Table(name = "saved_filters",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "name"}))
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SavedFilter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    @Column(nullable = false, length = 4000)
+    private String definition;
+
+    @org.hibernate.annotations.CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    public SavedFilter(Long userId, String name, String definition) {
+        this.userId = userId;
+        this.name = name;
+        this.definition = definition;
+    }
+}
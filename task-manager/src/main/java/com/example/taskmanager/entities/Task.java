@@ -3,6 +3,7 @@ package com.example.taskmanager.entities;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDateTime;
+import java.util.Set;
 
 @Entity
 @Table(name = "tasks")
@@ -42,6 +43,17 @@ public class Task {
     @JoinColumn(name = "assignee_id")
     private User assignee;
 
+    // Last change; finished tasks untouched for long enough are archived (TaskArchiver)
+    @org.hibernate.annotations.UpdateTimestamp
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Normalized (TaskLabels); replace the set rather than changing it, it is read-only once loaded
+    @Convert(converter = TaskLabels.Converter.class)
+    @Column(length = 1024)
+    @Builder.Default
+    private Set<String> labels = Set.of();
+
     public enum Status {
         PENDING, IN_PROGRESS, COMPLETED, CANCELLED
     }
@@ -0,0 +1,84 @@
+package com.example.taskmanager.entities;
+
+import jakarta.persistence.AttributeConverter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * Task labels: lower case, 1 to 40 letters, digits and {@code - _ . : /}, at most 20 per task.
+ * Stored in one column as {@code ,a,b,} (sorted, with a comma at each end) so a single label
+ * can be matched with {@code LIKE '%,a,%'}.
+ */
+public final class TaskLabels {
+    public static final int MAX_LABELS = 20;
+    private static final Pattern LABEL = Pattern.compile("[a-z0-9][a-z0-9._:/-]{0,39}");
+
+    private TaskLabels() {
+    }
+
+    /** The labels normalized; throws IllegalArgumentException for one that is not a valid label. */
+    public static SortedSet<String> normalize(Collection<String> labels) {
+        SortedSet<String> normalized = new TreeSet<>();
+        if (labels == null) {
+            return normalized;
+        }
+        for (String label : labels) {
+            normalized.add(normalize(label));
+        }
+        if (normalized.size() > MAX_LABELS) {
+            throw new IllegalArgumentException("A task has at most " + MAX_LABELS + " labels");
+        }
+        return normalized;
+    }
+
+    public static String normalize(String label) {
+        String normalized = label != null ? label.trim().toLowerCase() : "";
+        if (!LABEL.matcher(normalized).matches()) {
+            throw new IllegalArgumentException("Invalid label: " + label);
+        }
+        return normalized;
+    }
+
+    /** The column value; null for no labels. */
+    public static String format(Collection<String> labels) {
+        return labels == null || labels.isEmpty() ? null : "," + String.join(",", new TreeSet<>(labels)) + ",";
+    }
+
+    public static SortedSet<String> parse(String column) {
+        SortedSet<String> labels = new TreeSet<>();
+        if (column != null) {
+            for (String label : column.split(",")) {
+                if (!label.isEmpty()) {
+                    labels.add(label);
+                }
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * The LIKE pattern matching rows that have the (normalized) label. Labels may contain '_',
+     * so callers pass the label LIKE-escaped and match with ESCAPE '\\'.
+     */
+    public static String pattern(String label) {
+        return "%," + label + ",%";
+    }
+
+    @jakarta.persistence.Converter
+    public static class Converter implements AttributeConverter<Set<String>, String> {
+        @Override
+        public String convertToDatabaseColumn(Set<String> labels) {
+            return format(labels);
+        }
+
+        @Override
+        public Set<String> convertToEntityAttribute(String column) {
+            return Collections.unmodifiableSortedSet(parse(column));
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.taskmanager.exception;
+
+/** The request clashes with existing data, e.g. a username already in use. */
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
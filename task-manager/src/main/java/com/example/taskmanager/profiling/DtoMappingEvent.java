@@ -0,0 +1,20 @@
+package com.example.taskmanager.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Mapping an entity, and what it holds, to its DTO. */
+@Name("taskmanager.DtoMapping")
+@Label("DTO Mapping")
+@Category({"Task Manager", "Web"})
+@StackTrace(false)
+public class DtoMappingEvent extends Event {
+    @Label("Entity")
+    public String entity;
+
+    @Label("Tasks")
+    public int tasks;
+}
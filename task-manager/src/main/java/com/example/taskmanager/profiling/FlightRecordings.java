@@ -0,0 +1,134 @@
+package com.example.taskmanager.profiling;
+
+import com.example.taskmanager.dto.RecordingDTO;
+import com.example.taskmanager.exception.ConflictException;
+import com.example.taskmanager.exception.ResourceNotFoundException;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Java Flight Recorder recordings started and stopped on demand, next to the application events
+ * of this package (repository queries, JWT verification, DTO mapping, password hashing).
+ *
+ * A recording runs with the JDK's "default" (about 1% overhead) or "profile" settings for at
+ * most max-duration, and is kept until it is discarded so it can be downloaded; at most
+ * max-recordings are kept at a time. A download dumps what the recording holds so far to a
+ * file, which the caller deletes once sent.
+ */
+@Service
+public class FlightRecordings {
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecordings.class);
+    private static final List<String> SETTINGS = List.of("default", "profile");
+
+    private final Duration maxDuration;
+    private final int maxRecordings;
+    private final Map<Long, Recording> recordings = new ConcurrentHashMap<>();
+    private final Map<Long, String> settingsOf = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FlightRecordings(@Value("${taskmanager.profiling.max-duration:PT15M}") Duration maxDuration,
+                            @Value("${taskmanager.profiling.max-recordings:2}") int maxRecordings) {
+        this.maxDuration = maxDuration;
+        this.maxRecordings = maxRecordings;
+    }
+
+    /** Starts a recording that stops by itself after the duration (max-duration if null). */
+    public synchronized RecordingDTO start(String name, Duration duration, String settings) {
+        if (!FlightRecorder.isAvailable()) {
+            throw new ConflictException("Flight Recorder is not available in this JVM");
+        }
+        if (!SETTINGS.contains(settings)) {
+            throw new IllegalArgumentException("Settings must be one of " + SETTINGS);
+        }
+        Duration limit = duration != null ? duration : maxDuration;
+        if (limit.isNegative() || limit.isZero() || limit.compareTo(maxDuration) > 0) {
+            throw new IllegalArgumentException("Duration must be positive and at most " + maxDuration);
+        }
+        if (recordings.size() >= maxRecordings) {
+            throw new ConflictException("At most " + maxRecordings + " recordings are kept; discard one first");
+        }
+        Recording recording;
+        try {
+            recording = new Recording(Configuration.getConfiguration(settings));
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Cannot read the " + settings + " settings", e);
+        }
+        recording.setName(name != null && !name.isBlank() ? name : "taskmanager-" + recording.getId());
+        recording.setDuration(limit);
+        recording.setToDisk(true);
+        recording.start();
+        recordings.put(recording.getId(), recording);
+        settingsOf.put(recording.getId(), settings);
+        logger.info("Started flight recording {} ({}, {} settings)", recording.getName(), limit, settings);
+        return toDTO(recording);
+    }
+
+    public List<RecordingDTO> list() {
+        return recordings.values().stream()
+                .sorted(Comparator.comparingLong(Recording::getId))
+                .map(this::toDTO)
+                .toList();
+    }
+
+    public RecordingDTO stop(long id) {
+        Recording recording = get(id);
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        return toDTO(recording);
+    }
+
+    /** Writes what the recording holds so far to a new temporary file, which the caller deletes. */
+    public Path dump(long id) {
+        Recording recording = get(id);
+        try {
+            Path file = Files.createTempFile(recording.getName() + "-", ".jfr");
+            recording.dump(file);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Stops the recording if it runs and drops its data. */
+    public void discard(long id) {
+        Recording recording = recordings.remove(id);
+        if (recording == null) {
+            throw new ResourceNotFoundException("Recording not found with ID: " + id);
+        }
+        settingsOf.remove(id);
+        recording.close();
+    }
+
+    private Recording get(long id) {
+        Recording recording = recordings.get(id);
+        if (recording == null) {
+            throw new ResourceNotFoundException("Recording not found with ID: " + id);
+        }
+        return recording;
+    }
+
+    private RecordingDTO toDTO(Recording recording) {
+        return new RecordingDTO(recording.getId(), recording.getName(), recording.getState().name(),
+                settingsOf.get(recording.getId()), recording.getStartTime(), recording.getDuration(),
+                recording.getSize());
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.taskmanager.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** Parsing and verifying the bearer token of a request. */
+@Name("taskmanager.JwtVerification")
+@Label("JWT Verification")
+@Category({"Task Manager", "Security"})
+@StackTrace(false)
+public class JwtVerificationEvent extends Event {
+    @Label("Outcome")
+    public String outcome;
+}
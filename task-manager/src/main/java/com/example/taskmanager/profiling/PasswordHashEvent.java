@@ -0,0 +1,18 @@
+package com.example.taskmanager.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Hashing a password, or checking one against its hash. */
+@Name("taskmanager.PasswordHash")
+@Label("Password Hash")
+@Category({"Task Manager", "Security"})
+public class PasswordHashEvent extends Event {
+    @Label("Operation")
+    public String operation;
+
+    @Label("Matched")
+    public boolean matched;
+}
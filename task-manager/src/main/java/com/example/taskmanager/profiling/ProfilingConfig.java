@@ -0,0 +1,65 @@
+package com.example.taskmanager.profiling;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Application events for Java Flight Recorder; see {@link FlightRecordings} for taking
+ * recordings. The web, security and mapping events are emitted where that work is done.
+ * Statements slower than taskmanager.slow-queries.threshold go to the {@link SlowQueryLog}.
+ */
+@Configuration
+public class ProfilingConfig {
+
+    /** Adds {@link RepositoryQueryEvent}s to every Spring Data repository as it is created. */
+    @Bean
+    public static BeanPostProcessor repositoryQueryEvents() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxy, repository) -> proxy.addAdvice(
+                                    new RepositoryQueryInterceptor(repository.getRepositoryInterface()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /** Times the statements of every DataSource, unless taskmanager.slow-queries.enabled=false. */
+    @Bean
+    public static BeanPostProcessor slowQueryTiming(Environment environment, ObjectProvider<SlowQueryLog> slowQueryLog) {
+        boolean enabled = environment.getProperty("taskmanager.slow-queries.enabled", Boolean.class, true);
+        Duration threshold = environment.getProperty("taskmanager.slow-queries.threshold", Duration.class,
+                Duration.ofMillis(200));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!enabled || !(bean instanceof DataSource dataSource) || bean instanceof SlowQueryDataSource) {
+                    return bean;
+                }
+                return new SlowQueryDataSource(dataSource, threshold.toNanos(), () -> {
+                    try {
+                        SlowQueryLog log = slowQueryLog.getIfAvailable();
+                        if (log != null) {
+                            log.explainOn(dataSource);
+                        }
+                        return log;
+                    } catch (BeansException e) {
+                        // Still starting up
+                        return null;
+                    }
+                });
+            }
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.taskmanager.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A Spring Data repository call: which method ran and how many rows it returned. */
+@Name("taskmanager.RepositoryQuery")
+@Label("Repository Query")
+@Category({"Task Manager", "Database"})
+@Description("A call of a Spring Data repository method, with the rows it returned")
+public class RepositoryQueryEvent extends Event {
+    @Label("Repository")
+    public String repository;
+
+    @Label("Method")
+    @Description("The statement shape: the repository method and its parameter types")
+    public String method;
+
+    @Label("Rows")
+    @Description("Entities or rows returned, -1 if not known (streams, counts)")
+    public long rows;
+
+    @Label("Failed")
+    public boolean failed;
+}
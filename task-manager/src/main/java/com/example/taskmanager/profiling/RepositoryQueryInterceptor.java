@@ -0,0 +1,80 @@
+package com.example.taskmanager.profiling;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.domain.Slice;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.BaseStream;
+import java.util.stream.Collectors;
+
+/**
+ * Wraps the calls of one repository in {@link RepositoryQueryEvent}s. While no recording takes
+ * them the event is never committed, and what it costs is compiled away. It also marks the
+ * repository method as the origin of the statements it runs, for the {@link SlowQueryLog}.
+ */
+final class RepositoryQueryInterceptor implements MethodInterceptor {
+    private final String repository;
+    private final Map<Method, String> shapes = new ConcurrentHashMap<>();
+    private final Map<Method, String> origins = new ConcurrentHashMap<>();
+
+    RepositoryQueryInterceptor(Class<?> repositoryInterface) {
+        this.repository = repositoryInterface.getSimpleName();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        RepositoryQueryEvent event = new RepositoryQueryEvent();
+        event.begin();
+        Object result = null;
+        boolean failed = true;
+        String outer = SlowQueryLog.enter(origins.computeIfAbsent(invocation.getMethod(),
+                method -> repository + "." + shape(method)));
+        try {
+            result = invocation.proceed();
+            failed = false;
+            return result;
+        } finally {
+            SlowQueryLog.exit(outer);
+            event.end();
+            if (event.shouldCommit()) {
+                event.repository = repository;
+                event.method = shapes.computeIfAbsent(invocation.getMethod(), RepositoryQueryInterceptor::shape);
+                event.rows = failed ? 0 : rows(result);
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    private static String shape(Method method) {
+        return Arrays.stream(method.getParameterTypes())
+                .map(Class::getSimpleName)
+                .collect(Collectors.joining(", ", method.getName() + "(", ")"));
+    }
+
+    static long rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Number || result instanceof Boolean || result instanceof Iterable<?>
+                || result instanceof BaseStream<?, ?>) {
+            return -1;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.taskmanager.profiling;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Times every statement run through the wrapped DataSource and hands those over the threshold,
+ * with the parameters bound to them, to the {@link SlowQueryLog}. Only the execute call is
+ * timed, not reading the result set afterwards.
+ *
+ * The log is looked up on the first slow statement rather than when the DataSource is created,
+ * as the beans it needs may themselves need the DataSource.
+ */
+final class SlowQueryDataSource extends DelegatingDataSource {
+    private static final Set<String> EXECUTE = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final long thresholdNanos;
+    private final Supplier<SlowQueryLog> slowQueryLog;
+
+    SlowQueryDataSource(DataSource target, long thresholdNanos, Supplier<SlowQueryLog> slowQueryLog) {
+        super(target);
+        this.thresholdNanos = thresholdNanos;
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection connection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement && (method.getName().startsWith("prepare")
+                            || method.getName().equals("createStatement"))) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                        return statement(statement, method.getReturnType(), sql);
+                    }
+                    return result;
+                });
+    }
+
+    private Object statement(Statement statement, Class<?> type, String preparedSql) {
+        Class<?> statementType = type == CallableStatement.class || type == PreparedStatement.class
+                ? type : Statement.class;
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{statementType},
+                new StatementHandler(statement, preparedSql));
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String preparedSql;
+        private final List<Object> parameters = new ArrayList<>();
+
+        StatementHandler(Statement statement, String preparedSql) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (EXECUTE.contains(name)) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+                long start = System.nanoTime();
+                try {
+                    return SlowQueryDataSource.invoke(statement, method, args);
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    if (elapsed >= thresholdNanos && sql != null) {
+                        SlowQueryLog log = slowQueryLog.get();
+                        if (log != null) {
+                            log.record(sql, sql == preparedSql ? parameters : List.of(), elapsed);
+                        }
+                    }
+                }
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                bind(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            }
+            return SlowQueryDataSource.invoke(statement, method, args);
+        }
+
+        private void bind(int index, Object value) {
+            while (parameters.size() < index) {
+                parameters.add(null);
+            }
+            parameters.set(index - 1, value);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
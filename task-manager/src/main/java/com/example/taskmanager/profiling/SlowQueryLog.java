@@ -0,0 +1,311 @@
+package com.example.taskmanager.profiling;
+
+import com.example.taskmanager.dto.SlowQueryDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Statements that took longer than the threshold, grouped by their shape: the SQL with literals
+ * replaced by {@code ?} and IN lists collapsed, so the same query with other values or a longer
+ * IN list counts as one. For each shape it keeps the count and times, and the
+ * slowest run with its bind parameters, the repository method it came from (or the first
+ * application frame when it did not come from a repository) and the HTTP route it served.
+ *
+ * In the background the slowest shapes by total time get their plan captured with
+ * {@code EXPLAIN (ANALYZE off)} on the slowest run's parameters; the statement is planned, not
+ * run. Only SELECTs are explained. Under sharding the plan comes from the home shard.
+ *
+ * Bind parameters may hold personal data; capture-parameters=false keeps only their count.
+ */
+@Service
+public class SlowQueryLog {
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueryLog.class);
+    private static final ThreadLocal<String> ORIGIN = new ThreadLocal<>();
+    private static final String APPLICATION = "com.example.taskmanager.";
+    private static final int MAX_PARAMETER_LENGTH = 200;
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern EXPLAINABLE = Pattern.compile("^\\s*(select|with)\\b", Pattern.CASE_INSENSITIVE);
+
+    /** The slowest run of a shape. */
+    private record Sample(String sql, List<Object> parameters, String origin, String route) {}
+
+    private static final class Finding {
+        private final String shape;
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private Instant lastSeen;
+        private Instant lastLogged;
+        private Sample slowest;
+        private String plan;
+
+        Finding(String shape) {
+            this.shape = shape;
+        }
+    }
+
+    private final Counter slowQueries;
+    private final boolean capturingParameters;
+    private final int maxShapes;
+    private final int explainTop;
+    private final Duration logInterval;
+    private final Clock clock;
+    private final Map<String, Finding> findings = new ConcurrentHashMap<>();
+    private volatile DataSource explainDataSource;
+
+    @Autowired
+    public SlowQueryLog(MeterRegistry meterRegistry,
+                        @Value("${taskmanager.slow-queries.capture-parameters:true}") boolean capturingParameters,
+                        @Value("${taskmanager.slow-queries.max-shapes:500}") int maxShapes,
+                        @Value("${taskmanager.slow-queries.explain-top:5}") int explainTop,
+                        @Value("${taskmanager.slow-queries.log-interval:PT1M}") Duration logInterval) {
+        this(meterRegistry, capturingParameters, maxShapes, explainTop, logInterval, Clock.systemUTC());
+    }
+
+    SlowQueryLog(MeterRegistry meterRegistry, boolean capturingParameters, int maxShapes, int explainTop,
+                 Duration logInterval, Clock clock) {
+        this.slowQueries = meterRegistry.counter("taskmanager.slow_queries");
+        this.capturingParameters = capturingParameters;
+        this.maxShapes = maxShapes;
+        this.explainTop = explainTop;
+        this.logInterval = logInterval;
+        this.clock = clock;
+    }
+
+    /** Marks the repository method running on this thread; returns the one it replaces. */
+    static String enter(String origin) {
+        String outer = ORIGIN.get();
+        ORIGIN.set(origin);
+        return outer;
+    }
+
+    static void exit(String outer) {
+        if (outer == null) {
+            ORIGIN.remove();
+        } else {
+            ORIGIN.set(outer);
+        }
+    }
+
+    /** Where plans are captured: the DataSource underneath the timed one. */
+    void explainOn(DataSource dataSource) {
+        this.explainDataSource = dataSource;
+    }
+
+    /** Records a statement that ran for longer than the threshold. */
+    void record(String sql, List<Object> parameters, long nanos) {
+        slowQueries.increment();
+        String shape = shape(sql);
+        Finding finding = findings.get(shape);
+        if (finding == null) {
+            if (findings.size() >= maxShapes && !evictCheapest()) {
+                return;
+            }
+            finding = findings.computeIfAbsent(shape, Finding::new);
+        }
+        Instant now = clock.instant();
+        boolean logging;
+        long count;
+        Sample slowest;
+        synchronized (finding) {
+            finding.count++;
+            finding.totalNanos += nanos;
+            finding.lastSeen = now;
+            if (nanos >= finding.maxNanos) {
+                finding.maxNanos = nanos;
+                finding.slowest = new Sample(sql, capturingParameters ? new ArrayList<>(parameters)
+                        : Collections.nCopies(parameters.size(), "?"), origin(), route());
+            }
+            logging = finding.lastLogged == null || !now.isBefore(finding.lastLogged.plus(logInterval));
+            if (logging) {
+                finding.lastLogged = now;
+            }
+            count = finding.count;
+            slowest = finding.slowest;
+        }
+        if (logging) {
+            logger.warn("Slow query ({} ms, {} times so far) from {} serving {}: {}", nanos / 1_000_000, count,
+                    slowest.origin(), slowest.route() != null ? slowest.route() : "no request", shape);
+        }
+    }
+
+    /** Drops the shape with the least total time to make room, unless the map shrank meanwhile. */
+    private synchronized boolean evictCheapest() {
+        if (findings.size() < maxShapes) {
+            return true;
+        }
+        return findings.values().stream()
+                .min(Comparator.comparingLong(finding -> finding.totalNanos))
+                .map(cheapest -> findings.remove(cheapest.shape) != null)
+                .orElse(false);
+    }
+
+    /** The findings, slowest first by total, max or mean time or by count. */
+    public List<SlowQueryDTO> findings(String sort, int limit) {
+        Comparator<SlowQueryDTO> order = switch (sort) {
+            case "total" -> Comparator.comparingDouble(SlowQueryDTO::totalMillis);
+            case "max" -> Comparator.comparingDouble(SlowQueryDTO::maxMillis);
+            case "mean" -> Comparator.comparingDouble(SlowQueryDTO::meanMillis);
+            case "count" -> Comparator.comparingLong(SlowQueryDTO::count);
+            default -> throw new IllegalArgumentException("Sort must be one of total, max, mean, count");
+        };
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        return findings.values().stream()
+                .map(this::toDTO)
+                .filter(Objects::nonNull)
+                .sorted(order.reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    public void clear() {
+        findings.clear();
+    }
+
+    private SlowQueryDTO toDTO(Finding finding) {
+        synchronized (finding) {
+            Sample sample = finding.slowest;
+            if (sample == null) {
+                // Just added, not recorded yet
+                return null;
+            }
+            List<String> parameters = sample.parameters().stream().map(SlowQueryLog::render).toList();
+            return new SlowQueryDTO(finding.shape, finding.count, finding.totalNanos / 1e6,
+                    finding.maxNanos / 1e6, finding.totalNanos / 1e6 / finding.count, finding.lastSeen,
+                    sample.sql(), parameters, sample.origin(), sample.route(), finding.plan);
+        }
+    }
+
+    /** Captures the plans of the explain-top slowest shapes by total time that have none yet. */
+    @Scheduled(fixedDelayString = "${taskmanager.slow-queries.explain-interval-ms:60000}")
+    public void explainWorst() {
+        DataSource dataSource = explainDataSource;
+        if (dataSource == null || explainTop < 1) {
+            return;
+        }
+        List<Finding> worst = findings.values().stream()
+                .sorted(Comparator.comparingLong((Finding finding) -> finding.totalNanos).reversed())
+                .limit(explainTop)
+                .toList();
+        for (Finding finding : worst) {
+            Sample sample;
+            synchronized (finding) {
+                if (finding.slowest == null || finding.plan != null || !EXPLAINABLE.matcher(finding.shape).find()) {
+                    continue;
+                }
+                sample = finding.slowest;
+            }
+            String plan = explain(dataSource, sample);
+            synchronized (finding) {
+                finding.plan = plan;
+            }
+        }
+    }
+
+    private String explain(DataSource dataSource, Sample sample) {
+        if (!capturingParameters && !sample.parameters().isEmpty()) {
+            return "Not captured: the plan needs the bind parameters, which are not kept";
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(true);
+            String explain = connection.getMetaData().getDatabaseProductName().equals("PostgreSQL")
+                    ? "EXPLAIN (ANALYZE off) " : "EXPLAIN ";
+            try (PreparedStatement statement = connection.prepareStatement(explain + sample.sql())) {
+                statement.setQueryTimeout(10);
+                for (int index = 0; index < sample.parameters().size(); index++) {
+                    statement.setObject(index + 1, sample.parameters().get(index));
+                }
+                List<String> lines = new ArrayList<>();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        lines.add(resultSet.getString(1));
+                    }
+                }
+                return String.join("\n", lines);
+            }
+        } catch (SQLException | RuntimeException e) {
+            logger.debug("Could not explain {}", sample.sql(), e);
+            return "Not captured: " + e.getMessage();
+        }
+    }
+
+    static String shape(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+        return IN_LIST.matcher(shape).replaceAll("IN (?, ...)");
+    }
+
+    /** The repository method running on this thread, or else the innermost application frame. */
+    private static String origin() {
+        String repositoryMethod = ORIGIN.get();
+        if (repositoryMethod != null) {
+            return repositoryMethod;
+        }
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(APPLICATION)
+                        && !isTiming(frame.getClassName()))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1)
+                        + "." + frame.getMethodName())
+                .orElse("unknown"));
+    }
+
+    private static boolean isTiming(String className) {
+        String topLevel = className.contains("$") ? className.substring(0, className.indexOf('$')) : className;
+        return topLevel.equals(SlowQueryLog.class.getName()) || topLevel.equals(SlowQueryDataSource.class.getName());
+    }
+
+    /** The route pattern of the request served on this thread, e.g. "GET /api/v1/tasks/{id}". */
+    private static String route() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return null;
+        }
+        HttpServletRequest request = servletAttributes.getRequest();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    }
+
+    private static String render(Object parameter) {
+        if (parameter == null) {
+            return "null";
+        }
+        String value = parameter.toString();
+        return value.length() > MAX_PARAMETER_LENGTH ? value.substring(0, MAX_PARAMETER_LENGTH) + "..." : value;
+    }
+}
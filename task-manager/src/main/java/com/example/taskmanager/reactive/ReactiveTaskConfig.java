@@ -0,0 +1,133 @@
+package com.example.taskmanager.reactive;
+
+import com.example.taskmanager.service.TaskStatusWriteBehind;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import java.time.Duration;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The reactive read API ({@link ReactiveTaskHandler}) on a Netty server of its own, next to the
+ * servlet container that serves everything else.
+ *
+ * Its R2DBC pool is deliberately not a bean: as one, it would bring in Spring Boot's R2DBC
+ * transaction manager and schema initialization next to the JPA ones. Not available with
+ * sharding, since the reads go to one database.
+ */
+@Configuration
+@ConditionalOnProperty(name = "taskmanager.reactive.enabled", havingValue = "true")
+public class ReactiveTaskConfig {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveTaskConfig.class);
+
+    @Bean(destroyMethod = "dispose")
+    public ReactiveTaskRepository reactiveTaskRepository(
+            @Value("${taskmanager.sharding.enabled:false}") boolean sharded,
+            @Value("${taskmanager.reactive.url}") String url,
+            @Value("${taskmanager.reactive.username:${spring.datasource.username:}}") String username,
+            @Value("${taskmanager.reactive.password:${spring.datasource.password:}}") String password,
+            @Value("${taskmanager.reactive.pool.initial-size:4}") int initialSize,
+            @Value("${taskmanager.reactive.pool.max-size:16}") int maxSize,
+            @Value("${taskmanager.reactive.pool.max-acquire-time:PT5S}") Duration maxAcquireTime,
+            MeterRegistry meterRegistry) {
+        if (sharded) {
+            throw new IllegalStateException("taskmanager.reactive.enabled cannot be combined with taskmanager.sharding.enabled");
+        }
+        ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+        if (!username.isEmpty()) {
+            options.option(ConnectionFactoryOptions.USER, username);
+        }
+        if (!password.isEmpty()) {
+            options.option(ConnectionFactoryOptions.PASSWORD, password);
+        }
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options.build()))
+                .name("taskmanager-reactive")
+                .initialSize(Math.min(initialSize, maxSize))
+                .maxSize(maxSize)
+                .maxAcquireTime(maxAcquireTime)
+                .build());
+        pool.getMetrics().ifPresent(metrics -> {
+            gauge(meterRegistry, metrics, "acquired", PoolMetrics::acquiredSize);
+            gauge(meterRegistry, metrics, "idle", PoolMetrics::idleSize);
+            gauge(meterRegistry, metrics, "pending", PoolMetrics::pendingAcquireSize);
+        });
+        return new ReactiveTaskRepository(pool);
+    }
+
+    @Bean
+    public ReactiveTaskHandler reactiveTaskHandler(ReactiveTaskRepository repository, TaskStatusWriteBehind statusWriteBehind) {
+        return new ReactiveTaskHandler(repository, statusWriteBehind);
+    }
+
+    @Bean
+    public ReactiveServer reactiveTaskServer(ReactiveTaskHandler handler, ObjectMapper objectMapper,
+                                             @Value("${taskmanager.reactive.port:8081}") int port) {
+        // The application's ObjectMapper, so v2 writes dates and DTOs exactly like v1
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+        WebServer server = new NettyReactiveWebServerFactory(port)
+                .getWebServer(RouterFunctions.toHttpHandler(handler.routes(), strategies));
+        return new ReactiveServer(server);
+    }
+
+    private static void gauge(MeterRegistry registry, PoolMetrics metrics, String state, ToDoubleFunction<PoolMetrics> value) {
+        Gauge.builder("taskmanager.reactive.pool", metrics, value)
+                .tag("state", state)
+                .register(registry);
+    }
+
+    /** Starts the Netty server with the application context and stops it before the pool closes. */
+    public static class ReactiveServer implements SmartLifecycle {
+        private final WebServer server;
+        private volatile boolean running;
+
+        ReactiveServer(WebServer server) {
+            this.server = server;
+        }
+
+        public int getPort() {
+            return server.getPort();
+        }
+
+        @Override
+        public void start() {
+            server.start();
+            running = true;
+            logger.info("Reactive task API listening on port {}", server.getPort());
+        }
+
+        @Override
+        public void stop() {
+            running = false;
+            server.stop();
+        }
+
+        @Override
+        public boolean isRunning() {
+            return running;
+        }
+    }
+}
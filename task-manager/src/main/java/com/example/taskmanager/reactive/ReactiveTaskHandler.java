@@ -0,0 +1,157 @@
+package com.example.taskmanager.reactive;
+
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.service.TaskStatusWriteBehind;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+
+/**
+ * {@code /api/v2/tasks}: the task listing and single-task read of {@code /api/v1/tasks}, with
+ * the same parameters, response shape and {@link TaskDTO}s, served without blocking a thread.
+ * Reads the hot tier only ({@code includeArchived} and {@code estimateTotal} are not offered).
+ * Status updates still waiting in the write-behind log are applied, as in v1.
+ */
+public class ReactiveTaskHandler {
+    private final ReactiveTaskRepository repository;
+    private final TaskStatusWriteBehind statusWriteBehind;
+
+    ReactiveTaskHandler(ReactiveTaskRepository repository, TaskStatusWriteBehind statusWriteBehind) {
+        this.repository = repository;
+        this.statusWriteBehind = statusWriteBehind;
+    }
+
+    RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route(GET("/api/v2/tasks"), this::list)
+                .andRoute(GET("/api/v2/tasks/{id}"), this::get);
+    }
+
+    Mono<ServerResponse> list(ServerRequest request) {
+        TaskFilterDTO filter;
+        int page;
+        int size;
+        boolean withTotal;
+        try {
+            filter = filter(request);
+            page = param(request, "page").map(Integer::parseInt).orElse(0);
+            size = param(request, "size").map(Integer::parseInt).orElse(10);
+            withTotal = param(request, "withTotal").map(Boolean::parseBoolean).orElse(true);
+        } catch (IllegalArgumentException e) {
+            return ServerResponse.badRequest().build();
+        }
+        if (page < 0 || size < 1) {
+            return ServerResponse.badRequest().build();
+        }
+        // One extra row tells whether there is a next page; the count runs alongside
+        Mono<List<TaskDTO>> rows = repository.find(filter, (long) page * size, size + 1)
+                .map(this::withPendingStatus)
+                .collectList();
+        Mono<Optional<Long>> total = withTotal ? repository.count(filter).map(Optional::of) : Mono.just(Optional.empty());
+        return Mono.zip(rows, total).flatMap(result -> {
+            List<TaskDTO> content = result.getT1();
+            boolean hasNext = content.size() > size;
+            Map<String, Object> response = new HashMap<>();
+            response.put("data", hasNext ? content.subList(0, size) : content);
+            response.put("page", page);
+            response.put("limit", size);
+            response.put("hasNext", hasNext);
+            result.getT2().ifPresent(count -> {
+                response.put("total", count);
+                response.put("totalPages", (int) Math.ceil((double) count / (double) size));
+                response.put("totalExact", true);
+            });
+            return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(response);
+        });
+    }
+
+    Mono<ServerResponse> get(ServerRequest request) {
+        long id;
+        try {
+            id = Long.parseLong(request.pathVariable("id"));
+        } catch (NumberFormatException e) {
+            return ServerResponse.badRequest().build();
+        }
+        return repository.findById(id)
+                .map(this::withPendingStatus)
+                .flatMap(task -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(task))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    private TaskDTO withPendingStatus(TaskDTO task) {
+        statusWriteBehind.pendingStatus(task.getId()).ifPresent(status -> task.setStatus(status.name()));
+        return task;
+    }
+
+    private static TaskFilterDTO filter(ServerRequest request) {
+        TaskFilterDTO filter = new TaskFilterDTO();
+        filter.setSearch(request.queryParam("search").orElse(null));
+        filter.setStatus(enums(request, "status", Task.Status::valueOf, Task.Status[]::new));
+        filter.setPriority(enums(request, "priority", Task.Priority::valueOf, Task.Priority[]::new));
+        filter.setAssigneeId(param(request, "assigneeId").map(Long::valueOf).orElse(null));
+        filter.setProjectId(param(request, "projectId").map(Long::valueOf).orElse(null));
+        filter.setDueDateFrom(date(request, "dueDateFrom"));
+        filter.setDueDateTo(date(request, "dueDateTo"));
+        filter.setLabels(values(request, "labels"));
+        filter.setAnyLabels(values(request, "anyLabels"));
+        filter.setNotLabels(values(request, "notLabels"));
+        return filter;
+    }
+
+    /** An empty value counts as absent, as for optional parameters in Spring MVC. */
+    private static Optional<String> param(ServerRequest request, String name) {
+        return request.queryParam(name).filter(value -> !value.isEmpty());
+    }
+
+    /** Repeated or comma-separated values, as Spring MVC binds them for v1. */
+    private static String[] values(ServerRequest request, String name) {
+        List<String> values = request.queryParams().get(name);
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        return values.stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    /** Repeated or comma-separated values, as Spring MVC binds them for v1. */
+    private static <E extends Enum<E>> E[] enums(ServerRequest request, String name, Function<String, E> parse,
+                                                 IntFunction<E[]> array) {
+        List<String> values = request.queryParams().get(name);
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        return values.stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .map(value -> parse.apply(value.toUpperCase()))
+                .toArray(array);
+    }
+
+    private static LocalDate date(ServerRequest request, String name) {
+        try {
+            return param(request, name).map(LocalDate::parse).orElse(null);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date for " + name, e);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.taskmanager.reactive;
+
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.entities.TaskLabels;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Task reads over R2DBC, straight into {@link TaskDTO}s: the DTO only needs the task row, so
+ * no entities and no joins. The filters are those of {@code TaskSpecifications}, as SQL.
+ */
+public class ReactiveTaskRepository {
+    private static final String COLUMNS =
+            "id, title, description, status, priority, due_date, creator_id, assignee_id, project_id, labels";
+
+    private final ConnectionPool pool;
+    private final DatabaseClient client;
+
+    ReactiveTaskRepository(ConnectionPool pool) {
+        this.pool = pool;
+        this.client = DatabaseClient.create(pool);
+    }
+
+    ConnectionPool pool() {
+        return pool;
+    }
+
+    public Mono<TaskDTO> findById(long id) {
+        return client.sql("SELECT " + COLUMNS + " FROM tasks WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveTaskRepository::toDTO)
+                .one();
+    }
+
+    /** Matching tasks in id order, {@code limit} of them from {@code offset}. */
+    public Flux<TaskDTO> find(TaskFilterDTO filter, long offset, int limit) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        String where = where(filter, parameters);
+        DatabaseClient.GenericExecuteSpec spec = client.sql("SELECT " + COLUMNS + " FROM tasks" + where
+                + " ORDER BY id LIMIT :limit OFFSET :offset");
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec.bind("limit", limit)
+                .bind("offset", offset)
+                .map(ReactiveTaskRepository::toDTO)
+                .all();
+    }
+
+    public Mono<Long> count(TaskFilterDTO filter) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        DatabaseClient.GenericExecuteSpec spec = client.sql("SELECT COUNT(*) AS total FROM tasks" + where(filter, parameters));
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec.map(row -> row.get("total", Long.class)).one();
+    }
+
+    void dispose() {
+        pool.dispose();
+    }
+
+    private static String where(TaskFilterDTO filter, Map<String, Object> parameters) {
+        List<String> predicates = new ArrayList<>();
+        if (filter.getSearch() != null && !filter.getSearch().isEmpty()) {
+            predicates.add("(LOWER(title) LIKE :search ESCAPE '\\' OR LOWER(description) LIKE :search ESCAPE '\\')");
+            parameters.put("search", "%" + escapeLike(filter.getSearch().toLowerCase()) + "%");
+        }
+        List<String> statuses = names(filter.getStatus());
+        if (!statuses.isEmpty()) {
+            predicates.add("status IN (:status)");
+            parameters.put("status", statuses);
+        }
+        List<String> priorities = names(filter.getPriority());
+        if (!priorities.isEmpty()) {
+            predicates.add("priority IN (:priority)");
+            parameters.put("priority", priorities);
+        }
+        if (filter.getAssigneeId() != null) {
+            predicates.add("assignee_id = :assigneeId");
+            parameters.put("assigneeId", filter.getAssigneeId());
+        }
+        if (filter.getProjectId() != null) {
+            predicates.add("project_id = :projectId");
+            parameters.put("projectId", filter.getProjectId());
+        }
+        // Due dates are whole days: "to" includes every time on that day
+        if (filter.getDueDateFrom() != null) {
+            predicates.add("due_date >= :dueDateFrom");
+            parameters.put("dueDateFrom", filter.getDueDateFrom().atStartOfDay());
+        }
+        if (filter.getDueDateTo() != null) {
+            predicates.add("due_date < :dueDateTo");
+            parameters.put("dueDateTo", filter.getDueDateTo().plusDays(1).atStartOfDay());
+        }
+        // Labels are stored as ',a,b,' (TaskLabels); v2 has no bitmap index, the database scans them
+        if (filter.getLabels() != null) {
+            for (String label : filter.getLabels()) {
+                predicates.add("labels LIKE :" + label(parameters, label) + " ESCAPE '\\'");
+            }
+        }
+        if (filter.getAnyLabels() != null) {
+            predicates.add(Arrays.stream(filter.getAnyLabels())
+                    .map(label -> "labels LIKE :" + label(parameters, label) + " ESCAPE '\\'")
+                    .collect(Collectors.joining(" OR ", "(", ")")));
+        }
+        if (filter.getNotLabels() != null) {
+            for (String label : filter.getNotLabels()) {
+                predicates.add("(labels IS NULL OR labels NOT LIKE :" + label(parameters, label) + " ESCAPE '\\')");
+            }
+        }
+        return predicates.isEmpty() ? "" : " WHERE " + String.join(" AND ", predicates);
+    }
+
+    /** Binds the escaped LIKE pattern of a label (labels may contain '_'), returning its parameter name. */
+    private static String label(Map<String, Object> parameters, String label) {
+        String name = "label" + parameters.size();
+        parameters.put(name, TaskLabels.pattern(escapeLike(label)));
+        return name;
+    }
+
+    private static List<String> names(Enum<?>[] values) {
+        if (values == null) {
+            return List.of();
+        }
+        return Arrays.stream(values).filter(Objects::nonNull).map(Enum::name).distinct().sorted().toList();
+    }
+
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static TaskDTO toDTO(Readable row) {
+        TaskDTO task = new TaskDTO(
+                row.get("id", Long.class),
+                row.get("title", String.class),
+                row.get("description", String.class),
+                row.get("status", String.class),
+                row.get("priority", String.class),
+                row.get("due_date", LocalDateTime.class),
+                row.get("creator_id", Long.class),
+                row.get("assignee_id", Long.class),
+                row.get("project_id", Long.class));
+        task.setLabels(List.copyOf(TaskLabels.parse(row.get("labels", String.class))));
+        return task;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.taskmanager.repository;
+
+import com.example.taskmanager.entities.ArchivedTask;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+
+/**
+ * Reads of the cold tier; filtered with {@link TaskSpecifications#archivedMatching}.
+ */
+public interface ArchivedTaskRepository extends JpaRepository<ArchivedTask, Long>, JpaSpecificationExecutor<ArchivedTask> {
+}
@@ -2,6 +2,16 @@ package com.example.taskmanager.repository;
 
 import com.example.taskmanager.entities.Project;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface ProjectRepository extends JpaRepository<Project, Long> {
+
+    /** Inserts a project under an id allocated up front, which sharding needs to pick its shard. */
+    @Modifying
+    @Query(value = "INSERT INTO projects (id, name, description, owner_id, created_at) "
+            + "VALUES (:id, :name, :description, :ownerId, CURRENT_TIMESTAMP)", nativeQuery = true)
+    void insertWithId(@Param("id") Long id, @Param("name") String name, @Param("description") String description,
+                      @Param("ownerId") Long ownerId);
 }
@@ -0,0 +1,18 @@
+package com.example.taskmanager.repository;
+
+import com.example.taskmanager.entities.SavedFilter;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+/**
+ * The saved filters of every user, on the home shard.
+ */
+public interface SavedFilterRepository extends JpaRepository<SavedFilter, Long> {
+
+    List<SavedFilter> findByUserIdOrderByName(Long userId);
+
+    long countByUserId(Long userId);
+
+    boolean existsByUserIdAndName(Long userId, String name);
+}
@@ -0,0 +1,24 @@
+package com.example.taskmanager.repository;
+
+import com.example.taskmanager.entities.Task;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+/**
+ * Queries {@link org.springframework.data.jpa.repository.JpaSpecificationExecutor} does not offer.
+ */
+public interface TaskFilterRepository {
+
+    /**
+     * Fetches one page of size + 1 rows without counting, and reports whether another page exists.
+     */
+    Slice<Task> findSlice(Specification<Task> specification, Pageable pageable);
+
+    /**
+     * The ids of the tasks matching the specification, in id order, without loading the tasks.
+     */
+    List<Long> findIds(Specification<Task> specification);
+}
@@ -0,0 +1,144 @@
+package com.example.taskmanager.repository;
+
+import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.entities.ArchivedTask;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.entities.TaskLabels;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Composes the task filter query from the filters that are actually set.
+ *
+ * Every combination of present filters maps to exactly one SQL statement: values are
+ * always bound as parameters, the search term is a single LIKE pattern, and IN lists are
+ * padded to the next power of two (hibernate.query.in_clause_parameter_padding), so the
+ * number of distinct statements stays small and statement/plan caches can reuse them.
+ */
+public final class TaskSpecifications {
+
+    private TaskSpecifications() {
+    }
+
+    public static Specification<Task> matching(TaskFilterDTO filter) {
+        return (root, query, cb) -> {
+            // Fetch the to-one associations the DTO mapping reads, except in the count query
+            if (query.getResultType() != Long.class && query.getResultType() != long.class) {
+                root.fetch("project", JoinType.LEFT);
+                root.fetch("creator", JoinType.LEFT);
+                root.fetch("assignee", JoinType.LEFT);
+            }
+            List<Predicate> predicates = predicates(filter, root, cb);
+            return predicates.isEmpty() ? null : cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    /** The same filter over the archive tier, whose references are plain id columns. */
+    public static Specification<ArchivedTask> archivedMatching(TaskFilterDTO filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = predicates(filter, root, cb, root.get("assigneeId"), root.get("projectId"));
+            return predicates.isEmpty() ? null : cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    static List<Predicate> predicates(TaskFilterDTO filter, Root<Task> root, CriteriaBuilder cb) {
+        return predicates(filter, root, cb, root.get("assignee").get("id"), root.get("project").get("id"));
+    }
+
+    private static List<Predicate> predicates(TaskFilterDTO filter, Root<?> root, CriteriaBuilder cb,
+                                              Path<Long> assigneeId, Path<Long> projectId) {
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (filter.getSearch() != null && !filter.getSearch().isEmpty()) {
+            String pattern = "%" + escapeLike(filter.getSearch().toLowerCase()) + "%";
+            predicates.add(cb.or(
+                cb.like(cb.lower(root.get("title")), pattern, '\\'),
+                cb.like(cb.lower(root.get("description")), pattern, '\\')));
+        }
+
+        List<Task.Status> statuses = present(filter.getStatus());
+        if (!statuses.isEmpty()) {
+            predicates.add(root.get("status").in(statuses));
+        }
+
+        List<Task.Priority> priorities = present(filter.getPriority());
+        if (!priorities.isEmpty()) {
+            predicates.add(root.get("priority").in(priorities));
+        }
+
+        if (filter.getAssigneeId() != null) {
+            predicates.add(cb.equal(assigneeId, filter.getAssigneeId()));
+        }
+
+        if (filter.getProjectId() != null) {
+            predicates.add(cb.equal(projectId, filter.getProjectId()));
+        }
+
+        // Due dates are whole days: "to" includes every time on that day
+        if (filter.getDueDateFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(root.get("dueDate"), filter.getDueDateFrom().atStartOfDay()));
+        }
+
+        if (filter.getDueDateTo() != null) {
+            predicates.add(cb.lessThan(root.get("dueDate"), filter.getDueDateTo().plusDays(1).atStartOfDay()));
+        }
+
+        // Labels are stored as ',a,b,' (TaskLabels); the bitmap index answers these for hot tasks
+        if (filter.getLabels() != null) {
+            for (String label : filter.getLabels()) {
+                predicates.add(hasLabel(root, cb, label));
+            }
+        }
+
+        if (filter.getAnyLabels() != null) {
+            predicates.add(cb.or(Arrays.stream(filter.getAnyLabels())
+                .map(label -> hasLabel(root, cb, label))
+                .toArray(Predicate[]::new)));
+        }
+
+        if (filter.getNotLabels() != null) {
+            for (String label : filter.getNotLabels()) {
+                predicates.add(cb.or(cb.isNull(root.get("labels")),
+                    cb.not(hasLabel(root, cb, label))));
+            }
+        }
+
+        return predicates;
+    }
+
+    /** Labels may contain '_', which LIKE would otherwise take for any character. */
+    private static Predicate hasLabel(Root<?> root, CriteriaBuilder cb, String label) {
+        return cb.like(root.get("labels").as(String.class), TaskLabels.pattern(escapeLike(label)), '\\');
+    }
+
+    /** Tasks with one of the ids; combined with {@link #matching} to fetch candidates from the label index. */
+    public static Specification<Task> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    /**
+     * The distinct values of a status or priority filter; empty, meaning no filter, for null, an
+     * empty array or only nulls. In-memory matchers must read the filters the same way.
+     */
+    public static <E extends Enum<E>> List<E> present(E[] values) {
+        if (values == null) {
+            return List.of();
+        }
+        return Arrays.stream(values).filter(Objects::nonNull).distinct().sorted().toList();
+    }
+
+    /** Makes LIKE wildcards typed by the user match literally. */
+    static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
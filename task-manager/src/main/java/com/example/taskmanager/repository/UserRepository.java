@@ -1,10 +1,21 @@
 package com.example.taskmanager.repository;
 
 import com.example.taskmanager.entities.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     @org.springframework.data.jpa.repository.Query("SELECT u FROM User u LEFT JOIN FETCH u.roles WHERE u.username = :username")
     Optional<User> findByUsername(@org.springframework.data.repository.query.Param("username") String username);
+
+    /** One page of user ids; the users themselves come from {@link #findWithRolesByIdIn}. */
+    @org.springframework.data.jpa.repository.Query("SELECT u.id FROM User u ORDER BY u.id")
+    List<Long> findIds(Pageable pageable);
+
+    /** The users with their roles, in one query rather than one roles query per user. */
+    @org.springframework.data.jpa.repository.Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.roles WHERE u.id IN :ids")
+    List<User> findWithRolesByIdIn(@org.springframework.data.repository.query.Param("ids") Collection<Long> ids);
 }
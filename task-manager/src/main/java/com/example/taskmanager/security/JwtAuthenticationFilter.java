@@ -1,6 +1,7 @@
 package com.example.taskmanager.security;
 
 import com.example.taskmanager.entities.User;
+import com.example.taskmanager.profiling.JwtVerificationEvent;
 import com.example.taskmanager.repository.UserRepository;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
@@ -31,11 +32,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         String jwt = getJwtFromRequest(request);
         if (StringUtils.hasText(jwt)) {
+            JwtVerificationEvent verification = new JwtVerificationEvent();
+            verification.begin();
+            String outcome = "unauthenticated";
             try {
                 String username = jwtUtil.getUsernameFromToken(jwt);
                 if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                     User user = userRepository.findByUsername(username).orElse(null);
                     if (user != null && jwtUtil.validateToken(jwt, username)) {
+    outcome = "authenticated";
     // Extract roles from JWT and map to authorities
     java.util.List<String> roles = jwtUtil.getClaimFromToken(jwt, claims -> claims.get("roles", java.util.List.class));
     java.util.List<org.springframework.security.core.authority.SimpleGrantedAuthority> authorities = roles != null
@@ -52,9 +57,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 }
             } catch (ExpiredJwtException ex) {
                 // Optionally handle expired token
+                outcome = "expired";
             } catch (Exception ex) {
                 // Optionally handle invalid token
+                outcome = "invalid";
             }
+            verification.outcome = outcome;
+            verification.commit();
         }
         filterChain.doFilter(request, response);
     }
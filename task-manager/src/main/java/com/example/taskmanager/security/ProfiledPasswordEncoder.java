@@ -0,0 +1,39 @@
+package com.example.taskmanager.security;
+
+import com.example.taskmanager.profiling.PasswordHashEvent;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/** Emits a {@link PasswordHashEvent} for each hash and check, which for BCrypt is deliberately slow. */
+class ProfiledPasswordEncoder implements PasswordEncoder {
+    private final PasswordEncoder delegate;
+
+    ProfiledPasswordEncoder(PasswordEncoder delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        PasswordHashEvent event = new PasswordHashEvent();
+        event.begin();
+        String encoded = delegate.encode(rawPassword);
+        event.operation = "encode";
+        event.commit();
+        return encoded;
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        PasswordHashEvent event = new PasswordHashEvent();
+        event.begin();
+        boolean matched = delegate.matches(rawPassword, encodedPassword);
+        event.operation = "matches";
+        event.matched = matched;
+        event.commit();
+        return matched;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
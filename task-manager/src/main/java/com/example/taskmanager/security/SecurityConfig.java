@@ -1,5 +1,7 @@
 package com.example.taskmanager.security;
 
+import com.example.taskmanager.admission.AdmissionControl;
+import com.example.taskmanager.admission.AdmissionControlFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -25,16 +27,20 @@ public class SecurityConfig {
     }
     @Bean
     public org.springframework.security.crypto.password.PasswordEncoder passwordEncoder() {
-        return new org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder();
+        // Shows each hash and check in flight recordings
+        return new ProfiledPasswordEncoder(new org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder());
     }
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final CustomUserDetailsService customUserDetailsService;
+    private final AdmissionControl admissionControl;
 
     @Autowired
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter, CustomUserDetailsService customUserDetailsService) {
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter, CustomUserDetailsService customUserDetailsService,
+                          AdmissionControl admissionControl) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
         this.customUserDetailsService = customUserDetailsService;
+        this.admissionControl = admissionControl;
     }
 
     @Bean
@@ -60,10 +66,13 @@ public class SecurityConfig {
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/v1/projects/**").authenticated()
                 .requestMatchers("/api/v1/projects").authenticated()
+                .requestMatchers("/api/v1/saved-filters/**").authenticated()
+                .requestMatchers("/api/v1/saved-filters").authenticated()
                 .anyRequest().permitAll()
             )
             .authenticationProvider(authenticationProvider())
-            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+            .addFilterAfter(new AdmissionControlFilter(admissionControl), JwtAuthenticationFilter.class);
         return http.build();
     }
 }
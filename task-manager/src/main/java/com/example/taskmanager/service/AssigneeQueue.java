@@ -0,0 +1,182 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.TaskDTO;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * The open tasks of one assignee in work order: priority (high first), due date (none last),
+ * id. Held as parallel sorted arrays, the order packed into one long per task, so a top-K read
+ * is a copy of the first K slots and a change is a binary search and an array shift.
+ *
+ * Holds at most {@code capacity} tasks. When more were there, the held ones are the first of
+ * them and the queue is {@link #isTruncated() truncated}: it can answer reads no longer than
+ * what it still holds.
+ *
+ * Thread-safe.
+ */
+final class AssigneeQueue {
+    private static final long NO_DUE_DATE = (1L << 60) - 1;
+
+    private final int capacity;
+    private long[] keys;
+    private long[] ids;
+    private TaskDTO[] tasks;
+    private int size;
+    private boolean truncated;
+    private volatile long lastRead;
+
+    AssigneeQueue(int capacity) {
+        this.capacity = capacity;
+        int initial = Math.min(capacity, 16);
+        this.keys = new long[initial];
+        this.ids = new long[initial];
+        this.tasks = new TaskDTO[initial];
+    }
+
+    /** Priority rank in the top bits, then the due second (UTC), so that keys sort in work order. */
+    static long sortKey(String priority, LocalDateTime dueDate) {
+        long rank = priority == null ? 3 : switch (priority) {
+            case "HIGH" -> 0;
+            case "MEDIUM" -> 1;
+            case "LOW" -> 2;
+            default -> 3;
+        };
+        long due = dueDate == null ? NO_DUE_DATE
+                : Math.max(0, Math.min(NO_DUE_DATE - 1, dueDate.toEpochSecond(ZoneOffset.UTC)));
+        return rank << 60 | due;
+    }
+
+    /**
+     * Adds or moves a task. Returns the id of the task that is not held afterwards because it
+     * sorts past a full or truncated queue (the given one or the one it displaced), or -1.
+     */
+    synchronized long put(TaskDTO task) {
+        long id = task.getId();
+        removeAt(indexOf(id));
+        long key = sortKey(task.getPriority(), task.getDueDate());
+        int index = search(key, id);
+        if (truncated && index == size) {
+            // Tasks that are not held may sort before it
+            return id;
+        }
+        if (size == capacity) {
+            truncated = true;
+            if (index == size) {
+                return id;
+            }
+            long dropped = ids[size - 1];
+            size--;
+            insertAt(index, key, id, task);
+            return dropped;
+        }
+        insertAt(index, key, id, task);
+        return -1;
+    }
+
+    /** Removes a task; false if it was not held. */
+    synchronized boolean remove(long id) {
+        return removeAt(indexOf(id));
+    }
+
+    /** For a load that found more tasks than it keeps. */
+    synchronized void markTruncated() {
+        truncated = true;
+    }
+
+    /** The first {@code limit} tasks in work order, leaving out those the filter skips. */
+    synchronized List<TaskDTO> top(int limit, LongPredicate skip) {
+        List<TaskDTO> top = new ArrayList<>(Math.min(limit, size));
+        for (int i = 0; i < size && top.size() < limit; i++) {
+            if (!skip.test(ids[i])) {
+                top.add(tasks[i]);
+            }
+        }
+        return top;
+    }
+
+    synchronized long[] ids() {
+        long[] held = new long[size];
+        System.arraycopy(ids, 0, held, 0, size);
+        return held;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized boolean isTruncated() {
+        return truncated;
+    }
+
+    /** Whether a read of {@code limit} tasks needs more than this queue holds. */
+    synchronized boolean isShort(int limit) {
+        return truncated && size < limit;
+    }
+
+    void touch(long now) {
+        lastRead = now;
+    }
+
+    long lastRead() {
+        return lastRead;
+    }
+
+    private int indexOf(long id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** The slot for (key, id): after every smaller pair. */
+    private int search(long key, long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int order = keys[middle] != key ? Long.compare(keys[middle], key) : Long.compare(ids[middle], id);
+            if (order < 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private void insertAt(int index, long key, long id, TaskDTO task) {
+        if (size == keys.length) {
+            int grown = Math.min(capacity, keys.length * 2);
+            keys = Arrays.copyOf(keys, grown);
+            ids = Arrays.copyOf(ids, grown);
+            tasks = Arrays.copyOf(tasks, grown);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        System.arraycopy(tasks, index, tasks, index + 1, size - index);
+        keys[index] = key;
+        ids[index] = id;
+        tasks[index] = task;
+        size++;
+    }
+
+    private boolean removeAt(int index) {
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        System.arraycopy(tasks, index + 1, tasks, index, size - index - 1);
+        size--;
+        tasks[size] = null;
+        return true;
+    }
+}
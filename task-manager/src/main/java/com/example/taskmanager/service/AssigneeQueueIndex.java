@@ -0,0 +1,251 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * "My work": the open tasks of each assignee in work order (priority, due date, id), served
+ * from memory. An {@link AssigneeQueue} is loaded on the first read of an assignee and then
+ * kept current, so reads after that are an array copy.
+ *
+ * Task writes, here or on other instances, reach the index through the
+ * {@link CacheInvalidationBus} as changed task ids. Those only queue up (a write pays nothing);
+ * the next read or the periodic drain re-reads the changed rows in one query and moves them
+ * between queues. An invalidation of all tasks, or more queued changes than max-pending-changes,
+ * drops every queue instead.
+ *
+ * Queues not read for the idle timeout are evicted, and at most max-queues are held, the
+ * least recently read going first. Each holds up to queue-capacity tasks.
+ *
+ * Tasks with a pending write-behind status have lost their assignee and are left out.
+ */
+@Component
+public class AssigneeQueueIndex {
+    private static final String OPEN = "status IN ('PENDING', 'IN_PROGRESS')";
+    private static final String LOAD = "SELECT " + TaskRows.COLUMNS + " FROM tasks WHERE assignee_id = :assigneeId AND "
+            + OPEN + " ORDER BY CASE priority WHEN 'HIGH' THEN 0 WHEN 'MEDIUM' THEN 1 WHEN 'LOW' THEN 2 ELSE 3 END, "
+            + "COALESCE(due_date, TIMESTAMP '9999-12-31 00:00:00'), id LIMIT :limit";
+    private static final String CHANGED = "SELECT " + TaskRows.COLUMNS + " FROM tasks WHERE id IN (:ids)";
+    private static final int CHANGED_CHUNK = 500;
+    private static final Comparator<TaskDTO> WORK_ORDER = Comparator
+            .comparingLong((TaskDTO task) -> AssigneeQueue.sortKey(task.getPriority(), task.getDueDate()))
+            .thenComparing(TaskDTO::getId);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TaskStatusWriteBehind statusWriteBehind;
+    private final ShardRouter shards;
+    private final int queueCapacity;
+    private final int maxQueues;
+    private final long idleNanos;
+    private final int maxPendingChanges;
+    private final Counter hits;
+    private final Counter loads;
+    private final Counter evictions;
+
+    private final Map<Long, AssigneeQueue> queues = new ConcurrentHashMap<>();
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    /** Set when every queue is to be dropped; done by the next drain rather than on the writer's thread. */
+    private volatile boolean resetPending;
+    /** Loads, drains and evictions; guards the assignee of every held task. */
+    private final ReentrantLock maintenance = new ReentrantLock();
+    private final Map<Long, Long> assigneeOfTask = new HashMap<>();
+
+    @Autowired
+    public AssigneeQueueIndex(NamedParameterJdbcTemplate jdbcTemplate,
+                              TaskStatusWriteBehind statusWriteBehind,
+                              CacheInvalidationBus invalidations,
+                              ShardRouter shards,
+                              MeterRegistry meterRegistry,
+                              @Value("${taskmanager.assignee-queues.queue-capacity:200}") int queueCapacity,
+                              @Value("${taskmanager.assignee-queues.max-queues:10000}") int maxQueues,
+                              @Value("${taskmanager.assignee-queues.idle-timeout:PT15M}") Duration idleTimeout,
+                              @Value("${taskmanager.assignee-queues.max-pending-changes:20000}") int maxPendingChanges) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.statusWriteBehind = statusWriteBehind;
+        this.shards = shards;
+        this.queueCapacity = queueCapacity;
+        this.maxQueues = maxQueues;
+        this.idleNanos = idleTimeout.toNanos();
+        this.maxPendingChanges = maxPendingChanges;
+        this.hits = meterRegistry.counter("taskmanager.assignee_queues.reads", "result", "hit");
+        this.loads = meterRegistry.counter("taskmanager.assignee_queues.reads", "result", "load");
+        this.evictions = meterRegistry.counter("taskmanager.assignee_queues.evictions");
+        meterRegistry.gauge("taskmanager.assignee_queues.queues", queues, Map::size);
+        invalidations.subscribe(Invalidation.Type.TASK, this::invalidated);
+    }
+
+    /**
+     * The first {@code limit} open tasks of the assignee in work order. The tasks are shared
+     * and must not be modified.
+     */
+    public List<TaskDTO> queue(Long assigneeId, int limit) {
+        if (limit < 1 || limit > queueCapacity) {
+            throw new IllegalArgumentException("Queue length must be between 1 and " + queueCapacity);
+        }
+        if (resetPending || !changed.isEmpty()) {
+            drain();
+        }
+        AssigneeQueue queue = queues.get(assigneeId);
+        if (queue == null || queue.isShort(limit)) {
+            queue = load(assigneeId, limit);
+            loads.increment();
+        } else {
+            hits.increment();
+        }
+        queue.touch(System.nanoTime());
+        if (!statusWriteBehind.hasPending()) {
+            return queue.top(limit, id -> false);
+        }
+        return queue.top(limit, id -> statusWriteBehind.pendingStatus(id).isPresent());
+    }
+
+    private void invalidated(Invalidation invalidation) {
+        // Nothing held and nothing being loaded (whose query may have missed this write)
+        if (queues.isEmpty() && !maintenance.isLocked()) {
+            return;
+        }
+        if (invalidation.isAll() || changed.size() >= maxPendingChanges) {
+            resetPending = true;
+            return;
+        }
+        changed.add(invalidation.id());
+    }
+
+    /** Applies the queued task changes to the held queues, or drops them all if that was asked for. */
+    @Scheduled(fixedDelayString = "${taskmanager.assignee-queues.drain-interval-ms:500}")
+    public void drain() {
+        if (!resetPending && changed.isEmpty()) {
+            return;
+        }
+        maintenance.lock();
+        try {
+            if (resetPending) {
+                resetPending = false;
+                queues.clear();
+                assigneeOfTask.clear();
+                changed.clear();
+                return;
+            }
+            List<Long> ids = new ArrayList<>(changed);
+            changed.removeAll(ids);
+            for (int from = 0; from < ids.size(); from += CHANGED_CHUNK) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + CHANGED_CHUNK));
+                Map<Long, TaskDTO> rows = new HashMap<>();
+                shards.scatter(shard -> jdbcTemplate.query(CHANGED, Map.of("ids", chunk), (row, index) -> TaskRows.toDTO(row)))
+                        .forEach(found -> found.forEach(task -> rows.put(task.getId(), task)));
+                for (Long id : chunk) {
+                    apply(id, rows.get(id));
+                }
+            }
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    /** Evicts the queues not read within the idle timeout. */
+    @Scheduled(fixedDelayString = "${taskmanager.assignee-queues.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        maintenance.lock();
+        try {
+            List<Long> idle = queues.entrySet().stream()
+                    .filter(entry -> now - entry.getValue().lastRead() > idleNanos)
+                    .map(Map.Entry::getKey)
+                    .toList();
+            idle.forEach(this::evict);
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    private AssigneeQueue load(Long assigneeId, int limit) {
+        maintenance.lock();
+        try {
+            // Another reader may have loaded it meanwhile
+            AssigneeQueue current = queues.get(assigneeId);
+            if (current != null && !current.isShort(limit)) {
+                return current;
+            }
+            if (current != null) {
+                evict(assigneeId);
+            } else if (queues.size() >= maxQueues) {
+                queues.entrySet().stream()
+                        .min(Comparator.comparingLong(entry -> entry.getValue().lastRead()))
+                        .ifPresent(entry -> evict(entry.getKey()));
+            }
+            Map<String, Object> parameters = Map.of("assigneeId", assigneeId, "limit", queueCapacity + 1);
+            List<TaskDTO> tasks = ShardRouter.mergeSorted(
+                    shards.scatter(shard -> jdbcTemplate.query(LOAD, parameters, (row, index) -> TaskRows.toDTO(row))),
+                    WORK_ORDER, queueCapacity + 1);
+            AssigneeQueue queue = new AssigneeQueue(queueCapacity);
+            for (TaskDTO task : tasks.subList(0, Math.min(tasks.size(), queueCapacity))) {
+                queue.put(task);
+                assigneeOfTask.put(task.getId(), assigneeId);
+            }
+            if (tasks.size() > queueCapacity) {
+                queue.markTruncated();
+            }
+            queues.put(assigneeId, queue);
+            return queue;
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    /** Moves a changed task to where its row says it belongs now; null if it is gone. */
+    private void apply(Long id, TaskDTO task) {
+        Long previous = assigneeOfTask.remove(id);
+        if (previous != null) {
+            AssigneeQueue queue = queues.get(previous);
+            if (queue != null) {
+                queue.remove(id);
+            }
+        }
+        if (task == null || task.getAssigneeId() == null || !isOpen(task)) {
+            return;
+        }
+        AssigneeQueue queue = queues.get(task.getAssigneeId());
+        if (queue == null) {
+            return;
+        }
+        assigneeOfTask.put(id, task.getAssigneeId());
+        long dropped = queue.put(task);
+        if (dropped >= 0) {
+            assigneeOfTask.remove(dropped);
+        }
+    }
+
+    /** Removes a queue and the tasks it held; the caller holds the maintenance lock. */
+    private void evict(Long assigneeId) {
+        AssigneeQueue queue = queues.remove(assigneeId);
+        if (queue != null) {
+            for (long id : queue.ids()) {
+                assigneeOfTask.remove(id);
+            }
+            evictions.increment();
+        }
+    }
+
+    private static boolean isOpen(TaskDTO task) {
+        return "PENDING".equals(task.getStatus()) || "IN_PROGRESS".equals(task.getStatus());
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.taskmanager.service;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a bulk task operation. Updated by the job thread after every chunk.
+ */
+public class BulkJob {
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String operation;
+    private final Instant createdAt = Instant.now();
+    private final AtomicLong processed = new AtomicLong();
+    private final CompletableFuture<BulkJob> completion = new CompletableFuture<>();
+    private volatile State state = State.QUEUED;
+    private volatile long total;
+    private volatile String error;
+    private volatile Instant finishedAt;
+
+    BulkJob(String operation) {
+        this.operation = operation;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /** Rows matching when the job started; rows added meanwhile may make processed exceed it. */
+    public long getTotal() {
+        return total;
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    /** Completes when the job has finished, successfully or not. */
+    public CompletableFuture<BulkJob> completion() {
+        return completion;
+    }
+
+    void started(long total) {
+        this.total = total;
+        this.state = State.RUNNING;
+    }
+
+    void progressed(long rows) {
+        processed.addAndGet(rows);
+    }
+
+    void completed() {
+        finish(State.COMPLETED, null);
+    }
+
+    void failed(String error) {
+        finish(State.FAILED, error);
+    }
+
+    private void finish(State state, String error) {
+        this.error = error;
+        this.finishedAt = Instant.now();
+        this.state = state;
+        completion.complete(this);
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.exception.ResourceNotFoundException;
+import com.example.taskmanager.sharding.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk task operations as chunked, set-based SQL.
+ *
+ * Each operation runs in the background as a {@link BulkJob}: it repeatedly updates or deletes
+ * the next chunk of matching rows with a single statement, one transaction per chunk, until
+ * a chunk comes back short. No entities are loaded, and locks are held for one chunk only.
+ * Because every chunk commits on its own, a failed job leaves the chunks before it applied;
+ * running it again finishes the remainder. Chunks that know their rows announce them to the
+ * task caches on commit; the task counts are dropped once the job ends.
+ *
+ * With sharding a job on a project runs on the project's shard; other jobs run on every shard
+ * in turn.
+ */
+@Service
+public class BulkTaskOperations {
+    private static final Logger logger = LoggerFactory.getLogger(BulkTaskOperations.class);
+    private static final String OPEN_STATUSES = "('PENDING', 'IN_PROGRESS')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate chunkTransaction;
+    private final TaskCountCache taskCountCache;
+    private final TaskStatusWriteBehind statusWriteBehind;
+    private final TaskArchiver taskArchiver;
+    private final ProjectStatsService projectStats;
+    private final TaskHistoryService history;
+    private final CacheInvalidationBus invalidations;
+    private final ShardRouter shards;
+    private final int chunkSize;
+    private final Duration retention;
+    private final Map<String, BulkJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bulk-task-operations");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public BulkTaskOperations(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              TaskCountCache taskCountCache,
+                              TaskStatusWriteBehind statusWriteBehind,
+                              TaskArchiver taskArchiver,
+                              ProjectStatsService projectStats,
+                              TaskHistoryService history,
+                              @Value("${taskmanager.bulk.chunk-size:1000}") int chunkSize,
+                              @Value("${taskmanager.bulk.job-retention:PT1H}") Duration retention,
+                              CacheInvalidationBus invalidations,
+                              ShardRouter shards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.taskCountCache = taskCountCache;
+        this.statusWriteBehind = statusWriteBehind;
+        this.taskArchiver = taskArchiver;
+        this.projectStats = projectStats;
+        this.history = history;
+        this.invalidations = invalidations;
+        this.shards = shards;
+        this.chunkSize = chunkSize;
+        this.retention = retention;
+    }
+
+    /** Moves every task assigned to one user to another. */
+    public BulkJob reassignTasks(Long fromUserId, Long toUserId) {
+        if (fromUserId.equals(toUserId)) {
+            throw new IllegalArgumentException("Cannot reassign tasks of a user to the same user");
+        }
+        requireExists("users", fromUserId, "User");
+        requireExists("users", toUserId, "User");
+        return submit("reassign-tasks", IntStream.range(0, shards.shards()).boxed().toList(),
+                () -> count("SELECT COUNT(*) FROM tasks WHERE assignee_id = ?", fromUserId),
+                List.of(() -> reassignChunk(fromUserId, toUserId)),
+                null);
+    }
+
+    /**
+     * Reassigns the next chunk of tasks and announces them, so the assignee queues and other
+     * task caches hear of each chunk as it commits rather than at the end of the job.
+     */
+    private int reassignChunk(Long fromUserId, Long toUserId) {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM tasks WHERE assignee_id = ? ORDER BY id LIMIT ?",
+                Long.class, fromUserId, chunkSize);
+        if (!ids.isEmpty()) {
+            List<Object> arguments = new ArrayList<>();
+            arguments.add(toUserId);
+            arguments.addAll(ids);
+            arguments.add(fromUserId);
+            jdbcTemplate.update("UPDATE tasks SET assignee_id = ?, updated_at = CURRENT_TIMESTAMP WHERE id IN ("
+                    + String.join(", ", Collections.nCopies(ids.size(), "?")) + ") AND assignee_id = ?",
+                    arguments.toArray());
+            ids.forEach(id -> invalidations.invalidate(Invalidation.Type.TASK, id));
+        }
+        return ids.size();
+    }
+
+    /** Sets every pending or in-progress task of a project to COMPLETED or CANCELLED. */
+    public BulkJob closeOpenTasks(Long projectId, Task.Status status) {
+        if (status != Task.Status.COMPLETED && status != Task.Status.CANCELLED) {
+            throw new IllegalArgumentException("Tasks can only be closed as COMPLETED or CANCELLED");
+        }
+        requireProject(projectId);
+        return submit("close-tasks", List.of(shards.shardOf(projectId)),
+                () -> count("SELECT COUNT(*) FROM tasks WHERE project_id = ? AND status IN " + OPEN_STATUSES, projectId),
+                List.of(() -> closeChunk(projectId, status)),
+                null);
+    }
+
+    /** Closes the next chunk of open tasks, with the matching project stats delta. */
+    private int closeChunk(Long projectId, Task.Status status) {
+        List<Long> ids = jdbcTemplate.queryForList("SELECT id FROM tasks WHERE project_id = ? AND status IN "
+                + OPEN_STATUSES + " ORDER BY id LIMIT ?", Long.class, projectId, chunkSize);
+        Map<Long, ProjectStatsService.TaskSnapshot> before = projectStats.lockTasks(ids);
+        // Re-checked under the lock: a task closed or moved meanwhile is left alone
+        Map<Long, ProjectStatsService.TaskSnapshot> open = new LinkedHashMap<>();
+        before.forEach((id, task) -> {
+            if (projectId.equals(task.projectId())
+                    && (task.status() == Task.Status.PENDING || task.status() == Task.Status.IN_PROGRESS)) {
+                open.put(id, task);
+            }
+        });
+        history.recordStatusChanges(open.keySet(), status);
+        if (!ids.isEmpty()) {
+            List<Object> arguments = new ArrayList<>();
+            arguments.add(status.name());
+            arguments.addAll(ids);
+            arguments.add(projectId);
+            jdbcTemplate.update("UPDATE tasks SET status = ?, updated_at = CURRENT_TIMESTAMP WHERE id IN ("
+                    + String.join(", ", Collections.nCopies(ids.size(), "?")) + ") AND project_id = ? AND status IN "
+                    + OPEN_STATUSES, arguments.toArray());
+        }
+        projectStats.recordChanges(open.values(), open.values().stream().map(task -> task.withStatus(status)).toList());
+        open.keySet().forEach(id -> invalidations.invalidate(Invalidation.Type.TASK, id));
+        return ids.size();
+    }
+
+    /**
+     * Gives every task in both tiers that has no status history an entry in its current status
+     * at its last update, so that tasks from before the history count in burndowns.
+     */
+    public BulkJob backfillTaskHistory() {
+        return submit("backfill-task-history", IntStream.range(0, shards.shards()).boxed().toList(),
+                history::countUnrecorded,
+                List.of(() -> history.backfill(false, chunkSize), () -> history.backfill(true, chunkSize)),
+                null);
+    }
+
+    /** Deletes a project's tasks in both tiers chunk by chunk, then the project itself. */
+    public BulkJob deleteProjectWithTasks(Long projectId) {
+        requireProject(projectId);
+        return submit("delete-project", List.of(shards.shardOf(projectId)),
+                () -> count("SELECT COUNT(*) FROM tasks WHERE project_id = ?", projectId)
+                        + count("SELECT COUNT(*) FROM tasks_archive WHERE project_id = ?", projectId),
+                List.of(() -> jdbcTemplate.update("DELETE FROM tasks WHERE id IN "
+                                + "(SELECT id FROM tasks WHERE project_id = ? ORDER BY id LIMIT ?)", projectId, chunkSize),
+                        () -> jdbcTemplate.update("DELETE FROM tasks_archive WHERE id IN "
+                                + "(SELECT id FROM tasks_archive WHERE project_id = ? ORDER BY id LIMIT ?)", projectId, chunkSize)),
+                () -> {
+                    jdbcTemplate.update("DELETE FROM projects WHERE id = ?", projectId);
+                    invalidations.invalidate(Invalidation.Type.PROJECT, projectId);
+                });
+    }
+
+    /** Moves all archived tasks of a project back to the hot tier. */
+    public BulkJob restoreArchivedTasks(Long projectId) {
+        requireProject(projectId);
+        return submit("restore-tasks", List.of(shards.shardOf(projectId)),
+                () -> count("SELECT COUNT(*) FROM tasks_archive WHERE project_id = ?", projectId),
+                List.of(() -> taskArchiver.restoreProjectChunk(projectId, chunkSize)),
+                null);
+    }
+
+    public Optional<BulkJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * @param on the shards to run the job on, one after the other
+     * @param phases chunk statements run one after the other, each until it returns a short chunk
+     * @param finish optional last statement, run once per shard in its own transaction
+     */
+    private BulkJob submit(String operation, List<Integer> on, LongSupplier total, List<IntSupplier> phases,
+                           Runnable finish) {
+        forgetFinishedJobs();
+        BulkJob job = new BulkJob(operation);
+        jobs.put(job.getId(), job);
+        executor.execute(() -> run(job, on, total, phases, finish));
+        return job;
+    }
+
+    private void run(BulkJob job, List<Integer> on, LongSupplier total, List<IntSupplier> phases, Runnable finish) {
+        try {
+            // Pending write-behind updates were acknowledged earlier and must not land on top of the job
+            statusWriteBehind.flush();
+            job.started(on.stream().mapToLong(shard -> shards.inShard(shard, total::getAsLong)).sum());
+            for (int shard : on) {
+                shards.inShard(shard, () -> {
+                    runPhases(job, phases, finish);
+                    return null;
+                });
+            }
+            job.completed();
+            logger.info("Bulk {} {} finished: {} rows", job.getOperation(), job.getId(), job.getProcessed());
+        } catch (RuntimeException e) {
+            logger.error("Bulk {} {} failed after {} rows", job.getOperation(), job.getId(), job.getProcessed(), e);
+            job.failed(e.getMessage());
+        } finally {
+            taskCountCache.invalidateAll();
+        }
+    }
+
+    private void runPhases(BulkJob job, List<IntSupplier> phases, Runnable finish) {
+        for (IntSupplier chunk : phases) {
+            int rows;
+            do {
+                rows = chunkTransaction.execute(status -> chunk.getAsInt());
+                job.progressed(rows);
+            } while (rows == chunkSize);
+        }
+        if (finish != null) {
+            chunkTransaction.executeWithoutResult(status -> finish.run());
+        }
+    }
+
+    private void forgetFinishedJobs() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    private void requireExists(String table, Long id, String entity) {
+        if (count("SELECT COUNT(*) FROM " + table + " WHERE id = ?", id) == 0) {
+            throw new ResourceNotFoundException(entity + " not found with id: " + id);
+        }
+    }
+
+    private void requireProject(Long projectId) {
+        shards.inShard(shards.shardOf(projectId), () -> {
+            requireExists("projects", projectId, "Project");
+            return null;
+        });
+    }
+
+    private long count(String sql, Long id) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, id);
+        return count != null ? count : 0;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
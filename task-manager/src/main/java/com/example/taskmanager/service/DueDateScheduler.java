@@ -0,0 +1,412 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes a {@link TaskDueEvent} when an open task's due date comes near (REMINDER, the
+ * configured lead time before) and when it passes (OVERDUE).
+ *
+ * Upcoming due dates are kept in a {@link TimingWheel}, so scheduling, cancelling and firing
+ * cost O(1) per task. Memory is bounded by loading only a window ahead of now: every load
+ * interval the next stretch of due dates is read from the partial (due_date, id) index in
+ * keyset pages, up to {@code max-entries} timers. Task writes keep the loaded window current
+ * after they commit; tasks due beyond it are picked up by a later load.
+ *
+ * Before an event is published the task is re-read (one query per tick for all timers that
+ * expired), so timers of tasks that were closed, deleted or rescheduled by a path that does
+ * not notify the scheduler (bulk jobs, rolled back writes) are dropped.
+ *
+ * The time up to which every event has been published is saved in task_due_watermark. On
+ * restart the wheel starts from there and is re-primed from the database, so events that fell
+ * due while the application was down are published on start.
+ *
+ * With sharding the wheel holds the tasks of every shard: loads and re-reads go through the
+ * shards in turn, and the watermark is kept on the home shard.
+ */
+@Component
+public class DueDateScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(DueDateScheduler.class);
+    private static final String OPEN_STATUSES = "('PENDING', 'IN_PROGRESS')";
+    private static final String LOAD_PAGE = "SELECT id, due_date FROM tasks WHERE status IN " + OPEN_STATUSES
+            + " AND due_date < :until AND (due_date > :afterDue OR (due_date = :afterDue AND id > :afterId))"
+            + " ORDER BY due_date, id LIMIT :limit";
+
+    private record Timer(long taskId, LocalDateTime dueDate, TaskDueEvent.Kind kind) {}
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+    private final boolean enabled;
+    private final Duration tick;
+    private final int wheelSize;
+    private final Duration horizon;
+    private final Duration reminderLead;
+    private final Duration loadInterval;
+    private final int maxEntries;
+    private final int loadPageSize;
+    private final Duration watermarkInterval;
+    private final Counter reminders;
+    private final Counter overdue;
+    private final Counter dropped;
+    private final ShardRouter shards;
+
+    // Guarded by this
+    private TimingWheel<Timer> wheel;
+    private final Map<Long, TimingWheel.Entry<Timer>> scheduled = new HashMap<>();
+    private final List<Timer> expiredOnArrival = new ArrayList<>();
+    private LocalDateTime loadedUntil;
+
+    private LocalDateTime savedWatermark;
+    private ScheduledExecutorService executor;
+
+    @Autowired
+    public DueDateScheduler(NamedParameterJdbcTemplate jdbcTemplate,
+                            ApplicationEventPublisher eventPublisher,
+                            MeterRegistry meterRegistry,
+                            @Value("${taskmanager.due-dates.enabled:true}") boolean enabled,
+                            @Value("${taskmanager.due-dates.tick:PT1S}") Duration tick,
+                            @Value("${taskmanager.due-dates.wheel-size:64}") int wheelSize,
+                            @Value("${taskmanager.due-dates.horizon:PT6H}") Duration horizon,
+                            @Value("${taskmanager.due-dates.reminder-lead:PT1H}") Duration reminderLead,
+                            @Value("${taskmanager.due-dates.load-interval:PT5M}") Duration loadInterval,
+                            @Value("${taskmanager.due-dates.max-entries:500000}") int maxEntries,
+                            @Value("${taskmanager.due-dates.load-page-size:5000}") int loadPageSize,
+                            @Value("${taskmanager.due-dates.watermark-interval:PT10S}") Duration watermarkInterval,
+                            ShardRouter shards) {
+        this(jdbcTemplate, eventPublisher, meterRegistry, Clock.systemDefaultZone(), enabled, tick, wheelSize, horizon,
+                reminderLead, loadInterval, maxEntries, loadPageSize, watermarkInterval, shards);
+    }
+
+    DueDateScheduler(NamedParameterJdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher,
+                     MeterRegistry meterRegistry, Clock clock, boolean enabled, Duration tick, int wheelSize,
+                     Duration horizon, Duration reminderLead, Duration loadInterval, int maxEntries,
+                     int loadPageSize, Duration watermarkInterval, ShardRouter shards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.tick = tick;
+        this.wheelSize = wheelSize;
+        this.horizon = horizon;
+        this.reminderLead = reminderLead;
+        this.loadInterval = loadInterval;
+        this.maxEntries = maxEntries;
+        this.loadPageSize = loadPageSize;
+        this.watermarkInterval = watermarkInterval;
+        this.reminders = meterRegistry.counter("taskmanager.due_dates.events", "kind", "reminder");
+        this.overdue = meterRegistry.counter("taskmanager.due_dates.events", "kind", "overdue");
+        this.dropped = meterRegistry.counter("taskmanager.due_dates.dropped");
+        Gauge.builder("taskmanager.due_dates.scheduled", this, DueDateScheduler::scheduledCount).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "due-date-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> guarded("tick", this::tick), 0, tick.toMillis(), TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(() -> guarded("load", this::loadAhead),
+                loadInterval.toMillis(), loadInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void guarded(String step, Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (RuntimeException e) {
+            logger.error("Due date scheduler {} failed, will retry", step, e);
+        }
+    }
+
+    /**
+     * Called by task writes, in their transaction; takes effect when it commits. Only changes
+     * to the due date or to whether the task is open matter.
+     */
+    public void taskChanged(Long taskId, ProjectStatsService.TaskSnapshot before, ProjectStatsService.TaskSnapshot after) {
+        if (!enabled || taskId == null) {
+            return;
+        }
+        boolean wasTracked = tracked(before);
+        boolean isTracked = tracked(after);
+        if (!wasTracked && !isTracked || wasTracked && isTracked && before.dueDate().equals(after.dueDate())) {
+            return;
+        }
+        LocalDateTime dueDate = isTracked ? after.dueDate() : null;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reschedule(taskId, dueDate);
+                }
+            });
+        } else {
+            reschedule(taskId, dueDate);
+        }
+    }
+
+    private static boolean tracked(ProjectStatsService.TaskSnapshot task) {
+        return task != null && task.isOpen() && task.dueDate() != null;
+    }
+
+    private synchronized void reschedule(long taskId, LocalDateTime dueDate) {
+        if (wheel == null) {
+            // Not primed yet; priming reads the committed state
+            return;
+        }
+        unschedule(taskId);
+        if (dueDate != null && dueDate.isBefore(loadedUntil)) {
+            schedule(taskId, dueDate);
+        }
+    }
+
+    /** Starts the wheel at the saved watermark and loads the first window. */
+    void prime() {
+        List<Timestamp> saved = jdbcTemplate.getJdbcTemplate()
+                .queryForList("SELECT fired_until FROM task_due_watermark WHERE id = 1", Timestamp.class);
+        LocalDateTime watermark;
+        if (saved.isEmpty()) {
+            watermark = LocalDateTime.now(clock);
+            jdbcTemplate.update("INSERT INTO task_due_watermark (id, fired_until) VALUES (1, :watermark)",
+                    new MapSqlParameterSource("watermark", watermark));
+        } else {
+            watermark = saved.get(0).toLocalDateTime();
+        }
+        synchronized (this) {
+            wheel = new TimingWheel<>(tick.toMillis(), wheelSize, millis(watermark));
+            scheduled.clear();
+            expiredOnArrival.clear();
+            loadedUntil = watermark;
+        }
+        savedWatermark = watermark;
+        logger.info("Due date scheduler starting from {}", watermark);
+        loadAhead();
+    }
+
+    /**
+     * Loads open tasks due up to the horizon (plus the reminder lead) that are not loaded yet.
+     */
+    void loadAhead() {
+        LocalDateTime target = LocalDateTime.now(clock).plus(horizon).plus(reminderLead);
+        LocalDateTime from;
+        synchronized (this) {
+            if (wheel == null || !loadedUntil.isBefore(target)) {
+                return;
+            }
+            from = loadedUntil;
+            // From here on writes keep the new range current themselves; the rows read
+            // below never replace a timer they scheduled
+            loadedUntil = target;
+        }
+        AtomicInteger loaded = new AtomicInteger();
+        List<LocalDateTime> fullAt = new ArrayList<>();
+        shards.forEachShard(shard -> {
+            LocalDateTime stopped = loadShard(from, target, loaded);
+            if (stopped != null) {
+                fullAt.add(stopped);
+            }
+        });
+        if (!fullAt.isEmpty()) {
+            // Every shard is loaded up to where it stopped, so the window ends at the earliest
+            LocalDateTime until = Collections.min(fullAt);
+            synchronized (this) {
+                loadedUntil = until;
+            }
+            logger.warn("Due date scheduler full at {} timers, loaded up to {}", maxEntries, until);
+            return;
+        }
+        logger.debug("Loaded {} due dates up to {}", loaded.get(), target);
+    }
+
+    /**
+     * Loads the current shard's due dates in [from, target).
+     *
+     * @return the due date at which the scheduler was full, or null if everything was loaded
+     */
+    private LocalDateTime loadShard(LocalDateTime from, LocalDateTime target, AtomicInteger loaded) {
+        LocalDateTime afterDue = from;
+        long afterId = Long.MIN_VALUE;
+        while (true) {
+            List<Object[]> page = jdbcTemplate.query(LOAD_PAGE, new MapSqlParameterSource("until", target)
+                    .addValue("afterDue", afterDue)
+                    .addValue("afterId", afterId)
+                    .addValue("limit", loadPageSize),
+                    (rs, row) -> new Object[] { rs.getLong("id"), rs.getTimestamp("due_date").toLocalDateTime() });
+            synchronized (this) {
+                for (Object[] row : page) {
+                    long taskId = (Long) row[0];
+                    LocalDateTime dueDate = (LocalDateTime) row[1];
+                    if (scheduled.size() >= maxEntries) {
+                        return dueDate;
+                    }
+                    if (!scheduled.containsKey(taskId)) {
+                        schedule(taskId, dueDate);
+                        loaded.incrementAndGet();
+                    }
+                }
+            }
+            if (page.size() < loadPageSize) {
+                return null;
+            }
+            Object[] last = page.get(page.size() - 1);
+            afterId = (Long) last[0];
+            afterDue = (LocalDateTime) last[1];
+        }
+    }
+
+    /** Advances the wheel to now and publishes the events that fell due. */
+    void tick() {
+        if (wheel == null) {
+            prime();
+        }
+        List<TimingWheel.Entry<Timer>> expired = new ArrayList<>();
+        List<Timer> due;
+        LocalDateTime reached;
+        synchronized (this) {
+            wheel.advanceTo(clock.millis(), expired);
+            reached = LocalDateTime.ofInstant(Instant.ofEpochMilli(wheel.currentTime()), clock.getZone());
+            due = new ArrayList<>(expiredOnArrival);
+            expiredOnArrival.clear();
+            for (TimingWheel.Entry<Timer> entry : expired) {
+                scheduled.remove(entry.value.taskId(), entry);
+                due.add(entry.value);
+            }
+        }
+        // Firing a reminder late may schedule an overdue timer that has expired already
+        while (!due.isEmpty()) {
+            try {
+                fire(due);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    expiredOnArrival.addAll(0, due);
+                }
+                throw e;
+            }
+            synchronized (this) {
+                due = new ArrayList<>(expiredOnArrival);
+                expiredOnArrival.clear();
+            }
+        }
+        if (!reached.isBefore(savedWatermark.plus(watermarkInterval))) {
+            jdbcTemplate.update("UPDATE task_due_watermark SET fired_until = :watermark WHERE id = 1",
+                    new MapSqlParameterSource("watermark", reached));
+            savedWatermark = reached;
+        }
+    }
+
+    private void fire(List<Timer> due) {
+        Map<Long, Object[]> current = new HashMap<>();
+        List<Long> ids = due.stream().map(Timer::taskId).distinct().toList();
+        shards.forEachShard(shard -> {
+            for (int from = 0; from < ids.size(); from += loadPageSize) {
+                jdbcTemplate.query("SELECT id, status, due_date FROM tasks WHERE id IN (:ids)",
+                        new MapSqlParameterSource("ids", ids.subList(from, Math.min(ids.size(), from + loadPageSize))),
+                        rs -> {
+                            Timestamp dueDate = rs.getTimestamp("due_date");
+                            current.put(rs.getLong("id"), new Object[] { rs.getString("status"),
+                                    dueDate != null ? dueDate.toLocalDateTime() : null });
+                        });
+            }
+        });
+        for (Timer timer : due) {
+            Object[] task = current.get(timer.taskId());
+            boolean open = task != null && ("PENDING".equals(task[0]) || "IN_PROGRESS".equals(task[0]));
+            if (!open || !timer.dueDate().equals(task[1])) {
+                dropped.increment();
+                if (open && task[1] != null) {
+                    // Rescheduled without telling us
+                    reschedule(timer.taskId(), (LocalDateTime) task[1]);
+                }
+                continue;
+            }
+            eventPublisher.publishEvent(new TaskDueEvent(timer.taskId(), timer.dueDate(), timer.kind()));
+            if (timer.kind() == TaskDueEvent.Kind.REMINDER) {
+                reminders.increment();
+                synchronized (this) {
+                    if (!scheduled.containsKey(timer.taskId())) {
+                        add(new Timer(timer.taskId(), timer.dueDate(), TaskDueEvent.Kind.OVERDUE), millis(timer.dueDate()));
+                    }
+                }
+            } else {
+                overdue.increment();
+            }
+        }
+    }
+
+    /** Schedules the next event of an open task: its reminder if that is still ahead, else overdue. */
+    private void schedule(long taskId, LocalDateTime dueDate) {
+        unschedule(taskId);
+        LocalDateTime remindAt = dueDate.minus(reminderLead);
+        if (!reminderLead.isZero() && millis(remindAt) >= wheel.currentTime()) {
+            add(new Timer(taskId, dueDate, TaskDueEvent.Kind.REMINDER), millis(remindAt));
+        } else {
+            add(new Timer(taskId, dueDate, TaskDueEvent.Kind.OVERDUE), millis(dueDate));
+        }
+    }
+
+    private void add(Timer timer, long at) {
+        TimingWheel.Entry<Timer> entry = new TimingWheel.Entry<>(at, timer);
+        if (wheel.add(entry)) {
+            scheduled.put(timer.taskId(), entry);
+        } else {
+            expiredOnArrival.add(timer);
+        }
+    }
+
+    private void unschedule(long taskId) {
+        TimingWheel.Entry<Timer> entry = scheduled.remove(taskId);
+        if (entry != null) {
+            wheel.remove(entry);
+        }
+    }
+
+    private long millis(LocalDateTime time) {
+        return time.atZone(clock.getZone()).toInstant().toEpochMilli();
+    }
+
+    synchronized int scheduledCount() {
+        return scheduled.size();
+    }
+}
@@ -0,0 +1,517 @@
+package com.example.taskmanager.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compressed set of task ids in the layout of Roaring bitmaps: ids are split by their high 16
+ * bits into containers of up to 65536 low halves, each held as a sorted char array while it
+ * has at most 4096 ids (2 bytes per id) and as a 65536-bit bitmap above that (8 KB). Sparse
+ * labels cost little, dense statuses cost a bit per task, and AND / OR / AND NOT work a
+ * container, mostly a word, at a time.
+ *
+ * Only ids from 0 to 2^32 - 1 fit ({@link #fits}). Not thread-safe; the results of the set
+ * operations share nothing with their operands.
+ */
+final class IdBitmap {
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    IdBitmap() {
+        this(4);
+    }
+
+    private IdBitmap(int capacity) {
+        keys = new char[capacity];
+        containers = new Container[capacity];
+    }
+
+    static boolean fits(long id) {
+        return id >= 0 && id <= 0xFFFFFFFFL;
+    }
+
+    void add(long id) {
+        checkFits(id);
+        char key = (char) (id >>> 16);
+        int index = find(key);
+        if (index >= 0) {
+            containers[index] = containers[index].add((char) id);
+        } else {
+            insert(-index - 1, key, new ArrayContainer().add((char) id));
+        }
+    }
+
+    void remove(long id) {
+        if (!fits(id)) {
+            return;
+        }
+        int index = find((char) (id >>> 16));
+        if (index < 0) {
+            return;
+        }
+        Container container = containers[index].remove((char) id);
+        if (container.cardinality() == 0) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+            containers[--size] = null;
+        } else {
+            containers[index] = container;
+        }
+    }
+
+    boolean contains(long id) {
+        if (!fits(id)) {
+            return false;
+        }
+        int index = find((char) (id >>> 16));
+        return index >= 0 && containers[index].contains((char) id);
+    }
+
+    long cardinality() {
+        long cardinality = 0;
+        for (int index = 0; index < size; index++) {
+            cardinality += containers[index].cardinality();
+        }
+        return cardinality;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Roughly the heap held, for the gauges. */
+    long bytes() {
+        long bytes = 16L + keys.length * 2L + containers.length * 4L;
+        for (int index = 0; index < size; index++) {
+            bytes += containers[index].bytes();
+        }
+        return bytes;
+    }
+
+    IdBitmap and(IdBitmap other) {
+        IdBitmap result = new IdBitmap(Math.max(1, Math.min(size, other.size)));
+        int left = 0;
+        int right = 0;
+        while (left < size && right < other.size) {
+            if (keys[left] < other.keys[right]) {
+                left++;
+            } else if (keys[left] > other.keys[right]) {
+                right++;
+            } else {
+                Container container = containers[left++].and(other.containers[right++]);
+                if (container.cardinality() > 0) {
+                    result.append(keys[left - 1], container);
+                }
+            }
+        }
+        return result;
+    }
+
+    IdBitmap or(IdBitmap other) {
+        IdBitmap result = new IdBitmap(Math.max(1, size + other.size));
+        int left = 0;
+        int right = 0;
+        while (left < size || right < other.size) {
+            if (right == other.size || left < size && keys[left] < other.keys[right]) {
+                result.append(keys[left], containers[left++].copy());
+            } else if (left == size || keys[left] > other.keys[right]) {
+                result.append(other.keys[right], other.containers[right++].copy());
+            } else {
+                result.append(keys[left], containers[left++].or(other.containers[right++]));
+            }
+        }
+        return result;
+    }
+
+    IdBitmap andNot(IdBitmap other) {
+        IdBitmap result = new IdBitmap(Math.max(1, size));
+        int right = 0;
+        for (int left = 0; left < size; left++) {
+            while (right < other.size && other.keys[right] < keys[left]) {
+                right++;
+            }
+            Container container = right < other.size && other.keys[right] == keys[left]
+                    ? containers[left].andNot(other.containers[right]) : containers[left].copy();
+            if (container.cardinality() > 0) {
+                result.append(keys[left], container);
+            }
+        }
+        return result;
+    }
+
+    /** The union of all, or an empty bitmap for none. */
+    static IdBitmap orAll(List<IdBitmap> bitmaps) {
+        IdBitmap result = new IdBitmap();
+        for (IdBitmap bitmap : bitmaps) {
+            result = result.or(bitmap);
+        }
+        return result;
+    }
+
+    /** Up to {@code count} ids in ascending order, starting with the one at position {@code offset}. */
+    long[] range(long offset, int count) {
+        long[] ids = new long[(int) Math.max(0, Math.min(count, cardinality() - offset))];
+        int written = 0;
+        long skip = offset;
+        for (int index = 0; index < size && written < ids.length; index++) {
+            int cardinality = containers[index].cardinality();
+            if (skip >= cardinality) {
+                skip -= cardinality;
+                continue;
+            }
+            written += containers[index].fill((int) skip, (long) keys[index] << 16, ids, written);
+            skip = 0;
+        }
+        return ids;
+    }
+
+    private static void checkFits(long id) {
+        if (!fits(id)) {
+            throw new IllegalArgumentException("Id out of range: " + id);
+        }
+    }
+
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insert(int index, char key, Container container) {
+        grow();
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void append(char key, Container container) {
+        grow();
+        keys[size] = key;
+        containers[size++] = container;
+    }
+
+    private void grow() {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+    }
+
+    /** The low halves of the ids sharing one high half. */
+    private abstract static class Container {
+        abstract int cardinality();
+
+        abstract boolean contains(char value);
+
+        /** This container or the one it turned into. */
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract Container copy();
+
+        abstract long bytes();
+
+        /** Writes the values from position {@code from} on as ids; returns how many were written. */
+        abstract int fill(int from, long high, long[] ids, int offset);
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return this;
+            }
+            if (cardinality == ARRAY_MAX) {
+                return toBitmap().add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+                if (cardinality < values.length / 4) {
+                    values = Arrays.copyOf(values, Math.max(4, cardinality * 2));
+                }
+            }
+            return this;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int index = 0; index < cardinality; index++) {
+                if (other.contains(values[index])) {
+                    result[count++] = values[index];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            if (cardinality + array.cardinality > ARRAY_MAX) {
+                return toBitmap().or(other);
+            }
+            char[] result = new char[cardinality + array.cardinality];
+            int left = 0;
+            int right = 0;
+            int count = 0;
+            while (left < cardinality || right < array.cardinality) {
+                if (right == array.cardinality || left < cardinality && values[left] < array.values[right]) {
+                    result[count++] = values[left++];
+                } else if (left == cardinality || values[left] > array.values[right]) {
+                    result[count++] = array.values[right++];
+                } else {
+                    result[count++] = values[left++];
+                    right++;
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int index = 0; index < cardinality; index++) {
+                if (!other.contains(values[index])) {
+                    result[count++] = values[index];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(1, cardinality)), cardinality);
+        }
+
+        @Override
+        long bytes() {
+            return 32L + values.length * 2L;
+        }
+
+        @Override
+        int fill(int from, long high, long[] ids, int offset) {
+            int count = Math.min(cardinality - from, ids.length - offset);
+            for (int index = 0; index < count; index++) {
+                ids[offset + index] = high | values[from + index];
+            }
+            return count;
+        }
+
+        BitmapContainer toBitmap() {
+            long[] words = new long[WORDS];
+            for (int index = 0; index < cardinality; index++) {
+                words[values[index] >>> 6] |= 1L << values[index];
+            }
+            return new BitmapContainer(words, cardinality);
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & 1L << value) != 0;
+        }
+
+        @Override
+        Container add(char value) {
+            long word = words[value >>> 6];
+            long updated = word | 1L << value;
+            if (updated != word) {
+                words[value >>> 6] = updated;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long word = words[value >>> 6];
+            long updated = word & ~(1L << value);
+            if (updated == word) {
+                return this;
+            }
+            words[value >>> 6] = updated;
+            cardinality--;
+            return cardinality <= ARRAY_MAX ? toArray() : this;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[WORDS];
+            int count = 0;
+            for (int index = 0; index < WORDS; index++) {
+                result[index] = words[index] & otherWords[index];
+                count += Long.bitCount(result[index]);
+            }
+            return shrink(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = words.clone();
+            int count = cardinality;
+            if (other instanceof ArrayContainer array) {
+                for (int index = 0; index < array.cardinality; index++) {
+                    char value = array.values[index];
+                    if ((result[value >>> 6] & 1L << value) == 0) {
+                        result[value >>> 6] |= 1L << value;
+                        count++;
+                    }
+                }
+                return new BitmapContainer(result, count);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            count = 0;
+            for (int index = 0; index < WORDS; index++) {
+                result[index] |= otherWords[index];
+                count += Long.bitCount(result[index]);
+            }
+            return new BitmapContainer(result, count);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            long[] result = words.clone();
+            int count = cardinality;
+            if (other instanceof ArrayContainer array) {
+                for (int index = 0; index < array.cardinality; index++) {
+                    char value = array.values[index];
+                    if ((result[value >>> 6] & 1L << value) != 0) {
+                        result[value >>> 6] &= ~(1L << value);
+                        count--;
+                    }
+                }
+                return shrink(result, count);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            count = 0;
+            for (int index = 0; index < WORDS; index++) {
+                result[index] &= ~otherWords[index];
+                count += Long.bitCount(result[index]);
+            }
+            return shrink(result, count);
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        long bytes() {
+            return 32L + WORDS * 8L;
+        }
+
+        @Override
+        int fill(int from, long high, long[] ids, int offset) {
+            int written = 0;
+            int skip = from;
+            for (int index = 0; index < WORDS && offset + written < ids.length; index++) {
+                long word = words[index];
+                int bits = Long.bitCount(word);
+                if (skip >= bits) {
+                    skip -= bits;
+                    continue;
+                }
+                while (word != 0 && offset + written < ids.length) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        ids[offset + written++] = high | (long) index << 6 | bit;
+                    }
+                }
+            }
+            return written;
+        }
+
+        private static Container shrink(long[] words, int cardinality) {
+            BitmapContainer bitmap = new BitmapContainer(words, cardinality);
+            return cardinality <= ARRAY_MAX ? bitmap.toArray() : bitmap;
+        }
+
+        ArrayContainer toArray() {
+            char[] values = new char[Math.max(1, cardinality)];
+            int count = 0;
+            for (int index = 0; index < WORDS; index++) {
+                long word = words[index];
+                while (word != 0) {
+                    values[count++] = (char) (index << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+}
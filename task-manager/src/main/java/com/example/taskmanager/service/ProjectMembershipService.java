@@ -0,0 +1,170 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import com.example.taskmanager.dto.ProjectMembershipDTO;
+import com.example.taskmanager.exception.ResourceNotFoundException;
+import com.example.taskmanager.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Adds tasks to a project, or takes them out of it, a batch of ids at a time: one locking read
+ * and one UPDATE of {@code tasks.project_id} per batch, so the cost follows the number of
+ * tasks named rather than the size of the projects. {@code Project.tasks} is never loaded; the
+ * task rows own the membership. Adding a task that is in another project moves it.
+ *
+ * The project stats, the status history and the caches follow as for a single task update.
+ * With sharding, tasks that change shard are moved row by row as in {@link TaskService#updateTask};
+ * those already on the right shard still change in one statement.
+ */
+@Service
+public class ProjectMembershipService {
+    private static final String UPDATE = "UPDATE tasks SET project_id = :projectId, updated_at = CURRENT_TIMESTAMP "
+            + "WHERE id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ProjectStatsService projectStats;
+    private final TaskHistoryService history;
+    private final TaskStatusWriteBehind statusWriteBehind;
+    private final CacheInvalidationBus invalidations;
+    private final ShardRouter shards;
+    private final int maxBatchSize;
+
+    @Autowired
+    public ProjectMembershipService(NamedParameterJdbcTemplate jdbcTemplate,
+                                    ProjectStatsService projectStats,
+                                    TaskHistoryService history,
+                                    TaskStatusWriteBehind statusWriteBehind,
+                                    CacheInvalidationBus invalidations,
+                                    ShardRouter shards,
+                                    @Value("${taskmanager.project-membership.max-batch-size:1000}") int maxBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.projectStats = projectStats;
+        this.history = history;
+        this.statusWriteBehind = statusWriteBehind;
+        this.invalidations = invalidations;
+        this.shards = shards;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /** Puts the tasks into the project, taking them out of the project they were in, if any. */
+    @Transactional
+    public ProjectMembershipDTO addTasks(Long projectId, Collection<Long> taskIds) {
+        Set<Long> ids = batch(taskIds);
+        requireProject(projectId);
+        // Without sharding there is one shard; with it the tasks may be on any of them
+        List<Integer> sources = IntStream.range(0, shards.shards()).boxed().toList();
+        return move(projectId, ids, sources, task -> !Objects.equals(task.projectId(), projectId), projectId);
+    }
+
+    /** Takes the tasks out of the project, leaving them without one; other tasks are not touched. */
+    @Transactional
+    public ProjectMembershipDTO removeTasks(Long projectId, Collection<Long> taskIds) {
+        Set<Long> ids = batch(taskIds);
+        requireProject(projectId);
+        return move(projectId, ids, List.of(shards.shardOf(projectId)),
+                task -> Objects.equals(task.projectId(), projectId), null);
+    }
+
+    /**
+     * Sets the project of the selected tasks to {@code target}, shard by shard; the tasks of
+     * other shards move to the target's shard and are counted there once they have arrived.
+     */
+    private ProjectMembershipDTO move(Long projectId, Set<Long> ids, List<Integer> sources,
+                                      Predicate<ProjectStatsService.TaskSnapshot> selection, Long target) {
+        // Acknowledged status updates land before the rows change or leave their shard
+        if (ids.stream().anyMatch(id -> statusWriteBehind.pendingStatus(id).isPresent())) {
+            statusWriteBehind.flush();
+        }
+        int to = shards.shardOf(target);
+        Set<Long> found = new TreeSet<>();
+        Set<Long> selected = new TreeSet<>();
+        Set<Long> affectedProjects = new TreeSet<>();
+        Map<Long, ProjectStatsService.TaskSnapshot> arrivals = new LinkedHashMap<>();
+        for (int shard : sources) {
+            boolean local = shard == to;
+            shards.onShard(shard, () -> {
+                Map<Long, ProjectStatsService.TaskSnapshot> moving = new LinkedHashMap<>();
+                projectStats.lockTasks(ids).forEach((id, task) -> {
+                    found.add(id);
+                    if (selection.test(task)) {
+                        moving.put(id, task);
+                    }
+                });
+                if (moving.isEmpty()) {
+                    return null;
+                }
+                moving.values().stream().map(ProjectStatsService.TaskSnapshot::projectId).filter(Objects::nonNull)
+                        .forEach(affectedProjects::add);
+                history.recordProjectExits(moving.keySet());
+                if (local) {
+                    jdbcTemplate.update(UPDATE, new MapSqlParameterSource("projectId", target)
+                            .addValue("ids", moving.keySet()));
+                    history.recordProjectEntries(moving.keySet());
+                    projectStats.recordChanges(moving.values(),
+                            moving.values().stream().map(task -> task.withProjectId(target)).toList());
+                } else {
+                    moving.keySet().forEach(id -> shards.moveRow("tasks", id, to, Collections.singletonMap("project_id", target)));
+                    projectStats.recordChanges(moving.values(), List.of());
+                    moving.forEach((id, task) -> arrivals.put(id, task.withProjectId(target)));
+                }
+                selected.addAll(moving.keySet());
+                return null;
+            });
+        }
+        if (!arrivals.isEmpty()) {
+            shards.onShard(to, () -> {
+                projectStats.recordChanges(List.of(), arrivals.values());
+                history.recordProjectEntries(arrivals.keySet());
+                return null;
+            });
+        }
+
+        selected.forEach(id -> invalidations.invalidate(Invalidation.Type.TASK, id));
+        if (target != null && !selected.isEmpty()) {
+            affectedProjects.add(target);
+        }
+        affectedProjects.forEach(id -> invalidations.invalidate(Invalidation.Type.PROJECT, id));
+        Set<Long> known = target == null ? selected : found;
+        List<Long> notFound = ids.stream().filter(id -> !known.contains(id)).toList();
+        return new ProjectMembershipDTO(projectId, ids.size(), selected.size(), notFound);
+    }
+
+    private Set<Long> batch(Collection<Long> taskIds) {
+        if (taskIds == null || taskIds.isEmpty()) {
+            throw new IllegalArgumentException("No task ids given");
+        }
+        if (taskIds.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Task ids must not be null");
+        }
+        Set<Long> ids = new TreeSet<>(taskIds);
+        if (ids.size() > maxBatchSize) {
+            throw new IllegalArgumentException("At most " + maxBatchSize + " task ids per request");
+        }
+        return ids;
+    }
+
+    private void requireProject(Long projectId) {
+        Long count = shards.readOnProject(projectId, () -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM projects WHERE id = :id", new MapSqlParameterSource("id", projectId), Long.class));
+        if (count == null || count == 0) {
+            throw new ResourceNotFoundException("Project not found with id: " + projectId);
+        }
+    }
+}
@@ -1,68 +1,151 @@
 package com.example.taskmanager.service;
 
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
 import com.example.taskmanager.entities.Project;
 import com.example.taskmanager.repository.ProjectRepository;
+import com.example.taskmanager.sharding.ShardRouter;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+/**
+ * With sharding ({@link ShardRouter}) each project is read and written on its own shard, in a
+ * transaction there; the projects returned are detached with their owner and tasks loaded.
+ */
 @Service
 public class ProjectService {
     private final ProjectRepository projectRepository;
+    private final RequestCoalescer requestCoalescer;
+    private final ProjectStatsService projectStats;
+    private final CacheInvalidationBus invalidations;
+    private final ShardRouter shards;
 
     @Autowired
-    public ProjectService(ProjectRepository projectRepository) {
+    public ProjectService(ProjectRepository projectRepository, RequestCoalescer requestCoalescer,
+                          ProjectStatsService projectStats, CacheInvalidationBus invalidations, ShardRouter shards) {
         this.projectRepository = projectRepository;
+        this.requestCoalescer = requestCoalescer;
+        this.projectStats = projectStats;
+        this.invalidations = invalidations;
+        this.shards = shards;
     }
 
     public List<Project> getAllProjects() {
-        return projectRepository.findAll();
+        if (!shards.isSharded()) {
+            return projectRepository.findAll();
+        }
+        return shards.scatter(shard -> {
+                    List<Project> projects = projectRepository.findAll();
+                    projects.forEach(ProjectService::initialize);
+                    return projects;
+                })
+                .stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(Project::getId))
+                .toList();
+    }
+
+    private static void initialize(Project project) {
+        Hibernate.initialize(project.getOwner());
+        Hibernate.initialize(project.getTasks());
     }
 
+    /**
+     * Identical concurrent lookups share one query. The owner and tasks are initialized before
+     * the project is shared; the result must not be modified, use {@link #getProjectForUpdate}.
+     */
     public Optional<Project> getProjectById(Long id) {
-        return projectRepository.findById(id);
+        return requestCoalescer.execute("projects.byId", id, () -> shards.readOnProject(id, () -> load(id)));
+    }
+
+    private Optional<Project> load(Long id) {
+        Optional<Project> project = projectRepository.findById(id);
+        project.ifPresent(ProjectService::initialize);
+        return project;
+    }
+
+    /**
+     * Loads a project into the caller's persistence context, without coalescing. With sharding
+     * there is no such context and the project is loaded detached; {@link #updateProject} applies it.
+     */
+    public Optional<Project> getProjectForUpdate(Long id) {
+        if (!shards.isSharded()) {
+            return projectRepository.findById(id);
+        }
+        return shards.readOnProject(id, () -> load(id));
     }
 
+    @Transactional
     public Project createProject(Project project) {
-        return projectRepository.save(project);
+        if (!shards.isSharded()) {
+            Project saved = projectRepository.save(project);
+            projectStats.createFor(saved.getId());
+            invalidations.invalidate(Invalidation.Type.PROJECT, saved.getId());
+            return saved;
+        }
+        // The shard follows from the id, so the id is allocated before the insert
+        long id = shards.nextProjectId();
+        return shards.onProject(id, () -> {
+            projectRepository.insertWithId(id, project.getName(), project.getDescription(),
+                    project.getOwner() != null ? project.getOwner().getId() : null);
+            projectStats.createFor(id);
+            invalidations.invalidate(Invalidation.Type.PROJECT, id);
+            return load(id).orElseThrow();
+        });
     }
 
     @Transactional
     public Project updateProject(Long id, Project updatedProject) {
+        return shards.onProject(id, () -> applyUpdate(id, updatedProject));
+    }
+
+    /**
+     * Updates the project's own fields. Its tasks are left alone: the task rows own the
+     * membership, which {@link ProjectMembershipService} changes without loading the collection.
+     */
+    private Project applyUpdate(Long id, Project updatedProject) {
         System.out.println("ProjectService: Starting update for project ID: " + id);
 
-        // Load the existing project with its tasks
         Project existingProject = projectRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Project not found with id: " + id));
 
         System.out.println("ProjectService: Found existing project - " +
                 "Current Name: " + existingProject.getName() +
                 ", Current Owner ID: "
-                + (existingProject.getOwner() != null ? existingProject.getOwner().getId() : "null") +
-                ", Task Count: " + (existingProject.getTasks() != null ? existingProject.getTasks().size() : 0));
+                + (existingProject.getOwner() != null ? existingProject.getOwner().getId() : "null"));
 
-        if (updatedProject.getTasks() != null) {
-            existingProject.getTasks().clear();
-            existingProject.getTasks().addAll(updatedProject.getTasks());
+        if (updatedProject.getName() != null) {
+            existingProject.setName(updatedProject.getName());
+        }
+        existingProject.setDescription(updatedProject.getDescription());
+        if (updatedProject.getOwner() != null) {
+            existingProject.setOwner(updatedProject.getOwner());
         }
 
         // Save and return the updated project
         Project savedProject = projectRepository.save(existingProject);
-        System.out.println("ProjectService: Successfully updated project ID: " + savedProject.getId() +
-                ", Task Count After Update: " + (savedProject.getTasks() != null ? savedProject.getTasks().size() : 0));
+        invalidations.invalidate(Invalidation.Type.PROJECT, id);
+        System.out.println("ProjectService: Successfully updated project ID: " + savedProject.getId());
         return savedProject;
     }
 
     @Transactional
     public void deleteProject(Long id) {
-        if (!projectRepository.existsById(id)) {
-            throw new RuntimeException("Project not found with ID: " + id);
-        }
-        projectRepository.deleteById(id);
+        shards.onProject(id, () -> {
+            if (!projectRepository.existsById(id)) {
+                throw new RuntimeException("Project not found with ID: " + id);
+            }
+            projectRepository.deleteById(id);
+            invalidations.invalidate(Invalidation.Type.PROJECT, id);
+            return null;
+        });
     }
 }
@@ -0,0 +1,385 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.ProjectStatsDTO;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Per-project task statistics kept in project_stats and project_stats_due.
+ *
+ * project_stats holds one row of counters per project (total, per status, per priority);
+ * project_stats_due counts open tasks per due day, so the overdue count is a sum over the
+ * days before today. Every task write adds its delta to these rows in its own transaction:
+ * callers lock the task rows first ({@link #lockTask}, {@link #lockTasks}), change them, and
+ * then {@link #recordChanges record} the old and new versions. The project's stats row is
+ * updated before its due rows, so it also serializes the update-or-insert of those.
+ *
+ * Archived tasks still count for their project; moving a task between tiers changes nothing.
+ * A nightly {@link #reconcile} recounts every project and repairs any drift.
+ *
+ * The stats rows of a project live on its shard, next to its tasks, and are written in the
+ * task write's transaction there.
+ */
+@Service
+public class ProjectStatsService {
+    private static final Logger logger = LoggerFactory.getLogger(ProjectStatsService.class);
+
+    /** The fields of a task that the statistics depend on. */
+    public record TaskSnapshot(Long projectId, Task.Status status, Task.Priority priority, LocalDateTime dueDate) {
+
+        public static TaskSnapshot of(Task task) {
+            return new TaskSnapshot(task.getProject() != null ? task.getProject().getId() : null, task.getStatus(),
+                    task.getPriority(), task.getDueDate());
+        }
+
+        public TaskSnapshot withStatus(Task.Status status) {
+            return new TaskSnapshot(projectId, status, priority, dueDate);
+        }
+
+        public TaskSnapshot withProjectId(Long projectId) {
+            return new TaskSnapshot(projectId, status, priority, dueDate);
+        }
+
+        LocalDate dueDay() {
+            return dueDate != null ? dueDate.toLocalDate() : null;
+        }
+
+        boolean isOpen() {
+            return status == Task.Status.PENDING || status == Task.Status.IN_PROGRESS;
+        }
+    }
+
+    private static final String SNAPSHOT_COLUMNS = "id, project_id, status, priority, due_date";
+    private static final String RECOUNT = """
+            SELECT status, priority, CAST(due_date AS DATE) AS due_day, COUNT(*) AS tasks FROM (
+                SELECT status, priority, due_date FROM tasks WHERE project_id = :projectId
+                UNION ALL
+                SELECT status, priority, due_date FROM tasks_archive WHERE project_id = :projectId
+            ) t GROUP BY status, priority, CAST(due_date AS DATE)
+            """;
+
+    /** Counter deltas of one project, indexed like {@link #COUNTER_COLUMNS}. */
+    private static final class Delta {
+        final long[] counters = new long[COUNTER_COLUMNS.size()];
+        final Map<LocalDate, Long> openByDueDay = new TreeMap<>();
+
+        void add(TaskSnapshot task, long sign) {
+            counters[0] += sign;
+            if (task.status() != null) {
+                counters[1 + task.status().ordinal()] += sign;
+            }
+            if (task.priority() != null) {
+                counters[1 + Task.Status.values().length + task.priority().ordinal()] += sign;
+            }
+            if (task.isOpen() && task.dueDay() != null) {
+                openByDueDay.merge(task.dueDay(), sign, Long::sum);
+            }
+        }
+
+        boolean isEmpty() {
+            openByDueDay.values().removeIf(value -> value == 0);
+            for (long counter : counters) {
+                if (counter != 0) {
+                    return false;
+                }
+            }
+            return openByDueDay.isEmpty();
+        }
+    }
+
+    /** total_tasks, then one column per status, then one per priority. */
+    private static final List<String> COUNTER_COLUMNS = counterColumns();
+
+    private static List<String> counterColumns() {
+        List<String> columns = new ArrayList<>();
+        columns.add("total_tasks");
+        for (Task.Status status : Task.Status.values()) {
+            columns.add(status.name().toLowerCase() + "_tasks");
+        }
+        for (Task.Priority priority : Task.Priority.values()) {
+            columns.add(priority.name().toLowerCase() + "_priority_tasks");
+        }
+        return List.copyOf(columns);
+    }
+
+    private static final String UPDATE_COUNTERS = "UPDATE project_stats SET "
+            + COUNTER_COLUMNS.stream().map(column -> column + " = " + column + " + :" + column).collect(Collectors.joining(", "))
+            + " WHERE project_id = :projectId";
+    private static final String INSERT_COUNTERS = "INSERT INTO project_stats (project_id, "
+            + String.join(", ", COUNTER_COLUMNS) + ") VALUES (:projectId, "
+            + COUNTER_COLUMNS.stream().map(column -> ":" + column).collect(Collectors.joining(", ")) + ")";
+    private static final String OVERWRITE_COUNTERS = "UPDATE project_stats SET "
+            + COUNTER_COLUMNS.stream().map(column -> column + " = :" + column).collect(Collectors.joining(", "))
+            + " WHERE project_id = :projectId";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate reconcileTransaction;
+    private final Counter repaired;
+    private final ShardRouter shards;
+
+    @Autowired
+    public ProjectStatsService(NamedParameterJdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               ShardRouter shards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.reconcileTransaction = new TransactionTemplate(transactionManager);
+        this.repaired = meterRegistry.counter("taskmanager.project_stats.repaired");
+    }
+
+    /** Creates the empty stats row of a new project; run in the transaction that inserts it. */
+    public void createFor(Long projectId) {
+        jdbcTemplate.update("INSERT INTO project_stats (project_id) VALUES (:projectId)",
+                new MapSqlParameterSource("projectId", projectId));
+    }
+
+    /**
+     * Locks a task row for the rest of the transaction and returns its current state,
+     * or null if it does not exist.
+     */
+    public TaskSnapshot lockTask(Long taskId) {
+        return lockTasks(List.of(taskId)).get(taskId);
+    }
+
+    /** Locks the existing rows among the given tasks, in id order, and returns their state by id. */
+    public Map<Long, TaskSnapshot> lockTasks(Collection<Long> taskIds) {
+        if (taskIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, TaskSnapshot> snapshots = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT " + SNAPSHOT_COLUMNS + " FROM tasks WHERE id IN (:ids) ORDER BY id FOR UPDATE",
+                new MapSqlParameterSource("ids", taskIds),
+                rs -> { snapshots.put(rs.getLong("id"), snapshot(rs)); });
+        return snapshots;
+    }
+
+    private static TaskSnapshot snapshot(ResultSet rs) throws SQLException {
+        Long projectId = rs.getObject("project_id", Long.class);
+        String status = rs.getString("status");
+        String priority = rs.getString("priority");
+        Timestamp dueDate = rs.getTimestamp("due_date");
+        return new TaskSnapshot(projectId,
+                status != null ? Task.Status.valueOf(status) : null,
+                priority != null ? Task.Priority.valueOf(priority) : null,
+                dueDate != null ? dueDate.toLocalDateTime() : null);
+    }
+
+    /** Records one task write; {@code before} is null for an insert, {@code after} for a delete. */
+    public void recordChange(TaskSnapshot before, TaskSnapshot after) {
+        recordChanges(before != null ? List.of(before) : List.of(), after != null ? List.of(after) : List.of());
+    }
+
+    /** Applies the difference between the removed and the added task versions to the stats. */
+    public void recordChanges(Collection<TaskSnapshot> removed, Collection<TaskSnapshot> added) {
+        // Ordered by project id, so concurrent writers lock stats rows in the same order
+        Map<Long, Delta> deltas = new TreeMap<>();
+        removed.stream().filter(task -> task.projectId() != null)
+                .forEach(task -> deltas.computeIfAbsent(task.projectId(), id -> new Delta()).add(task, -1));
+        added.stream().filter(task -> task.projectId() != null)
+                .forEach(task -> deltas.computeIfAbsent(task.projectId(), id -> new Delta()).add(task, 1));
+        deltas.forEach((projectId, delta) -> {
+            if (!delta.isEmpty()) {
+                apply(projectId, delta);
+            }
+        });
+    }
+
+    private void apply(Long projectId, Delta delta) {
+        MapSqlParameterSource counters = counterParameters(projectId, delta.counters);
+        if (jdbcTemplate.update(UPDATE_COUNTERS, counters) == 0) {
+            // Every project gets its row on creation; this only covers a row lost to manual repair
+            jdbcTemplate.update(INSERT_COUNTERS, counters);
+        }
+        delta.openByDueDay.forEach((dueDay, change) -> {
+            MapSqlParameterSource due = new MapSqlParameterSource("projectId", projectId)
+                    .addValue("dueDay", dueDay)
+                    .addValue("change", change);
+            if (jdbcTemplate.update("UPDATE project_stats_due SET open_tasks = open_tasks + :change "
+                    + "WHERE project_id = :projectId AND due_date = :dueDay", due) == 0) {
+                jdbcTemplate.update("INSERT INTO project_stats_due (project_id, due_date, open_tasks) "
+                        + "VALUES (:projectId, :dueDay, :change)", due);
+            }
+        });
+    }
+
+    private static MapSqlParameterSource counterParameters(Long projectId, long[] counters) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("projectId", projectId);
+        for (int i = 0; i < counters.length; i++) {
+            parameters.addValue(COUNTER_COLUMNS.get(i), counters[i]);
+        }
+        return parameters;
+    }
+
+    public Optional<ProjectStatsDTO> getStats(Long projectId) {
+        return Optional.ofNullable(getStats(List.of(projectId)).get(projectId));
+    }
+
+    /**
+     * Stats of several projects with two queries per shard holding some of them; projects
+     * without a stats row are left out.
+     */
+    public Map<Long, ProjectStatsDTO> getStats(Collection<Long> projectIds) {
+        if (projectIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Integer, List<Long>> byShard = projectIds.stream().collect(Collectors.groupingBy(shards::shardOf));
+        Map<Long, ProjectStatsDTO> stats = new LinkedHashMap<>();
+        shards.scatter(shard -> byShard.containsKey(shard) ? loadStats(byShard.get(shard)) : Map.<Long, ProjectStatsDTO>of())
+                .forEach(stats::putAll);
+        return stats;
+    }
+
+    private Map<Long, ProjectStatsDTO> loadStats(Collection<Long> projectIds) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("ids", projectIds)
+                .addValue("today", LocalDate.now());
+        Map<Long, Long> overdue = new HashMap<>();
+        jdbcTemplate.query("SELECT project_id, SUM(open_tasks) AS overdue FROM project_stats_due "
+                + "WHERE project_id IN (:ids) AND due_date < :today GROUP BY project_id", parameters,
+                rs -> { overdue.put(rs.getLong("project_id"), rs.getLong("overdue")); });
+
+        Map<Long, ProjectStatsDTO> stats = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT project_id, " + String.join(", ", COUNTER_COLUMNS)
+                + " FROM project_stats WHERE project_id IN (:ids)", parameters, rs -> {
+            long projectId = rs.getLong("project_id");
+            long[] counters = new long[COUNTER_COLUMNS.size()];
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = rs.getLong(COUNTER_COLUMNS.get(i));
+            }
+            stats.put(projectId, toDTO(projectId, counters, overdue.getOrDefault(projectId, 0L)));
+        });
+        return stats;
+    }
+
+    private static ProjectStatsDTO toDTO(Long projectId, long[] counters, long overdue) {
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        for (Task.Status status : Task.Status.values()) {
+            byStatus.put(status.name(), counters[1 + status.ordinal()]);
+        }
+        Map<String, Long> byPriority = new LinkedHashMap<>();
+        for (Task.Priority priority : Task.Priority.values()) {
+            byPriority.put(priority.name(), counters[1 + Task.Status.values().length + priority.ordinal()]);
+        }
+        // Cancelled tasks are not work left to do, so they do not count against completion
+        long relevant = counters[0] - byStatus.get(Task.Status.CANCELLED.name());
+        double completion = relevant > 0
+                ? Math.round(byStatus.get(Task.Status.COMPLETED.name()) * 1000.0 / relevant) / 10.0
+                : 0.0;
+        return new ProjectStatsDTO(projectId, counters[0], byStatus, byPriority, overdue, completion);
+    }
+
+    /**
+     * Recounts every project from the tasks in both tiers and overwrites stats that drifted.
+     *
+     * @return the number of projects whose stats were repaired
+     */
+    @Scheduled(cron = "${taskmanager.project-stats.reconcile-cron:0 0 3 * * *}")
+    public int reconcile() {
+        AtomicInteger repairedProjects = new AtomicInteger();
+        AtomicInteger projects = new AtomicInteger();
+        shards.forEachShard(shard -> {
+            List<Long> projectIds = jdbcTemplate.getJdbcTemplate().queryForList("SELECT id FROM projects ORDER BY id", Long.class);
+            for (Long projectId : projectIds) {
+                try {
+                    if (Boolean.TRUE.equals(reconcileTransaction.execute(status -> reconcile(projectId)))) {
+                        repairedProjects.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Failed to reconcile stats of project {}", projectId, e);
+                }
+            }
+            projects.addAndGet(projectIds.size());
+        });
+        if (repairedProjects.get() > 0) {
+            logger.warn("Repaired drifted stats of {} of {} projects", repairedProjects.get(), projects.get());
+        }
+        return repairedProjects.get();
+    }
+
+    private boolean reconcile(Long projectId) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("projectId", projectId);
+        // Writers update this row after changing tasks, so once it is locked no uncommitted
+        // change is missing from it, and the recount below sees every committed one
+        List<long[]> stored = jdbcTemplate.query("SELECT " + String.join(", ", COUNTER_COLUMNS)
+                + " FROM project_stats WHERE project_id = :projectId FOR UPDATE", parameters, (rs, row) -> {
+            long[] counters = new long[COUNTER_COLUMNS.size()];
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = rs.getLong(COUNTER_COLUMNS.get(i));
+            }
+            return counters;
+        });
+        if (stored.isEmpty()) {
+            createFor(projectId);
+            stored = List.of(new long[COUNTER_COLUMNS.size()]);
+        }
+
+        Delta actual = new Delta();
+        jdbcTemplate.query(RECOUNT, parameters, rs -> {
+            String status = rs.getString("status");
+            String priority = rs.getString("priority");
+            Date dueDay = rs.getDate("due_day");
+            TaskSnapshot task = new TaskSnapshot(projectId, status != null ? Task.Status.valueOf(status) : null,
+                    priority != null ? Task.Priority.valueOf(priority) : null,
+                    dueDay != null ? dueDay.toLocalDate().atStartOfDay() : null);
+            long tasks = rs.getLong("tasks");
+            actual.add(task, tasks);
+        });
+        actual.openByDueDay.values().removeIf(value -> value == 0);
+
+        Map<LocalDate, Long> storedDue = new TreeMap<>();
+        jdbcTemplate.query("SELECT due_date, open_tasks FROM project_stats_due WHERE project_id = :projectId",
+                parameters, rs -> { storedDue.put(rs.getDate("due_date").toLocalDate(), rs.getLong("open_tasks")); });
+        storedDue.values().removeIf(value -> value == 0);
+
+        boolean countersDrifted = !Arrays.equals(stored.get(0), actual.counters);
+        boolean dueDrifted = !Objects.equals(storedDue, actual.openByDueDay);
+        if (countersDrifted) {
+            jdbcTemplate.update(OVERWRITE_COUNTERS, counterParameters(projectId, actual.counters));
+        }
+        if (dueDrifted) {
+            jdbcTemplate.update("DELETE FROM project_stats_due WHERE project_id = :projectId", parameters);
+            actual.openByDueDay.forEach((dueDay, open) -> jdbcTemplate.update(
+                    "INSERT INTO project_stats_due (project_id, due_date, open_tasks) VALUES (:projectId, :dueDay, :open)",
+                    new MapSqlParameterSource("projectId", projectId).addValue("dueDay", dueDay).addValue("open", open)));
+        } else {
+            // Days whose open tasks all moved on; nothing reads them
+            jdbcTemplate.update("DELETE FROM project_stats_due WHERE project_id = :projectId AND open_tasks = 0", parameters);
+        }
+        if (countersDrifted || dueDrifted) {
+            logger.warn("Stats of project {} had drifted, repaired (counters: {}, due days: {})",
+                    projectId, countersDrifted, dueDrifted);
+            repaired.increment();
+        }
+        return countersDrifted || dueDrifted;
+    }
+}
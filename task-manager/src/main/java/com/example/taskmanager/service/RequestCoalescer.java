@@ -0,0 +1,94 @@
+package com.example.taskmanager.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of identical concurrent reads.
+ *
+ * The first caller for an (operation, key) pair runs the load; callers arriving while it is
+ * in flight wait for and share its result (or its exception). Nothing is kept once the load
+ * completes, so this is not a cache: a call that starts afterwards loads again.
+ *
+ * The load runs in its own read-only transaction, so waiting callers hold no connection.
+ * Callers already inside a transaction bypass coalescing, since they must see their own
+ * uncommitted changes. Shared results are seen by several requests: loaders must return
+ * fully initialized entities, and callers must not modify them.
+ */
+@Component
+public class RequestCoalescer {
+    private record Flight(String operation, Object key) {}
+
+    private final Map<Flight, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    public RequestCoalescer(MeterRegistry meterRegistry, PlatformTransactionManager transactionManager) {
+        this.meterRegistry = meterRegistry;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        Gauge.builder("taskmanager.coalescing.in_flight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, Object key, Supplier<T> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            count(operation, "bypassed");
+            return loader.get();
+        }
+        Flight flight = new Flight(operation, key);
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(flight, mine);
+        if (leader != null) {
+            count(operation, "coalesced");
+            return (T) await(leader);
+        }
+
+        count(operation, "executed");
+        try {
+            T result = readOnlyTransaction.execute(status -> loader.get());
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flight, mine);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void count(String operation, String result) {
+        counters.computeIfAbsent(operation + ":" + result, k -> Counter.builder("taskmanager.coalescing.calls")
+                .tag("operation", operation)
+                .tag("result", result)
+                .register(meterRegistry)).increment();
+    }
+}
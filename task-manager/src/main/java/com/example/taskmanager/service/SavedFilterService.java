@@ -0,0 +1,553 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import com.example.taskmanager.dto.SavedFilterDTO;
+import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.entities.SavedFilter;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.entities.TaskLabels;
+import com.example.taskmanager.exception.ConflictException;
+import com.example.taskmanager.exception.ResourceNotFoundException;
+import com.example.taskmanager.repository.SavedFilterRepository;
+import com.example.taskmanager.repository.TaskRepository;
+import com.example.taskmanager.repository.TaskSpecifications;
+import com.example.taskmanager.sharding.ShardRouter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Task filters saved per user, whose matching hot tasks are held in memory as {@link IdBitmap}s
+ * and kept up to date incrementally: opening a saved filter fetches the tasks of the page by
+ * id, and its match count is the cardinality of the set.
+ *
+ * A set is built with one id query per shard when the filter is saved or first opened, and
+ * for every filter when the application is ready. Task writes through {@link TaskService}
+ * hand the written row over inside their transaction; when the commit's invalidation arrives,
+ * the row is tested against every saved filter in memory and only the sets it enters or leaves
+ * change, with nothing read back. Other task writes (write-behind flushes, bulk jobs, archiving,
+ * other instances) only announce ids on the {@link CacheInvalidationBus}; those are re-read by
+ * id, a chunk per query, by the next open or the periodic drain. An invalidation of all tasks,
+ * or more queued changes than max-pending-changes, rebuilds every set.
+ *
+ * The sets follow committed rows: a status still pending in the write-behind log counts once
+ * it is flushed. With an id beyond 2^32 - 1, or with materialize=false, no set is held and a
+ * saved filter is opened as an ordinary task listing.
+ */
+@Service
+public class SavedFilterService {
+    private static final Logger logger = LoggerFactory.getLogger(SavedFilterService.class);
+    private static final String CHANGED = "SELECT id, title, description, status, priority, due_date, project_id, "
+            + "assignee_id, labels FROM tasks WHERE id IN (:ids)";
+    private static final int CHANGED_CHUNK = 500;
+    private static final int MAX_NAME_LENGTH = 100;
+    private static final int MAX_DEFINITION_LENGTH = 4000;
+
+    /** The task columns saved filters test. */
+    record Row(long id, String title, String description, Task.Status status, Task.Priority priority,
+               LocalDateTime dueDate, Long projectId, Long assigneeId, Set<String> labels) {
+
+        static Row of(Task task) {
+            return new Row(task.getId(), task.getTitle(), task.getDescription(), task.getStatus(), task.getPriority(),
+                    task.getDueDate(),
+                    task.getProject() != null ? task.getProject().getId() : null,
+                    task.getAssignee() != null ? task.getAssignee().getId() : null,
+                    task.getLabels() != null ? task.getLabels() : Set.of());
+        }
+    }
+
+    /** A saved filter with the ids of the hot tasks it matches. */
+    private record Materialized(SavedFilter saved, SavedFilterDTO.Criteria criteria, TaskFilterDTO filter,
+                                IdBitmap ids) {}
+
+    /**
+     * One page of a saved filter: the ids of its tasks from the materialized set, in id order,
+     * or null if it has none, in which case the tasks are listed with {@code query}.
+     */
+    public record Opened(SavedFilterDTO filter, long[] ids, TaskFilterDTO query) {}
+
+    private final SavedFilterRepository savedFilters;
+    private final TaskRepository taskRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final CacheInvalidationBus invalidations;
+    private final ShardRouter shards;
+    private final ObjectMapper objectMapper;
+    private final boolean materialize;
+    private final int maxPerUser;
+    private final int maxPendingChanges;
+    private final Counter builds;
+    private final Counter writesApplied;
+    private final Counter rowsReread;
+
+    private final Map<Long, Materialized> materialized = new ConcurrentHashMap<>();
+    /** Set once an id did not fit; nothing is held until restarted. */
+    private volatile boolean outOfRange;
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuildPending;
+    /** Builds and drains. */
+    private final ReentrantLock maintenance = new ReentrantLock();
+    /** Opens and counts read the sets, task changes write them. */
+    private final ReentrantReadWriteLock access = new ReentrantReadWriteLock();
+
+    @Autowired
+    public SavedFilterService(SavedFilterRepository savedFilters,
+                              TaskRepository taskRepository,
+                              NamedParameterJdbcTemplate jdbcTemplate,
+                              CacheInvalidationBus invalidations,
+                              ShardRouter shards,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${taskmanager.saved-filters.materialize:true}") boolean materialize,
+                              @Value("${taskmanager.saved-filters.max-per-user:50}") int maxPerUser,
+                              @Value("${taskmanager.saved-filters.max-pending-changes:20000}") int maxPendingChanges) {
+        this.savedFilters = savedFilters;
+        this.taskRepository = taskRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.invalidations = invalidations;
+        this.shards = shards;
+        this.objectMapper = objectMapper;
+        this.materialize = materialize;
+        this.maxPerUser = maxPerUser;
+        this.maxPendingChanges = maxPendingChanges;
+        this.builds = meterRegistry.counter("taskmanager.saved_filters.builds");
+        this.writesApplied = meterRegistry.counter("taskmanager.saved_filters.changes", "source", "write");
+        this.rowsReread = meterRegistry.counter("taskmanager.saved_filters.changes", "source", "reread");
+        Gauge.builder("taskmanager.saved_filters.materialized", materialized, Map::size)
+                .register(meterRegistry);
+        Gauge.builder("taskmanager.saved_filters.bytes", this, SavedFilterService::heldBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        invalidations.subscribe(Invalidation.Type.TASK, this::taskInvalidated);
+        invalidations.subscribe(Invalidation.Type.SAVED_FILTER, this::filterInvalidated);
+    }
+
+    /** Builds the sets of every saved filter before the first open needs them. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!materialize) {
+            return;
+        }
+        maintenance.lock();
+        try {
+            rebuild();
+        } catch (DataAccessException e) {
+            logger.warn("Could not build the saved filter sets, each first open will: {}", e.toString());
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    /**
+     * Saves a filter under a name unique for the user. Throws IllegalArgumentException for a
+     * bad name or filter, or beyond max-per-user filters, and ConflictException for a taken name.
+     */
+    public SavedFilterDTO create(Long userId, String name, SavedFilterDTO.Criteria criteria) {
+        if (name == null || name.isBlank() || name.strip().length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("A saved filter needs a name of at most " + MAX_NAME_LENGTH + " characters");
+        }
+        if (criteria == null) {
+            throw new IllegalArgumentException("A saved filter needs a filter");
+        }
+        String trimmed = name.strip();
+        TaskFilterDTO filter = criteria.toFilter();
+        String definition = write(criteria);
+        if (definition.length() > MAX_DEFINITION_LENGTH) {
+            throw new IllegalArgumentException("The filter is too long to be saved");
+        }
+        if (savedFilters.countByUserId(userId) >= maxPerUser) {
+            throw new IllegalArgumentException("At most " + maxPerUser + " saved filters per user");
+        }
+        if (savedFilters.existsByUserIdAndName(userId, trimmed)) {
+            throw new ConflictException("A saved filter named '" + trimmed + "' already exists");
+        }
+        SavedFilter saved;
+        try {
+            saved = savedFilters.save(new SavedFilter(userId, trimmed, definition));
+        } catch (DataIntegrityViolationException e) {
+            throw new ConflictException("A saved filter named '" + trimmed + "' already exists");
+        }
+        return toDTO(saved, criteria, materialize(saved, criteria, filter));
+    }
+
+    /** The user's saved filters by name, with their live match counts. */
+    public List<SavedFilterDTO> list(Long userId) {
+        drainPending();
+        return savedFilters.findByUserIdOrderByName(userId).stream()
+                .map(saved -> {
+                    Materialized held = materialized.get(saved.getId());
+                    if (held == null) {
+                        SavedFilterDTO.Criteria criteria = read(saved);
+                        return toDTO(saved, criteria, materialize(saved, criteria, criteria.toFilter()));
+                    }
+                    return toDTO(saved, held.criteria(), held);
+                })
+                .toList();
+    }
+
+    public void delete(Long userId, Long id) {
+        SavedFilter saved = owned(userId, id);
+        savedFilters.delete(saved);
+        materialized.remove(id);
+        invalidations.invalidate(Invalidation.Type.SAVED_FILTER, id);
+    }
+
+    /**
+     * A page of the user's saved filter. With its set held this reads no task: the ids of the
+     * page are cut from the set, and the count is its cardinality.
+     */
+    public Opened open(Long userId, Long id, int page, int size) {
+        if (page < 0 || size < 1) {
+            throw new IllegalArgumentException("Page must be at least 0 and size at least 1");
+        }
+        drainPending();
+        Materialized held = materialized.get(id);
+        if (held == null) {
+            SavedFilter saved = owned(userId, id);
+            SavedFilterDTO.Criteria criteria = read(saved);
+            held = materialize(saved, criteria, criteria.toFilter());
+            if (held == null) {
+                TaskFilterDTO query = criteria.toFilter();
+                query.setPage(page);
+                query.setSize(size);
+                return new Opened(toDTO(saved, criteria, null), null, query);
+            }
+            // Changes made while the set was built were queued for it
+            drainPending();
+            held = materialized.getOrDefault(id, held);
+        }
+        if (!held.saved().getUserId().equals(userId)) {
+            throw new ResourceNotFoundException("Saved filter not found with id: " + id);
+        }
+        access.readLock().lock();
+        try {
+            long[] ids = held.ids().range((long) page * size, size);
+            return new Opened(toDTO(held.saved(), held.criteria(), held), ids, null);
+        } finally {
+            access.readLock().unlock();
+        }
+    }
+
+    /** Called by TaskService with a task it has saved, inside the writing transaction. */
+    void taskWritten(Task task) {
+        stage(task.getId(), Optional.of(Row.of(task)));
+    }
+
+    /** Called by TaskService with a task it has deleted, inside the deleting transaction. */
+    void taskDeleted(Long id) {
+        stage(id, Optional.empty());
+    }
+
+    /**
+     * Keeps the written row with the transaction until its invalidation is delivered after the
+     * commit; a rollback drops it. Without a transaction the invalidation re-reads the task.
+     */
+    @SuppressWarnings("unchecked")
+    private void stage(Long id, Optional<Row> row) {
+        if (!held() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Map<Long, Optional<Row>> staged = (Map<Long, Optional<Row>>) TransactionSynchronizationManager.getResource(this);
+        if (staged == null) {
+            staged = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, staged);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SavedFilterService.this);
+                }
+            });
+        }
+        staged.put(id, row);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void taskInvalidated(Invalidation invalidation) {
+        // Nothing held and nothing being built (whose query may have missed this write)
+        if (!held()) {
+            return;
+        }
+        if (invalidation.isAll() || changed.size() >= maxPendingChanges) {
+            rebuildPending = true;
+            return;
+        }
+        // Delivered on the committing thread after the commit, while the staged rows are still bound
+        Map<Long, Optional<Row>> staged = (Map<Long, Optional<Row>>) TransactionSynchronizationManager.getResource(this);
+        Optional<Row> row = staged != null ? staged.remove(invalidation.id()) : null;
+        if (row == null) {
+            changed.add(invalidation.id());
+            return;
+        }
+        apply(invalidation.id(), row);
+        writesApplied.increment();
+        // A build or re-read in progress may have read the task before this write
+        if (maintenance.isLocked()) {
+            changed.add(invalidation.id());
+        }
+    }
+
+    /** A filter deleted (or everything changed) on another instance. */
+    private void filterInvalidated(Invalidation invalidation) {
+        if (invalidation.isAll()) {
+            rebuildPending = true;
+        } else {
+            materialized.remove(invalidation.id());
+        }
+    }
+
+    private boolean held() {
+        return materialize && !outOfRange && (!materialized.isEmpty() || maintenance.isLocked());
+    }
+
+    /** Adds the task to the sets of the filters it matches and removes it from the others. */
+    private void apply(long id, Optional<Row> row) {
+        if (!IdBitmap.fits(id)) {
+            if (row.isPresent()) {
+                turnOff(id);
+            }
+            return;
+        }
+        access.writeLock().lock();
+        try {
+            for (Materialized held : materialized.values()) {
+                if (row.isPresent() && matches(held.filter(), row.get())) {
+                    held.ids().add(id);
+                } else {
+                    held.ids().remove(id);
+                }
+            }
+        } finally {
+            access.writeLock().unlock();
+        }
+    }
+
+    private void drainPending() {
+        if (rebuildPending || !changed.isEmpty()) {
+            drain();
+        }
+    }
+
+    /** Re-reads the queued task changes, or rebuilds every set if that was asked for. */
+    @Scheduled(fixedDelayString = "${taskmanager.saved-filters.drain-interval-ms:500}")
+    public void drain() {
+        if (!rebuildPending && changed.isEmpty()) {
+            return;
+        }
+        maintenance.lock();
+        try {
+            if (rebuildPending) {
+                rebuildPending = false;
+                changed.clear();
+                rebuild();
+                return;
+            }
+            List<Long> ids = new ArrayList<>(changed);
+            changed.removeAll(ids);
+            reread(ids);
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    private void reread(List<Long> ids) {
+        for (int from = 0; from < ids.size() && !outOfRange; from += CHANGED_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + CHANGED_CHUNK));
+            Map<Long, Row> rows = new HashMap<>();
+            shards.scatter(shard -> jdbcTemplate.query(CHANGED, Map.of("ids", chunk), (row, index) -> toRow(row)))
+                    .forEach(found -> found.forEach(row -> rows.put(row.id(), row)));
+            chunk.forEach(id -> apply(id, Optional.ofNullable(rows.get(id))));
+            rowsReread.increment(chunk.size());
+        }
+    }
+
+    /** Builds the set of every saved filter, dropping those deleted meanwhile. */
+    private void rebuild() {
+        List<SavedFilter> all = savedFilters.findAll();
+        Set<Long> ids = all.stream().map(SavedFilter::getId).collect(Collectors.toSet());
+        materialized.keySet().retainAll(ids);
+        for (SavedFilter saved : all) {
+            SavedFilterDTO.Criteria criteria = read(saved);
+            if (materialize(saved, criteria, criteria.toFilter()) == null) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Builds the set of a filter with one id query per shard (or only the project's shard);
+     * null if sets are not held. Task writes committed while it runs are queued and re-read.
+     */
+    private Materialized materialize(SavedFilter saved, SavedFilterDTO.Criteria criteria, TaskFilterDTO filter) {
+        if (!materialize || outOfRange) {
+            return null;
+        }
+        maintenance.lock();
+        try {
+            Specification<Task> specification = TaskSpecifications.matching(filter);
+            List<List<Long>> found = shards.isSharded() && filter.getProjectId() != null
+                    ? List.of(shards.readOnProject(filter.getProjectId(), () -> taskRepository.findIds(specification)))
+                    : shards.scatter(shard -> taskRepository.findIds(specification));
+            IdBitmap ids = new IdBitmap();
+            for (List<Long> shardIds : found) {
+                for (Long id : shardIds) {
+                    if (!IdBitmap.fits(id)) {
+                        turnOff(id);
+                        return null;
+                    }
+                    ids.add(id);
+                }
+            }
+            Materialized held = new Materialized(saved, criteria, filter, ids);
+            access.writeLock().lock();
+            try {
+                materialized.put(saved.getId(), held);
+            } finally {
+                access.writeLock().unlock();
+            }
+            builds.increment();
+            return held;
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    private void turnOff(long id) {
+        outOfRange = true;
+        materialized.clear();
+        changed.clear();
+        logger.warn("Saved filter sets dropped: task id {} does not fit; saved filters are queried instead", id);
+    }
+
+    /** Whether the task matches the filter; the same conditions as {@link TaskSpecifications#matching}. */
+    static boolean matches(TaskFilterDTO filter, Row row) {
+        if (filter.getSearch() != null && !filter.getSearch().isEmpty()) {
+            String term = filter.getSearch().toLowerCase();
+            if (!(row.title() != null && row.title().toLowerCase().contains(term)
+                    || row.description() != null && row.description().toLowerCase().contains(term))) {
+                return false;
+            }
+        }
+        List<Task.Status> statuses = TaskSpecifications.present(filter.getStatus());
+        if (!statuses.isEmpty() && !statuses.contains(row.status())) {
+            return false;
+        }
+        List<Task.Priority> priorities = TaskSpecifications.present(filter.getPriority());
+        if (!priorities.isEmpty() && !priorities.contains(row.priority())) {
+            return false;
+        }
+        if (filter.getAssigneeId() != null && !filter.getAssigneeId().equals(row.assigneeId())) {
+            return false;
+        }
+        if (filter.getProjectId() != null && !filter.getProjectId().equals(row.projectId())) {
+            return false;
+        }
+        // Due dates are whole days, and a task without one is in no range
+        if (filter.getDueDateFrom() != null
+                && (row.dueDate() == null || row.dueDate().isBefore(filter.getDueDateFrom().atStartOfDay()))) {
+            return false;
+        }
+        if (filter.getDueDateTo() != null
+                && (row.dueDate() == null || !row.dueDate().isBefore(filter.getDueDateTo().plusDays(1).atStartOfDay()))) {
+            return false;
+        }
+        if (filter.getLabels() != null && !row.labels().containsAll(Arrays.asList(filter.getLabels()))) {
+            return false;
+        }
+        if (filter.getAnyLabels() != null && Arrays.stream(filter.getAnyLabels()).noneMatch(row.labels()::contains)) {
+            return false;
+        }
+        return filter.getNotLabels() == null || Arrays.stream(filter.getNotLabels()).noneMatch(row.labels()::contains);
+    }
+
+    private SavedFilter owned(Long userId, Long id) {
+        return savedFilters.findById(id)
+                .filter(saved -> saved.getUserId().equals(userId))
+                .orElseThrow(() -> new ResourceNotFoundException("Saved filter not found with id: " + id));
+    }
+
+    private SavedFilterDTO toDTO(SavedFilter saved, SavedFilterDTO.Criteria criteria, Materialized held) {
+        Long count = null;
+        if (held != null) {
+            access.readLock().lock();
+            try {
+                count = held.ids().cardinality();
+            } finally {
+                access.readLock().unlock();
+            }
+        }
+        return new SavedFilterDTO(saved.getId(), saved.getName(), criteria, count);
+    }
+
+    private String write(SavedFilterDTO.Criteria criteria) {
+        try {
+            return objectMapper.writeValueAsString(criteria);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("The filter cannot be saved: " + e.getOriginalMessage());
+        }
+    }
+
+    private SavedFilterDTO.Criteria read(SavedFilter saved) {
+        try {
+            return objectMapper.readValue(saved.getDefinition(), SavedFilterDTO.Criteria.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Saved filter " + saved.getId() + " cannot be read", e);
+        }
+    }
+
+    private long heldBytes() {
+        access.readLock().lock();
+        try {
+            return materialized.values().stream().mapToLong(held -> held.ids().bytes()).sum();
+        } finally {
+            access.readLock().unlock();
+        }
+    }
+
+    private static Row toRow(ResultSet row) throws SQLException {
+        String status = row.getString("status");
+        String priority = row.getString("priority");
+        Timestamp dueDate = row.getTimestamp("due_date");
+        return new Row(
+                row.getLong("id"),
+                row.getString("title"),
+                row.getString("description"),
+                status != null ? Task.Status.valueOf(status) : null,
+                priority != null ? Task.Priority.valueOf(priority) : null,
+                dueDate != null ? dueDate.toLocalDateTime() : null,
+                row.getObject("project_id", Long.class),
+                row.getObject("assignee_id", Long.class),
+                TaskLabels.parse(row.getString("labels")));
+    }
+}
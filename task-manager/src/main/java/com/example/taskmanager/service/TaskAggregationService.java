@@ -0,0 +1,266 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import com.example.taskmanager.dto.TaskAggregateDTO;
+import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * Task counts grouped by status, priority, project and assignee, with the filters of the task
+ * list, answered from {@link TaskColumns} held in memory: a query scans a few primitive arrays
+ * instead of the tasks table, and takes about a millisecond per few million tasks.
+ *
+ * The columns are loaded from every shard on the first query. Task writes, here or on other
+ * instances, reach them through the {@link CacheInvalidationBus} as changed task ids, which the
+ * next query or the periodic drain re-reads in one query per chunk. An invalidation of all
+ * tasks, or more queued changes than max-pending-changes, drops the columns; the next query
+ * loads them again.
+ *
+ * Counts follow committed rows: a status still pending in the write-behind log counts once it
+ * is flushed. Archived tasks are not held.
+ */
+@Service
+public class TaskAggregationService {
+    private static final String COLUMNS = "id, status, priority, due_date, project_id, assignee_id";
+    private static final String LOAD = "SELECT " + COLUMNS + " FROM tasks WHERE id > :after ORDER BY id LIMIT :limit";
+    private static final String CHANGED = "SELECT " + COLUMNS + " FROM tasks WHERE id IN (:ids)";
+    private static final int CHANGED_CHUNK = 500;
+
+    /** The fields tasks can be grouped by. */
+    public enum Dimension {
+        STATUS("status"),
+        PRIORITY("priority"),
+        PROJECT("projectId"),
+        ASSIGNEE("assigneeId");
+
+        private final String key;
+
+        Dimension(String key) {
+            this.key = key;
+        }
+
+        /** The name of the field in group keys. */
+        public String key() {
+            return key;
+        }
+
+        public static Dimension parse(String dimension) {
+            for (Dimension candidate : values()) {
+                if (candidate.name().equalsIgnoreCase(dimension) || candidate.key.equalsIgnoreCase(dimension)) {
+                    return candidate;
+                }
+            }
+            throw new IllegalArgumentException("Tasks can be grouped by status, priority, project or assignee");
+        }
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ShardRouter shards;
+    private final Clock clock;
+    private final int loadBatchSize;
+    private final int maxPendingChanges;
+    private final int maxGroups;
+    private final Counter loads;
+
+    private volatile TaskColumns columns;
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    /** Set when the columns are to be dropped; done by the next drain rather than on the writer's thread. */
+    private volatile boolean resetPending;
+    /** Loads and drains. */
+    private final ReentrantLock maintenance = new ReentrantLock();
+
+    @Autowired
+    public TaskAggregationService(NamedParameterJdbcTemplate jdbcTemplate,
+                                  CacheInvalidationBus invalidations,
+                                  ShardRouter shards,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${taskmanager.task-aggregates.load-batch-size:10000}") int loadBatchSize,
+                                  @Value("${taskmanager.task-aggregates.max-pending-changes:20000}") int maxPendingChanges,
+                                  @Value("${taskmanager.task-aggregates.max-groups:100000}") int maxGroups) {
+        this(jdbcTemplate, invalidations, shards, meterRegistry, loadBatchSize, maxPendingChanges, maxGroups,
+                Clock.systemDefaultZone());
+    }
+
+    TaskAggregationService(NamedParameterJdbcTemplate jdbcTemplate, CacheInvalidationBus invalidations,
+                           ShardRouter shards, MeterRegistry meterRegistry, int loadBatchSize, int maxPendingChanges,
+                           int maxGroups, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.clock = clock;
+        this.loadBatchSize = loadBatchSize;
+        this.maxPendingChanges = maxPendingChanges;
+        this.maxGroups = maxGroups;
+        this.loads = meterRegistry.counter("taskmanager.task_aggregates.loads");
+        Gauge.builder("taskmanager.task_aggregates.tasks", this, service -> held(TaskColumns::size))
+                .register(meterRegistry);
+        Gauge.builder("taskmanager.task_aggregates.bytes", this, service -> held(TaskColumns::bytes))
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        invalidations.subscribe(Invalidation.Type.TASK, this::invalidated);
+    }
+
+    /**
+     * Counts the tasks matching the filter, per distinct combination of the grouped fields. Free
+     * text search, labels and archived tasks are not supported; paging fields are ignored.
+     */
+    public TaskAggregateDTO aggregate(TaskFilterDTO filter, List<Dimension> groupBy) {
+        if (filter.getSearch() != null && !filter.getSearch().isEmpty()) {
+            throw new IllegalArgumentException("Aggregates cannot be filtered by search text");
+        }
+        if (Boolean.TRUE.equals(filter.getIncludeArchived())) {
+            throw new IllegalArgumentException("Aggregates do not include archived tasks");
+        }
+        if (filter.hasLabelFilters()) {
+            throw new IllegalArgumentException("Aggregates cannot be filtered by labels");
+        }
+        if (groupBy.stream().distinct().count() < groupBy.size()) {
+            throw new IllegalArgumentException("Tasks can be grouped by each field once");
+        }
+        TaskColumns.Filter columnFilter = new TaskColumns.Filter(
+                filter.getStatus() != null ? mask(filter.getStatus()) : TaskColumns.Filter.ALL,
+                filter.getPriority() != null ? mask(filter.getPriority()) : TaskColumns.Filter.ALL,
+                filter.getProjectId(),
+                filter.getAssigneeId(),
+                filter.getDueDateFrom() != null ? (int) filter.getDueDateFrom().toEpochDay() : null,
+                filter.getDueDateTo() != null ? (int) filter.getDueDateTo().toEpochDay() : null);
+        return current().aggregate(columnFilter, groupBy, (int) LocalDate.now(clock).toEpochDay(), maxGroups);
+    }
+
+    private static int mask(Enum<?>[] values) {
+        int mask = 0;
+        for (Enum<?> value : values) {
+            mask |= 1 << value.ordinal() + 1;
+        }
+        return mask;
+    }
+
+    private TaskColumns current() {
+        if (resetPending || !changed.isEmpty()) {
+            drain();
+        }
+        TaskColumns held = columns;
+        return held != null ? held : load();
+    }
+
+    private long held(ToLongFunction<TaskColumns> measure) {
+        TaskColumns held = columns;
+        return held != null ? measure.applyAsLong(held) : 0;
+    }
+
+    private void invalidated(Invalidation invalidation) {
+        // Nothing held and nothing being loaded (whose query may have missed this write)
+        if (columns == null && !maintenance.isLocked()) {
+            return;
+        }
+        if (invalidation.isAll() || changed.size() >= maxPendingChanges) {
+            resetPending = true;
+            return;
+        }
+        changed.add(invalidation.id());
+    }
+
+    /** Applies the queued task changes to the columns, or drops them if that was asked for. */
+    @Scheduled(fixedDelayString = "${taskmanager.task-aggregates.drain-interval-ms:500}")
+    public void drain() {
+        if (!resetPending && changed.isEmpty()) {
+            return;
+        }
+        maintenance.lock();
+        try {
+            if (resetPending) {
+                resetPending = false;
+                columns = null;
+                changed.clear();
+                return;
+            }
+            TaskColumns held = columns;
+            List<Long> ids = new ArrayList<>(changed);
+            changed.removeAll(ids);
+            if (held == null) {
+                return;
+            }
+            for (int from = 0; from < ids.size(); from += CHANGED_CHUNK) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + CHANGED_CHUNK));
+                Map<Long, TaskColumns.Row> rows = new HashMap<>();
+                shards.scatter(shard -> jdbcTemplate.query(CHANGED, Map.of("ids", chunk), (row, index) -> toRow(row)))
+                        .forEach(found -> found.forEach(row -> rows.put(row.id(), row)));
+                for (Long id : chunk) {
+                    TaskColumns.Row row = rows.get(id);
+                    if (row != null) {
+                        held.put(row);
+                    } else {
+                        held.remove(id);
+                    }
+                }
+            }
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    /** Reads every shard's tasks in id order, in batches of load-batch-size. */
+    private TaskColumns load() {
+        maintenance.lock();
+        try {
+            // Another query may have loaded them meanwhile
+            if (columns != null) {
+                return columns;
+            }
+            List<TaskColumns> parts = shards.scatter(shard -> {
+                TaskColumns part = new TaskColumns(loadBatchSize);
+                long after = Long.MIN_VALUE;
+                while (true) {
+                    List<TaskColumns.Row> rows = jdbcTemplate.query(LOAD, Map.of("after", after, "limit", loadBatchSize),
+                            (row, index) -> toRow(row));
+                    rows.forEach(part::put);
+                    if (rows.size() < loadBatchSize) {
+                        return part;
+                    }
+                    after = rows.get(rows.size() - 1).id();
+                }
+            });
+            columns = TaskColumns.merge(parts);
+            loads.increment();
+            return columns;
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    private static TaskColumns.Row toRow(ResultSet row) throws SQLException {
+        String status = row.getString("status");
+        String priority = row.getString("priority");
+        Timestamp dueDate = row.getTimestamp("due_date");
+        return new TaskColumns.Row(
+                row.getLong("id"),
+                status != null ? Task.Status.valueOf(status) : null,
+                priority != null ? Task.Priority.valueOf(priority) : null,
+                dueDate != null ? dueDate.toLocalDateTime() : null,
+                row.getObject("project_id", Long.class),
+                row.getObject("assignee_id", Long.class));
+    }
+}
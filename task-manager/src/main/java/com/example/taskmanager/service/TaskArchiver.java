@@ -0,0 +1,205 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.exception.ResourceNotFoundException;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves finished tasks between the hot tier (tasks) and the cold tier (tasks_archive).
+ *
+ * Archival runs on a schedule: COMPLETED and CANCELLED tasks whose last change is older than
+ * the configured age are copied to tasks_archive and deleted from tasks, a small chunk per
+ * transaction with a pause in between, so row locks are short and concurrent writers are not
+ * starved. The chunk's rows are locked when selected, so a task reopened meanwhile is skipped.
+ * Restores move rows back the same way and mark them as just changed. Both tiers of a project
+ * are on its shard; archival goes through the shards one after the other.
+ */
+@Service
+public class TaskArchiver {
+    private static final Logger logger = LoggerFactory.getLogger(TaskArchiver.class);
+
+    private static final String COLUMNS =
+            "id, title, description, status, priority, due_date, project_id, creator_id, assignee_id, labels";
+    private static final String SELECT_CANDIDATES =
+            "SELECT id FROM tasks WHERE status IN ('COMPLETED', 'CANCELLED') AND updated_at < :cutoff "
+            + "ORDER BY id LIMIT :limit FOR UPDATE";
+    private static final String COPY_TO_ARCHIVE =
+            "INSERT INTO tasks_archive (" + COLUMNS + ", updated_at, archived_at) "
+            + "SELECT " + COLUMNS + ", updated_at, CURRENT_TIMESTAMP FROM tasks WHERE id IN (:ids)";
+    private static final String COPY_TO_TASKS =
+            "INSERT INTO tasks (" + COLUMNS + ", updated_at) "
+            + "SELECT " + COLUMNS + ", CURRENT_TIMESTAMP FROM tasks_archive WHERE id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate chunkTransaction;
+    private final TaskStatusWriteBehind statusWriteBehind;
+    private final TaskCountCache taskCountCache;
+    private final boolean enabled;
+    private final Duration minAge;
+    private final int chunkSize;
+    private final Duration chunkPause;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong hotRows = new AtomicLong();
+    private final AtomicLong archivedRows = new AtomicLong();
+    private final Counter archived;
+    private final Counter restored;
+    private final ShardRouter shards;
+
+    @Autowired
+    public TaskArchiver(NamedParameterJdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        TaskStatusWriteBehind statusWriteBehind,
+                        TaskCountCache taskCountCache,
+                        MeterRegistry meterRegistry,
+                        @Value("${taskmanager.archive.enabled:true}") boolean enabled,
+                        @Value("${taskmanager.archive.min-age:P30D}") Duration minAge,
+                        @Value("${taskmanager.archive.chunk-size:500}") int chunkSize,
+                        @Value("${taskmanager.archive.chunk-pause:PT0.05S}") Duration chunkPause,
+                        ShardRouter shards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.statusWriteBehind = statusWriteBehind;
+        this.taskCountCache = taskCountCache;
+        this.enabled = enabled;
+        this.minAge = minAge;
+        this.chunkSize = chunkSize;
+        this.chunkPause = chunkPause;
+        Gauge.builder("taskmanager.tasks.tier.rows", hotRows, AtomicLong::get).tag("tier", "hot").register(meterRegistry);
+        Gauge.builder("taskmanager.tasks.tier.rows", archivedRows, AtomicLong::get).tag("tier", "archive").register(meterRegistry);
+        this.archived = meterRegistry.counter("taskmanager.tasks.tier.moved", "direction", "archived");
+        this.restored = meterRegistry.counter("taskmanager.tasks.tier.moved", "direction", "restored");
+    }
+
+    /**
+     * Archives every eligible task, chunk by chunk.
+     *
+     * @return the number of tasks archived
+     */
+    @Scheduled(cron = "${taskmanager.archive.cron:0 30 2 * * *}")
+    public long archive() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return 0;
+        }
+        AtomicLong total = new AtomicLong();
+        try {
+            // Pending status changes count as changes; write them before judging ages
+            statusWriteBehind.flush();
+            LocalDateTime cutoff = LocalDateTime.now().minus(minAge);
+            shards.forEachShard(shard -> archiveShard(cutoff, total));
+            if (total.get() > 0) {
+                logger.info("Archived {} finished tasks last changed before {}", total.get(), cutoff);
+                taskCountCache.invalidateAll();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Task archival stopped after {} tasks", total.get(), e);
+        } finally {
+            running.set(false);
+            refreshTierSizes();
+        }
+        return total.get();
+    }
+
+    /** Archives the eligible tasks of the current shard; gives up when the thread is interrupted. */
+    private void archiveShard(LocalDateTime cutoff, AtomicLong total) {
+        int moved;
+        do {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            moved = chunkTransaction.execute(status -> archiveChunk(cutoff));
+            total.addAndGet(moved);
+            archived.increment(moved);
+            if (moved == chunkSize && !chunkPause.isZero()) {
+                try {
+                    Thread.sleep(chunkPause.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } while (moved == chunkSize);
+    }
+
+    private int archiveChunk(LocalDateTime cutoff) {
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_CANDIDATES, new MapSqlParameterSource()
+                .addValue("cutoff", Timestamp.valueOf(cutoff))
+                .addValue("limit", chunkSize), Long.class);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource("ids", ids);
+        jdbcTemplate.update(COPY_TO_ARCHIVE, parameters);
+        jdbcTemplate.update("DELETE FROM tasks WHERE id IN (:ids)", parameters);
+        return ids.size();
+    }
+
+    /** Moves one archived task back to the hot tier. */
+    public void restoreTask(Long taskId) {
+        int shard = shards.shardWhere(candidate -> !jdbcTemplate.getJdbcTemplate()
+                .queryForList("SELECT id FROM tasks_archive WHERE id = ?", Long.class, taskId).isEmpty());
+        int moved = shards.onShard(shard, () -> chunkTransaction.execute(status -> restore(List.of(taskId))));
+        if (moved == 0) {
+            throw new ResourceNotFoundException("Archived task not found with id: " + taskId);
+        }
+        restored.increment();
+        taskCountCache.invalidateAll();
+    }
+
+    /**
+     * Moves the next chunk of a project's archived tasks back; run inside a transaction.
+     *
+     * @return the number of tasks restored
+     */
+    int restoreProjectChunk(Long projectId, int limit) {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM tasks_archive WHERE project_id = :projectId ORDER BY id LIMIT :limit",
+                new MapSqlParameterSource("projectId", projectId).addValue("limit", limit), Long.class);
+        int moved = ids.isEmpty() ? 0 : restore(ids);
+        restored.increment(moved);
+        return moved;
+    }
+
+    private int restore(List<Long> ids) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("ids", ids);
+        int moved = jdbcTemplate.update(COPY_TO_TASKS, parameters);
+        jdbcTemplate.update("DELETE FROM tasks_archive WHERE id IN (:ids)", parameters);
+        return moved;
+    }
+
+    @Scheduled(fixedDelayString = "${taskmanager.archive.tier-size-refresh-interval:PT15M}",
+            initialDelayString = "${taskmanager.archive.tier-size-refresh-interval:PT15M}")
+    public void refreshTierSizes() {
+        try {
+            hotRows.set(shards.scatter(shard -> count("SELECT COUNT(*) FROM tasks")).stream().mapToLong(Long::longValue).sum());
+            archivedRows.set(shards.scatter(shard -> count("SELECT COUNT(*) FROM tasks_archive")).stream()
+                    .mapToLong(Long::longValue).sum());
+        } catch (RuntimeException e) {
+            logger.warn("Failed to count task tier sizes", e);
+        }
+    }
+
+    private long count(String sql) {
+        Long count = jdbcTemplate.getJdbcTemplate().queryForObject(sql, Long.class);
+        return count != null ? count : 0;
+    }
+}
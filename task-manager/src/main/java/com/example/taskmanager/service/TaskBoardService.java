@@ -0,0 +1,241 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.TaskBoardDTO;
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kanban board of a project: the first tasks of every status column and the column totals in
+ * one query, ROW_NUMBER and COUNT over a window partitioned by status.
+ *
+ * Cards are ordered by priority (high first), then due date (none last), then id. That order
+ * is a key, so a column continues from a cursor holding the last card's key, with the same
+ * filters; idx_tasks_board (V9) serves it without sorting.
+ *
+ * Pending write-behind statuses are applied in memory, as the task list does, without flushing:
+ * the project's pending tasks are read by id and their cards moved from the stored column to
+ * the pending one, totals included. Applying a status clears the assignee, so with an assignee
+ * filter they only leave the board.
+ */
+@Service
+public class TaskBoardService {
+    /** Sort position of a priority; matches idx_tasks_board. */
+    private static final String PRIORITY_RANK =
+            "CASE priority WHEN 'HIGH' THEN 0 WHEN 'MEDIUM' THEN 1 WHEN 'LOW' THEN 2 ELSE 3 END";
+    /** Tasks without a due date sort last; matches idx_tasks_board. */
+    private static final String DUE_KEY = "COALESCE(due_date, TIMESTAMP '9999-12-31 00:00:00')";
+    private static final String COLUMNS = TaskRows.COLUMNS + ", "
+            + PRIORITY_RANK + " AS priority_rank, " + DUE_KEY + " AS due_key";
+    private static final String ORDER = PRIORITY_RANK + ", " + DUE_KEY + ", id";
+
+    private static final String BOARD = "SELECT * FROM ("
+            + "SELECT " + COLUMNS + ", "
+            + "ROW_NUMBER() OVER (PARTITION BY status ORDER BY " + ORDER + ") AS position, "
+            + "COUNT(*) OVER (PARTITION BY status) AS column_total "
+            + "FROM tasks WHERE project_id = :projectId%s"
+            + ") board WHERE position <= :limit ORDER BY status, position";
+    private static final String COLUMN = "SELECT " + COLUMNS + " FROM tasks "
+            + "WHERE project_id = :projectId AND status = :status%s "
+            + "AND (" + ORDER + ") > (:rank, :dueKey, :id) "
+            + "ORDER BY " + ORDER + " LIMIT :limit";
+    private static final String PENDING = "SELECT " + COLUMNS + " FROM tasks "
+            + "WHERE project_id = :projectId AND id IN (:pendingIds)%s";
+    private static final Comparator<Card> BY_KEY = Comparator.comparingInt(Card::rank)
+            .thenComparing(Card::dueKey)
+            .thenComparing(card -> card.task().getId());
+
+    /** One card with its sort key. */
+    private record Card(TaskDTO task, int rank, LocalDateTime dueKey) {
+
+        String cursor() {
+            String key = rank + "|" + dueKey + "|" + task.getId();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TaskStatusWriteBehind statusWriteBehind;
+    private final ShardRouter shards;
+    private final int maxColumnSize;
+
+    @Autowired
+    public TaskBoardService(NamedParameterJdbcTemplate jdbcTemplate,
+                            TaskStatusWriteBehind statusWriteBehind,
+                            ShardRouter shards,
+                            @Value("${taskmanager.board.max-column-size:100}") int maxColumnSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.statusWriteBehind = statusWriteBehind;
+        this.shards = shards;
+        this.maxColumnSize = maxColumnSize;
+    }
+
+    /**
+     * Every status column of the project, with up to {@code limit} tasks each, optionally only
+     * the tasks of one assignee and/or of some priorities.
+     */
+    public TaskBoardDTO getBoard(Long projectId, int limit, Long assigneeId, Task.Priority[] priorities) {
+        int size = columnSize(limit);
+        Map<Long, Task.Status> pending = statusWriteBehind.pendingStatuses();
+        Map<Task.Status, List<Card>> cards = new EnumMap<>(Task.Status.class);
+        Map<Task.Status, Long> totals = new EnumMap<>(Task.Status.class);
+        shards.readOnProject(projectId, () -> {
+            List<Card> stored = pendingCards(projectId, pending, priorities, new MapSqlParameterSource(), "");
+            // Each of them may leave its column, which then needs one more card to stay full
+            MapSqlParameterSource parameters = new MapSqlParameterSource("projectId", projectId)
+                    .addValue("limit", size + 1 + stored.size());
+            jdbcTemplate.query(BOARD.formatted(filters(assigneeId, priorities, parameters)), parameters, row -> {
+                Task.Status status = Task.Status.valueOf(row.getString("status"));
+                cards.computeIfAbsent(status, key -> new ArrayList<>()).add(card(row));
+                totals.put(status, row.getLong("column_total"));
+            });
+            applyPending(stored, pending, assigneeId, cards, totals);
+            return null;
+        });
+
+        List<TaskBoardDTO.Column> columns = new ArrayList<>();
+        for (Task.Status status : Task.Status.values()) {
+            columns.add(column(status, cards.getOrDefault(status, List.of()), size, totals.getOrDefault(status, 0L)));
+        }
+        return new TaskBoardDTO(projectId, columns);
+    }
+
+    /**
+     * The tasks of one column after the cursor, up to {@code limit}; the filters should be those
+     * the cursor was read with. The total is not counted again and is null.
+     */
+    public TaskBoardDTO.Column getColumn(Long projectId, Task.Status status, String cursor, int limit,
+                                         Long assigneeId, Task.Priority[] priorities) {
+        int size = columnSize(limit);
+        MapSqlParameterSource after = new MapSqlParameterSource();
+        decode(cursor, after);
+        Map<Long, Task.Status> pending = statusWriteBehind.pendingStatuses();
+        Map<Task.Status, List<Card>> cards = new EnumMap<>(Task.Status.class);
+        shards.readOnProject(projectId, () -> {
+            List<Card> stored = pendingCards(projectId, pending, priorities, after,
+                    " AND (" + ORDER + ") > (:rank, :dueKey, :id)");
+            MapSqlParameterSource parameters = new MapSqlParameterSource(after.getValues())
+                    .addValue("projectId", projectId)
+                    .addValue("status", status.name())
+                    .addValue("limit", size + 1 + stored.size());
+            cards.put(status, new ArrayList<>(jdbcTemplate.query(COLUMN.formatted(filters(assigneeId, priorities, parameters)),
+                    parameters, (row, index) -> card(row))));
+            applyPending(stored, pending, assigneeId, cards, new EnumMap<>(Task.Status.class));
+            return null;
+        });
+        return column(status, cards.get(status), size, null);
+    }
+
+    /**
+     * The project's tasks with a pending status that pass the priority filter and the given
+     * condition, as stored; none are read when nothing is pending.
+     */
+    private List<Card> pendingCards(Long projectId, Map<Long, Task.Status> pending, Task.Priority[] priorities,
+                                    MapSqlParameterSource parameters, String condition) {
+        if (pending.isEmpty()) {
+            return List.of();
+        }
+        parameters.addValue("projectId", projectId).addValue("pendingIds", pending.keySet());
+        String sql = PENDING.formatted(condition + filters(null, priorities, parameters));
+        return jdbcTemplate.query(sql, parameters, (row, index) -> card(row));
+    }
+
+    /**
+     * Moves the cards of pending tasks from their stored column to their pending one, and their
+     * counts with them; the columns are left in board order.
+     */
+    private static void applyPending(List<Card> stored, Map<Long, Task.Status> pending, Long assigneeId,
+                                     Map<Task.Status, List<Card>> cards, Map<Task.Status, Long> totals) {
+        for (Card card : stored) {
+            TaskDTO task = card.task();
+            Task.Status from = Task.Status.valueOf(task.getStatus());
+            if (assigneeId == null || assigneeId.equals(task.getAssigneeId())) {
+                List<Card> column = cards.get(from);
+                if (column != null) {
+                    column.removeIf(shown -> shown.task().getId().equals(task.getId()));
+                }
+                totals.computeIfPresent(from, (status, total) -> total - 1);
+            }
+            if (assigneeId == null) {
+                Task.Status to = pending.get(task.getId());
+                cards.computeIfAbsent(to, key -> new ArrayList<>())
+                        .add(new Card(withPendingStatus(task, to), card.rank(), card.dueKey()));
+                totals.merge(to, 1L, Long::sum);
+            }
+        }
+        if (!stored.isEmpty()) {
+            cards.values().forEach(column -> column.sort(BY_KEY));
+        }
+    }
+
+    /** The task as the write-behind flush leaves it: with the status and no assignee. */
+    private static TaskDTO withPendingStatus(TaskDTO task, Task.Status status) {
+        TaskDTO moved = new TaskDTO(task.getId(), task.getTitle(), task.getDescription(), status.name(),
+                task.getPriority(), task.getDueDate(), task.getCreatorId(), null, task.getProjectId());
+        moved.setLabels(task.getLabels());
+        return moved;
+    }
+
+    private int columnSize(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Column size must be positive");
+        }
+        return Math.min(limit, maxColumnSize);
+    }
+
+    private static String filters(Long assigneeId, Task.Priority[] priorities, MapSqlParameterSource parameters) {
+        StringBuilder sql = new StringBuilder();
+        if (assigneeId != null) {
+            sql.append(" AND assignee_id = :assigneeId");
+            parameters.addValue("assigneeId", assigneeId);
+        }
+        if (priorities != null && priorities.length > 0) {
+            sql.append(" AND priority IN (:priorities)");
+            parameters.addValue("priorities", Arrays.stream(priorities).map(Enum::name).distinct().toList());
+        }
+        return sql.toString();
+    }
+
+    /** One more card than the column size was read: it tells whether the column continues. */
+    private static TaskBoardDTO.Column column(Task.Status status, List<Card> cards, int size, Long total) {
+        boolean more = cards.size() > size;
+        List<Card> shown = more ? cards.subList(0, size) : cards;
+        return new TaskBoardDTO.Column(status.name(), total, shown.stream().map(Card::task).toList(),
+                more ? shown.get(shown.size() - 1).cursor() : null);
+    }
+
+    private static void decode(String cursor, MapSqlParameterSource parameters) {
+        try {
+            String[] key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (key.length != 3) {
+                throw new IllegalArgumentException("Invalid board cursor");
+            }
+            parameters.addValue("rank", Integer.parseInt(key[0]))
+                    .addValue("dueKey", LocalDateTime.parse(key[1]))
+                    .addValue("id", Long.parseLong(key[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid board cursor", e);
+        }
+    }
+
+    private static Card card(ResultSet row) throws SQLException {
+        return new Card(TaskRows.toDTO(row), row.getInt("priority_rank"), row.getTimestamp("due_key").toLocalDateTime());
+    }
+}
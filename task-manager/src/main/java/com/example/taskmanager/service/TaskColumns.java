@@ -0,0 +1,367 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.TaskAggregateDTO;
+import com.example.taskmanager.entities.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The fields of tasks that aggregations group and filter on, one primitive array per field
+ * (column), rows sorted by task id: the id, status and priority as enum ordinals, the project and
+ * the assignee as dictionary codes, the due date as an epoch day. That is {@link #ROW_BYTES} per
+ * task, and a query is a sequential scan of a few of these arrays.
+ *
+ * A removed task leaves a tombstone until more than a quarter of the rows are tombstones; then
+ * the columns are compacted.
+ *
+ * Thread-safe: scans share a read lock, changes take the write lock.
+ */
+final class TaskColumns {
+    /** Id, status, priority, project, assignee, due day. */
+    static final int ROW_BYTES = Long.BYTES + 1 + 1 + Integer.BYTES + Integer.BYTES + Integer.BYTES;
+    /** Status or priority not set. */
+    private static final byte NONE = -1;
+    /** Status of a removed row. */
+    private static final byte REMOVED = -2;
+    /** Due day of tasks without one; later than any due day, so they are never overdue. */
+    private static final int NO_DUE_DAY = Integer.MAX_VALUE;
+    private static final int STATUSES = Task.Status.values().length;
+    private static final int PRIORITIES = Task.Priority.values().length;
+    private static final int OPEN = 1 << Task.Status.PENDING.ordinal() + 1 | 1 << Task.Status.IN_PROGRESS.ordinal() + 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Dictionary projects = new Dictionary();
+    private final Dictionary assignees = new Dictionary();
+    private long[] ids;
+    private byte[] statuses;
+    private byte[] priorities;
+    private int[] projectCodes;
+    private int[] assigneeCodes;
+    private int[] dueDays;
+    private int size;
+    private int removed;
+
+    /** A task as held here, as read from its row. */
+    record Row(long id, Task.Status status, Task.Priority priority, LocalDateTime dueDate, Long projectId,
+               Long assigneeId) {}
+
+    /** Which tasks to count: bit ordinal + 1 of the masks is set for each status and priority to count, bit 0 for none. */
+    record Filter(int statusMask, int priorityMask, Long projectId, Long assigneeId, Integer dueDayFrom, Integer dueDayTo) {
+        static final int ALL = -1;
+    }
+
+    TaskColumns(int initialCapacity) {
+        int capacity = Math.max(16, initialCapacity);
+        ids = new long[capacity];
+        statuses = new byte[capacity];
+        priorities = new byte[capacity];
+        projectCodes = new int[capacity];
+        assigneeCodes = new int[capacity];
+        dueDays = new int[capacity];
+    }
+
+    /**
+     * Merges columns holding disjoint tasks, each from one shard, into one. The parts are read
+     * as they are; they must not change meanwhile.
+     */
+    static TaskColumns merge(List<TaskColumns> parts) {
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        TaskColumns merged = new TaskColumns(parts.stream().mapToInt(TaskColumns::size).sum());
+        int[] next = new int[parts.size()];
+        while (true) {
+            int from = -1;
+            for (int part = 0; part < parts.size(); part++) {
+                TaskColumns columns = parts.get(part);
+                while (next[part] < columns.size && columns.statuses[next[part]] == REMOVED) {
+                    next[part]++;
+                }
+                if (next[part] < columns.size
+                        && (from < 0 || columns.ids[next[part]] < parts.get(from).ids[next[from]])) {
+                    from = part;
+                }
+            }
+            if (from < 0) {
+                return merged;
+            }
+            TaskColumns columns = parts.get(from);
+            int row = next[from]++;
+            merged.insertAt(merged.size, columns.ids[row], columns.statuses[row], columns.priorities[row],
+                    columns.projects.decode(columns.projectCodes[row]), columns.assignees.decode(columns.assigneeCodes[row]),
+                    columns.dueDays[row]);
+        }
+    }
+
+    /** Adds the task or replaces what is held of it. Appending in id order costs no shifting. */
+    void put(Row row) {
+        byte status = row.status() != null ? (byte) row.status().ordinal() : NONE;
+        byte priority = row.priority() != null ? (byte) row.priority().ordinal() : NONE;
+        int dueDay = row.dueDate() != null ? (int) row.dueDate().toLocalDate().toEpochDay() : NO_DUE_DAY;
+        lock.writeLock().lock();
+        try {
+            int index = size > 0 && row.id() > ids[size - 1] ? -size - 1 : Arrays.binarySearch(ids, 0, size, row.id());
+            if (index < 0) {
+                insertAt(-index - 1, row.id(), status, priority, row.projectId(), row.assigneeId(), dueDay);
+                return;
+            }
+            if (statuses[index] == REMOVED) {
+                removed--;
+            }
+            statuses[index] = status;
+            priorities[index] = priority;
+            projectCodes[index] = projects.encode(row.projectId());
+            assigneeCodes[index] = assignees.encode(row.assigneeId());
+            dueDays[index] = dueDay;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0 || statuses[index] == REMOVED) {
+                return;
+            }
+            statuses[index] = REMOVED;
+            removed++;
+            if (removed > size / 4) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** The tasks held. */
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size - removed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Heap held by the columns and the dictionaries, estimated. */
+    long bytes() {
+        lock.readLock().lock();
+        try {
+            return (long) ids.length * ROW_BYTES + projects.bytes() + assignees.bytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the tasks that pass the filter, in total and per distinct value of the grouped
+     * fields, and of those the open ones due before {@code today} (overdue). Groups with no tasks
+     * are left out. Fails with IllegalArgumentException when the grouped fields have more than
+     * {@code maxGroups} combinations of values.
+     */
+    TaskAggregateDTO aggregate(Filter filter, List<TaskAggregationService.Dimension> groupBy, int today, int maxGroups) {
+        lock.readLock().lock();
+        try {
+            int[] radix = new int[groupBy.size()];
+            long groups = 1;
+            for (int dimension = 0; dimension < radix.length; dimension++) {
+                radix[dimension] = switch (groupBy.get(dimension)) {
+                    case STATUS -> STATUSES + 1;
+                    case PRIORITY -> PRIORITIES + 1;
+                    case PROJECT -> projects.size();
+                    case ASSIGNEE -> assignees.size();
+                };
+                groups *= radix[dimension];
+                if (groups > maxGroups) {
+                    throw new IllegalArgumentException("Grouping by " + groupBy + " gives more than " + maxGroups + " groups");
+                }
+            }
+            // The group of a row is the sum of its codes times these, 0 for the fields not grouped by
+            int statusStride = 0;
+            int priorityStride = 0;
+            int projectStride = 0;
+            int assigneeStride = 0;
+            int stride = 1;
+            for (int dimension = radix.length - 1; dimension >= 0; dimension--) {
+                switch (groupBy.get(dimension)) {
+                    case STATUS -> statusStride = stride;
+                    case PRIORITY -> priorityStride = stride;
+                    case PROJECT -> projectStride = stride;
+                    case ASSIGNEE -> assigneeStride = stride;
+                }
+                stride *= radix[dimension];
+            }
+            long[] counts = new long[(int) groups];
+            long[] overdue = new long[(int) groups];
+            int project = filter.projectId() != null ? projects.codeOf(filter.projectId()) : -1;
+            int assignee = filter.assigneeId() != null ? assignees.codeOf(filter.assigneeId()) : -1;
+            if (filter.projectId() != null && project < 0 || filter.assigneeId() != null && assignee < 0) {
+                return result(groupBy, radix, counts, overdue);
+            }
+            boolean byDueDay = filter.dueDayFrom() != null || filter.dueDayTo() != null;
+            // Tasks without a due date fail any due date filter
+            int dueFrom = filter.dueDayFrom() != null ? filter.dueDayFrom() : Integer.MIN_VALUE;
+            int dueTo = filter.dueDayTo() != null ? filter.dueDayTo() : NO_DUE_DAY - 1;
+            int statusMask = filter.statusMask();
+            int priorityMask = filter.priorityMask();
+            for (int row = 0; row < size; row++) {
+                byte status = statuses[row];
+                byte priority = priorities[row];
+                if (status == REMOVED || (statusMask & 1 << status + 1) == 0 || (priorityMask & 1 << priority + 1) == 0
+                        || project >= 0 && projectCodes[row] != project
+                        || assignee >= 0 && assigneeCodes[row] != assignee) {
+                    continue;
+                }
+                int dueDay = dueDays[row];
+                if (byDueDay && (dueDay < dueFrom || dueDay > dueTo)) {
+                    continue;
+                }
+                int group = (status + 1) * statusStride + (priority + 1) * priorityStride
+                        + projectCodes[row] * projectStride + assigneeCodes[row] * assigneeStride;
+                counts[group]++;
+                // Without branching: whether a task is overdue is as good as random
+                overdue[group] += (OPEN >>> status + 1 & 1) * (dueDay < today ? 1 : 0);
+            }
+            return result(groupBy, radix, counts, overdue);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private TaskAggregateDTO result(List<TaskAggregationService.Dimension> groupBy, int[] radix, long[] counts,
+                                    long[] overdue) {
+        List<TaskAggregateDTO.Group> groups = new ArrayList<>();
+        long total = 0;
+        long totalOverdue = 0;
+        for (int group = 0; group < counts.length; group++) {
+            if (counts[group] == 0) {
+                continue;
+            }
+            total += counts[group];
+            totalOverdue += overdue[group];
+            int[] codes = new int[radix.length];
+            int rest = group;
+            for (int dimension = radix.length - 1; dimension >= 0; dimension--) {
+                codes[dimension] = rest % radix[dimension];
+                rest /= radix[dimension];
+            }
+            Map<String, Object> key = new LinkedHashMap<>();
+            for (int dimension = 0; dimension < radix.length; dimension++) {
+                int code = codes[dimension];
+                TaskAggregationService.Dimension field = groupBy.get(dimension);
+                key.put(field.key(), switch (field) {
+                    case STATUS -> code > 0 ? Task.Status.values()[code - 1].name() : null;
+                    case PRIORITY -> code > 0 ? Task.Priority.values()[code - 1].name() : null;
+                    case PROJECT -> projects.decode(code);
+                    case ASSIGNEE -> assignees.decode(code);
+                });
+            }
+            groups.add(new TaskAggregateDTO.Group(key, counts[group], overdue[group]));
+        }
+        return new TaskAggregateDTO(groupBy.stream().map(TaskAggregationService.Dimension::key).toList(), total,
+                totalOverdue, groups);
+    }
+
+    private void insertAt(int index, long id, byte status, byte priority, Long projectId, Long assigneeId, int dueDay) {
+        if (size == ids.length) {
+            int capacity = size + (size >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            priorities = Arrays.copyOf(priorities, capacity);
+            projectCodes = Arrays.copyOf(projectCodes, capacity);
+            assigneeCodes = Arrays.copyOf(assigneeCodes, capacity);
+            dueDays = Arrays.copyOf(dueDays, capacity);
+        }
+        int moved = size - index;
+        if (moved > 0) {
+            System.arraycopy(ids, index, ids, index + 1, moved);
+            System.arraycopy(statuses, index, statuses, index + 1, moved);
+            System.arraycopy(priorities, index, priorities, index + 1, moved);
+            System.arraycopy(projectCodes, index, projectCodes, index + 1, moved);
+            System.arraycopy(assigneeCodes, index, assigneeCodes, index + 1, moved);
+            System.arraycopy(dueDays, index, dueDays, index + 1, moved);
+        }
+        ids[index] = id;
+        statuses[index] = status;
+        priorities[index] = priority;
+        projectCodes[index] = projects.encode(projectId);
+        assigneeCodes[index] = assignees.encode(assigneeId);
+        dueDays[index] = dueDay;
+        size++;
+    }
+
+    /** Drops the tombstones; the caller holds the write lock. */
+    private void compact() {
+        int kept = 0;
+        for (int row = 0; row < size; row++) {
+            if (statuses[row] == REMOVED) {
+                continue;
+            }
+            ids[kept] = ids[row];
+            statuses[kept] = statuses[row];
+            priorities[kept] = priorities[row];
+            projectCodes[kept] = projectCodes[row];
+            assigneeCodes[kept] = assigneeCodes[row];
+            dueDays[kept] = dueDays[row];
+            kept++;
+        }
+        size = kept;
+        removed = 0;
+    }
+
+    /**
+     * Codes for the distinct ids of a column, 0 standing for null. Codes are never reused, so a
+     * dictionary only grows, by the ids that were ever seen since the last load.
+     */
+    private static final class Dictionary {
+        /** A HashMap entry with its boxed key and value, and the decode slot. */
+        private static final int ENTRY_BYTES = 32 + 16 + 16 + Long.BYTES;
+
+        private final Map<Long, Integer> codes = new HashMap<>();
+        private long[] values = new long[16];
+        private int size = 1;
+
+        int encode(Long id) {
+            if (id == null) {
+                return 0;
+            }
+            Integer code = codes.get(id);
+            if (code != null) {
+                return code;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = id;
+            codes.put(id, size);
+            return size++;
+        }
+
+        /** The code of the id, or -1 if no task has it. */
+        int codeOf(Long id) {
+            return codes.getOrDefault(id, -1);
+        }
+
+        Long decode(int code) {
+            return code == 0 ? null : values[code];
+        }
+
+        /** The codes handed out, including the one for null. */
+        int size() {
+            return size;
+        }
+
+        long bytes() {
+            return (long) codes.size() * ENTRY_BYTES;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-filter task counts for the estimated-total listing mode.
+ *
+ * A filter that has not been counted yet is counted synchronously (and reported as exact).
+ * After that the cached value is served as an approximation; once it is older than the
+ * refresh interval it is recounted in the background while callers keep getting the
+ * previous value, so at most one COUNT per filter runs per interval.
+ *
+ * Single task writes only age the counts, but a bulk change anywhere, on this instance or on
+ * another one ({@link CacheInvalidationBus}), drops them all.
+ */
+@Component
+public class TaskCountCache {
+    private static final Logger logger = LoggerFactory.getLogger(TaskCountCache.class);
+
+    public record Estimate(long count, boolean exact) {}
+
+    private static final class Entry {
+        volatile long count;
+        volatile long countedAt;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(long count, long countedAt) {
+            this.count = count;
+            this.countedAt = countedAt;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "task-count-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final long refreshIntervalNanos;
+    private final int maxEntries;
+    private final CacheInvalidationBus invalidations;
+
+    @Autowired
+    public TaskCountCache(@Value("${taskmanager.tasks.count-cache.refresh-interval:PT30S}") Duration refreshInterval,
+                          @Value("${taskmanager.tasks.count-cache.max-entries:10000}") int maxEntries,
+                          CacheInvalidationBus invalidations) {
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+        this.maxEntries = maxEntries;
+        this.invalidations = invalidations;
+        invalidations.subscribe(Invalidation.Type.TASK, invalidation -> {
+            if (invalidation.isAll()) {
+                entries.clear();
+            }
+        });
+    }
+
+    TaskCountCache(Duration refreshInterval, int maxEntries) {
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+        this.maxEntries = maxEntries;
+        this.invalidations = null;
+    }
+
+    public Estimate estimate(String filterKey, LongSupplier counter) {
+        Entry entry = entries.get(filterKey);
+        if (entry == null) {
+            long count = counter.getAsLong();
+            if (entries.size() >= maxEntries) {
+                // Filters are user-driven; rather than track recency, start over when full
+                entries.clear();
+            }
+            entries.put(filterKey, new Entry(count, System.nanoTime()));
+            return new Estimate(count, true);
+        }
+        if (System.nanoTime() - entry.countedAt > refreshIntervalNanos && entry.refreshing.compareAndSet(false, true)) {
+            refresher.execute(() -> {
+                try {
+                    entry.count = counter.getAsLong();
+                    entry.countedAt = System.nanoTime();
+                } catch (RuntimeException e) {
+                    logger.warn("Failed to refresh task count for filter {}", filterKey, e);
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        }
+        return new Estimate(entry.count, false);
+    }
+
+    /** Drops all cached counts, here and on the other instances, e.g. after bulk changes that make them meaningless. */
+    public void invalidateAll() {
+        entries.clear();
+        if (invalidations != null) {
+            invalidations.invalidateAll(Invalidation.Type.TASK);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+}
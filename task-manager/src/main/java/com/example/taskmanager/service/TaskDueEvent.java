@@ -0,0 +1,13 @@
+package com.example.taskmanager.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by {@link DueDateScheduler} when an open task's due date is near ({@code REMINDER})
+ * or has passed ({@code OVERDUE}). Delivery is at least once: after a crash, events since the
+ * last saved watermark are published again.
+ */
+public record TaskDueEvent(Long taskId, LocalDateTime dueDate, Kind kind) {
+
+    public enum Kind { REMINDER, OVERDUE }
+}
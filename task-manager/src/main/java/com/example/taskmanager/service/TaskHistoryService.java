@@ -0,0 +1,578 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.CycleTimeDTO;
+import com.example.taskmanager.dto.TaskTrendDTO;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Status history of tasks, and burndown, throughput and cycle time read from rollups of it.
+ *
+ * A task write that changes a status, or moves a task into or out of a project, appends a row
+ * to task_status_transitions in its own transaction; that is all a write pays. The scheduled
+ * {@link #rollUp} folds new rows into hourly and daily buckets: tasks entering and leaving each
+ * status per project (task_flow_rollups), and completions by cycle time bin per project and per
+ * assignee (task_cycle_time_rollups). Queries read buckets only, so their cost follows the range
+ * asked for and not the length of the history; they trail the writes by up to one rollup.
+ *
+ * Cycle time runs from the task's first move to IN_PROGRESS since it was last completed (or, if
+ * it was not in progress meanwhile, from its first history row since then) to its completion.
+ * A completion counts for the assignee the task had before the write, or got with it.
+ *
+ * Tasks from before the history have none until the backfill job gives them an entry at their
+ * last update. With sharding the history of a project's tasks lives on its shard, and assignee
+ * figures are summed over every shard.
+ */
+@Service
+public class TaskHistoryService {
+    private static final Logger logger = LoggerFactory.getLogger(TaskHistoryService.class);
+
+    public enum Resolution {
+        HOUR(ChronoUnit.HOURS, Duration.ofDays(2)),
+        DAY(ChronoUnit.DAYS, Duration.ofDays(30));
+
+        private final ChronoUnit unit;
+        private final Duration defaultRange;
+
+        Resolution(ChronoUnit unit, Duration defaultRange) {
+            this.unit = unit;
+            this.defaultRange = defaultRange;
+        }
+
+        LocalDateTime truncate(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+
+        public static Resolution parse(String resolution) {
+            try {
+                return valueOf(resolution.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Resolution must be hour or day");
+            }
+        }
+    }
+
+    public enum Scope { PROJECT, ASSIGNEE }
+
+    /** Upper bounds of the cycle time bins in minutes, from a quarter hour to three months; the last bin is open. */
+    private static final long[] BIN_BOUNDS = {
+            15, 30, 60, 120, 240, 480, 1440, 2880, 4320, 7200, 10080, 14400, 20160, 30240, 43200, 64800, 86400, 129600
+    };
+    /** The bin of completions whose start is not in the history. */
+    private static final int UNKNOWN_START = -1;
+
+    /** A status as stored in the history; see V10. */
+    private static final String STATUS_CODE = Arrays.stream(Task.Status.values())
+            .map(status -> "WHEN '" + status.name() + "' THEN " + status.ordinal())
+            .collect(Collectors.joining(" ", "CASE status ", " END"));
+    private static final String OPEN_CODES = Task.Status.PENDING.ordinal() + ", " + Task.Status.IN_PROGRESS.ordinal();
+
+    private static final String HISTORY_COLUMNS = "id, task_id, project_id, assignee_id, from_status, to_status, changed_at";
+    private static final String INSERT = "INSERT INTO task_status_transitions "
+            + "(task_id, project_id, assignee_id, from_status, to_status, changed_at) "
+            + "VALUES (:taskId, :projectId, :assigneeId, :fromStatus, :toStatus, :changedAt)";
+    private static final String INSERT_STATUS_CHANGES = "INSERT INTO task_status_transitions "
+            + "(task_id, project_id, assignee_id, from_status, to_status, changed_at) "
+            + "SELECT id, project_id, assignee_id, " + STATUS_CODE + ", :toStatus, :changedAt FROM tasks "
+            + "WHERE id IN (:ids) AND (status IS NULL OR status <> :status)";
+    private static final String INSERT_PROJECT_EXITS = "INSERT INTO task_status_transitions "
+            + "(task_id, project_id, assignee_id, from_status, to_status, changed_at) "
+            + "SELECT id, project_id, assignee_id, " + STATUS_CODE + ", NULL, :changedAt FROM tasks "
+            + "WHERE id IN (:ids) AND status IS NOT NULL";
+    private static final String INSERT_PROJECT_ENTRIES = "INSERT INTO task_status_transitions "
+            + "(task_id, project_id, assignee_id, from_status, to_status, changed_at) "
+            + "SELECT id, project_id, assignee_id, NULL, " + STATUS_CODE + ", :changedAt FROM tasks "
+            + "WHERE id IN (:ids) AND status IS NOT NULL";
+    private static final String BACKFILL = "INSERT INTO task_status_transitions "
+            + "(task_id, project_id, assignee_id, from_status, to_status, changed_at) "
+            + "SELECT id, project_id, assignee_id, NULL, " + STATUS_CODE + ", updated_at FROM %s t "
+            + "WHERE status IS NOT NULL AND NOT EXISTS (SELECT 1 FROM task_status_transitions h WHERE h.task_id = t.id) "
+            + "ORDER BY id LIMIT :limit";
+    private static final String UNRECORDED = "SELECT COUNT(*) FROM %s t WHERE status IS NOT NULL "
+            + "AND NOT EXISTS (SELECT 1 FROM task_status_transitions h WHERE h.task_id = t.id)";
+
+    private static final String UPDATE_FLOW = "UPDATE task_flow_rollups SET entered = entered + :entered, "
+            + "exited = exited + :exited WHERE project_id = :projectId AND resolution = :resolution "
+            + "AND bucket_start = :bucketStart AND status = :status";
+    private static final String INSERT_FLOW = "INSERT INTO task_flow_rollups "
+            + "(project_id, resolution, bucket_start, status, entered, exited) "
+            + "VALUES (:projectId, :resolution, :bucketStart, :status, :entered, :exited)";
+    private static final String UPDATE_CYCLE = "UPDATE task_cycle_time_rollups SET completions = completions + :completions "
+            + "WHERE scope = :scope AND scope_id = :scopeId AND resolution = :resolution "
+            + "AND bucket_start = :bucketStart AND bin = :bin";
+    private static final String INSERT_CYCLE = "INSERT INTO task_cycle_time_rollups "
+            + "(scope, scope_id, resolution, bucket_start, bin, completions) "
+            + "VALUES (:scope, :scopeId, :resolution, :bucketStart, :bin, :completions)";
+
+    private static final String COMPLETIONS = "SELECT bucket_start, bin, SUM(completions) AS completions "
+            + "FROM task_cycle_time_rollups WHERE scope = :scope AND scope_id = :scopeId AND resolution = :resolution "
+            + "AND bucket_start >= :from AND bucket_start < :to GROUP BY bucket_start, bin";
+
+    /** A stored history row. */
+    private record Transition(long id, long taskId, Long projectId, Long assigneeId,
+                              Task.Status from, Task.Status to, LocalDateTime changedAt) {
+
+        boolean isCompletion() {
+            return from != null && to == Task.Status.COMPLETED;
+        }
+    }
+
+    private record FlowKey(long projectId, Resolution resolution, LocalDateTime bucketStart, Task.Status status) {}
+
+    private record CycleKey(Scope scope, long scopeId, Resolution resolution, LocalDateTime bucketStart, int bin) {}
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate rollupTransaction;
+    private final ShardRouter shards;
+    private final Clock clock;
+    private final boolean enabled;
+    private final int rollupBatchSize;
+    private final int maxBuckets;
+    private final Counter rolledUp;
+
+    @Autowired
+    public TaskHistoryService(NamedParameterJdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              ShardRouter shards,
+                              @Value("${taskmanager.task-history.enabled:true}") boolean enabled,
+                              @Value("${taskmanager.task-history.rollup-batch-size:1000}") int rollupBatchSize,
+                              @Value("${taskmanager.task-history.max-buckets:1000}") int maxBuckets) {
+        this(jdbcTemplate, transactionManager, meterRegistry, shards, enabled, rollupBatchSize, maxBuckets,
+                Clock.systemDefaultZone());
+    }
+
+    TaskHistoryService(NamedParameterJdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry, ShardRouter shards, boolean enabled, int rollupBatchSize,
+                       int maxBuckets, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rollupTransaction = new TransactionTemplate(transactionManager);
+        this.shards = shards;
+        this.clock = clock;
+        this.enabled = enabled;
+        this.rollupBatchSize = rollupBatchSize;
+        this.maxBuckets = maxBuckets;
+        this.rolledUp = meterRegistry.counter("taskmanager.task_history.rolled_up");
+    }
+
+    /**
+     * Records one task write, with the versions passed to {@link ProjectStatsService#recordChange}:
+     * {@code before} is null for an insert, {@code after} for a delete. A move between projects is
+     * recorded as leaving one and entering the other.
+     */
+    public void record(Long taskId, ProjectStatsService.TaskSnapshot before, ProjectStatsService.TaskSnapshot after,
+                       Long assigneeId) {
+        if (!enabled) {
+            return;
+        }
+        Task.Status from = before != null ? before.status() : null;
+        Task.Status to = after != null ? after.status() : null;
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<MapSqlParameterSource> rows = new ArrayList<>();
+        if (before != null && after != null && Objects.equals(before.projectId(), after.projectId())) {
+            if (from != to) {
+                rows.add(row(taskId, after.projectId(), assigneeId, from, to, now));
+            }
+        } else {
+            if (from != null) {
+                rows.add(row(taskId, before.projectId(), assigneeId, from, null, now));
+            }
+            if (to != null) {
+                rows.add(row(taskId, after.projectId(), assigneeId, null, to, now));
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT, rows.toArray(MapSqlParameterSource[]::new));
+        }
+    }
+
+    /**
+     * Records the change of the given tasks to {@code status}, for set-based writers; run with
+     * the rows locked and before updating them, as the rows tell the previous status and assignee.
+     */
+    public void recordStatusChanges(Collection<Long> taskIds, Task.Status status) {
+        if (!enabled || taskIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(INSERT_STATUS_CHANGES, new MapSqlParameterSource("ids", taskIds)
+                .addValue("status", status.name())
+                .addValue("toStatus", status.ordinal())
+                .addValue("changedAt", LocalDateTime.now(clock)));
+    }
+
+    /**
+     * Records the given tasks leaving their projects, for set-based moves; run with the rows
+     * locked and before updating them. {@link #recordProjectEntries} records the arrival.
+     */
+    public void recordProjectExits(Collection<Long> taskIds) {
+        recordProjectMoves(INSERT_PROJECT_EXITS, taskIds);
+    }
+
+    /** Records the given tasks entering their projects, for set-based moves; run after updating them. */
+    public void recordProjectEntries(Collection<Long> taskIds) {
+        recordProjectMoves(INSERT_PROJECT_ENTRIES, taskIds);
+    }
+
+    private void recordProjectMoves(String insert, Collection<Long> taskIds) {
+        if (!enabled || taskIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(insert, new MapSqlParameterSource("ids", taskIds)
+                .addValue("changedAt", LocalDateTime.now(clock)));
+    }
+
+    private static MapSqlParameterSource row(Long taskId, Long projectId, Long assigneeId, Task.Status from,
+                                             Task.Status to, LocalDateTime changedAt) {
+        return new MapSqlParameterSource("taskId", taskId)
+                .addValue("projectId", projectId)
+                .addValue("assigneeId", assigneeId)
+                .addValue("fromStatus", from != null ? from.ordinal() : null)
+                .addValue("toStatus", to != null ? to.ordinal() : null)
+                .addValue("changedAt", changedAt);
+    }
+
+    /** Tasks of the current shard, in either tier, that have no history yet. */
+    public long countUnrecorded() {
+        Long active = jdbcTemplate.getJdbcTemplate().queryForObject(UNRECORDED.formatted("tasks"), Long.class);
+        Long archived = jdbcTemplate.getJdbcTemplate().queryForObject(UNRECORDED.formatted("tasks_archive"), Long.class);
+        return (active != null ? active : 0) + (archived != null ? archived : 0);
+    }
+
+    /**
+     * Gives the next {@code limit} tasks of a tier that have no history an entry in their current
+     * status at their last update, the best guess there is; returns how many it found.
+     */
+    public int backfill(boolean archived, int limit) {
+        return jdbcTemplate.update(BACKFILL.formatted(archived ? "tasks_archive" : "tasks"),
+                new MapSqlParameterSource("limit", limit));
+    }
+
+    /**
+     * Folds the history rows not rolled up yet into the buckets, a batch per transaction on every
+     * shard. Instances take turns through the lock row.
+     *
+     * @return the number of rows folded
+     */
+    @Scheduled(fixedDelayString = "${taskmanager.task-history.rollup-interval-ms:10000}")
+    public int rollUp() {
+        if (!enabled) {
+            return 0;
+        }
+        AtomicInteger folded = new AtomicInteger();
+        shards.forEachShard(shard -> {
+            try {
+                int rows;
+                do {
+                    rows = rollupTransaction.execute(status -> rollUpBatch());
+                    folded.addAndGet(rows);
+                } while (rows == rollupBatchSize);
+            } catch (RuntimeException e) {
+                logger.error("Failed to roll up task status history, will retry", e);
+            }
+        });
+        rolledUp.increment(folded.get());
+        return folded.get();
+    }
+
+    private int rollUpBatch() {
+        jdbcTemplate.getJdbcTemplate().queryForList("SELECT id FROM task_history_rollup_lock WHERE id = 1 FOR UPDATE",
+                Integer.class);
+        List<Transition> batch = jdbcTemplate.query("SELECT " + HISTORY_COLUMNS + " FROM task_status_transitions WHERE rolled_up = FALSE "
+                + "ORDER BY id LIMIT :limit", new MapSqlParameterSource("limit", rollupBatchSize),
+                (rs, row) -> transition(rs));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Map<Long, List<Transition>> histories = histories(batch.stream()
+                .filter(Transition::isCompletion).map(Transition::taskId).distinct().toList());
+
+        Map<FlowKey, long[]> flows = new LinkedHashMap<>();
+        Map<CycleKey, Long> cycles = new LinkedHashMap<>();
+        for (Transition transition : batch) {
+            int bin = transition.isCompletion() ? bin(histories.get(transition.taskId()), transition) : 0;
+            for (Resolution resolution : Resolution.values()) {
+                LocalDateTime bucket = resolution.truncate(transition.changedAt());
+                if (transition.projectId() != null) {
+                    if (transition.from() != null) {
+                        flows.computeIfAbsent(new FlowKey(transition.projectId(), resolution, bucket, transition.from()),
+                                key -> new long[2])[1]++;
+                    }
+                    if (transition.to() != null) {
+                        flows.computeIfAbsent(new FlowKey(transition.projectId(), resolution, bucket, transition.to()),
+                                key -> new long[2])[0]++;
+                    }
+                }
+                if (transition.isCompletion()) {
+                    if (transition.projectId() != null) {
+                        cycles.merge(new CycleKey(Scope.PROJECT, transition.projectId(), resolution, bucket, bin), 1L, Long::sum);
+                    }
+                    if (transition.assigneeId() != null) {
+                        cycles.merge(new CycleKey(Scope.ASSIGNEE, transition.assigneeId(), resolution, bucket, bin), 1L, Long::sum);
+                    }
+                }
+            }
+        }
+
+        upsert(UPDATE_FLOW, INSERT_FLOW, flows.entrySet().stream()
+                .map(flow -> new MapSqlParameterSource("projectId", flow.getKey().projectId())
+                        .addValue("resolution", flow.getKey().resolution().name())
+                        .addValue("bucketStart", flow.getKey().bucketStart())
+                        .addValue("status", flow.getKey().status().ordinal())
+                        .addValue("entered", flow.getValue()[0])
+                        .addValue("exited", flow.getValue()[1]))
+                .toList());
+        upsert(UPDATE_CYCLE, INSERT_CYCLE, cycles.entrySet().stream()
+                .map(cycle -> new MapSqlParameterSource("scope", cycle.getKey().scope().name())
+                        .addValue("scopeId", cycle.getKey().scopeId())
+                        .addValue("resolution", cycle.getKey().resolution().name())
+                        .addValue("bucketStart", cycle.getKey().bucketStart())
+                        .addValue("bin", cycle.getKey().bin())
+                        .addValue("completions", cycle.getValue()))
+                .toList());
+        jdbcTemplate.update("UPDATE task_status_transitions SET rolled_up = TRUE WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", batch.stream().map(Transition::id).toList()));
+        return batch.size();
+    }
+
+    /** Adds to the existing buckets in one batch, then inserts the missing ones in another; the caller holds the lock row. */
+    private void upsert(String update, String insert, List<MapSqlParameterSource> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate(update, rows.toArray(MapSqlParameterSource[]::new));
+        List<MapSqlParameterSource> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                missing.add(rows.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate(insert, missing.toArray(MapSqlParameterSource[]::new));
+        }
+    }
+
+    /** The whole history of the given tasks, oldest row first. */
+    private Map<Long, List<Transition>> histories(List<Long> taskIds) {
+        Map<Long, List<Transition>> histories = new HashMap<>();
+        if (!taskIds.isEmpty()) {
+            jdbcTemplate.query("SELECT " + HISTORY_COLUMNS + " FROM task_status_transitions WHERE task_id IN (:ids) ORDER BY id",
+                    new MapSqlParameterSource("ids", taskIds), rs -> {
+                        Transition transition = transition(rs);
+                        histories.computeIfAbsent(transition.taskId(), id -> new ArrayList<>()).add(transition);
+                    });
+        }
+        return histories;
+    }
+
+    /** The cycle time bin of a completion, from the rows of the task before it. */
+    private static int bin(List<Transition> history, Transition completion) {
+        LocalDateTime firstRow = null;
+        LocalDateTime started = null;
+        for (Transition transition : history) {
+            if (transition.id() >= completion.id()) {
+                break;
+            }
+            if (transition.to() == Task.Status.COMPLETED) {
+                // An earlier completion: the cycle being measured began after it
+                firstRow = null;
+                started = null;
+                continue;
+            }
+            if (firstRow == null) {
+                firstRow = transition.changedAt();
+            }
+            if (started == null && transition.to() == Task.Status.IN_PROGRESS) {
+                started = transition.changedAt();
+            }
+        }
+        LocalDateTime start = started != null ? started : firstRow;
+        if (start == null) {
+            return UNKNOWN_START;
+        }
+        long minutes = Math.max(0, Duration.between(start, completion.changedAt()).toMinutes());
+        int bin = 0;
+        while (bin < BIN_BOUNDS.length && minutes >= BIN_BOUNDS[bin]) {
+            bin++;
+        }
+        return bin;
+    }
+
+    private static Transition transition(ResultSet rs) throws SQLException {
+        return new Transition(rs.getLong("id"), rs.getLong("task_id"), rs.getObject("project_id", Long.class),
+                rs.getObject("assignee_id", Long.class), status(rs, "from_status"), status(rs, "to_status"),
+                rs.getTimestamp("changed_at").toLocalDateTime());
+    }
+
+    private static Task.Status status(ResultSet rs, String column) throws SQLException {
+        int code = rs.getInt(column);
+        return rs.wasNull() ? null : Task.Status.values()[code];
+    }
+
+    /**
+     * Open tasks of a project at the end of each bucket between {@code from} and {@code to}
+     * (defaults: the last 30 days, or 2 days by hour), with the tasks completed in it. The open
+     * count carried into the range is the sum of the project's daily buckets before it.
+     */
+    public TaskTrendDTO getBurndown(Long projectId, LocalDateTime from, LocalDateTime to, Resolution resolution) {
+        List<LocalDateTime> buckets = buckets(from, to, resolution);
+        LocalDateTime start = buckets.get(0);
+        LocalDateTime end = start.plus(buckets.size(), resolution.unit);
+        MapSqlParameterSource parameters = new MapSqlParameterSource("projectId", projectId)
+                .addValue("scope", Scope.PROJECT.name())
+                .addValue("scopeId", projectId)
+                .addValue("resolution", resolution.name())
+                .addValue("from", start)
+                .addValue("to", end)
+                .addValue("day", Resolution.DAY.truncate(start));
+        return shards.readOnProject(projectId, () -> {
+            Long carried = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(entered - exited), 0) FROM task_flow_rollups "
+                    + "WHERE project_id = :projectId AND status IN (" + OPEN_CODES + ") "
+                    + "AND (resolution = 'DAY' AND bucket_start < :day "
+                    + "OR resolution = 'HOUR' AND bucket_start >= :day AND bucket_start < :from)", parameters, Long.class);
+            Map<LocalDateTime, Long> openChange = new HashMap<>();
+            jdbcTemplate.query("SELECT bucket_start, SUM(entered - exited) AS open_change FROM task_flow_rollups "
+                    + "WHERE project_id = :projectId AND resolution = :resolution AND status IN (" + OPEN_CODES + ") "
+                    + "AND bucket_start >= :from AND bucket_start < :to GROUP BY bucket_start", parameters,
+                    rs -> { openChange.put(rs.getTimestamp("bucket_start").toLocalDateTime(), rs.getLong("open_change")); });
+            Map<LocalDateTime, Long> completed = new HashMap<>();
+            completions(parameters).forEach((bucket, bins) -> completed.put(bucket, Arrays.stream(bins).sum()));
+
+            long open = carried != null ? carried : 0;
+            List<TaskTrendDTO.Bucket> trend = new ArrayList<>();
+            for (LocalDateTime bucket : buckets) {
+                open += openChange.getOrDefault(bucket, 0L);
+                trend.add(new TaskTrendDTO.Bucket(bucket, open, completed.getOrDefault(bucket, 0L)));
+            }
+            return new TaskTrendDTO(Scope.PROJECT.name(), projectId, resolution.name(), trend);
+        });
+    }
+
+    /** Tasks an assignee completed in each bucket between {@code from} and {@code to}. */
+    public TaskTrendDTO getThroughput(Long assigneeId, LocalDateTime from, LocalDateTime to, Resolution resolution) {
+        List<LocalDateTime> buckets = buckets(from, to, resolution);
+        Map<LocalDateTime, long[]> completions = completions(Scope.ASSIGNEE, assigneeId, buckets, resolution);
+        List<TaskTrendDTO.Bucket> trend = buckets.stream()
+                .map(bucket -> new TaskTrendDTO.Bucket(bucket, null,
+                        completions.containsKey(bucket) ? Arrays.stream(completions.get(bucket)).sum() : 0))
+                .toList();
+        return new TaskTrendDTO(Scope.ASSIGNEE.name(), assigneeId, resolution.name(), trend);
+    }
+
+    /** Cycle time percentiles (each 1-100) of the completions of a project or an assignee in a range. */
+    public CycleTimeDTO getCycleTime(Scope scope, Long id, LocalDateTime from, LocalDateTime to, Resolution resolution,
+                                     List<Integer> percentiles) {
+        for (int percentile : percentiles) {
+            if (percentile < 1 || percentile > 100) {
+                throw new IllegalArgumentException("Percentiles must be between 1 and 100");
+            }
+        }
+        List<LocalDateTime> buckets = buckets(from, to, resolution);
+        long[] histogram = new long[BIN_BOUNDS.length + 1];
+        completions(scope, id, buckets, resolution).values().forEach(bins -> {
+            for (int bin = 0; bin < histogram.length; bin++) {
+                histogram[bin] += bins[bin + 1];
+            }
+        });
+        long total = Arrays.stream(histogram).sum();
+        Map<String, Double> hours = new LinkedHashMap<>();
+        if (total > 0) {
+            percentiles.stream().sorted().distinct().forEach(percentile -> hours.put("p" + percentile,
+                    Math.round(percentileMinutes(histogram, total, percentile) / 60.0 * 100) / 100.0));
+        }
+        return new CycleTimeDTO(scope.name(), id, buckets.get(0),
+                buckets.get(buckets.size() - 1).plus(1, resolution.unit), total, hours);
+    }
+
+    private Map<LocalDateTime, long[]> completions(Scope scope, Long id, List<LocalDateTime> buckets,
+                                                   Resolution resolution) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("scope", scope.name())
+                .addValue("scopeId", id)
+                .addValue("resolution", resolution.name())
+                .addValue("from", buckets.get(0))
+                .addValue("to", buckets.get(buckets.size() - 1).plus(1, resolution.unit));
+        if (scope == Scope.PROJECT) {
+            return shards.readOnProject(id, () -> completions(parameters));
+        }
+        Map<LocalDateTime, long[]> summed = new HashMap<>();
+        shards.scatter(shard -> completions(parameters)).forEach(part -> part.forEach((bucket, bins) -> {
+            long[] sum = summed.computeIfAbsent(bucket, key -> new long[BIN_BOUNDS.length + 2]);
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += bins[i];
+            }
+        }));
+        return summed;
+    }
+
+    /** Completions per bucket, by bin shifted by one so that the unknown start bin is at 0. */
+    private Map<LocalDateTime, long[]> completions(MapSqlParameterSource parameters) {
+        Map<LocalDateTime, long[]> completions = new HashMap<>();
+        jdbcTemplate.query(COMPLETIONS, parameters, rs -> {
+            completions.computeIfAbsent(rs.getTimestamp("bucket_start").toLocalDateTime(),
+                    key -> new long[BIN_BOUNDS.length + 2])[rs.getInt("bin") + 1] += rs.getLong("completions");
+        });
+        return completions;
+    }
+
+    /** Interpolated linearly within the bin holding the percentile; the open last bin gives its lower bound. */
+    static double percentileMinutes(long[] histogram, long total, int percentile) {
+        double rank = total * percentile / 100.0;
+        long seen = 0;
+        for (int bin = 0; bin < histogram.length; bin++) {
+            if (histogram[bin] > 0 && seen + histogram[bin] >= rank) {
+                long lower = bin == 0 ? 0 : BIN_BOUNDS[bin - 1];
+                if (bin == BIN_BOUNDS.length) {
+                    return lower;
+                }
+                return lower + (BIN_BOUNDS[bin] - lower) * (rank - seen) / histogram[bin];
+            }
+            seen += histogram[bin];
+        }
+        return BIN_BOUNDS[BIN_BOUNDS.length - 1];
+    }
+
+    /** The bucket starts of a range, {@code to} rounded up to a whole bucket. */
+    private List<LocalDateTime> buckets(LocalDateTime from, LocalDateTime to, Resolution resolution) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now(clock);
+        LocalDateTime start = resolution.truncate(from != null ? from : end.minus(resolution.defaultRange));
+        if (!end.isAfter(start)) {
+            throw new IllegalArgumentException("The range must end after it starts");
+        }
+        List<LocalDateTime> buckets = new ArrayList<>();
+        for (LocalDateTime bucket = start; bucket.isBefore(end); bucket = bucket.plus(1, resolution.unit)) {
+            if (buckets.size() == maxBuckets) {
+                throw new IllegalArgumentException("The range spans more than " + maxBuckets + " buckets");
+            }
+            buckets.add(bucket);
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,389 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.entities.TaskLabels;
+import com.example.taskmanager.repository.TaskSpecifications;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Compressed bitmaps ({@link IdBitmap}) of the hot tasks per label, status and priority, so
+ * label filters are answered with bitmap algebra instead of scanning the labels column: the
+ * labels of a filter are ANDed, its anyLabels ORed, its notLabels subtracted, and the result
+ * ANDed with the ORed bitmaps of its statuses and priorities. The caller then fetches only the
+ * matching ids.
+ *
+ * The bitmaps are loaded from every shard when the application is ready (or by the first
+ * query if that failed). Task writes, here or on other instances, reach them through the
+ * {@link CacheInvalidationBus} as changed task ids, which the next query or the periodic drain
+ * re-reads in one query per chunk. An invalidation of all tasks, or more queued changes than
+ * max-pending-changes, reloads them all on the next query or drain.
+ *
+ * The index follows committed rows: a status still pending in the write-behind log is matched
+ * once it is flushed. With an id beyond 2^32 - 1 the index turns itself off and label filters
+ * go to the database.
+ */
+@Service
+public class TaskLabelIndex {
+    private static final Logger logger = LoggerFactory.getLogger(TaskLabelIndex.class);
+    private static final String COLUMNS = "id, status, priority, labels";
+    private static final String LOAD = "SELECT " + COLUMNS + " FROM tasks WHERE id > :after ORDER BY id LIMIT :limit";
+    private static final String CHANGED = "SELECT " + COLUMNS + " FROM tasks WHERE id IN (:ids)";
+    private static final int CHANGED_CHUNK = 500;
+
+    private record Row(long id, Task.Status status, Task.Priority priority, Set<String> labels) {}
+
+    /** The bitmaps; replaced as a whole by a load. */
+    private static final class Bitmaps {
+        final IdBitmap all = new IdBitmap();
+        final Map<String, IdBitmap> byLabel = new HashMap<>();
+        final IdBitmap[] byStatus = bitmaps(Task.Status.values().length);
+        final IdBitmap[] byPriority = bitmaps(Task.Priority.values().length);
+
+        private static IdBitmap[] bitmaps(int count) {
+            IdBitmap[] bitmaps = new IdBitmap[count];
+            Arrays.setAll(bitmaps, index -> new IdBitmap());
+            return bitmaps;
+        }
+
+        void put(Row row) {
+            remove(row.id());
+            all.add(row.id());
+            if (row.status() != null) {
+                byStatus[row.status().ordinal()].add(row.id());
+            }
+            if (row.priority() != null) {
+                byPriority[row.priority().ordinal()].add(row.id());
+            }
+            for (String label : row.labels()) {
+                byLabel.computeIfAbsent(label, key -> new IdBitmap()).add(row.id());
+            }
+        }
+
+        void remove(long id) {
+            if (!all.contains(id)) {
+                return;
+            }
+            all.remove(id);
+            Arrays.stream(byStatus).forEach(bitmap -> bitmap.remove(id));
+            Arrays.stream(byPriority).forEach(bitmap -> bitmap.remove(id));
+            byLabel.values().removeIf(bitmap -> {
+                bitmap.remove(id);
+                return bitmap.isEmpty();
+            });
+        }
+
+        long bytes() {
+            long bytes = all.bytes();
+            for (IdBitmap bitmap : byStatus) {
+                bytes += bitmap.bytes();
+            }
+            for (IdBitmap bitmap : byPriority) {
+                bytes += bitmap.bytes();
+            }
+            for (Map.Entry<String, IdBitmap> label : byLabel.entrySet()) {
+                bytes += 48 + label.getKey().length() * 2L + label.getValue().bytes();
+            }
+            return bytes;
+        }
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ShardRouter shards;
+    private final boolean enabled;
+    private final int loadBatchSize;
+    private final int maxPendingChanges;
+    private final Counter loads;
+
+    private volatile Bitmaps bitmaps;
+    /** Set once an id did not fit; the index stays off until restarted. */
+    private volatile boolean outOfRange;
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    private volatile boolean reloadPending;
+    /** Loads and drains. */
+    private final ReentrantLock maintenance = new ReentrantLock();
+    /** Queries read the bitmaps, drains change them. */
+    private final ReentrantReadWriteLock access = new ReentrantReadWriteLock();
+
+    @Autowired
+    public TaskLabelIndex(NamedParameterJdbcTemplate jdbcTemplate,
+                          CacheInvalidationBus invalidations,
+                          ShardRouter shards,
+                          MeterRegistry meterRegistry,
+                          @Value("${taskmanager.task-labels.index-enabled:true}") boolean enabled,
+                          @Value("${taskmanager.task-labels.load-batch-size:10000}") int loadBatchSize,
+                          @Value("${taskmanager.task-labels.max-pending-changes:20000}") int maxPendingChanges) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.enabled = enabled;
+        this.loadBatchSize = loadBatchSize;
+        this.maxPendingChanges = maxPendingChanges;
+        this.loads = meterRegistry.counter("taskmanager.task_labels.loads");
+        Gauge.builder("taskmanager.task_labels.labels", this, index -> held(held -> (long) held.byLabel.size()))
+                .register(meterRegistry);
+        Gauge.builder("taskmanager.task_labels.bytes", this, index -> held(Bitmaps::bytes))
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        invalidations.subscribe(Invalidation.Type.TASK, this::invalidated);
+    }
+
+    /** Builds the bitmaps before the first query needs them. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            current();
+        } catch (DataAccessException e) {
+            logger.warn("Could not load the task label index, the first label query will: {}", e.toString());
+        }
+    }
+
+    /**
+     * The ids of the hot tasks matching the label, status and priority filters, or empty if the
+     * index is off; the other filters are left to the caller. The bitmap is the caller's own.
+     */
+    Optional<IdBitmap> matching(TaskFilterDTO filter) {
+        if (!enabled || outOfRange) {
+            return Optional.empty();
+        }
+        Bitmaps held = current();
+        if (held == null) {
+            return Optional.empty();
+        }
+        access.readLock().lock();
+        try {
+            IdBitmap result = held.all;
+            if (filter.getLabels() != null) {
+                for (String label : filter.getLabels()) {
+                    result = result.and(label(held, label));
+                }
+            }
+            if (filter.getAnyLabels() != null) {
+                result = result.and(IdBitmap.orAll(Arrays.stream(filter.getAnyLabels())
+                        .map(label -> label(held, label))
+                        .toList()));
+            }
+            if (filter.getNotLabels() != null) {
+                for (String label : filter.getNotLabels()) {
+                    result = result.andNot(label(held, label));
+                }
+            }
+            List<Task.Status> statuses = TaskSpecifications.present(filter.getStatus());
+            if (!statuses.isEmpty()) {
+                result = result.and(IdBitmap.orAll(statuses.stream()
+                        .map(status -> held.byStatus[status.ordinal()])
+                        .toList()));
+            }
+            List<Task.Priority> priorities = TaskSpecifications.present(filter.getPriority());
+            if (!priorities.isEmpty()) {
+                result = result.and(IdBitmap.orAll(priorities.stream()
+                        .map(priority -> held.byPriority[priority.ordinal()])
+                        .toList()));
+            }
+            // The operations return new bitmaps; only an unfiltered result is still the index's own
+            return Optional.of(result == held.all ? result.or(new IdBitmap()) : result);
+        } finally {
+            access.readLock().unlock();
+        }
+    }
+
+    /** The number of hot tasks per label, by label. */
+    public Map<String, Long> labelCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        if (!enabled || outOfRange) {
+            return counts;
+        }
+        Bitmaps held = current();
+        if (held == null) {
+            return counts;
+        }
+        access.readLock().lock();
+        try {
+            held.byLabel.forEach((label, bitmap) -> counts.put(label, bitmap.cardinality()));
+            return counts;
+        } finally {
+            access.readLock().unlock();
+        }
+    }
+
+    private static IdBitmap label(Bitmaps held, String label) {
+        IdBitmap bitmap = held.byLabel.get(label);
+        return bitmap != null ? bitmap : new IdBitmap();
+    }
+
+    private Bitmaps current() {
+        if (reloadPending || !changed.isEmpty()) {
+            drain();
+        }
+        Bitmaps held = bitmaps;
+        return held != null ? held : load();
+    }
+
+    private long held(Function<Bitmaps, Long> measure) {
+        Bitmaps held = bitmaps;
+        if (held == null) {
+            return 0;
+        }
+        access.readLock().lock();
+        try {
+            return measure.apply(held);
+        } finally {
+            access.readLock().unlock();
+        }
+    }
+
+    private void invalidated(Invalidation invalidation) {
+        // Nothing held and nothing being loaded (whose query may have missed this write)
+        if (bitmaps == null && !maintenance.isLocked()) {
+            return;
+        }
+        if (invalidation.isAll() || changed.size() >= maxPendingChanges) {
+            reloadPending = true;
+            return;
+        }
+        changed.add(invalidation.id());
+    }
+
+    /** Applies the queued task changes to the bitmaps, or reloads them if that was asked for. */
+    @Scheduled(fixedDelayString = "${taskmanager.task-labels.drain-interval-ms:500}")
+    public void drain() {
+        if (!reloadPending && changed.isEmpty()) {
+            return;
+        }
+        maintenance.lock();
+        try {
+            if (reloadPending) {
+                reloadPending = false;
+                bitmaps = null;
+                changed.clear();
+                load();
+                return;
+            }
+            Bitmaps held = bitmaps;
+            List<Long> ids = new ArrayList<>(changed);
+            changed.removeAll(ids);
+            if (held == null) {
+                return;
+            }
+            for (int from = 0; from < ids.size(); from += CHANGED_CHUNK) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + CHANGED_CHUNK));
+                Map<Long, Row> rows = new HashMap<>();
+                shards.scatter(shard -> jdbcTemplate.query(CHANGED, Map.of("ids", chunk), (row, index) -> toRow(row)))
+                        .forEach(found -> found.forEach(row -> rows.put(row.id(), row)));
+                Optional<Long> outOfRangeId = rows.keySet().stream().filter(id -> !IdBitmap.fits(id)).findFirst();
+                if (outOfRangeId.isPresent()) {
+                    turnOff(outOfRangeId.get());
+                    return;
+                }
+                access.writeLock().lock();
+                try {
+                    for (Long id : chunk) {
+                        Row row = rows.get(id);
+                        if (row != null) {
+                            held.put(row);
+                        } else {
+                            held.remove(id);
+                        }
+                    }
+                } finally {
+                    access.writeLock().unlock();
+                }
+            }
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    /** Reads every shard's tasks in id order, in batches of load-batch-size. */
+    private Bitmaps load() {
+        maintenance.lock();
+        try {
+            // Another query may have loaded them meanwhile
+            if (bitmaps != null || outOfRange) {
+                return bitmaps;
+            }
+            Bitmaps loaded = new Bitmaps();
+            AtomicReference<Long> outOfRangeId = new AtomicReference<>();
+            shards.scatter(shard -> {
+                long after = Long.MIN_VALUE;
+                while (outOfRangeId.get() == null) {
+                    List<Row> rows = jdbcTemplate.query(LOAD, Map.of("after", after, "limit", loadBatchSize),
+                            (row, index) -> toRow(row));
+                    synchronized (loaded) {
+                        for (Row row : rows) {
+                            if (!IdBitmap.fits(row.id())) {
+                                outOfRangeId.set(row.id());
+                                return null;
+                            }
+                            loaded.put(row);
+                        }
+                    }
+                    if (rows.size() < loadBatchSize) {
+                        return null;
+                    }
+                    after = rows.get(rows.size() - 1).id();
+                }
+                return null;
+            });
+            if (outOfRangeId.get() != null) {
+                turnOff(outOfRangeId.get());
+                return null;
+            }
+            bitmaps = loaded;
+            loads.increment();
+            return loaded;
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    private void turnOff(long id) {
+        outOfRange = true;
+        bitmaps = null;
+        changed.clear();
+        logger.warn("Task label index turned off: task id {} does not fit; label filters go to the database", id);
+    }
+
+    private static Row toRow(ResultSet row) throws SQLException {
+        String status = row.getString("status");
+        String priority = row.getString("priority");
+        return new Row(
+                row.getLong("id"),
+                status != null ? Task.Status.valueOf(status) : null,
+                priority != null ? Task.Priority.valueOf(priority) : null,
+                TaskLabels.parse(row.getString("labels")));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.entities.TaskLabels;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+
+/** Reads tasks rows straight into {@link TaskDTO}s, for read paths that need no entities. */
+final class TaskRows {
+    /** The columns {@link #toDTO} reads. */
+    static final String COLUMNS = "id, title, description, status, priority, due_date, creator_id, assignee_id, project_id, labels";
+
+    private TaskRows() {
+    }
+
+    static TaskDTO toDTO(ResultSet row) throws SQLException {
+        Timestamp dueDate = row.getTimestamp("due_date");
+        TaskDTO task = new TaskDTO(
+                row.getLong("id"),
+                row.getString("title"),
+                row.getString("description"),
+                row.getString("status"),
+                row.getString("priority"),
+                dueDate != null ? dueDate.toLocalDateTime() : null,
+                row.getLong("creator_id"),
+                row.getObject("assignee_id", Long.class),
+                row.getObject("project_id", Long.class));
+        task.setLabels(List.copyOf(TaskLabels.parse(row.getString("labels"))));
+        return task;
+    }
+}
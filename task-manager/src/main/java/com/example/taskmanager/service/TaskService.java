@@ -1,106 +1,425 @@
 package com.example.taskmanager.service;
 
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
 import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.dto.TaskListResult;
+import com.example.taskmanager.entities.ArchivedTask;
 import com.example.taskmanager.entities.Task;
 import com.example.taskmanager.entities.User;
 import com.example.taskmanager.entities.Project;
+import com.example.taskmanager.repository.ArchivedTaskRepository;
 import com.example.taskmanager.repository.TaskRepository;
+import com.example.taskmanager.repository.TaskSpecifications;
 import com.example.taskmanager.repository.UserRepository;
 import com.example.taskmanager.repository.ProjectRepository;
+import com.example.taskmanager.sharding.ShardRouter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
 
+/**
+ * With sharding ({@link ShardRouter}) a task lives on the shard of its project: listings of one
+ * project and writes run there, other listings are merged from every shard.
+ */
 @Service
 @Transactional
 public class TaskService {
+    private static final Comparator<Task> BY_ID = Comparator.comparing(Task::getId);
+    /** Label index candidates checked against the database per query. */
+    private static final int CANDIDATE_CHUNK = 1000;
+    /** Beyond this many candidates, counting them in chunks costs more than filtering in the database. */
+    private static final long MAX_COUNTED_CANDIDATES = 50_000;
+
+    /** A shard's first tasks and count, with the tasks moved onto it whose source rows may still be counted. */
+    private record ShardPage(List<Task> tasks, long total, Map<Integer, List<Long>> moved) {}
+
     private final TaskRepository taskRepository;
     private final UserRepository userRepository;
     private final ProjectRepository projectRepository;
+    private final TaskCountCache taskCountCache;
+    private final RequestCoalescer requestCoalescer;
+    private final TaskStatusWriteBehind statusWriteBehind;
+    private final ArchivedTaskRepository archivedTaskRepository;
+    private final TaskArchiver taskArchiver;
+    private final ProjectStatsService projectStats;
+    private final DueDateScheduler dueDates;
+    private final TaskHistoryService history;
+    private final CacheInvalidationBus invalidations;
+    private final ShardRouter shards;
+    private final TaskLabelIndex labelIndex;
+    private final SavedFilterService savedFilters;
 
     @Autowired
     public TaskService(TaskRepository taskRepository, 
                       UserRepository userRepository,
-                      ProjectRepository projectRepository) {
+                      ProjectRepository projectRepository,
+                      TaskCountCache taskCountCache,
+                      RequestCoalescer requestCoalescer,
+                      TaskStatusWriteBehind statusWriteBehind,
+                      ArchivedTaskRepository archivedTaskRepository,
+                      TaskArchiver taskArchiver,
+                      ProjectStatsService projectStats,
+                      DueDateScheduler dueDates,
+                      TaskHistoryService history,
+                      CacheInvalidationBus invalidations,
+                      ShardRouter shards,
+                      TaskLabelIndex labelIndex,
+                      SavedFilterService savedFilters) {
         this.taskRepository = taskRepository;
         this.userRepository = userRepository;
         this.projectRepository = projectRepository;
+        this.taskCountCache = taskCountCache;
+        this.requestCoalescer = requestCoalescer;
+        this.statusWriteBehind = statusWriteBehind;
+        this.archivedTaskRepository = archivedTaskRepository;
+        this.taskArchiver = taskArchiver;
+        this.projectStats = projectStats;
+        this.dueDates = dueDates;
+        this.history = history;
+        this.invalidations = invalidations;
+        this.shards = shards;
+        this.labelIndex = labelIndex;
+        this.savedFilters = savedFilters;
     }
 
+    /**
+     * Identical concurrent listings share one query; the returned tasks may be shared
+     * between requests and must not be modified.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Page<Task> getTasksWithFilters(TaskFilterDTO filterDTO) {
-        // Handle search term
-        String searchTerm = filterDTO.getSearch() != null && !filterDTO.getSearch().isEmpty() ? 
-            filterDTO.getSearch() : null;
-            
-        // Handle status list
-        List<String> statusList = null;
-        if (filterDTO.getStatus() != null && filterDTO.getStatus().length > 0) {
-            statusList = Arrays.stream(filterDTO.getStatus())
-                .filter(Objects::nonNull)
-                .map(Enum::name)
-                .toList();
-            if (statusList.isEmpty()) {
-                statusList = null;
+        PageRequest pageRequest = pageRequest(filterDTO);
+        String key = filterDTO.filterKey() + "|" + pageRequest.getPageNumber() + "|" + pageRequest.getPageSize();
+        Page<Task> page = requestCoalescer.execute("tasks.filter", key,
+            () -> findPage(filterDTO, pageRequest));
+        return statusWriteBehind.hasPending() ? page.map(this::withPendingStatus) : page;
+    }
+
+    /**
+     * Without a project the page is cut from the merge of the first offset + size tasks of
+     * every shard, and the total is the sum of the shards' counts less the tasks counted on two
+     * of them ({@link #countedTwice}).
+     */
+    private Page<Task> findPage(TaskFilterDTO filterDTO, PageRequest pageRequest) {
+        Specification<Task> specification = TaskSpecifications.matching(filterDTO);
+        if (!scattered(filterDTO)) {
+            return shards.readOnProject(filterDTO.getProjectId(), () -> taskRepository.findAll(specification, pageRequest));
+        }
+        int limit = limit(pageRequest, 0);
+        List<ShardPage> pages = shards.scatter(shard -> new ShardPage(firstTasks(specification, limit),
+            taskRepository.count(specification), shards.unsettledMoves("tasks")));
+        List<Task> merged = ShardRouter.mergeSorted(pages.stream().map(ShardPage::tasks).toList(), BY_ID, limit);
+        return new PageImpl<>(cut(merged, pageRequest), pageRequest, total(specification, pages));
+    }
+
+    /** The tasks matching on the shard of the filtered project, or on every shard, each counted once. */
+    private long countTasks(TaskFilterDTO filterDTO, Specification<Task> specification) {
+        if (!scattered(filterDTO)) {
+            return readShards(filterDTO, shard -> taskRepository.count(specification)).get(0);
+        }
+        return total(specification, shards.scatter(shard ->
+            new ShardPage(List.of(), taskRepository.count(specification), shards.unsettledMoves("tasks"))));
+    }
+
+    private long total(Specification<Task> specification, List<ShardPage> pages) {
+        return pages.stream().mapToLong(ShardPage::total).sum()
+            - countedTwice(specification, pages.stream().map(ShardPage::moved).toList());
+    }
+
+    /**
+     * How many matching tasks the shards' counts hold twice. A task moving between shards is on
+     * both until its move settles ({@link ShardRouter#moveRow}): its copy, counted on the target,
+     * is there with a shard_moves marker, and it is counted again if the source still has it.
+     * The copy differs only in its project, which a listing over every shard does not filter on.
+     * The sources are counted after the targets, so a move that ends in between is still
+     * counted twice; a total can be one too high for each move running during the read.
+     */
+    private long countedTwice(Specification<Task> specification, List<Map<Integer, List<Long>>> moves) {
+        Map<Integer, List<Long>> bySource = new HashMap<>();
+        moves.forEach(moved -> moved.forEach((source, ids) ->
+            bySource.computeIfAbsent(source, key -> new ArrayList<>()).addAll(ids)));
+        if (bySource.isEmpty()) {
+            return 0;
+        }
+        return shards.scatter(shard -> {
+            List<Long> ids = bySource.getOrDefault(shard, List.of());
+            return ids.isEmpty() ? 0L : taskRepository.count(specification.and(TaskSpecifications.idIn(ids)));
+        }).stream().mapToLong(Long::longValue).sum();
+    }
+
+    /** Like {@link #findPage} without the count; one more task is merged to see whether there is a next slice. */
+    private Slice<Task> findSlice(TaskFilterDTO filterDTO, Specification<Task> specification, PageRequest pageRequest) {
+        if (!scattered(filterDTO)) {
+            return shards.readOnProject(filterDTO.getProjectId(), () -> taskRepository.findSlice(specification, pageRequest));
+        }
+        int limit = limit(pageRequest, 1);
+        List<Task> merged = ShardRouter.mergeSorted(shards.scatter(shard -> firstTasks(specification, limit)), BY_ID, limit);
+        return new SliceImpl<>(cut(merged, pageRequest), pageRequest, merged.size() == limit);
+    }
+
+    private List<Task> firstTasks(Specification<Task> specification, int limit) {
+        return taskRepository.findBy(specification, query -> query.sortBy(Sort.by("id")).limit(limit).all());
+    }
+
+    /** Whether a listing has to read every shard, that is, it is not limited to one project. */
+    private boolean scattered(TaskFilterDTO filterDTO) {
+        return shards.isSharded() && filterDTO.getProjectId() == null;
+    }
+
+    /** Runs a read on the shard of the filtered project, or on every shard if it names none. */
+    private <T> List<T> readShards(TaskFilterDTO filterDTO, IntFunction<T> read) {
+        if (scattered(filterDTO)) {
+            return shards.scatter(read);
+        }
+        int shard = shards.shardOf(filterDTO.getProjectId());
+        return Collections.singletonList(shards.readOnShard(shard, () -> read.apply(shard)));
+    }
+
+    private static int limit(PageRequest pageRequest, int lookahead) {
+        return (int) Math.min(Integer.MAX_VALUE - 1, pageRequest.getOffset() + pageRequest.getPageSize()) + lookahead;
+    }
+
+    private static List<Task> cut(List<Task> merged, PageRequest pageRequest) {
+        int from = (int) Math.min(merged.size(), pageRequest.getOffset());
+        int to = (int) Math.min(merged.size(), pageRequest.getOffset() + pageRequest.getPageSize());
+        return merged.subList(from, to);
+    }
+
+    /**
+     * Filtered listing honouring the total mode of the filter: an exact COUNT (default),
+     * no total at all ({@code withTotal=false}), or a cached estimate ({@code estimateTotal=true}).
+     * The last two fetch size + 1 rows instead of counting to find out whether there is a next page.
+     * Only the hot tier is read unless {@code includeArchived=true}. Label filters on the hot
+     * tier are narrowed down by the {@link TaskLabelIndex} first, and totals are then exact.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public TaskListResult listTasks(TaskFilterDTO filterDTO) {
+        boolean withTotal = !Boolean.FALSE.equals(filterDTO.getWithTotal());
+        boolean estimateTotal = Boolean.TRUE.equals(filterDTO.getEstimateTotal());
+        if (Boolean.TRUE.equals(filterDTO.getIncludeArchived())) {
+            return listBothTiers(filterDTO, withTotal, estimateTotal);
+        }
+        if (filterDTO.hasLabelFilters()) {
+            Optional<IdBitmap> candidates = labelIndex.matching(filterDTO);
+            if (candidates.isPresent() && (!filterDTO.hasNonIndexedFilters() || !withTotal
+                    || candidates.get().cardinality() <= MAX_COUNTED_CANDIDATES)) {
+                return listCandidates(filterDTO, candidates.get(), withTotal);
             }
         }
-        
-        // Handle priority list
-        List<String> priorityList = null;
-        if (filterDTO.getPriority() != null && filterDTO.getPriority().length > 0) {
-            priorityList = Arrays.stream(filterDTO.getPriority())
-                .filter(Objects::nonNull)
-                .map(Enum::name)
-                .toList();
-            if (priorityList.isEmpty()) {
-                priorityList = null;
+        if (withTotal && !estimateTotal) {
+            Page<Task> page = getTasksWithFilters(filterDTO);
+            return new TaskListResult(page.getContent(), page.getNumber(), page.getSize(),
+                    page.hasNext(), page.getTotalElements(), true);
+        }
+
+        Specification<Task> specification = TaskSpecifications.matching(filterDTO);
+        Slice<Task> slice = findSlice(filterDTO, specification, pageRequest(filterDTO));
+        if (statusWriteBehind.hasPending()) {
+            slice = slice.map(this::withPendingStatus);
+        }
+        if (!withTotal) {
+            return new TaskListResult(slice.getContent(), slice.getNumber(), slice.getSize(),
+                    slice.hasNext(), null, false);
+        }
+        TaskCountCache.Estimate estimate = taskCountCache.estimate(filterDTO.filterKey(),
+            () -> countTasks(filterDTO, specification));
+        // The rows on this page are exact even when the cached total is behind
+        long seen = (long) slice.getNumber() * slice.getSize() + slice.getNumberOfElements();
+        long total = slice.hasNext() ? Math.max(estimate.count(), seen + 1) : seen;
+        return new TaskListResult(slice.getContent(), slice.getNumber(), slice.getSize(),
+                slice.hasNext(), total, estimate.exact() || !slice.hasNext());
+    }
+
+    /**
+     * A listing narrowed down by the label index, whose candidate ids come in id order. Without
+     * other filters the candidates are the answer, and only the page's ids are fetched; with
+     * them the candidates are checked against the database a chunk at a time until the page is
+     * full (and, for the total, counted to the end). The database checks every filter again,
+     * so a task the index has not caught up with yet is left out rather than listed wrongly.
+     */
+    private TaskListResult listCandidates(TaskFilterDTO filterDTO, IdBitmap candidates, boolean withTotal) {
+        PageRequest pageRequest = pageRequest(filterDTO);
+        Specification<Task> specification = TaskSpecifications.matching(filterDTO);
+        long cardinality = candidates.cardinality();
+        List<Task> content;
+        boolean hasNext;
+        long total;
+        if (!filterDTO.hasNonIndexedFilters()) {
+            content = fetchCandidates(filterDTO, specification,
+                    candidates.range(pageRequest.getOffset(), pageRequest.getPageSize()));
+            hasNext = pageRequest.getOffset() + pageRequest.getPageSize() < cardinality;
+            total = cardinality;
+        } else {
+            int limit = limit(pageRequest, 1);
+            List<Task> found = new ArrayList<>();
+            total = 0;
+            for (long from = 0; from < cardinality && (found.size() < limit || withTotal); from += CANDIDATE_CHUNK) {
+                long[] ids = candidates.range(from, CANDIDATE_CHUNK);
+                if (found.size() < limit) {
+                    List<Task> matched = fetchCandidates(filterDTO, specification, ids);
+                    found.addAll(matched);
+                    total += matched.size();
+                } else {
+                    total += countTasks(filterDTO, withIds(specification, ids));
+                }
             }
+            content = cut(found, pageRequest);
+            hasNext = found.size() > pageRequest.getOffset() + pageRequest.getPageSize();
         }
-        
-        // Handle assignee and project IDs
-        Long assigneeId = filterDTO.getAssigneeId();
-        Long projectId = filterDTO.getProjectId();
-        
-        // Handle date ranges
-        LocalDate dueDateFrom = filterDTO.getDueDateFrom();
-        LocalDate dueDateTo = filterDTO.getDueDateTo();
-        
-        // Create page request
+        if (statusWriteBehind.hasPending()) {
+            content = content.stream().map(this::withPendingStatus).toList();
+        }
+        return new TaskListResult(content, pageRequest.getPageNumber(), pageRequest.getPageSize(), hasNext,
+                withTotal ? total : null, withTotal);
+    }
+
+    /**
+     * The tasks with the given ids, in id order, with pending write-behind statuses; ids that
+     * are no longer hot tasks are skipped. One query per shard, e.g. to open a saved filter.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<Task> getTasksByIds(long[] ids) {
+        TaskFilterDTO all = new TaskFilterDTO();
+        List<Task> tasks = fetchCandidates(all, TaskSpecifications.matching(all), ids);
+        return statusWriteBehind.hasPending() ? tasks.stream().map(this::withPendingStatus).toList() : tasks;
+    }
+
+    /** The tasks among the ids that match the specification, in id order. */
+    private List<Task> fetchCandidates(TaskFilterDTO filterDTO, Specification<Task> specification, long[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        Specification<Task> candidates = withIds(specification, ids);
+        return ShardRouter.mergeSorted(readShards(filterDTO, shard -> taskRepository.findAll(candidates, Sort.by("id"))),
+                BY_ID, ids.length);
+    }
+
+    private static Specification<Task> withIds(Specification<Task> specification, long[] ids) {
+        return specification.and(TaskSpecifications.idIn(Arrays.stream(ids).boxed().toList()));
+    }
+
+    /**
+     * Both tiers are ordered by id and ids are unique across them, so the page is cut from
+     * the merge of the first offset + size + 1 rows of each. Fine for the shallow pages this
+     * is used for; deep pages into the archive grow linearly. With sharding each shard
+     * contributes its merged tiers.
+     */
+    private TaskListResult listBothTiers(TaskFilterDTO filterDTO, boolean withTotal, boolean estimateTotal) {
+        PageRequest pageRequest = pageRequest(filterDTO);
+        int limit = limit(pageRequest, 1);
+        Specification<Task> hotSpecification = TaskSpecifications.matching(filterDTO);
+        Specification<ArchivedTask> archivedSpecification = TaskSpecifications.archivedMatching(filterDTO);
+
+        List<List<Task>> tiers = readShards(filterDTO, shard -> {
+            List<Task> hot = taskRepository.findBy(hotSpecification, query -> query.sortBy(pageRequest.getSort()).limit(limit).all());
+            List<ArchivedTask> archived = archivedTaskRepository.findBy(archivedSpecification,
+                query -> query.sortBy(pageRequest.getSort()).limit(limit).all());
+            return Stream.concat(hot.stream(), archived.stream().map(ArchivedTask::toTask)).sorted(BY_ID).toList();
+        });
+        List<Task> merged = ShardRouter.mergeSorted(tiers, BY_ID, limit);
+
+        int from = (int) Math.min(merged.size(), pageRequest.getOffset());
+        int to = (int) Math.min(merged.size(), pageRequest.getOffset() + pageRequest.getPageSize());
+        List<Task> content = merged.subList(from, to).stream().map(this::withPendingStatus).toList();
+        boolean hasNext = merged.size() > to;
+        if (!withTotal) {
+            return new TaskListResult(content, pageRequest.getPageNumber(), pageRequest.getPageSize(), hasNext, null, false);
+        }
+
+        LongSupplier counter = () -> readShards(filterDTO,
+            shard -> taskRepository.count(hotSpecification) + archivedTaskRepository.count(archivedSpecification))
+            .stream().mapToLong(Long::longValue).sum();
+        if (!estimateTotal) {
+            return new TaskListResult(content, pageRequest.getPageNumber(), pageRequest.getPageSize(), hasNext,
+                counter.getAsLong(), true);
+        }
+        TaskCountCache.Estimate estimate = taskCountCache.estimate("archived|" + filterDTO.filterKey(), counter);
+        long seen = from + content.size();
+        long total = hasNext ? Math.max(estimate.count(), seen + 1) : seen;
+        return new TaskListResult(content, pageRequest.getPageNumber(), pageRequest.getPageSize(), hasNext,
+            total, estimate.exact() || !hasNext);
+    }
+
+    /** Moves an archived task back to the hot tier and returns it. */
+    public Task restoreTask(Long id) {
+        taskArchiver.restoreTask(id);
+        invalidations.invalidate(Invalidation.Type.TASK, id);
+        return findTask(id)
+            .orElseThrow(() -> new RuntimeException("Task not found with id: " + id));
+    }
+
+    private static PageRequest pageRequest(TaskFilterDTO filterDTO) {
         int page = filterDTO.getPage() != null ? filterDTO.getPage() : 0;
         int size = filterDTO.getSize() != null ? filterDTO.getSize() : 10;
-        PageRequest pageRequest = PageRequest.of(page, size);
-        
-        // Call repository with proper null handling
-        return taskRepository.findWithFilters(
-            searchTerm,
-            statusList,
-            priorityList,
-            assigneeId,
-            projectId,
-            dueDateFrom,
-            dueDateTo,
-            pageRequest
-        );
+        return PageRequest.of(page, size, Sort.by("id"));
     }
     
     @Deprecated
     public List<Task> getAllTasks() {
-        return taskRepository.findAll();
+        return shards.scatter(shard -> taskRepository.findAll()).stream().flatMap(List::stream).toList();
     }
 
+    /**
+     * Identical concurrent lookups share one query; the returned task may be shared between
+     * requests and must not be modified. Associations are left as proxies, only their ids are read.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<Task> getTaskById(Long id) {
-        return taskRepository.findById(id);
+        return requestCoalescer.execute("tasks.byId", id, () -> findTask(id))
+            .map(this::withPendingStatus);
+    }
+
+    private Optional<Task> findTask(Long id) {
+        if (!shards.isSharded()) {
+            return taskRepository.findById(id);
+        }
+        return shards.scatter(shard -> taskRepository.findById(id)).stream().flatMap(Optional::stream).findFirst();
+    }
+
+    /** The shard holding a task, found by asking all of them; the home shard if none has it. */
+    private int shardOfTask(Long id) {
+        return shards.shardWhere(shard -> taskRepository.existsById(id));
+    }
+
+    /**
+     * A task with its not yet flushed write-behind status applied. Returns a detached copy,
+     * so the managed (and possibly shared) entity is never modified.
+     */
+    private Task withPendingStatus(Task task) {
+        return statusWriteBehind.pendingStatus(task.getId())
+            .map(status -> new Task(task.getId(), task.getTitle(), task.getDescription(), status,
+                task.getPriority(), task.getDueDate(), task.getProject(), task.getCreator(), null, task.getUpdatedAt(),
+                task.getLabels()))
+            .orElse(task);
     }
 
     @Transactional
     public Task createTask(Task task, Long projectId, Long creatorId, Long assigneeId) {
+        return shards.onProject(projectId, () -> insertTask(task, projectId, creatorId, assigneeId));
+    }
+
+    private Task insertTask(Task task, Long projectId, Long creatorId, Long assigneeId) {
         // Set creator
         User creator = userRepository.findById(creatorId)
             .orElseThrow(() -> new RuntimeException("Creator not found with id: " + creatorId));
@@ -120,13 +439,55 @@ public class TaskService {
             task.setProject(project);
         }
         
-        return taskRepository.save(task);
+        Task saved = taskRepository.save(task);
+        savedFilters.taskWritten(saved);
+        recordChange(saved.getId(), null, ProjectStatsService.TaskSnapshot.of(saved), assigneeIdOf(saved));
+        return saved;
     }
 
     @Transactional
     public Task updateTask(Long id, Task task, Long projectId, Long assigneeId) {
+        statusWriteBehind.flushIfPending(id);
+        int from = shardOfTask(id);
+        int to = shards.shardOf(projectId);
+        if (from == to) {
+            return shards.onShard(from, () -> {
+                ProjectStatsService.TaskSnapshot before = projectStats.lockTask(id);
+                return applyUpdate(id, task, projectId, assigneeId, before, before);
+            });
+        }
+
+        // The task follows its new project to another shard: the row is moved first, leaving
+        // the old project's stats on the old shard, and updated on arrival
+        if (projectId != null && !shards.readOnShard(to, () -> projectRepository.existsById(projectId))) {
+            throw new RuntimeException("Project not found with id: " + projectId);
+        }
+        ProjectStatsService.TaskSnapshot before = shards.onShard(from, () -> {
+            ProjectStatsService.TaskSnapshot locked = projectStats.lockTask(id);
+            if (locked == null) {
+                throw new RuntimeException("Task not found with id: " + id);
+            }
+            shards.moveRow("tasks", id, to, Collections.singletonMap("project_id", projectId));
+            projectStats.recordChange(locked, null);
+            history.record(id, locked, null, null);
+            return locked;
+        });
+        return shards.onShard(to, () -> {
+            projectStats.lockTask(id);
+            return applyUpdate(id, task, projectId, assigneeId, before, null);
+        });
+    }
+
+    /**
+     * Applies an update to a locked task. The stats see the change from {@code statsBefore},
+     * which is null when the task just arrived from another shard; the due dates see it from
+     * {@code before}.
+     */
+    private Task applyUpdate(Long id, Task task, Long projectId, Long assigneeId,
+                             ProjectStatsService.TaskSnapshot before, ProjectStatsService.TaskSnapshot statsBefore) {
         Task existingTask = taskRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Task not found with id: " + id));
+        Long previousAssigneeId = assigneeIdOf(existingTask);
         
         // Update basic fields
         existingTask.setTitle(task.getTitle());
@@ -134,6 +495,7 @@ public class TaskService {
         existingTask.setStatus(task.getStatus());
         existingTask.setPriority(task.getPriority());
         existingTask.setDueDate(task.getDueDate());
+        existingTask.setLabels(task.getLabels());
         
         // Update assignee if provided
         if (assigneeId != null) {
@@ -153,17 +515,59 @@ public class TaskService {
             existingTask.setProject(null);
         }
         
-        return taskRepository.save(existingTask);
+        Task saved = taskRepository.save(existingTask);
+        savedFilters.taskWritten(saved);
+        ProjectStatsService.TaskSnapshot after = ProjectStatsService.TaskSnapshot.of(saved);
+        projectStats.recordChange(statsBefore, after);
+        history.record(id, statsBefore, after, assigneeIdOf(saved) != null ? assigneeIdOf(saved) : previousAssigneeId);
+        dueDates.taskChanged(id, before, after);
+        invalidations.invalidate(Invalidation.Type.TASK, id);
+        return saved;
     }
 
     public void deleteTask(Long id) {
-        taskRepository.deleteById(id);
+        shards.onShard(shardOfTask(id), () -> {
+            ProjectStatsService.TaskSnapshot before = projectStats.lockTask(id);
+            taskRepository.deleteById(id);
+            savedFilters.taskDeleted(id);
+            if (before != null) {
+                recordChange(id, before, null, null);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Keeps the project stats, the status history, the due date scheduler and cached copies in
+     * step with a task write; the history credits it to {@code assigneeId}.
+     */
+    private void recordChange(Long id, ProjectStatsService.TaskSnapshot before, ProjectStatsService.TaskSnapshot after,
+                              Long assigneeId) {
+        projectStats.recordChange(before, after);
+        history.record(id, before, after, assigneeId);
+        dueDates.taskChanged(id, before, after);
+        invalidations.invalidate(Invalidation.Type.TASK, id);
     }
     
     @Transactional
     public Task partialUpdateTask(Long id, Task.Status status, Long assigneeId) {
+        return shards.onShard(shardOfTask(id), () -> applyPartialUpdate(id, status, assigneeId));
+    }
+
+    private Task applyPartialUpdate(Long id, Task.Status status, Long assigneeId) {
+        if (status != null && assigneeId == null && statusWriteBehind.isEnabled()) {
+            // Status-only update: acknowledged once logged, written with the next batch
+            Task existingTask = taskRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Task not found with id: " + id));
+            statusWriteBehind.append(id, status);
+            return withPendingStatus(existingTask);
+        }
+        statusWriteBehind.flushIfPending(id);
+        ProjectStatsService.TaskSnapshot before = projectStats.lockTask(id);
+
         Task existingTask = taskRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Task not found with id: " + id));
+        Long previousAssigneeId = assigneeIdOf(existingTask);
             
         // Update status if provided
         if (status != null) {
@@ -180,6 +584,14 @@ public class TaskService {
             existingTask.setAssignee(null);
         }
         
-        return taskRepository.save(existingTask);
+        Task saved = taskRepository.save(existingTask);
+        savedFilters.taskWritten(saved);
+        recordChange(id, before, ProjectStatsService.TaskSnapshot.of(saved),
+                assigneeIdOf(saved) != null ? assigneeIdOf(saved) : previousAssigneeId);
+        return saved;
+    }
+
+    private static Long assigneeIdOf(Task task) {
+        return task.getAssignee() != null ? task.getAssignee().getId() : null;
     }
 }
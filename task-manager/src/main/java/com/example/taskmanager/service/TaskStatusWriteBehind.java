@@ -0,0 +1,357 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Opt-in write-behind for status-only task updates ({@code taskmanager.tasks.write-behind.enabled}).
+ *
+ * An update is acknowledged once it is appended (and fsynced) to a local log; repeated updates
+ * of a task are merged in memory and written on a short interval as one batched UPDATE.
+ * The effect matches {@link TaskService#partialUpdateTask} without an assignee: the status is
+ * set and the assignee cleared.
+ *
+ * The log is a sequence of segments of CRC-checked records. A flush seals the current segment,
+ * writes every pending update whose record lies in a sealed segment, and deletes the sealed
+ * segments once that has committed. On startup the remaining segments are replayed (stopping at
+ * the first torn record of each) and flushed, so acknowledged updates survive a crash.
+ *
+ * Reads overlay pending statuses ({@link #pendingStatus}); filter predicates still see the
+ * stored status until the next flush. Other writes to a task flush its pending update first.
+ */
+@Component
+public class TaskStatusWriteBehind {
+    private static final Logger logger = LoggerFactory.getLogger(TaskStatusWriteBehind.class);
+    private static final String SEGMENT_PREFIX = "status-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String UPDATE_SQL = "UPDATE tasks SET status = ?, assignee_id = NULL, updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+
+    private record Pending(Task.Status status, long sequence) {}
+
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate flushTransaction;
+    private final ProjectStatsService projectStats;
+    private final DueDateScheduler dueDates;
+    private final TaskHistoryService history;
+    private final CacheInvalidationBus invalidations;
+    private final ShardRouter shards;
+    private final boolean enabled;
+    private final Path logDirectory;
+    private final int maxBatchSize;
+    private final boolean fsync;
+    private final Counter appended;
+    private final Counter merged;
+    private final Counter flushed;
+
+    private FileChannel segment;
+    private long segmentNumber;
+    private long nextSequence;
+
+    @Autowired
+    public TaskStatusWriteBehind(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 ProjectStatsService projectStats,
+                                 DueDateScheduler dueDates,
+                                 TaskHistoryService history,
+                                 CacheInvalidationBus invalidations,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${taskmanager.tasks.write-behind.enabled:false}") boolean enabled,
+                                 @Value("${taskmanager.tasks.write-behind.log-dir:data/status-log}") Path logDirectory,
+                                 @Value("${taskmanager.tasks.write-behind.max-batch-size:500}") int maxBatchSize,
+                                 @Value("${taskmanager.tasks.write-behind.fsync:true}") boolean fsync,
+                                 ShardRouter shards) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushTransaction = new TransactionTemplate(transactionManager);
+        this.flushTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.projectStats = projectStats;
+        this.dueDates = dueDates;
+        this.history = history;
+        this.invalidations = invalidations;
+        this.shards = shards;
+        this.enabled = enabled;
+        this.logDirectory = logDirectory;
+        this.maxBatchSize = maxBatchSize;
+        this.fsync = fsync;
+        this.appended = meterRegistry.counter("taskmanager.write_behind.updates", "result", "appended");
+        this.merged = meterRegistry.counter("taskmanager.write_behind.updates", "result", "merged");
+        this.flushed = meterRegistry.counter("taskmanager.write_behind.updates", "result", "flushed");
+        Gauge.builder("taskmanager.write_behind.pending", pending, Map::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Replays what a previous run left in the log, then opens a fresh segment. */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(logDirectory);
+            for (Path path : segments()) {
+                replay(path);
+                segmentNumber = Math.max(segmentNumber, segmentNumber(path));
+            }
+            if (!pending.isEmpty()) {
+                logger.info("Recovered {} pending task status updates from {}", pending.size(), logDirectory);
+            }
+            openNextSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open write-behind log in " + logDirectory, e);
+        }
+        flush();
+    }
+
+    /** Durably records a status update; returns once it is in the log. */
+    public void append(Long taskId, Task.Status status) {
+        appendLock.lock();
+        try {
+            long sequence = nextSequence++;
+            write(encode(sequence, taskId, status));
+            if (pending.put(taskId, new Pending(status, sequence)) != null) {
+                merged.increment();
+            }
+            appended.increment();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to append status update for task " + taskId, e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public Optional<Task.Status> pendingStatus(Long taskId) {
+        Pending update = taskId != null ? pending.get(taskId) : null;
+        return update != null ? Optional.of(update.status()) : Optional.empty();
+    }
+
+    /** The pending statuses by task id, as of now. */
+    public Map<Long, Task.Status> pendingStatuses() {
+        Map<Long, Task.Status> statuses = new HashMap<>();
+        pending.forEach((taskId, update) -> statuses.put(taskId, update.status()));
+        return statuses;
+    }
+
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /** Writes the task's pending update (with everything else pending) before another write to it. */
+    public void flushIfPending(Long taskId) {
+        if (taskId != null && pending.containsKey(taskId)) {
+            flush();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${taskmanager.tasks.write-behind.flush-interval-ms:200}")
+    public void flush() {
+        if (!enabled || pending.isEmpty()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            List<Path> sealed;
+            long sealedBelow;
+            appendLock.lock();
+            try {
+                sealedBelow = nextSequence;
+                openNextSegment();
+                sealed = segments();
+                sealed.remove(sealed.size() - 1);
+            } finally {
+                appendLock.unlock();
+            }
+
+            // Only updates whose records are in sealed segments: a newer record of the same
+            // task lives in the open segment and is left for the next flush
+            List<Map.Entry<Long, Pending>> batch = new ArrayList<>();
+            pending.forEach((taskId, update) -> {
+                if (update.sequence() < sealedBelow) {
+                    batch.add(Map.entry(taskId, update));
+                }
+            });
+            // In id order, like every other writer that locks several task rows
+            batch.sort(Map.Entry.comparingByKey());
+            // The log does not know the shards of its tasks; each shard's transaction only
+            // finds, and so only updates, its own
+            shards.forEachShard(shard -> flushTransaction.executeWithoutResult(status -> {
+                for (int from = 0; from < batch.size(); from += maxBatchSize) {
+                    List<Map.Entry<Long, Pending>> chunk = batch.subList(from, Math.min(batch.size(), from + maxBatchSize));
+                    Map<Long, ProjectStatsService.TaskSnapshot> before =
+                            projectStats.lockTasks(chunk.stream().map(Map.Entry::getKey).toList());
+                    // Before the update, while the rows still hold the previous status and assignee
+                    chunk.stream()
+                            .collect(Collectors.groupingBy(entry -> entry.getValue().status(),
+                                    Collectors.mapping(Map.Entry::getKey, Collectors.toList())))
+                            .forEach((target, ids) -> history.recordStatusChanges(ids, target));
+                    List<Object[]> arguments = chunk.stream()
+                            .map(entry -> new Object[] { entry.getValue().status().name(), entry.getKey() })
+                            .toList();
+                    jdbcTemplate.batchUpdate(UPDATE_SQL, arguments);
+                    List<ProjectStatsService.TaskSnapshot> after = new ArrayList<>();
+                    for (Map.Entry<Long, Pending> entry : chunk) {
+                        ProjectStatsService.TaskSnapshot previous = before.get(entry.getKey());
+                        if (previous != null) {
+                            after.add(previous.withStatus(entry.getValue().status()));
+                            dueDates.taskChanged(entry.getKey(), previous, after.get(after.size() - 1));
+                            invalidations.invalidate(Invalidation.Type.TASK, entry.getKey());
+                        }
+                    }
+                    projectStats.recordChanges(before.values(), after);
+                }
+            }));
+            for (Path path : sealed) {
+                Files.deleteIfExists(path);
+            }
+            // Dropped last, so other writers keep waiting for this flush until the log is clean
+            batch.forEach(entry -> pending.remove(entry.getKey(), entry.getValue()));
+            flushed.increment(batch.size());
+        } catch (IOException e) {
+            logger.error("Failed to rotate or clean up the write-behind log", e);
+        } catch (RuntimeException e) {
+            logger.error("Failed to flush {} pending task status updates, will retry", pending.size(), e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (!enabled) {
+            return;
+        }
+        flush();
+        appendLock.lock();
+        try {
+            if (segment != null) {
+                segment.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to close write-behind log", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void write(ByteBuffer record) throws IOException {
+        while (record.hasRemaining()) {
+            segment.write(record);
+        }
+        if (fsync) {
+            segment.force(false);
+        }
+    }
+
+    private void openNextSegment() throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+        segmentNumber++;
+        segment = FileChannel.open(logDirectory.resolve(SEGMENT_PREFIX + String.format("%019d", segmentNumber) + SEGMENT_SUFFIX),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(logDirectory)) {
+            return new ArrayList<>(files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList());
+        }
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /** Record layout: payload length, payload (sequence, task id, status name), CRC32 of the payload. */
+    static ByteBuffer encode(long sequence, long taskId, Task.Status status) {
+        byte[] name = status.name().getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer payload = ByteBuffer.allocate(8 + 8 + 2 + name.length);
+        payload.putLong(sequence).putLong(taskId).putShort((short) name.length).put(name).flip();
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        ByteBuffer record = ByteBuffer.allocate(4 + payload.remaining() + 4);
+        record.putInt(payload.remaining()).put(payload).putInt((int) crc.getValue()).flip();
+        return record;
+    }
+
+    private void replay(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        while (buffer.remaining() >= 4) {
+            int length = buffer.getInt();
+            if (length < 18 || length > 64 || buffer.remaining() < length + 4) {
+                break;
+            }
+            ByteBuffer payload = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt()) {
+                break;
+            }
+            long sequence = payload.getLong();
+            long taskId = payload.getLong();
+            int nameLength = payload.getShort();
+            if (nameLength != length - 18) {
+                break;
+            }
+            byte[] name = new byte[nameLength];
+            payload.get(name);
+            Task.Status status;
+            try {
+                status = Task.Status.valueOf(new String(name, StandardCharsets.US_ASCII));
+            } catch (IllegalArgumentException e) {
+                break;
+            }
+            pending.merge(taskId, new Pending(status, sequence),
+                    (previous, next) -> next.sequence() > previous.sequence() ? next : previous);
+            nextSequence = Math.max(nextSequence, sequence + 1);
+        }
+        if (buffer.hasRemaining()) {
+            logger.warn("Ignoring {} bytes after the last intact record of {}", buffer.remaining(), path);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.taskmanager.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: adding, removing and expiring an entry are O(1).
+ *
+ * Level 0 has one bucket per tick; every further level has buckets as wide as a whole turn
+ * of the level below, so a few levels of {@code wheelSize} buckets cover any horizon.
+ * An entry lives in the lowest level whose turn reaches its expiration, and moves down a
+ * level each time the bucket holding it becomes current. Entries never expire early: a
+ * level-0 bucket is drained once the whole tick it covers has passed.
+ *
+ * Not thread-safe; callers synchronize.
+ */
+final class TimingWheel<T> {
+
+    static final class Entry<T> {
+        final long expiration;
+        final T value;
+        private Entry<T> prev;
+        private Entry<T> next;
+
+        Entry(long expiration, T value) {
+            this.expiration = expiration;
+            this.value = value;
+        }
+
+        boolean isScheduled() {
+            return next != null;
+        }
+    }
+
+    private final long tickMillis;
+    private final int wheelSize;
+    /** buckets.get(level)[slot] is the sentinel of a circular list. */
+    private final List<Entry<T>[]> buckets = new ArrayList<>();
+    /** Index of the current level-0 bucket, i.e. floor(time / tick). */
+    private long current;
+    private int size;
+
+    TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.current = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /** Start of the current tick; everything that expired before it has been returned. */
+    long currentTime() {
+        return current * tickMillis;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Schedules the entry.
+     *
+     * @return false if it has already expired and was not added
+     */
+    boolean add(Entry<T> entry) {
+        long bucket = Math.floorDiv(entry.expiration, tickMillis);
+        if (bucket < current) {
+            return false;
+        }
+        long levelCurrent = current;
+        for (int level = 0; ; level++) {
+            if (bucket - levelCurrent < wheelSize) {
+                link(level(level)[(int) Math.floorMod(bucket, (long) wheelSize)], entry);
+                size++;
+                return true;
+            }
+            bucket = Math.floorDiv(bucket, wheelSize);
+            levelCurrent = Math.floorDiv(levelCurrent, wheelSize);
+        }
+    }
+
+    void remove(Entry<T> entry) {
+        if (entry.isScheduled()) {
+            entry.prev.next = entry.next;
+            entry.next.prev = entry.prev;
+            entry.prev = null;
+            entry.next = null;
+            size--;
+        }
+    }
+
+    /**
+     * Moves the wheel to {@code nowMillis} and collects every entry that expired on the way,
+     * in expiration order per tick.
+     */
+    void advanceTo(long nowMillis, List<Entry<T>> expired) {
+        long target = Math.floorDiv(nowMillis, tickMillis);
+        while (current < target) {
+            drain(0, current, expired);
+            current++;
+            cascade();
+        }
+    }
+
+    /** Entering a new level-0 bucket may enter new buckets on higher levels: move their entries down. */
+    private void cascade() {
+        int highest = 0;
+        long index = current;
+        while (highest + 1 < buckets.size() && Math.floorMod(index, (long) wheelSize) == 0) {
+            highest++;
+            index = Math.floorDiv(index, wheelSize);
+        }
+        for (int level = highest; level >= 1; level--) {
+            long levelIndex = current;
+            for (int i = 0; i < level; i++) {
+                levelIndex = Math.floorDiv(levelIndex, wheelSize);
+            }
+            List<Entry<T>> moved = new ArrayList<>();
+            drain(level, levelIndex, moved);
+            for (Entry<T> entry : moved) {
+                // Always fits a lower level now; it cannot have expired yet
+                add(entry);
+            }
+        }
+    }
+
+    private void drain(int level, long index, List<Entry<T>> into) {
+        if (level >= buckets.size()) {
+            return;
+        }
+        Entry<T> sentinel = buckets.get(level)[(int) Math.floorMod(index, (long) wheelSize)];
+        List<Entry<T>> drained = new ArrayList<>();
+        for (Entry<T> entry = sentinel.next; entry != sentinel; entry = entry.next) {
+            drained.add(entry);
+        }
+        for (Entry<T> entry : drained) {
+            remove(entry);
+        }
+        if (level == 0) {
+            drained.sort((a, b) -> Long.compare(a.expiration, b.expiration));
+        }
+        into.addAll(drained);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Entry<T>[] level(int level) {
+        while (buckets.size() <= level) {
+            Entry<T>[] slots = new Entry[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                Entry<T> sentinel = new Entry<>(Long.MIN_VALUE, null);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                slots[i] = sentinel;
+            }
+            buckets.add(slots);
+        }
+        return buckets.get(level);
+    }
+
+    private static <T> void link(Entry<T> sentinel, Entry<T> entry) {
+        entry.prev = sentinel.prev;
+        entry.next = sentinel;
+        sentinel.prev.next = entry;
+        sentinel.prev = entry;
+    }
+}
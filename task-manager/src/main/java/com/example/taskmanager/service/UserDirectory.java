@@ -0,0 +1,165 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of all usernames, for the user picker and the availability check.
+ *
+ * Suggestions come from a {@link UsernameTrie}. The availability check asks a
+ * {@link BloomFilter} first, which rules out almost every free name without a query; only
+ * names it might contain (taken ones, false positives, names since removed) are looked up in
+ * the database, so the answer is exact up to the writes other instances have not yet announced.
+ *
+ * Loaded once the application is ready and kept current through the {@link CacheInvalidationBus}:
+ * user writes on any instance re-read the user's row, and an invalidation of all users (or lost
+ * messages) loads everything again. Until loaded, both lookups go to the database.
+ */
+@Component
+public class UserDirectory {
+    private static final Logger logger = LoggerFactory.getLogger(UserDirectory.class);
+
+    public record Suggestion(Long id, String username) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double falsePositiveRate;
+    private final long expectedUsers;
+    private final int loadPageSize;
+    private final Counter answeredByFilter;
+    private final Counter answeredByDatabase;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Guarded by the lock, as is the trie; null until loaded. */
+    private Map<Long, String> usernames;
+    private UsernameTrie trie;
+    private volatile BloomFilter filter;
+    private long removedSinceBuild;
+
+    @Autowired
+    public UserDirectory(JdbcTemplate jdbcTemplate,
+                         CacheInvalidationBus invalidations,
+                         MeterRegistry meterRegistry,
+                         @Value("${taskmanager.users.directory.expected-users:100000}") long expectedUsers,
+                         @Value("${taskmanager.users.directory.false-positive-rate:0.01}") double falsePositiveRate,
+                         @Value("${taskmanager.users.directory.load-page-size:5000}") int loadPageSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.expectedUsers = expectedUsers;
+        this.falsePositiveRate = falsePositiveRate;
+        this.loadPageSize = loadPageSize;
+        this.answeredByFilter = meterRegistry.counter("taskmanager.users.availability_checks", "answer", "filter");
+        this.answeredByDatabase = meterRegistry.counter("taskmanager.users.availability_checks", "answer", "database");
+        invalidations.subscribe(Invalidation.Type.USER, this::invalidated);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Map<Long, String> loaded = new HashMap<>();
+        long afterId = Long.MIN_VALUE;
+        List<Map<String, Object>> page;
+        do {
+            page = jdbcTemplate.queryForList("SELECT id, username FROM users WHERE id > ? ORDER BY id LIMIT ?",
+                    afterId, loadPageSize);
+            for (Map<String, Object> row : page) {
+                afterId = ((Number) row.get("id")).longValue();
+                loaded.put(afterId, (String) row.get("username"));
+            }
+        } while (page.size() == loadPageSize);
+        UsernameTrie built = new UsernameTrie();
+        loaded.forEach(built::add);
+        lock.writeLock().lock();
+        try {
+            usernames = loaded;
+            trie = built;
+            rebuildFilter();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("User directory loaded with {} usernames", loaded.size());
+    }
+
+    /** Up to {@code limit} users whose username starts with the prefix, ignoring case. */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            if (trie != null) {
+                return trie.withPrefix(prefix, limit).stream()
+                        .map(entry -> new Suggestion(entry.id(), entry.username()))
+                        .toList();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        String pattern = UsernameTrie.key(prefix).replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return jdbcTemplate.query("SELECT id, username FROM users WHERE LOWER(username) LIKE ? ESCAPE '\\' "
+                        + "ORDER BY LOWER(username), username LIMIT ?",
+                (row, index) -> new Suggestion(row.getLong("id"), row.getString("username")), pattern, limit);
+    }
+
+    public boolean isTaken(String username) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(username)) {
+            answeredByFilter.increment();
+            return false;
+        }
+        answeredByDatabase.increment();
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE username = ?", Long.class, username);
+        return count != null && count > 0;
+    }
+
+    private void invalidated(Invalidation invalidation) {
+        if (invalidation.isAll()) {
+            load();
+            return;
+        }
+        List<String> found = jdbcTemplate.queryForList("SELECT username FROM users WHERE id = ?", String.class,
+                invalidation.id());
+        String username = found.isEmpty() ? null : found.get(0);
+        lock.writeLock().lock();
+        try {
+            if (usernames == null) {
+                return;
+            }
+            String previous = username != null ? usernames.put(invalidation.id(), username) : usernames.remove(invalidation.id());
+            if (previous != null && previous.equals(username)) {
+                return;
+            }
+            if (previous != null) {
+                trie.remove(invalidation.id(), previous);
+                removedSinceBuild++;
+            }
+            if (username != null) {
+                trie.add(invalidation.id(), username);
+                filter.add(username);
+            }
+            // Removed names keep their bits and turn into false positives; start over when
+            // they, or more names than the filter was sized for, would raise the rate
+            if (usernames.size() > filter.capacity() || removedSinceBuild > filter.capacity() / 4) {
+                rebuildFilter();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Sizes a new filter for twice the current users (at least the expected number); holds the write lock. */
+    private void rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedUsers, 2L * usernames.size()), falsePositiveRate);
+        usernames.values().forEach(rebuilt::add);
+        filter = rebuilt;
+        removedSinceBuild = 0;
+    }
+}
@@ -1,36 +1,83 @@
 package com.example.taskmanager.service;
 
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import com.example.taskmanager.dto.UserListResult;
 import com.example.taskmanager.entities.Role;
 import com.example.taskmanager.entities.User;
+import com.example.taskmanager.exception.ConflictException;
 import com.example.taskmanager.repository.UserRepository;
+import com.example.taskmanager.sharding.ReferenceDataReplicator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * Users live on the home shard; every change is copied to the other shards once saved and
+ * announced to the caches of all instances.
+ */
 @Service
 public class UserService {
     private final UserRepository userRepository;
     private final org.springframework.security.crypto.password.PasswordEncoder passwordEncoder;
     private final com.example.taskmanager.repository.RoleRepository roleRepository;
+    private final ReferenceDataReplicator referenceData;
+    private final CacheInvalidationBus invalidations;
+    private final UserDirectory userDirectory;
 
     @Autowired
     public UserService(UserRepository userRepository,
             org.springframework.security.crypto.password.PasswordEncoder passwordEncoder,
-            com.example.taskmanager.repository.RoleRepository roleRepository) {
+            com.example.taskmanager.repository.RoleRepository roleRepository,
+            ReferenceDataReplicator referenceData,
+            CacheInvalidationBus invalidations,
+            UserDirectory userDirectory) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.roleRepository = roleRepository;
+        this.referenceData = referenceData;
+        this.invalidations = invalidations;
+        this.userDirectory = userDirectory;
+    }
+
+    private User replicated(User saved) {
+        referenceData.replicateUser(saved.getId());
+        invalidations.invalidate(Invalidation.Type.USER, saved.getId());
+        return saved;
     }
 
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
 
+    /** One page of users by id, their roles loaded with one query for the page. */
+    public UserListResult listUsers(int page, int size, boolean withTotal) {
+        // One extra id tells whether there is a next page without counting
+        List<Long> ids = userRepository.findIds(PageRequest.of(page, size + 1));
+        boolean hasNext = ids.size() > size;
+        List<Long> pageIds = hasNext ? ids.subList(0, size) : ids;
+        List<User> users = pageIds.isEmpty() ? List.of() : userRepository.findWithRolesByIdIn(pageIds).stream()
+                .sorted(Comparator.comparing(User::getId))
+                .toList();
+        Long total = withTotal ? (Long) userRepository.count() : null;
+        return new UserListResult(users, page, size, hasNext, total);
+    }
+
+    public List<UserDirectory.Suggestion> suggestUsers(String prefix, int limit) {
+        return userDirectory.suggest(prefix, limit);
+    }
+
+    public boolean isUsernameAvailable(String username) {
+        return !userDirectory.isTaken(username);
+    }
+
     public Optional<User> getUserById(Long id) {
         return userRepository.findById(id);
     }
@@ -40,6 +87,10 @@ public class UserService {
     }
 
     public User createUser(User user) {
+        // Checked up front for a clear answer; the unique constraint still decides races
+        if (user.getUsername() != null && userDirectory.isTaken(user.getUsername())) {
+            throw new ConflictException("Username already taken: " + user.getUsername());
+        }
         java.util.Set<com.example.taskmanager.entities.Role> persistentRoles = new java.util.HashSet<>();
         java.util.Set<com.example.taskmanager.entities.Role> incomingRoles = user.getRoles();
 
@@ -48,6 +99,7 @@ public class UserService {
                     .orElseGet(() -> {
                         com.example.taskmanager.entities.Role newRole = new com.example.taskmanager.entities.Role();
                         newRole.setName("USER");
+                        invalidations.invalidateAll(Invalidation.Type.ROLE);
                         return roleRepository.save(newRole);
                     });
             persistentRoles.add(userRole);
@@ -68,7 +120,7 @@ public class UserService {
         }
         user.setRoles(persistentRoles);
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        return replicated(userRepository.save(user));
     }
 
     @SuppressWarnings("unchecked")
@@ -101,7 +153,7 @@ public class UserService {
                             user.setRoles(roles); // ✅ Now using managed Role entities
                         }
                     }
-                    return userRepository.save(user);
+                    return replicated(userRepository.save(user));
                 })
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
@@ -113,12 +165,14 @@ public class UserService {
                     user.setUsername(updatedUser.getUsername());
                     user.setPassword(updatedUser.getPassword());
                     user.setRoles(updatedUser.getRoles());
-                    return userRepository.save(user);
+                    return replicated(userRepository.save(user));
                 })
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
     public void deleteUser(Long id) {
+        referenceData.removeUser(id);
         userRepository.deleteById(id);
+        invalidations.invalidate(Invalidation.Type.USER, id);
     }
 }
@@ -0,0 +1,206 @@
+package com.example.taskmanager.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compressed (radix) trie of usernames for prefix lookups, case-insensitive.
+ *
+ * Each edge carries a whole run of characters, so a node exists only where keys branch or end
+ * and the trie has at most two nodes per username. Children are kept sorted by their first
+ * character and users ending at a node by username, so a prefix lookup yields usernames in
+ * order and can stop at the limit.
+ *
+ * Not thread-safe; callers synchronize.
+ */
+final class UsernameTrie {
+
+    record Entry(long id, String username) {}
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private static final class Node {
+        String label;
+        Node[] children = NO_CHILDREN;
+        Entry[] entries = NO_ENTRIES;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        int childIndex(char first) {
+            int low = 0;
+            int high = children.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char c = children[middle].label.charAt(0);
+                if (c < first) {
+                    low = middle + 1;
+                } else if (c > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        void insertChild(int index, Node child) {
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, index);
+            grown[index] = child;
+            System.arraycopy(children, index, grown, index + 1, children.length - index);
+            children = grown;
+        }
+
+        void removeChild(int index) {
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(children, 0, shrunk, 0, index);
+            System.arraycopy(children, index + 1, shrunk, index, children.length - index - 1);
+            children = shrunk.length == 0 ? NO_CHILDREN : shrunk;
+        }
+
+        void addEntry(Entry entry) {
+            int index = 0;
+            while (index < entries.length && entries[index].username().compareTo(entry.username()) < 0) {
+                index++;
+            }
+            Entry[] grown = new Entry[entries.length + 1];
+            System.arraycopy(entries, 0, grown, 0, index);
+            grown[index] = entry;
+            System.arraycopy(entries, index, grown, index + 1, entries.length - index);
+            entries = grown;
+        }
+
+        boolean removeEntry(long id) {
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].id() == id) {
+                    Entry[] shrunk = new Entry[entries.length - 1];
+                    System.arraycopy(entries, 0, shrunk, 0, i);
+                    System.arraycopy(entries, i + 1, shrunk, i, entries.length - i - 1);
+                    entries = shrunk.length == 0 ? NO_ENTRIES : shrunk;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final Node root = new Node("");
+    private int size;
+
+    static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(long id, String username) {
+        String rest = key(username);
+        Node node = root;
+        while (!rest.isEmpty()) {
+            int index = node.childIndex(rest.charAt(0));
+            if (index < 0) {
+                Node leaf = new Node(rest);
+                leaf.addEntry(new Entry(id, username));
+                node.insertChild(-index - 1, leaf);
+                size++;
+                return;
+            }
+            Node child = node.children[index];
+            int common = commonPrefixLength(child.label, rest);
+            if (common < child.label.length()) {
+                // The key leaves the edge halfway: split it where they part
+                Node split = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                split.children = new Node[] { child };
+                node.children[index] = split;
+                child = split;
+            }
+            node = child;
+            rest = rest.substring(common);
+        }
+        node.addEntry(new Entry(id, username));
+        size++;
+    }
+
+    /** Removes the user with the id from under its username; false if it was not there. */
+    boolean remove(long id, String username) {
+        if (remove(root, key(username), id)) {
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean remove(Node node, String rest, long id) {
+        if (rest.isEmpty()) {
+            return node.removeEntry(id);
+        }
+        int index = node.childIndex(rest.charAt(0));
+        if (index < 0) {
+            return false;
+        }
+        Node child = node.children[index];
+        if (!rest.startsWith(child.label) || !remove(child, rest.substring(child.label.length()), id)) {
+            return false;
+        }
+        if (child.entries.length == 0) {
+            if (child.children.length == 0) {
+                node.removeChild(index);
+            } else if (child.children.length == 1) {
+                // Nothing ends here any more: merge the node into its only child
+                Node only = child.children[0];
+                only.label = child.label + only.label;
+                node.children[index] = only;
+            }
+        }
+        return true;
+    }
+
+    /** Up to {@code limit} users whose username starts with the prefix, ignoring case, in username order. */
+    List<Entry> withPrefix(String prefix, int limit) {
+        String rest = key(prefix);
+        Node node = root;
+        while (!rest.isEmpty()) {
+            int index = node.childIndex(rest.charAt(0));
+            if (index < 0) {
+                return List.of();
+            }
+            Node child = node.children[index];
+            if (child.label.startsWith(rest)) {
+                node = child;
+                break;
+            }
+            if (!rest.startsWith(child.label)) {
+                return List.of();
+            }
+            rest = rest.substring(child.label.length());
+            node = child;
+        }
+        List<Entry> found = new ArrayList<>(Math.min(limit, 16));
+        collect(node, limit, found);
+        return found;
+    }
+
+    private static void collect(Node node, int limit, List<Entry> found) {
+        found.addAll(Arrays.asList(node.entries).subList(0, Math.min(node.entries.length, limit - found.size())));
+        for (int i = 0; i < node.children.length && found.size() < limit; i++) {
+            collect(node.children[i], limit, found);
+        }
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+}
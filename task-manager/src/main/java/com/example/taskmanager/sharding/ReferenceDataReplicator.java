@@ -0,0 +1,107 @@
+package com.example.taskmanager.sharding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps copies of users and roles on every shard. Their home is the home shard, where they are
+ * created and changed; tasks and projects on the other shards reference them through foreign
+ * keys, so every shard holds the same rows under the same ids. Does nothing without sharding.
+ */
+@Component
+public class ReferenceDataReplicator {
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceDataReplicator.class);
+    private static final int PAGE_SIZE = 1000;
+
+    private final ShardDataSources shards;
+
+    @Autowired
+    public ReferenceDataReplicator(ObjectProvider<ShardDataSources> shards) {
+        this(shards.getIfAvailable());
+    }
+
+    ReferenceDataReplicator(ShardDataSources shards) {
+        this.shards = shards != null && shards.size() > 1 ? shards : null;
+    }
+
+    /** Copies a user, its roles and the role table itself; call after the user's change committed. */
+    public void replicateUser(Long userId) {
+        if (shards == null) {
+            return;
+        }
+        JdbcTemplate home = shards.jdbc(ShardRouter.HOME);
+        List<Map<String, Object>> roles = home.queryForList("SELECT * FROM roles ORDER BY id");
+        List<Map<String, Object>> user = home.queryForList("SELECT * FROM users WHERE id = ?", userId);
+        List<Map<String, Object>> userRoles = home.queryForList("SELECT * FROM user_roles WHERE user_id = ?", userId);
+        for (int shard = 1; shard < shards.size(); shard++) {
+            JdbcTemplate target = shards.jdbc(shard);
+            shards.transaction(shard).executeWithoutResult(status -> {
+                ShardRows.upsert(target, "roles", "id", roles);
+                ShardRows.upsert(target, "users", "id", user);
+                target.update("DELETE FROM user_roles WHERE user_id = ?", userId);
+                ShardRows.insert(target, "user_roles", userRoles);
+            });
+        }
+    }
+
+    /**
+     * Removes a user's copies; call before deleting it on the home shard, so a user still
+     * referenced on some shard fails there and stays everywhere.
+     */
+    public void removeUser(Long userId) {
+        if (shards == null) {
+            return;
+        }
+        for (int shard = 1; shard < shards.size(); shard++) {
+            JdbcTemplate target = shards.jdbc(shard);
+            shards.transaction(shard).executeWithoutResult(status -> {
+                target.update("DELETE FROM user_roles WHERE user_id = ?", userId);
+                target.update("DELETE FROM users WHERE id = ?", userId);
+            });
+        }
+    }
+
+    /** Copies all roles, users and role assignments from the home shard to every other shard. */
+    public void replicateAll() {
+        if (shards == null) {
+            return;
+        }
+        JdbcTemplate home = shards.jdbc(ShardRouter.HOME);
+        List<Map<String, Object>> roles = home.queryForList("SELECT * FROM roles ORDER BY id");
+        for (int shard = 1; shard < shards.size(); shard++) {
+            JdbcTemplate target = shards.jdbc(shard);
+            shards.transaction(shard).executeWithoutResult(status -> ShardRows.upsert(target, "roles", "id", roles));
+        }
+        long afterId = Long.MIN_VALUE;
+        int copied = 0;
+        while (true) {
+            List<Map<String, Object>> users = home.queryForList(
+                    "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?", afterId, PAGE_SIZE);
+            if (users.isEmpty()) {
+                break;
+            }
+            long fromId = afterId;
+            long toId = ((Number) users.get(users.size() - 1).get("id")).longValue();
+            List<Map<String, Object>> userRoles = home.queryForList(
+                    "SELECT * FROM user_roles WHERE user_id > ? AND user_id <= ?", fromId, toId);
+            for (int shard = 1; shard < shards.size(); shard++) {
+                JdbcTemplate target = shards.jdbc(shard);
+                shards.transaction(shard).executeWithoutResult(status -> {
+                    ShardRows.upsert(target, "users", "id", users);
+                    target.update("DELETE FROM user_roles WHERE user_id > ? AND user_id <= ?", fromId, toId);
+                    ShardRows.insert(target, "user_roles", userRoles);
+                });
+            }
+            copied += users.size();
+            afterId = toId;
+        }
+        logger.info("Replicated {} roles and {} users to {} shards", roles.size(), copied, shards.size() - 1);
+    }
+}
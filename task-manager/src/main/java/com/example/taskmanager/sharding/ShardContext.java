@@ -0,0 +1,31 @@
+package com.example.taskmanager.sharding;
+
+/**
+ * The shard the current thread's next connection comes from; unset means the home shard.
+ * Bound and restored by {@link ShardRouter} only.
+ */
+final class ShardContext {
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    static Integer current() {
+        return CURRENT.get();
+    }
+
+    /** Binds the shard and returns the previous binding, to be passed to {@link #restore}. */
+    static Integer bind(int shard) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    static void restore(Integer previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
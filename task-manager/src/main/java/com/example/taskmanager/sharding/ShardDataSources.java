@@ -0,0 +1,56 @@
+package com.example.taskmanager.sharding;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * The DataSource of every shard, index 0 being the home shard. Application code goes through
+ * the routing DataSource; these give direct access for tools that work on several shards at
+ * once (schema setup, replication of users, rebalancing).
+ */
+public final class ShardDataSources implements AutoCloseable {
+    private final List<DataSource> dataSources;
+    private final List<JdbcTemplate> jdbcTemplates;
+    private final List<TransactionTemplate> transactions;
+
+    public ShardDataSources(List<? extends DataSource> dataSources) {
+        if (dataSources.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+        this.dataSources = List.copyOf(dataSources);
+        this.jdbcTemplates = this.dataSources.stream().map(JdbcTemplate::new).toList();
+        this.transactions = this.dataSources.stream()
+                .map(dataSource -> new TransactionTemplate(new DataSourceTransactionManager(dataSource)))
+                .toList();
+    }
+
+    public int size() {
+        return dataSources.size();
+    }
+
+    public DataSource get(int shard) {
+        return dataSources.get(shard);
+    }
+
+    public JdbcTemplate jdbc(int shard) {
+        return jdbcTemplates.get(shard);
+    }
+
+    /** Transactions on one shard's DataSource, independent of the application's transactions. */
+    public TransactionTemplate transaction(int shard) {
+        return transactions.get(shard);
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
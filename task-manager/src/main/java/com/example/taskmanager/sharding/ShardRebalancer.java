@@ -0,0 +1,154 @@
+package com.example.taskmanager.sharding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves projects to the shard the ring assigns them after shards were added.
+ *
+ * Started as a one-off run of the application against the new shard list:
+ * <pre>
+ * java -jar task-manager.jar --spring.main.web-application-type=none \
+ *     --taskmanager.sharding.urls=&lt;old shards&gt;,&lt;new shards&gt; --taskmanager.sharding.rebalance-from=&lt;old count&gt;
+ * </pre>
+ * It migrates the new shards, copies users and roles to them, moves every project whose shard
+ * changed from the ring over the first {@code rebalance-from} shards to the ring over all of
+ * them, and exits. Serving instances must be stopped meanwhile and restarted with the new list.
+ *
+ * Each project moves on its own: on its source shard its rows are locked (tasks first, then
+ * the stats row, like every writer), copied to the target in a transaction that commits first,
+ * and deleted. Any rows of the project left on the target by an interrupted run are replaced,
+ * so running it again after a failure completes the move; a project already moved is no
+ * longer found on its old shard.
+ */
+@Component
+@ConditionalOnProperty(name = "taskmanager.sharding.enabled", havingValue = "true")
+public class ShardRebalancer implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    /** Tables holding a project's data, parents first, and the column naming the project. */
+    static final List<Map.Entry<String, String>> PROJECT_TABLES = List.of(
+            Map.entry("projects", "id"),
+            Map.entry("project_stats", "project_id"),
+            Map.entry("project_stats_due", "project_id"),
+            Map.entry("tasks", "project_id"),
+            Map.entry("tasks_archive", "project_id"));
+    private static final int PAGE_SIZE = 1000;
+
+    public record Move(long projectId, int from, int to) {}
+
+    private final ShardDataSources shards;
+    private final ReferenceDataReplicator referenceData;
+    private final int virtualNodes;
+    private final int rebalanceFrom;
+    private final ConfigurableApplicationContext context;
+
+    @Autowired
+    public ShardRebalancer(ShardDataSources shards,
+                           ReferenceDataReplicator referenceData,
+                           @Value("${taskmanager.sharding.virtual-nodes:128}") int virtualNodes,
+                           @Value("${taskmanager.sharding.rebalance-from:0}") int rebalanceFrom,
+                           ConfigurableApplicationContext context) {
+        this.shards = shards;
+        this.referenceData = referenceData;
+        this.virtualNodes = virtualNodes;
+        this.rebalanceFrom = rebalanceFrom;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (rebalanceFrom <= 0) {
+            return;
+        }
+        int moved = rebalance(rebalanceFrom);
+        logger.info("Rebalancing from {} to {} shards done, {} projects moved", rebalanceFrom, shards.size(), moved);
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+
+    /**
+     * Moves every project placed by the ring over the first {@code fromShards} shards to its
+     * place in the ring over all shards.
+     *
+     * @return the number of projects moved
+     */
+    public int rebalance(int fromShards) {
+        if (fromShards > shards.size()) {
+            throw new IllegalArgumentException("Cannot rebalance from " + fromShards + " shards with only "
+                    + shards.size() + " configured");
+        }
+        referenceData.replicateAll();
+        List<Move> moves = plan(fromShards);
+        logger.info("Moving {} projects from {} to {} shards", moves.size(), fromShards, shards.size());
+        for (Move move : moves) {
+            move(move);
+        }
+        return moves.size();
+    }
+
+    /** The projects on the first {@code fromShards} shards that the ring over all shards places elsewhere. */
+    public List<Move> plan(int fromShards) {
+        ShardRing ring = new ShardRing(shards.size(), virtualNodes);
+        List<Move> moves = new ArrayList<>();
+        for (int shard = 0; shard < fromShards; shard++) {
+            JdbcTemplate jdbc = shards.jdbc(shard);
+            long afterId = Long.MIN_VALUE;
+            List<Long> page;
+            do {
+                page = jdbc.queryForList("SELECT id FROM projects WHERE id > ? ORDER BY id LIMIT ?",
+                        Long.class, afterId, PAGE_SIZE);
+                for (Long projectId : page) {
+                    int target = ring.shardOf(projectId);
+                    if (target != shard) {
+                        moves.add(new Move(projectId, shard, target));
+                    }
+                }
+                afterId = page.isEmpty() ? afterId : page.get(page.size() - 1);
+            } while (page.size() == PAGE_SIZE);
+        }
+        return moves;
+    }
+
+    void move(Move move) {
+        JdbcTemplate source = shards.jdbc(move.from());
+        JdbcTemplate target = shards.jdbc(move.to());
+        long projectId = move.projectId();
+        shards.transaction(move.from()).executeWithoutResult(sourceStatus -> {
+            source.queryForList("SELECT id FROM tasks WHERE project_id = ? ORDER BY id FOR UPDATE", Long.class, projectId);
+            source.queryForList("SELECT project_id FROM project_stats WHERE project_id = ? FOR UPDATE", Long.class, projectId);
+            List<List<Map<String, Object>>> rows = new ArrayList<>();
+            for (Map.Entry<String, String> table : PROJECT_TABLES) {
+                rows.add(source.queryForList("SELECT * FROM " + table.getKey() + " WHERE " + table.getValue() + " = ?",
+                        projectId));
+            }
+            shards.transaction(move.to()).executeWithoutResult(targetStatus -> {
+                deleteProject(target, projectId);
+                for (int i = 0; i < PROJECT_TABLES.size(); i++) {
+                    ShardRows.insert(target, PROJECT_TABLES.get(i).getKey(), rows.get(i));
+                }
+            });
+            deleteProject(source, projectId);
+        });
+        logger.debug("Moved project {} from shard {} to shard {}", projectId, move.from(), move.to());
+    }
+
+    private static void deleteProject(JdbcTemplate jdbc, long projectId) {
+        for (int i = PROJECT_TABLES.size() - 1; i >= 0; i--) {
+            Map.Entry<String, String> table = PROJECT_TABLES.get(i);
+            jdbc.update("DELETE FROM " + table.getKey() + " WHERE " + table.getValue() + " = ?", projectId);
+        }
+    }
+}
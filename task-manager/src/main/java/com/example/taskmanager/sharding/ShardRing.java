@@ -0,0 +1,51 @@
+package com.example.taskmanager.sharding;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent hashing of project ids onto shards 0..n-1.
+ *
+ * Every shard owns {@code virtualNodes} points on a 64-bit ring, and a project belongs to the
+ * shard owning the first point at or after the hash of its id. The points of a shard depend
+ * only on its index, so adding shard n takes projects from every other shard but moves
+ * nothing between the existing ones: about 1/(n+1) of all projects move.
+ */
+public final class ShardRing {
+    private final int shards;
+    private final NavigableMap<Long, Integer> points = new TreeMap<>();
+
+    public ShardRing(int shards, int virtualNodes) {
+        if (shards < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("A shard ring needs at least one shard and one virtual node per shard");
+        }
+        this.shards = shards;
+        for (int shard = 0; shard < shards; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                // On the (astronomically unlikely) collision the lower shard keeps the point
+                points.putIfAbsent(mix(((long) shard << 32) | node), shard);
+            }
+        }
+    }
+
+    public int shards() {
+        return shards;
+    }
+
+    public int shardOf(long projectId) {
+        if (shards == 1) {
+            return 0;
+        }
+        Map.Entry<Long, Integer> point = points.ceilingEntry(mix(projectId ^ 0x5DEECE66DL));
+        return (point != null ? point : points.firstEntry()).getValue();
+    }
+
+    /** SplitMix64 finalizer: spreads consecutive ids evenly over the ring, identically on every JVM. */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
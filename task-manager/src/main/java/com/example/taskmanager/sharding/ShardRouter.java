@@ -0,0 +1,368 @@
+package com.example.taskmanager.sharding;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Routes work to the shard holding its data ({@code taskmanager.sharding.enabled}).
+ *
+ * A project, its tasks in both tiers and its stats live on the shard the {@link ShardRing}
+ * assigns to the project id. Tasks without a project live on the home shard (0), as do users
+ * and roles, which are also copied to every other shard ({@link ReferenceDataReplicator}) so
+ * tasks can reference them there.
+ *
+ * Work for one shard runs in a transaction of its own on that shard; a surrounding transaction
+ * is suspended, unless it already belongs to the same shard, in which case the work joins it.
+ * Entities returned from another shard's transaction are detached. Reads that cannot name a
+ * project run on every shard in parallel ({@link #scatter}) and are merged by the caller.
+ *
+ * Without sharding there is a single shard and every method runs the work in place, in the
+ * caller's transaction.
+ */
+@Component
+public class ShardRouter {
+    public static final int HOME = 0;
+
+    private final ShardDataSources dataSources;
+    private final ShardRing ring;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+    private final Duration scatterTimeout;
+    private final Duration settleMovesAfter;
+    private final String projectIdSql;
+    private final ExecutorService executor;
+
+    @Autowired
+    public ShardRouter(ObjectProvider<ShardDataSources> dataSources,
+                       PlatformTransactionManager transactionManager,
+                       JdbcTemplate jdbcTemplate,
+                       @Value("${taskmanager.sharding.virtual-nodes:128}") int virtualNodes,
+                       @Value("${taskmanager.sharding.scatter-threads:32}") int scatterThreads,
+                       @Value("${taskmanager.sharding.scatter-timeout:PT30S}") Duration scatterTimeout,
+                       @Value("${taskmanager.sharding.settle-moves-after:PT1M}") Duration settleMovesAfter,
+                       @Value("${taskmanager.sharding.project-id-sql:SELECT nextval(pg_get_serial_sequence('projects', 'id'))}")
+                       String projectIdSql) {
+        this(dataSources.getIfAvailable(), transactionManager, jdbcTemplate, virtualNodes, scatterThreads,
+                scatterTimeout, settleMovesAfter, projectIdSql);
+    }
+
+    ShardRouter(ShardDataSources dataSources, PlatformTransactionManager transactionManager, JdbcTemplate jdbcTemplate,
+                int virtualNodes, int scatterThreads, Duration scatterTimeout, Duration settleMovesAfter,
+                String projectIdSql) {
+        this.dataSources = dataSources;
+        this.ring = new ShardRing(dataSources != null ? dataSources.size() : 1, virtualNodes);
+        this.jdbcTemplate = jdbcTemplate;
+        this.scatterTimeout = scatterTimeout;
+        this.settleMovesAfter = settleMovesAfter;
+        this.projectIdSql = projectIdSql;
+        if (isSharded()) {
+            this.writeTransaction = new TransactionTemplate(transactionManager);
+            this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            this.readTransaction = new TransactionTemplate(transactionManager);
+            this.readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            this.readTransaction.setReadOnly(true);
+            this.executor = Executors.newFixedThreadPool(scatterThreads, runnable -> {
+                Thread thread = new Thread(runnable, "shard-scatter");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.writeTransaction = null;
+            this.readTransaction = null;
+            this.executor = null;
+        }
+    }
+
+    /** A router over the single, unsharded DataSource. */
+    public static ShardRouter unsharded() {
+        return new ShardRouter((ShardDataSources) null, null, null, 1, 1, Duration.ZERO, Duration.ZERO, null);
+    }
+
+    public boolean isSharded() {
+        return dataSources != null && dataSources.size() > 1;
+    }
+
+    public int shards() {
+        return ring.shards();
+    }
+
+    /** The shard of a project; tasks without a project belong to the home shard. */
+    public int shardOf(Long projectId) {
+        return projectId != null ? ring.shardOf(projectId) : HOME;
+    }
+
+    public <T> T onShard(int shard, Supplier<T> work) {
+        return execute(shard, writeTransaction, work);
+    }
+
+    public <T> T readOnShard(int shard, Supplier<T> work) {
+        return execute(shard, readTransaction, work);
+    }
+
+    public <T> T onProject(Long projectId, Supplier<T> work) {
+        return onShard(shardOf(projectId), work);
+    }
+
+    public <T> T readOnProject(Long projectId, Supplier<T> work) {
+        return readOnShard(shardOf(projectId), work);
+    }
+
+    private <T> T execute(int shard, TransactionTemplate transaction, Supplier<T> work) {
+        if (!isSharded()) {
+            return work.get();
+        }
+        Integer current = ShardContext.current();
+        if (current != null && current == shard && TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+        Integer previous = ShardContext.bind(shard);
+        try {
+            return transaction.execute(status -> work.get());
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    /**
+     * Runs work that starts its own transactions (chunked jobs) against one shard. Must not be
+     * called inside a transaction: one that has already taken its connection stays on its shard.
+     */
+    public <T> T inShard(int shard, Supplier<T> work) {
+        if (!isSharded()) {
+            return work.get();
+        }
+        Integer previous = ShardContext.bind(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    /** {@link #inShard} for every shard in turn. */
+    public void forEachShard(IntConsumer work) {
+        for (int shard = 0; shard < shards(); shard++) {
+            int target = shard;
+            inShard(target, () -> {
+                work.accept(target);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Runs a read on every shard in parallel, each in a read-only transaction on its shard,
+     * and returns the results by shard index.
+     */
+    public <T> List<T> scatter(IntFunction<T> read) {
+        if (!isSharded()) {
+            return Collections.singletonList(read.apply(HOME));
+        }
+        List<Future<T>> futures = new ArrayList<>();
+        for (int shard = 0; shard < shards(); shard++) {
+            int target = shard;
+            futures.add(executor.submit(() -> readOnShard(target, () -> read.apply(target))));
+        }
+        long deadline = System.nanoTime() + scatterTimeout.toNanos();
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Shard read failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("Shard read did not finish within " + scatterTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shard reads", e);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * The shard on which the check holds (checked on all in parallel), or the home shard if it
+     * holds nowhere. Without sharding the check is not run at all.
+     */
+    public int shardWhere(IntPredicate check) {
+        if (!isSharded()) {
+            return HOME;
+        }
+        List<Boolean> found = scatter(check::test);
+        for (int shard = 0; shard < found.size(); shard++) {
+            if (found.get(shard)) {
+                return shard;
+            }
+        }
+        return HOME;
+    }
+
+    /**
+     * Merges runs that are each sorted by {@code order} into their first {@code limit} elements.
+     * Elements that compare equal are taken for copies of one row, as a row moving between
+     * shards briefly is on both (see {@link #moveRow}), and kept once.
+     */
+    public static <T> List<T> mergeSorted(List<List<T>> runs, Comparator<? super T> order, int limit) {
+        record Head<T>(T value, int run, int index) {}
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, runs.size()),
+                (a, b) -> order.compare(a.value(), b.value()));
+        for (int run = 0; run < runs.size(); run++) {
+            if (!runs.get(run).isEmpty()) {
+                heads.add(new Head<>(runs.get(run).get(0), run, 0));
+            }
+        }
+        List<T> merged = new ArrayList<>();
+        while (merged.size() < limit && !heads.isEmpty()) {
+            Head<T> head = heads.poll();
+            if (merged.isEmpty() || order.compare(merged.get(merged.size() - 1), head.value()) != 0) {
+                merged.add(head.value());
+            }
+            List<T> run = runs.get(head.run());
+            if (head.index() + 1 < run.size()) {
+                heads.add(new Head<>(run.get(head.index() + 1), head.run(), head.index() + 1));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Moves a row by id from the shard of the current transaction to another shard, with some
+     * columns changed. The copy commits on the target first, with a shard_moves marker, and the
+     * row is then deleted in the current transaction. Once that transaction has ended, the copy
+     * is deleted again if it rolled back, and the marker is removed; if the process dies before,
+     * {@link #settleMoves} does the same later. Until then the row is on both shards (merged
+     * listings show it once), but it is never lost.
+     */
+    public void moveRow(String table, long id, int to, Map<String, Object> changes) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT * FROM " + table + " WHERE id = ? FOR UPDATE", id);
+        if (rows.isEmpty()) {
+            return;
+        }
+        int from = ShardContext.current();
+        rows.forEach(row -> row.putAll(changes));
+        onShard(to, () -> {
+            // The row is here, so a copy an earlier attempt left on the target is stale
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE id = ?", id);
+            ShardRows.insert(jdbcTemplate, table, rows);
+            jdbcTemplate.update("DELETE FROM shard_moves WHERE table_name = ? AND row_id = ?", table, id);
+            jdbcTemplate.update("INSERT INTO shard_moves (table_name, row_id, source_shard, moved_at) VALUES (?, ?, ?, ?)",
+                    table, id, from, LocalDateTime.now());
+            return null;
+        });
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                settleMove(to, table, id, status == STATUS_COMMITTED);
+            }
+        });
+        jdbcTemplate.update("DELETE FROM " + table + " WHERE id = ?", id);
+    }
+
+    /**
+     * The rows of a table copied to the current shard by moves not settled yet, as ids by source
+     * shard; until a move settles, its row may still be on the source too.
+     */
+    public Map<Integer, List<Long>> unsettledMoves(String table) {
+        Map<Integer, List<Long>> moves = new HashMap<>();
+        jdbcTemplate.query("SELECT row_id, source_shard FROM shard_moves WHERE table_name = ?", row -> {
+            moves.computeIfAbsent(row.getInt("source_shard"), source -> new ArrayList<>()).add(row.getLong("row_id"));
+        }, table);
+        return moves;
+    }
+
+    /**
+     * Settles the moves whose source transaction was not seen to end, once older than
+     * {@code taskmanager.sharding.settle-moves-after}: a row still on its source shard was not
+     * moved, so its copy is deleted. Taking the row's lock on the source waits for a move that
+     * is still running.
+     */
+    @Scheduled(fixedDelayString = "${taskmanager.sharding.settle-moves-interval-ms:60000}")
+    public void settleMoves() {
+        if (!isSharded()) {
+            return;
+        }
+        LocalDateTime before = LocalDateTime.now().minus(settleMovesAfter);
+        for (int shard = 0; shard < shards(); shard++) {
+            int target = shard;
+            List<Map<String, Object>> moves = readOnShard(target, () -> jdbcTemplate.queryForList(
+                    "SELECT table_name, row_id, source_shard FROM shard_moves WHERE moved_at < ?", before));
+            for (Map<String, Object> move : moves) {
+                String table = (String) move.get("table_name");
+                long id = ((Number) move.get("row_id")).longValue();
+                onShard(((Number) move.get("source_shard")).intValue(), () -> {
+                    boolean stayed = !jdbcTemplate.queryForList("SELECT id FROM " + table + " WHERE id = ? FOR UPDATE",
+                            Long.class, id).isEmpty();
+                    settleMove(target, table, id, !stayed);
+                    return null;
+                });
+            }
+        }
+    }
+
+    private void settleMove(int to, String table, long id, boolean moved) {
+        onShard(to, () -> {
+            if (!moved) {
+                jdbcTemplate.update("DELETE FROM " + table + " WHERE id = ? AND EXISTS (SELECT 1 FROM shard_moves "
+                        + "WHERE table_name = ? AND row_id = ?)", id, table, id);
+            }
+            jdbcTemplate.update("DELETE FROM shard_moves WHERE table_name = ? AND row_id = ?", table, id);
+            return null;
+        });
+    }
+
+    /**
+     * Hands out the id of a new project, which has to be known before its shard can be picked.
+     * Ids come from one sequence on the home shard.
+     */
+    public long nextProjectId() {
+        Long id = dataSources.jdbc(HOME).queryForObject(projectIdSql, Long.class);
+        if (id == null) {
+            throw new IllegalStateException("No project id returned by " + projectIdSql);
+        }
+        return id;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.taskmanager.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out connections of the shard bound to the current thread ({@link ShardContext}),
+ * or of the home shard. Wrapped in a LazyConnectionDataSourceProxy, so a transaction takes
+ * its connection at its first statement, from the shard bound at that time.
+ */
+class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    ShardRoutingDataSource(ShardDataSources shards) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(ShardRouter.HOME));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = ShardContext.current();
+        return shard != null ? shard : ShardRouter.HOME;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.taskmanager.sharding;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copies rows read with {@code SELECT *} into the same table on another shard. Every shard has
+ * the same schema, so the column names of the source rows are the insert's column list.
+ */
+final class ShardRows {
+
+    private ShardRows() {
+    }
+
+    static void insert(JdbcTemplate target, String table, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+        target.batchUpdate(sql, rows.stream().map(row -> values(row, columns)).toList());
+    }
+
+    /** Updates the rows that exist on the target by key and inserts the others. */
+    static void upsert(JdbcTemplate target, String table, String key, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        columns.removeIf(column -> column.equalsIgnoreCase(key));
+        String update = "UPDATE " + table + " SET " + String.join(" = ?, ", columns) + " = ? WHERE " + key + " = ?";
+        List<Map<String, Object>> missing = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            Object[] values = new Object[columns.size() + 1];
+            System.arraycopy(values(row, columns), 0, values, 0, columns.size());
+            values[columns.size()] = row.get(key);
+            if (target.update(update, values) == 0) {
+                missing.add(row);
+            }
+        }
+        insert(target, table, missing);
+    }
+
+    private static Object[] values(Map<String, Object> row, List<String> columns) {
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = row.get(columns.get(i));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.taskmanager.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shards projects and their tasks over several databases ({@code taskmanager.sharding.urls},
+ * the first being the home shard). Replaces the single spring.datasource with a DataSource
+ * that routes each transaction to the shard {@link ShardRouter} selected, runs the Flyway
+ * migrations on every shard, and prepares the shards on startup (see {@link #shardSetup}).
+ */
+@Configuration
+@ConditionalOnProperty(name = "taskmanager.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+    private static final Logger logger = LoggerFactory.getLogger(ShardingConfig.class);
+
+    @Bean(destroyMethod = "close")
+    public ShardDataSources shardDataSources(@Value("${taskmanager.sharding.urls}") String[] urls,
+                                             @Value("${taskmanager.sharding.username:${spring.datasource.username:}}") String username,
+                                             @Value("${taskmanager.sharding.password:${spring.datasource.password:}}") String password,
+                                             @Value("${taskmanager.sharding.pool-size:10}") int poolSize,
+                                             @Value("${taskmanager.sharding.id-stride:64}") int idStride,
+                                             Environment environment,
+                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        if (environment.getProperty("spring.jpa.open-in-view", Boolean.class, true)) {
+            // An open-in-view EntityManager would keep the connection, and so the shard, of the
+            // first query for the whole request
+            throw new IllegalStateException("Sharding requires spring.jpa.open-in-view=false");
+        }
+        if (urls.length > idStride) {
+            throw new IllegalStateException("At most taskmanager.sharding.id-stride (" + idStride + ") shards are supported");
+        }
+        List<DataSource> dataSources = new ArrayList<>();
+        for (int shard = 0; shard < urls.length; shard++) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("shard-" + shard);
+            dataSource.setJdbcUrl(urls[shard].trim());
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+            dataSource.setMaximumPoolSize(poolSize);
+            meterRegistry.ifAvailable(registry -> dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            dataSources.add(dataSource);
+        }
+        logger.info("Sharding over {} databases", urls.length);
+        return new ShardDataSources(dataSources);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources shards) {
+        return new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(shards));
+    }
+
+    /** Every shard has the full schema, so the same migrations run on each. */
+    @Bean
+    public FlywayMigrationStrategy shardedMigration(ShardDataSources shards) {
+        return flyway -> {
+            for (int shard = 0; shard < shards.size(); shard++) {
+                Flyway.configure().configuration(flyway.getConfiguration()).dataSource(shards.get(shard)).load().migrate();
+            }
+        };
+    }
+
+    /**
+     * Before the application serves requests: interleaves task ids between the shards, so a
+     * task keeps a unique id when it moves to another shard, and copies users and roles to
+     * shards that are missing some. Runs first when the context starts, ahead of the web servers,
+     * rather than during the refresh, which the Docker image's training run does without databases.
+     */
+    @Bean
+    public SmartLifecycle shardSetup(ShardDataSources shards, ReferenceDataReplicator referenceData,
+                                     @Value("${taskmanager.sharding.id-stride:64}") int idStride) {
+        return new SmartLifecycle() {
+            private volatile boolean running;
+
+            @Override
+            public void start() {
+                interleaveTaskIds(shards, idStride);
+                Long homeUsers = shards.jdbc(ShardRouter.HOME).queryForObject("SELECT COUNT(*) FROM users", Long.class);
+                for (int shard = 1; shard < shards.size(); shard++) {
+                    if (!homeUsers.equals(shards.jdbc(shard).queryForObject("SELECT COUNT(*) FROM users", Long.class))) {
+                        referenceData.replicateAll();
+                        break;
+                    }
+                }
+                running = true;
+            }
+
+            @Override
+            public void stop() {
+                running = false;
+            }
+
+            @Override
+            public boolean isRunning() {
+                return running;
+            }
+
+            @Override
+            public int getPhase() {
+                return Integer.MIN_VALUE;
+            }
+        };
+    }
+
+    /**
+     * Makes shard i generate task ids congruent to i + 1 modulo the stride, above every id in
+     * use anywhere. Shards that already do are left alone, so adding a shard changes nothing on
+     * the others.
+     */
+    static void interleaveTaskIds(ShardDataSources shards, int stride) {
+        long maxId = 0;
+        for (int shard = 0; shard < shards.size(); shard++) {
+            Long max = shards.jdbc(shard).queryForObject("SELECT COALESCE(MAX(id), 0) FROM "
+                    + "(SELECT id FROM tasks UNION ALL SELECT id FROM tasks_archive) t", Long.class);
+            maxId = Math.max(maxId, max != null ? max : 0);
+        }
+        for (int shard = 0; shard < shards.size(); shard++) {
+            JdbcTemplate jdbc = shards.jdbc(shard);
+            String increment = jdbc.queryForObject("SELECT identity_increment FROM information_schema.columns "
+                    + "WHERE table_schema = CURRENT_SCHEMA AND UPPER(table_name) = 'TASKS' AND UPPER(column_name) = 'ID'",
+                    String.class);
+            if (String.valueOf(stride).equals(increment)) {
+                continue;
+            }
+            long start = maxId + 1 + Math.floorMod(shard + 1 - (maxId + 1), (long) stride);
+            jdbc.execute("ALTER TABLE tasks ALTER COLUMN id SET INCREMENT BY " + stride);
+            jdbc.execute("ALTER TABLE tasks ALTER COLUMN id RESTART WITH " + start);
+            logger.info("Task ids on shard {} now start at {} in steps of {}", shard, start, stride);
+        }
+    }
+}
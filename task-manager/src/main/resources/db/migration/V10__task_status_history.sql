@@ -0,0 +1,52 @@
+-- Status history of tasks and its hourly / daily rollups (TaskHistoryService).
+-- Statuses are stored as SMALLINT codes: 0 PENDING, 1 IN_PROGRESS, 2 COMPLETED, 3 CANCELLED.
+
+-- One row per status change. A NULL from_status means the task entered the project (created,
+-- moved in, or backfilled); a NULL to_status means it left (deleted or moved out). No foreign
+-- keys: history outlives its tasks. Rows are folded into the rollups in the background and
+-- flagged rolled_up.
+CREATE TABLE task_status_transitions (
+    id          BIGSERIAL PRIMARY KEY,
+    task_id     BIGINT NOT NULL,
+    project_id  BIGINT,
+    assignee_id BIGINT,
+    from_status SMALLINT,
+    to_status   SMALLINT,
+    changed_at  TIMESTAMP(6) NOT NULL,
+    rolled_up   BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+CREATE INDEX idx_task_status_transitions_task ON task_status_transitions (task_id, id);
+CREATE INDEX idx_task_status_transitions_pending ON task_status_transitions (id) WHERE NOT rolled_up;
+
+-- Tasks entering and leaving each status of a project per hour and per day (resolution
+-- 'HOUR' / 'DAY', bucket_start truncated to it). Summing entered - exited of the open
+-- statuses up to a bucket gives the open tasks at its end.
+CREATE TABLE task_flow_rollups (
+    project_id   BIGINT NOT NULL,
+    resolution   VARCHAR(4) NOT NULL,
+    bucket_start TIMESTAMP(6) NOT NULL,
+    status       SMALLINT NOT NULL,
+    entered      BIGINT NOT NULL DEFAULT 0,
+    exited       BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (project_id, resolution, bucket_start, status)
+);
+
+-- Completions per project ('PROJECT') and per assignee ('ASSIGNEE') and bucket, by cycle time
+-- histogram bin; bin -1 holds completions whose start is not in the history.
+CREATE TABLE task_cycle_time_rollups (
+    scope        VARCHAR(8) NOT NULL,
+    scope_id     BIGINT NOT NULL,
+    resolution   VARCHAR(4) NOT NULL,
+    bucket_start TIMESTAMP(6) NOT NULL,
+    bin          SMALLINT NOT NULL,
+    completions  BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (scope, scope_id, resolution, bucket_start, bin)
+);
+
+-- Locked by the rollup for the length of each batch, so one instance folds at a time.
+CREATE TABLE task_history_rollup_lock (
+    id INTEGER PRIMARY KEY
+);
+
+INSERT INTO task_history_rollup_lock (id) VALUES (1);
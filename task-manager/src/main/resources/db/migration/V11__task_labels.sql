@@ -0,0 +1,7 @@
+-- Free-form task labels, normalized (lower case, sorted, distinct) and stored comma-delimited
+-- with a comma at each end, e.g. ',backend,bug,'; NULL for none. Kept on the row so archiving
+-- and moves between shards carry them. Label filters of hot tasks are answered from the
+-- in-memory bitmap index (TaskLabelIndex), so there is no database index; filters reaching
+-- the database (archive, fallback) match with LIKE '%,label,%'.
+ALTER TABLE tasks ADD COLUMN labels VARCHAR(1024);
+ALTER TABLE tasks_archive ADD COLUMN labels VARCHAR(1024);
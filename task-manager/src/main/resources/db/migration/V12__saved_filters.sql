@@ -0,0 +1,11 @@
+-- Task filters saved by users under a name, the filter kept as JSON (SavedFilterDTO.Criteria).
+-- Their matching hot tasks are materialized in memory (SavedFilterService) and kept up to date
+-- by task writes, so the table is only read to list a user's filters and to rebuild the sets.
+CREATE TABLE saved_filters (
+    id         BIGSERIAL PRIMARY KEY,
+    user_id    BIGINT        NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    name       VARCHAR(100)  NOT NULL,
+    definition VARCHAR(4000) NOT NULL,
+    created_at TIMESTAMP(6),
+    CONSTRAINT saved_filters_user_name UNIQUE (user_id, name)
+);
@@ -0,0 +1,11 @@
+-- Rows copied to this shard by ShardRouter.moveRow whose delete on the source shard has not
+-- been seen to commit yet. The marker commits with the copy and is removed once the source
+-- transaction ends; one left behind (the process died in between) is settled by
+-- ShardRouter.settleMoves, which deletes the copy if the row is still on its source shard.
+CREATE TABLE shard_moves (
+    table_name   VARCHAR(64)  NOT NULL,
+    row_id       BIGINT       NOT NULL,
+    source_shard INT          NOT NULL,
+    moved_at     TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (table_name, row_id)
+);
@@ -0,0 +1,42 @@
+-- Baseline schema, equivalent to what Hibernate generated with ddl-auto=update.
+-- Existing databases are baselined at version 1 (spring.flyway.baseline-on-migrate),
+-- so this script only runs against an empty database.
+
+CREATE TABLE roles (
+    id   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_roles_name UNIQUE (name)
+);
+
+CREATE TABLE users (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username VARCHAR(255) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_users_username UNIQUE (username)
+);
+
+CREATE TABLE user_roles (
+    user_id BIGINT NOT NULL REFERENCES users (id),
+    role_id BIGINT NOT NULL REFERENCES roles (id),
+    PRIMARY KEY (user_id, role_id)
+);
+
+CREATE TABLE projects (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name        VARCHAR(255) NOT NULL,
+    description VARCHAR(1024),
+    owner_id    BIGINT REFERENCES users (id),
+    created_at  TIMESTAMP(6)
+);
+
+CREATE TABLE tasks (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title       VARCHAR(255) NOT NULL,
+    description VARCHAR(1024),
+    status      VARCHAR(255) CHECK (status IN ('PENDING', 'IN_PROGRESS', 'COMPLETED', 'CANCELLED')),
+    priority    VARCHAR(255) CHECK (priority IN ('LOW', 'MEDIUM', 'HIGH')),
+    due_date    TIMESTAMP(6),
+    project_id  BIGINT REFERENCES projects (id),
+    creator_id  BIGINT NOT NULL REFERENCES users (id),
+    assignee_id BIGINT REFERENCES users (id)
+);
@@ -0,0 +1,3 @@
+-- Trigram operator classes let the LOWER(...) LIKE '%term%' search predicate use a GIN index.
+-- pg_trgm is a trusted extension (PostgreSQL 13+), so the application owner can create it.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
@@ -0,0 +1,43 @@
+-- Indexes shaped after the task filter predicates (TaskRepository.findWithFilters)
+-- and the project / assignee lookups. Built CONCURRENTLY so that applying this
+-- migration to a populated database does not block writes to tasks.
+
+-- Project task lists and project + status/priority filters.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tasks_project_status_priority
+    ON tasks (project_id, status, priority);
+
+-- "Assigned to me" lists and assignee + status/priority filters.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tasks_assignee_status_priority
+    ON tasks (assignee_id, status, priority);
+
+-- Foreign key lookups when a user is deleted or reassigned.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tasks_creator
+    ON tasks (creator_id);
+
+-- Due date range filters without a project or assignee.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tasks_due_date
+    ON tasks (due_date);
+
+-- Open work is a small fraction of the table; partial indexes keep the
+-- due-date ordered project and assignee views small and hot.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tasks_open_project_due
+    ON tasks (project_id, due_date)
+    WHERE status IN ('PENDING', 'IN_PROGRESS');
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tasks_open_assignee_due
+    ON tasks (assignee_id, due_date)
+    WHERE status IN ('PENDING', 'IN_PROGRESS');
+
+-- Free-text search on title and description.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tasks_title_trgm
+    ON tasks USING gin (LOWER(title) gin_trgm_ops);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tasks_description_trgm
+    ON tasks USING gin (LOWER(description) gin_trgm_ops);
+
+-- Foreign keys on the remaining tables.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_projects_owner
+    ON projects (owner_id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_roles_role
+    ON user_roles (role_id);
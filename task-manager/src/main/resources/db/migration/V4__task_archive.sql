@@ -0,0 +1,23 @@
+-- Hot/cold tiering: finished tasks move from tasks to tasks_archive once they have not
+-- changed for a while (TaskArchiver). updated_at records that last change; existing rows
+-- get the migration time, so nothing is archived before the configured age has passed.
+ALTER TABLE tasks ADD COLUMN updated_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+-- Same columns as tasks, keeping the original ids. No foreign keys: archived rows must not
+-- block deleting users or projects, and a restore fails on its own if they are gone.
+CREATE TABLE tasks_archive (
+    id          BIGINT PRIMARY KEY,
+    title       VARCHAR(255) NOT NULL,
+    description VARCHAR(1024),
+    status      VARCHAR(255) CHECK (status IN ('PENDING', 'IN_PROGRESS', 'COMPLETED', 'CANCELLED')),
+    priority    VARCHAR(255) CHECK (priority IN ('LOW', 'MEDIUM', 'HIGH')),
+    due_date    TIMESTAMP(6),
+    project_id  BIGINT,
+    creator_id  BIGINT NOT NULL,
+    assignee_id BIGINT,
+    updated_at  TIMESTAMP(6) NOT NULL,
+    archived_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX idx_tasks_archive_project ON tasks_archive (project_id);
+CREATE INDEX idx_tasks_archive_assignee ON tasks_archive (assignee_id);
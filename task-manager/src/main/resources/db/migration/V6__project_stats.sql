@@ -0,0 +1,47 @@
+-- Per-project task statistics maintained on every task write (ProjectStatsService).
+-- project_stats: one row of counters per project, over both task tiers.
+-- project_stats_due: open (PENDING / IN_PROGRESS) tasks per due day, for overdue counts.
+CREATE TABLE project_stats (
+    project_id                 BIGINT PRIMARY KEY REFERENCES projects (id) ON DELETE CASCADE,
+    total_tasks                BIGINT NOT NULL DEFAULT 0,
+    pending_tasks              BIGINT NOT NULL DEFAULT 0,
+    in_progress_tasks          BIGINT NOT NULL DEFAULT 0,
+    completed_tasks            BIGINT NOT NULL DEFAULT 0,
+    cancelled_tasks            BIGINT NOT NULL DEFAULT 0,
+    low_priority_tasks         BIGINT NOT NULL DEFAULT 0,
+    medium_priority_tasks      BIGINT NOT NULL DEFAULT 0,
+    high_priority_tasks        BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE project_stats_due (
+    project_id BIGINT NOT NULL REFERENCES projects (id) ON DELETE CASCADE,
+    due_date   DATE NOT NULL,
+    open_tasks BIGINT NOT NULL,
+    PRIMARY KEY (project_id, due_date)
+);
+
+-- Initial counts. Writes racing with this migration are corrected by the nightly reconciliation.
+INSERT INTO project_stats (project_id, total_tasks, pending_tasks, in_progress_tasks, completed_tasks,
+                           cancelled_tasks, low_priority_tasks, medium_priority_tasks, high_priority_tasks)
+SELECT p.id,
+       COUNT(t.project_id),
+       COUNT(*) FILTER (WHERE t.status = 'PENDING'),
+       COUNT(*) FILTER (WHERE t.status = 'IN_PROGRESS'),
+       COUNT(*) FILTER (WHERE t.status = 'COMPLETED'),
+       COUNT(*) FILTER (WHERE t.status = 'CANCELLED'),
+       COUNT(*) FILTER (WHERE t.priority = 'LOW'),
+       COUNT(*) FILTER (WHERE t.priority = 'MEDIUM'),
+       COUNT(*) FILTER (WHERE t.priority = 'HIGH')
+FROM projects p
+LEFT JOIN (
+    SELECT project_id, status, priority FROM tasks
+    UNION ALL
+    SELECT project_id, status, priority FROM tasks_archive
+) t ON t.project_id = p.id
+GROUP BY p.id;
+
+INSERT INTO project_stats_due (project_id, due_date, open_tasks)
+SELECT project_id, CAST(due_date AS DATE), COUNT(*)
+FROM tasks
+WHERE project_id IS NOT NULL AND due_date IS NOT NULL AND status IN ('PENDING', 'IN_PROGRESS')
+GROUP BY project_id, CAST(due_date AS DATE);
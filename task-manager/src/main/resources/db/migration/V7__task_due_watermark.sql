@@ -0,0 +1,6 @@
+-- Time up to which DueDateScheduler has published every due date event; it resumes from
+-- here after a restart. A single row (id = 1), created on first start.
+CREATE TABLE task_due_watermark (
+    id          INTEGER PRIMARY KEY,
+    fired_until TIMESTAMP(6) NOT NULL
+);
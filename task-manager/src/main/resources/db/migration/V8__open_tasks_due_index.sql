@@ -0,0 +1,5 @@
+-- Window loads of DueDateScheduler: open tasks in due date order, paged by (due_date, id).
+-- Built CONCURRENTLY so that applying it to a populated database does not block writes.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tasks_open_due_id
+    ON tasks (due_date, id)
+    WHERE status IN ('PENDING', 'IN_PROGRESS');
@@ -0,0 +1,7 @@
+-- Project boards (TaskBoardService): the tasks of a project and status in card order, that is
+-- priority rank, due date with missing dates last, id. The expressions must match the queries.
+-- Built CONCURRENTLY so that applying it to a populated database does not block writes.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tasks_board
+    ON tasks (project_id, status,
+              (CASE priority WHEN 'HIGH' THEN 0 WHEN 'MEDIUM' THEN 1 WHEN 'LOW' THEN 2 ELSE 3 END),
+              (COALESCE(due_date, TIMESTAMP '9999-12-31 00:00:00')), id);
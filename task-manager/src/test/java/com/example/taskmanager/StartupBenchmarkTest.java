@@ -0,0 +1,168 @@
+package com.example.taskmanager;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Offline startup benchmark. Starts the application in fresh JVMs against the in-memory
+ * H2 test database, refreshes the context and exits (spring.context.exit=onRefresh),
+ * and reports the median wall-clock time and peak RSS of each variant.
+ *
+ * Run with: mvn -Pstartup,benchmark test -Dtest=StartupBenchmarkTest
+ * (the AOT variant is only measured when the classes were AOT-processed with -Pstartup).
+ */
+@Tag("benchmark")
+class StartupBenchmarkTest {
+    private static final int RUNS = Integer.getInteger("startup.benchmark.runs", 5);
+
+    @TempDir
+    Path workDir;
+
+    record Result(String name, long medianMillis, long peakRssKb) {}
+
+    @Test
+    void compareStartupVariants() throws Exception {
+        List<Result> results = new ArrayList<>();
+        results.add(measure("baseline", List.of()));
+        results.add(measure("lazy springdoc", List.of("-Dtaskmanager.startup.lazy-bean-packages=org.springdoc.")));
+
+        Path archive = workDir.resolve("app.jsa");
+        assertStarted(launch(List.of("-XX:ArchiveClassesAtExit=" + archive)), "CDS training run");
+        results.add(measure("lazy + AppCDS", List.of(
+                "-Dtaskmanager.startup.lazy-bean-packages=org.springdoc.",
+                "-XX:SharedArchiveFile=" + archive)));
+
+        if (aotProcessed()) {
+            Path aotArchive = workDir.resolve("app-aot.jsa");
+            assertStarted(launch(List.of("-Dspring.aot.enabled=true", "-XX:ArchiveClassesAtExit=" + aotArchive)),
+                    "AOT CDS training run");
+            results.add(measure("AOT + AppCDS", List.of(
+                    "-Dspring.aot.enabled=true",
+                    "-XX:SharedArchiveFile=" + aotArchive)));
+        }
+
+        System.out.printf("%n%-20s %12s %14s%n", "variant", "median ms", "peak RSS MB");
+        for (Result result : results) {
+            System.out.printf("%-20s %12d %14s%n", result.name(), result.medianMillis(),
+                    result.peakRssKb() > 0 ? String.format("%.1f", result.peakRssKb() / 1024.0) : "n/a");
+        }
+    }
+
+    private static boolean aotProcessed() {
+        try {
+            Class.forName("com.example.taskmanager.TaskManagerApplication__ApplicationContextInitializer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private Result measure(String name, List<String> jvmArgs) throws Exception {
+        launch(jvmArgs); // warm the OS page cache
+        long[] times = new long[RUNS];
+        long peakRss = 0;
+        for (int i = 0; i < RUNS; i++) {
+            Run run = launch(jvmArgs);
+            assertStarted(run, name);
+            times[i] = run.millis;
+            peakRss = Math.max(peakRss, run.peakRssKb);
+        }
+        java.util.Arrays.sort(times);
+        return new Result(name, times[RUNS / 2], peakRss);
+    }
+
+    private record Run(int exitCode, long millis, long peakRssKb) {}
+
+    private void assertStarted(Run run, String name) throws IOException {
+        if (run.exitCode != 0) {
+            List<String> log = Files.readAllLines(workDir.resolve("launch.log"));
+            fail(name + " exited with " + run.exitCode + ":\n"
+                    + String.join("\n", log.subList(Math.max(0, log.size() - 40), log.size())));
+        }
+    }
+
+    private Run launch(List<String> jvmArgs) throws IOException, InterruptedException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.add("-Xshare:auto");
+        command.addAll(jvmArgs);
+        command.add("-Dspring.context.exit=onRefresh");
+        command.add("-Dlogging.level.root=WARN");
+        command.add("-cp");
+        command.add(classPath());
+        command.add(TaskManagerApplication.class.getName());
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(workDir.resolve("launch.log").toFile())
+                .start();
+        Path status = Path.of("/proc", Long.toString(process.pid()), "status");
+        long peakRssKb = 0;
+        while (!process.waitFor(5, TimeUnit.MILLISECONDS)) {
+            peakRssKb = Math.max(peakRssKb, readPeakRss(status));
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new Run(process.exitValue(), millis, peakRssKb);
+    }
+
+    private String classPath;
+
+    /**
+     * The test class path with its directories (target/classes, target/test-classes)
+     * packed into jars: class-data sharing refuses non-empty directories on the class path.
+     */
+    private String classPath() throws IOException {
+        if (classPath != null) {
+            return classPath;
+        }
+        List<String> entries = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            Path path = Path.of(entry);
+            if (Files.isDirectory(path)) {
+                Path jar = workDir.resolve("cp-" + entries.size() + ".jar");
+                try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar));
+                     Stream<Path> files = Files.walk(path)) {
+                    for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                        out.putNextEntry(new JarEntry(path.relativize(file).toString().replace(File.separatorChar, '/')));
+                        Files.copy(file, out);
+                        out.closeEntry();
+                    }
+                }
+                entries.add(jar.toString());
+            } else {
+                entries.add(entry);
+            }
+        }
+        classPath = String.join(File.pathSeparator, entries);
+        return classPath;
+    }
+
+    private static long readPeakRss(Path status) {
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("\\D", ""));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // process already gone or not on Linux
+        }
+        return 0;
+    }
+}
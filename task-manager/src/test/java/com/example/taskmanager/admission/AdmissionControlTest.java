@@ -0,0 +1,145 @@
+package com.example.taskmanager.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    private AdmissionControl admissionControl(double rate, int burst, int maxSearch) {
+        return new AdmissionControl(new SimpleMeterRegistry(), true, rate, burst, 2, maxSearch, 2, 4, 20);
+    }
+
+    @Test
+    void tokenBucketAllowsBurstThenSustainedRate() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(1, 0));
+        }
+        long wait = bucket.tryAcquire(1, 0);
+        assertEquals(SECOND / 10, wait);
+
+        assertEquals(0, bucket.tryAcquire(1, SECOND / 10));
+        assertTrue(bucket.tryAcquire(1, SECOND / 10) > 0);
+        assertFalse(bucket.isIdle(SECOND / 10));
+        assertTrue(bucket.isIdle(SECOND));
+    }
+
+    @Test
+    void tokenBucketChargesCost() {
+        TokenBucket bucket = new TokenBucket(10, 8, 0);
+        assertEquals(0, bucket.tryAcquire(EndpointClass.SEARCH.cost(), 0));
+        assertEquals(0, bucket.tryAcquire(EndpointClass.SEARCH.cost(), 0));
+        assertTrue(bucket.tryAcquire(EndpointClass.READ.cost(), 0) > 0);
+    }
+
+    @Test
+    void classifiesRequests() {
+        assertEquals(EndpointClass.AUTH, EndpointClass.of(new MockHttpServletRequest("POST", "/api/auth/login")));
+        assertEquals(EndpointClass.SEARCH, EndpointClass.of(new MockHttpServletRequest("GET", "/api/v1/tasks")));
+        assertEquals(EndpointClass.READ, EndpointClass.of(new MockHttpServletRequest("GET", "/api/v1/tasks/7")));
+        assertEquals(EndpointClass.WRITE, EndpointClass.of(new MockHttpServletRequest("PATCH", "/api/v1/tasks/7")));
+        assertNull(EndpointClass.of(new MockHttpServletRequest("GET", "/actuator/health")));
+        assertNull(EndpointClass.of(new MockHttpServletRequest("OPTIONS", "/api/v1/tasks")));
+    }
+
+    @Test
+    void callersHaveSeparateBuckets() {
+        AdmissionControl control = admissionControl(1, 4, 100);
+        AdmissionControl.Decision first = control.tryAdmit("user:1", EndpointClass.SEARCH);
+        assertTrue(first.admitted());
+        control.release(first);
+
+        AdmissionControl.Decision limited = control.tryAdmit("user:1", EndpointClass.SEARCH);
+        assertEquals(AdmissionControl.Outcome.RATE_LIMITED, limited.outcome());
+        assertEquals(4, limited.retryAfterSeconds());
+
+        assertTrue(control.tryAdmit("user:2", EndpointClass.SEARCH).admitted());
+    }
+
+    @Test
+    void concurrencyLimitIsPerEndpointClassAndReleased() {
+        AdmissionControl control = admissionControl(1000, 1000, 2);
+        AdmissionControl.Decision a = control.tryAdmit("user:1", EndpointClass.SEARCH);
+        AdmissionControl.Decision b = control.tryAdmit("user:2", EndpointClass.SEARCH);
+        assertTrue(a.admitted() && b.admitted());
+        assertEquals(AdmissionControl.Outcome.CONCURRENCY_LIMITED,
+                control.tryAdmit("user:3", EndpointClass.SEARCH).outcome());
+        assertTrue(control.tryAdmit("user:3", EndpointClass.READ).admitted());
+
+        control.release(a);
+        assertTrue(control.tryAdmit("user:3", EndpointClass.SEARCH).admitted());
+    }
+
+    @Test
+    void poolWaitShrinksReadLimitsAndRecoveryGrowsThemBack() {
+        AdmissionControl control = admissionControl(1000, 1000, 8);
+        control.adaptToPoolWait(100);
+        assertEquals(6, control.currentLimit(EndpointClass.SEARCH));
+        assertEquals(3, control.currentLimit(EndpointClass.READ));
+        assertEquals(2, control.currentLimit(EndpointClass.WRITE));
+        for (int i = 0; i < 10; i++) {
+            control.adaptToPoolWait(100);
+        }
+        assertEquals(1, control.currentLimit(EndpointClass.SEARCH));
+
+        assertTrue(control.tryAdmit("user:1", EndpointClass.SEARCH).admitted());
+        assertEquals(AdmissionControl.Outcome.SHED, control.tryAdmit("user:2", EndpointClass.SEARCH).outcome());
+
+        for (int i = 0; i < 20; i++) {
+            control.adaptToPoolWait(1);
+        }
+        assertEquals(8, control.currentLimit(EndpointClass.SEARCH));
+        assertEquals(4, control.currentLimit(EndpointClass.READ));
+    }
+
+    @Test
+    void filterAnswers429And503WithRetryAfter() throws Exception {
+        AdmissionControl control = admissionControl(1, 4, 1);
+        AdmissionControlFilter filter = new AdmissionControlFilter(control);
+
+        // The first search holds the only SEARCH slot while a second caller arrives
+        AtomicReference<MockHttpServletResponse> nested = new AtomicReference<>();
+        FilterChain holding = (request, response) -> {
+            MockHttpServletRequest other = new MockHttpServletRequest("GET", "/api/v1/tasks");
+            other.setRemoteAddr("10.0.0.2");
+            MockHttpServletResponse otherResponse = new MockHttpServletResponse();
+            filter.doFilter(other, otherResponse, new MockFilterChain());
+            nested.set(otherResponse);
+        };
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/tasks");
+        request.setRemoteAddr("10.0.0.1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, holding);
+        assertEquals(200, response.getStatus());
+        assertEquals(503, nested.get().getStatus());
+        assertEquals("1", nested.get().getHeader("Retry-After"));
+
+        request = new MockHttpServletRequest("GET", "/api/v1/tasks");
+        request.setRemoteAddr("10.0.0.1");
+        response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        assertEquals(429, response.getStatus());
+        assertEquals("4", response.getHeader("Retry-After"));
+        assertTrue(response.getContentAsString().contains("\"status\":429"));
+    }
+
+    @Test
+    void filterIgnoresUnclassifiedRequests() throws Exception {
+        AdmissionControl control = admissionControl(0.001, 1, 1);
+        AdmissionControlFilter filter = new AdmissionControlFilter(control);
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), response, new MockFilterChain());
+            assertEquals(200, response.getStatus());
+        }
+    }
+}
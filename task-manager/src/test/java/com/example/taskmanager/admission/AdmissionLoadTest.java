@@ -0,0 +1,125 @@
+package com.example.taskmanager.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One abusive caller floods the search endpoint from many threads while a well-behaved caller
+ * issues a search every 20 ms. Every request needs one of a few "connections" (a semaphore
+ * standing in for the Hikari pool, with its wait time reported as hikaricp.connections.acquire).
+ * Prints the well-behaved caller's p50/p99 without and with admission control.
+ *
+ * Run with: mvn -Pbenchmark test -Dtest=AdmissionLoadTest
+ */
+@Tag("benchmark")
+class AdmissionLoadTest {
+    private static final int POOL_SIZE = 4;
+    private static final int ABUSIVE_THREADS = 48;
+    private static final long QUERY_MILLIS = 5;
+    private static final long DURATION_MILLIS = Long.getLong("admission.benchmark.millis", 5000);
+
+    @Test
+    void wellBehavedCallerLatencyUnderAbuse() throws Exception {
+        List<Long> without = run(false);
+        List<Long> with = run(true);
+        System.out.printf("%n%-20s %10s %10s %10s%n", "admission", "requests", "p50 ms", "p99 ms");
+        System.out.printf("%-20s %10d %10.1f %10.1f%n", "disabled", without.size(), percentile(without, 50), percentile(without, 99));
+        System.out.printf("%-20s %10d %10.1f %10.1f%n", "enabled", with.size(), percentile(with, 50), percentile(with, 99));
+    }
+
+    private List<Long> run(boolean enabled) throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        Timer acquire = registry.timer("hikaricp.connections.acquire");
+        AdmissionControl control = new AdmissionControl(registry, enabled, 50, 20, 8, 8, 16, 32, 10);
+        AdmissionControlFilter filter = new AdmissionControlFilter(control);
+        Semaphore pool = new Semaphore(POOL_SIZE, true);
+        FilterChain database = (request, response) -> {
+            long start = System.nanoTime();
+            pool.acquireUninterruptibly();
+            acquire.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            try {
+                Thread.sleep(QUERY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                pool.release();
+            }
+        };
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleWithFixedDelay(control::samplePoolPressure, 100, 100, TimeUnit.MILLISECONDS);
+        ExecutorService abusers = Executors.newFixedThreadPool(ABUSIVE_THREADS);
+        AtomicBoolean running = new AtomicBoolean(true);
+        for (int i = 0; i < ABUSIVE_THREADS; i++) {
+            abusers.execute(() -> {
+                while (running.get()) {
+                    MockHttpServletResponse response = new MockHttpServletResponse();
+                    try {
+                        filter.doFilter(search("10.0.0.66"), response, database);
+                        if (response.getStatus() != 200) {
+                            // A client that at least waits a little before hammering again
+                            Thread.sleep(1);
+                        }
+                    } catch (Exception e) {
+                        return;
+                    }
+                }
+            });
+        }
+
+        List<Long> latencies = new ArrayList<>();
+        AtomicInteger rejected = new AtomicInteger();
+        long deadline = System.currentTimeMillis() + DURATION_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            long start = System.nanoTime();
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(search("10.0.0.1"), response, database);
+            long elapsed = System.nanoTime() - start;
+            if (response.getStatus() == 200) {
+                latencies.add(elapsed);
+            } else {
+                rejected.incrementAndGet();
+            }
+            Thread.sleep(20);
+        }
+        running.set(false);
+        abusers.shutdown();
+        abusers.awaitTermination(5, TimeUnit.SECONDS);
+        sampler.shutdownNow();
+        System.out.printf("admission %s: well-behaved caller rejected %d times%n", enabled ? "enabled" : "disabled", rejected.get());
+        return latencies;
+    }
+
+    private static MockHttpServletRequest search(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/tasks");
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+
+    private static double percentile(List<Long> samples, int percentile) {
+        if (samples.isEmpty()) {
+            return Double.NaN;
+        }
+        List<Long> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        int index = Math.min(sorted.size() - 1, (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1);
+        return sorted.get(Math.max(0, index)) / 1_000_000.0;
+    }
+}
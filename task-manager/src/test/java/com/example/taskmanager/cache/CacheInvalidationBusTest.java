@@ -0,0 +1,159 @@
+package com.example.taskmanager.cache;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Two instances connected by an in-process hub; flushes are triggered by hand. */
+class CacheInvalidationBusTest {
+    private static final Instant NOW = Instant.parse("2024-06-01T12:00:00Z");
+
+    private final InProcessInvalidationTransport.Hub hub = new InProcessInvalidationTransport.Hub();
+    private final List<String> payloads = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry remoteMetrics = new SimpleMeterRegistry();
+    private EmbeddedDatabase database;
+    private TransactionTemplate transaction;
+    private CacheInvalidationBus local;
+    private CacheInvalidationBus remote;
+    private final List<Invalidation> seenLocally = new CopyOnWriteArrayList<>();
+    private final List<Invalidation> seenRemotely = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        transaction = new TransactionTemplate(new DataSourceTransactionManager(database));
+        new InProcessInvalidationTransport(hub).start(new InvalidationTransport.Receiver() {
+            @Override
+            public void received(String payload) {
+                payloads.add(payload);
+            }
+
+            @Override
+            public void reset() {
+            }
+        });
+        local = bus("a", Clock.fixed(NOW, ZoneOffset.UTC), new SimpleMeterRegistry(), 3);
+        remote = bus("b", Clock.fixed(NOW.plusMillis(250), ZoneOffset.UTC), remoteMetrics, 3);
+        for (Invalidation.Type type : Invalidation.Type.values()) {
+            local.subscribe(type, seenLocally::add);
+            remote.subscribe(type, seenRemotely::add);
+        }
+    }
+
+    private CacheInvalidationBus bus(String node, Clock clock, SimpleMeterRegistry metrics, int collapseThreshold) {
+        // A long window keeps the scheduled flush out of the way
+        CacheInvalidationBus bus = new CacheInvalidationBus(new InProcessInvalidationTransport(hub), metrics, clock, node,
+                Duration.ofHours(1), collapseThreshold);
+        bus.start();
+        return bus;
+    }
+
+    @AfterEach
+    void tearDown() {
+        local.stop();
+        remote.stop();
+        database.shutdown();
+    }
+
+    @Test
+    void announcesChangesOnceTheTransactionCommitted() {
+        transaction.executeWithoutResult(status -> {
+            local.invalidate(Invalidation.Type.TASK, 7L);
+            local.invalidate(Invalidation.Type.PROJECT, 3L);
+            assertTrue(seenLocally.isEmpty());
+        });
+        assertEquals(List.of(Invalidation.Type.TASK, Invalidation.Type.PROJECT),
+                seenLocally.stream().map(Invalidation::type).toList());
+        assertTrue(seenRemotely.isEmpty(), "Remote instances hear of it with the next flush");
+
+        local.flush();
+
+        assertEquals(1, payloads.size());
+        assertEquals(List.of(new Invalidation(Invalidation.Type.PROJECT, 3, NOW.toEpochMilli()),
+                new Invalidation(Invalidation.Type.TASK, 7, NOW.toEpochMilli())), seenRemotely);
+        Timer lag = remoteMetrics.get("taskmanager.cache.invalidation.lag").timer();
+        assertEquals(1, lag.count());
+        assertEquals(250.0, lag.max(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void dropsTheChangesOfARolledBackTransaction() {
+        transaction.executeWithoutResult(status -> {
+            local.invalidate(Invalidation.Type.USER, 1L);
+            status.setRollbackOnly();
+        });
+        local.flush();
+
+        assertTrue(seenLocally.isEmpty());
+        assertTrue(payloads.isEmpty());
+    }
+
+    @Test
+    void coalescesRepeatedChangesAndCollapsesLargeBursts() {
+        for (int i = 0; i < 5; i++) {
+            local.invalidate(Invalidation.Type.TASK, 7L);
+        }
+        for (long id = 1; id <= 4; id++) {
+            local.invalidate(Invalidation.Type.PROJECT, id);
+        }
+        local.flush();
+
+        assertEquals(1, payloads.size());
+        assertEquals(2, seenRemotely.size());
+        Invalidation projects = seenRemotely.get(0);
+        assertEquals(Invalidation.Type.PROJECT, projects.type());
+        assertTrue(projects.isAll());
+        Invalidation task = seenRemotely.get(1);
+        assertEquals(7, task.id());
+        assertEquals(NOW.toEpochMilli() + 4, task.version(), "The newest of the coalesced versions");
+    }
+
+    @Test
+    void ignoresItsOwnMessages() {
+        remote.invalidate(Invalidation.Type.ROLE, 2L);
+        remote.flush();
+
+        assertEquals(1, payloads.size());
+        assertEquals(1, seenRemotely.size(), "Delivered locally once, not again from the transport");
+        assertEquals(1, seenLocally.size());
+    }
+
+    @Test
+    void invalidatesEverythingWhenMessagesWereLost() {
+        hub.reset();
+
+        assertEquals(Invalidation.Type.values().length, seenRemotely.size());
+        assertTrue(seenRemotely.stream().allMatch(Invalidation::isAll));
+    }
+
+    @Test
+    void splitsMessagesAtThePayloadLimit() {
+        CacheInvalidationBus wide = bus("c", Clock.fixed(NOW, ZoneOffset.UTC), new SimpleMeterRegistry(), 100_000);
+        for (long id = 1; id <= 2000; id++) {
+            wide.invalidate(Invalidation.Type.TASK, id);
+        }
+        wide.flush();
+        wide.stop();
+
+        assertTrue(payloads.size() > 1);
+        assertTrue(payloads.stream().allMatch(payload -> payload.length() <= 8000));
+        assertEquals(2000, seenRemotely.stream().map(Invalidation::id).distinct().count());
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.taskmanager.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Two instances exchanging invalidations through LISTEN/NOTIFY on a real PostgreSQL. */
+@Testcontainers(disabledWithoutDocker = true)
+class PostgresInvalidationTransportTest {
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private CacheInvalidationBus bus(String node) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(),
+                postgres.getPassword());
+        PostgresInvalidationTransport transport = new PostgresInvalidationTransport(dataSource, "invalidations",
+                Duration.ofMillis(50), Duration.ofMillis(100));
+        return new CacheInvalidationBus(transport, new SimpleMeterRegistry(), Clock.systemUTC(), node,
+                Duration.ofMillis(10), 256);
+    }
+
+    @Test
+    void deliversInvalidationsToTheOtherInstance() throws InterruptedException {
+        CacheInvalidationBus sender = bus("a");
+        CacheInvalidationBus receiver = bus("b");
+        List<Invalidation> received = new CopyOnWriteArrayList<>();
+        receiver.subscribe(Invalidation.Type.TASK, received::add);
+        sender.start();
+        receiver.start();
+        try {
+            // The listener connects in the background; keep announcing until it hears one
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (received.isEmpty() && System.nanoTime() < deadline) {
+                sender.invalidate(Invalidation.Type.TASK, 42L);
+                Thread.sleep(100);
+            }
+            assertFalse(received.isEmpty());
+            assertEquals(42, received.get(0).id());
+        } finally {
+            sender.stop();
+            receiver.stop();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.taskmanager.config;
+
+import com.example.taskmanager.controller.TaskController;
+import com.example.taskmanager.security.JwtUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class JitWarmupTest {
+    private TaskController taskController;
+    private JwtUtil jwtUtil;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        taskController = mock(TaskController.class);
+        when(taskController.getTasks(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), anyInt(), anyInt(),
+                anyBoolean(), anyBoolean(), anyBoolean())).thenReturn(ResponseEntity.ok(Map.of()));
+        jwtUtil = mock(JwtUtil.class);
+        when(jwtUtil.generateToken(anyString(), any(), anyList())).thenReturn("token");
+        when(jwtUtil.validateToken("token", "warmup")).thenReturn(true);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private JitWarmup warmup(boolean enabled, int iterations, Duration duration) {
+        return new JitWarmup(taskController, jwtUtil, new ObjectMapper().registerModule(new JavaTimeModule()),
+                meterRegistry, enabled, iterations, duration);
+    }
+
+    private long samples(String path, String phase) {
+        return meterRegistry.get("taskmanager.warmup.latency").tag("path", path).tag("phase", phase).timer().count();
+    }
+
+    @Test
+    void runsEveryPathUntilTheIterationBudgetAndComparesColdWithWarm() {
+        warmup(true, 40, Duration.ofMinutes(1)).warmUp();
+
+        verify(taskController, times(40)).getTasks(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                anyInt(), anyInt(), anyBoolean(), anyBoolean(), anyBoolean());
+        verify(jwtUtil, times(40)).validateToken("token", "warmup");
+        assertEquals(40, meterRegistry.get("taskmanager.warmup.rounds").gauge().value());
+        for (String path : new String[]{"filter", "mapping", "jwt", "json"}) {
+            assertEquals(4, samples(path, "cold"));
+            assertEquals(4, samples(path, "warm"));
+        }
+    }
+
+    @Test
+    void stopsAtTheDurationOrTheFirstFailure() {
+        warmup(true, Integer.MAX_VALUE, Duration.ZERO).warmUp();
+        assertEquals(0, meterRegistry.get("taskmanager.warmup.rounds").gauge().value());
+
+        when(jwtUtil.validateToken("token", "warmup")).thenThrow(new DataAccessResourceFailureException("down"));
+        assertDoesNotThrow(() -> warmup(true, 40, Duration.ofMinutes(1)).warmUp());
+        verify(jwtUtil, times(1)).validateToken("token", "warmup");
+    }
+
+    @Test
+    void doesNothingWhenDisabled() {
+        warmup(false, 40, Duration.ofMinutes(1)).warmUp();
+        verifyNoInteractions(taskController, jwtUtil);
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.taskmanager.config;
+
+import com.example.taskmanager.cache.InProcessInvalidationTransport;
+import com.example.taskmanager.cache.PostgresInvalidationTransport;
+import com.example.taskmanager.reactive.ReactiveTaskConfig;
+import com.example.taskmanager.sharding.ShardDataSources;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StartupConfigTest {
+
+    @Test
+    void skipsTheFlywayMigrationOfAnAotProcessedContext() {
+        Flyway flyway = mock(Flyway.class);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("flyway", flyway);
+        RootBeanDefinition initializer = new RootBeanDefinition(FlywayMigrationInitializer.class);
+        initializer.setInstanceSupplier(() -> new FlywayMigrationInitializer(flyway));
+        beanFactory.registerBeanDefinition("flywayInitializer", initializer);
+
+        StartupConfig.skipFlywayMigration(beanFactory);
+        assertNotNull(beanFactory.getBean(FlywayMigrationInitializer.class));
+        verifyNoInteractions(flyway);
+
+        // Nothing to skip without Flyway
+        StartupConfig.skipFlywayMigration(new DefaultListableBeanFactory());
+    }
+
+    @Test
+    void acceptsTheComponentsTheBuildSelected() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        StartupConfig.checkAotConditions(new MockEnvironment().withProperty("taskmanager.sharding.enabled", "false"), beanFactory);
+        StartupConfig.checkAotConditions(new MockEnvironment(), beanFactory);
+
+        beanFactory.registerBeanDefinition("shardDataSources", new RootBeanDefinition(ShardDataSources.class));
+        StartupConfig.checkAotConditions(new MockEnvironment().withProperty("taskmanager.sharding.enabled", "TRUE"), beanFactory);
+
+        beanFactory.registerBeanDefinition("postgresInvalidationTransport",
+                new RootBeanDefinition(PostgresInvalidationTransport.class));
+        StartupConfig.checkAotConditions(new MockEnvironment()
+                .withProperty("taskmanager.sharding.enabled", "true")
+                .withProperty("taskmanager.cache.invalidation.transport", "postgres"), beanFactory);
+
+        DefaultListableBeanFactory reactive = new DefaultListableBeanFactory();
+        reactive.registerBeanDefinition("reactiveTaskServer", new RootBeanDefinition(ReactiveTaskConfig.ReactiveServer.class));
+        StartupConfig.checkAotConditions(new MockEnvironment().withProperty("taskmanager.reactive.enabled", "true"), reactive);
+    }
+
+    @Test
+    void rejectsPropertiesTheBuildDidNotSee() {
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> StartupConfig.checkAotConditions(
+                new MockEnvironment().withProperty("taskmanager.sharding.enabled", "true"), new DefaultListableBeanFactory()));
+        assertTrue(e.getMessage().contains("-Dtaskmanager.sharding.enabled=true"), e.getMessage());
+
+        DefaultListableBeanFactory sharded = new DefaultListableBeanFactory();
+        sharded.registerBeanDefinition("shardDataSources", new RootBeanDefinition(ShardDataSources.class));
+        assertThrows(IllegalStateException.class, () -> StartupConfig.checkAotConditions(new MockEnvironment(), sharded));
+
+        // The default transport, none, may be spelled any other way
+        StartupConfig.checkAotConditions(new MockEnvironment().withProperty("taskmanager.cache.invalidation.transport", "off"),
+                new DefaultListableBeanFactory());
+        e = assertThrows(IllegalStateException.class, () -> StartupConfig.checkAotConditions(
+                new MockEnvironment().withProperty("taskmanager.cache.invalidation.transport", "postgres"),
+                new DefaultListableBeanFactory()));
+        assertTrue(e.getMessage().contains("-Dtaskmanager.cache.invalidation.transport=postgres"), e.getMessage());
+        DefaultListableBeanFactory inProcess = new DefaultListableBeanFactory();
+        inProcess.registerBeanDefinition("inProcessInvalidationTransport",
+                new RootBeanDefinition(InProcessInvalidationTransport.class));
+        assertThrows(IllegalStateException.class, () -> StartupConfig.checkAotConditions(
+                new MockEnvironment().withProperty("taskmanager.cache.invalidation.transport", "postgres"), inProcess));
+
+        e = assertThrows(IllegalStateException.class, () -> StartupConfig.checkAotConditions(
+                new MockEnvironment().withProperty("taskmanager.reactive.enabled", "true"), new DefaultListableBeanFactory()));
+        assertTrue(e.getMessage().contains("-Dtaskmanager.reactive.enabled=true"), e.getMessage());
+    }
+}
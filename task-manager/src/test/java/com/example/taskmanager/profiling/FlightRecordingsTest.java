@@ -0,0 +1,97 @@
+package com.example.taskmanager.profiling;
+
+import com.example.taskmanager.dto.EntityToDTOMapper;
+import com.example.taskmanager.dto.RecordingDTO;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.exception.ConflictException;
+import com.example.taskmanager.exception.ResourceNotFoundException;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecordingsTest {
+    private final FlightRecordings recordings = new FlightRecordings(Duration.ofMinutes(5), 1);
+
+    interface Lookups {
+        List<String> findAll();
+
+        Optional<String> findByName(String name);
+    }
+
+    @AfterEach
+    void tearDown() {
+        recordings.list().forEach(recording -> recordings.discard(recording.id()));
+    }
+
+    private static Lookups lookups() {
+        ProxyFactory factory = new ProxyFactory(new Lookups() {
+            @Override
+            public List<String> findAll() {
+                return List.of("a", "b", "c");
+            }
+
+            @Override
+            public Optional<String> findByName(String name) {
+                throw new IllegalStateException("down");
+            }
+        });
+        factory.addInterface(Lookups.class);
+        factory.addAdvice(new RepositoryQueryInterceptor(Lookups.class));
+        return (Lookups) factory.getProxy();
+    }
+
+    private static List<RecordedEvent> events(Path file, String type) throws Exception {
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals(type))
+                .toList();
+    }
+
+    @Test
+    void recordsTheApplicationEventsAndDumpsThem() throws Exception {
+        RecordingDTO started = recordings.start("test", Duration.ofMinutes(1), "default");
+        assertEquals("RUNNING", started.state());
+        Lookups lookups = lookups();
+        lookups.findAll();
+        assertThrows(IllegalStateException.class, () -> lookups.findByName("x"));
+        EntityToDTOMapper.toTaskDTO(Task.builder().id(1L).title("Task").status(Task.Status.PENDING).build());
+        assertEquals("STOPPED", recordings.stop(started.id()).state());
+
+        Path file = recordings.dump(started.id());
+        try {
+            List<RecordedEvent> queries = events(file, "taskmanager.RepositoryQuery");
+            assertEquals(List.of("findAll()", "findByName(String)"),
+                    queries.stream().map(event -> event.getString("method")).toList());
+            assertEquals("Lookups", queries.get(0).getString("repository"));
+            assertEquals(3, queries.get(0).getLong("rows"));
+            assertTrue(queries.get(1).getBoolean("failed"));
+            List<RecordedEvent> mappings = events(file, "taskmanager.DtoMapping");
+            assertEquals(1, mappings.size());
+            assertEquals("Task", mappings.get(0).getString("entity"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void limitsWhatIsRecordedAndKept() {
+        assertThrows(IllegalArgumentException.class, () -> recordings.start(null, null, "everything"));
+        assertThrows(IllegalArgumentException.class, () -> recordings.start(null, Duration.ofHours(1), "profile"));
+        RecordingDTO started = recordings.start(null, null, "profile");
+        assertEquals(Duration.ofMinutes(5), started.duration());
+        assertThrows(ConflictException.class, () -> recordings.start(null, null, "default"));
+
+        recordings.discard(started.id());
+        assertTrue(recordings.list().isEmpty());
+        assertThrows(ResourceNotFoundException.class, () -> recordings.stop(started.id()));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.taskmanager.profiling;
+
+import com.example.taskmanager.dto.SlowQueryDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlowQueryLogTest {
+    private EmbeddedDatabase database;
+    private SimpleMeterRegistry meterRegistry;
+    private SlowQueryLog slowQueryLog;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        new JdbcTemplate(database).execute("CREATE TABLE tasks (id BIGINT PRIMARY KEY, status VARCHAR(20), "
+                + "project_id BIGINT)");
+        new JdbcTemplate(database).update("INSERT INTO tasks VALUES (1, 'PENDING', 7), (2, 'COMPLETED', 7)");
+        meterRegistry = new SimpleMeterRegistry();
+        slowQueryLog = log(true, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        database.shutdown();
+    }
+
+    private SlowQueryLog log(boolean capturingParameters, int maxShapes) {
+        SlowQueryLog log = new SlowQueryLog(meterRegistry, capturingParameters, maxShapes, 5, Duration.ofMinutes(1),
+                Clock.fixed(Instant.parse("2030-03-04T10:00:00Z"), ZoneOffset.UTC));
+        // A threshold of zero makes every statement slow
+        jdbcTemplate = new JdbcTemplate(new SlowQueryDataSource(database, 0, () -> {
+            log.explainOn(database);
+            return log;
+        }));
+        return log;
+    }
+
+    @Test
+    void groupsStatementsByShapeWithTheirSlowestRun() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/tasks/7");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/v1/tasks/{id}");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        String outer = SlowQueryLog.enter("TaskRepository.findByProject(Long)");
+        try {
+            jdbcTemplate.queryForList("SELECT id FROM tasks WHERE project_id = ? AND status IN (?, ?)", 7L,
+                    "PENDING", "COMPLETED");
+            jdbcTemplate.queryForList("SELECT id FROM tasks WHERE project_id = ? AND status IN (?)", 8L, "PENDING");
+        } finally {
+            SlowQueryLog.exit(outer);
+        }
+        jdbcTemplate.queryForList("SELECT id FROM tasks WHERE status = 'PENDING' AND project_id = 7");
+        jdbcTemplate.queryForList("SELECT id FROM tasks WHERE status = 'COMPLETED' AND project_id = 12");
+
+        List<SlowQueryDTO> findings = slowQueryLog.findings("count", 10);
+        assertEquals(2, findings.size());
+        assertEquals(4, meterRegistry.get("taskmanager.slow_queries").counter().count());
+        SlowQueryDTO filter = findings.stream()
+                .filter(finding -> finding.statement().equals(
+                        "SELECT id FROM tasks WHERE project_id = ? AND status IN (?, ...)"))
+                .findFirst().orElseThrow();
+        assertEquals(2, filter.count());
+        assertEquals("TaskRepository.findByProject(Long)", filter.origin());
+        assertEquals("GET /api/v1/tasks/{id}", filter.route());
+        assertTrue(filter.parameters().equals(List.of("7", "PENDING", "COMPLETED"))
+                || filter.parameters().equals(List.of("8", "PENDING")));
+        assertTrue(filter.maxMillis() <= filter.totalMillis());
+        assertEquals(Instant.parse("2030-03-04T10:00:00Z"), filter.lastSeen());
+        assertNull(filter.plan());
+
+        SlowQueryDTO literal = findings.stream()
+                .filter(finding -> finding.statement().equals("SELECT id FROM tasks WHERE status = ? AND project_id = ?"))
+                .findFirst().orElseThrow();
+        // Not run by a repository, so the caller is the first application frame
+        assertEquals("SlowQueryLogTest.groupsStatementsByShapeWithTheirSlowestRun", literal.origin());
+        assertEquals(List.of(), literal.parameters());
+
+        assertThrows(IllegalArgumentException.class, () -> slowQueryLog.findings("rows", 10));
+        slowQueryLog.clear();
+        assertTrue(slowQueryLog.findings("total", 10).isEmpty());
+    }
+
+    @Test
+    void explainsOnlySelectsWithTheirParameters() {
+        jdbcTemplate.queryForList("SELECT id FROM tasks WHERE project_id = ?", 7L);
+        jdbcTemplate.update("UPDATE tasks SET status = ? WHERE id = ?", "IN_PROGRESS", 1L);
+
+        slowQueryLog.explainWorst();
+
+        List<SlowQueryDTO> findings = slowQueryLog.findings("total", 10);
+        SlowQueryDTO select = findings.stream().filter(finding -> finding.sql().startsWith("SELECT"))
+                .findFirst().orElseThrow();
+        assertNotNull(select.plan());
+        assertFalse(select.plan().startsWith("Not captured"), select.plan());
+        assertTrue(select.plan().toUpperCase().contains("TASKS"), select.plan());
+        SlowQueryDTO update = findings.stream().filter(finding -> finding.sql().startsWith("UPDATE"))
+                .findFirst().orElseThrow();
+        assertNull(update.plan());
+        // Planned, not run
+        assertEquals("IN_PROGRESS", new JdbcTemplate(database).queryForObject(
+                "SELECT status FROM tasks WHERE id = 1", String.class));
+    }
+
+    @Test
+    void keepsTheMostExpensiveShapesAndCanLeaveParametersOut() {
+        slowQueryLog = log(false, 2);
+        jdbcTemplate.queryForList("SELECT id FROM tasks WHERE project_id = ?", 7L);
+        jdbcTemplate.queryForList("SELECT status FROM tasks WHERE id = ?", 1L);
+        jdbcTemplate.queryForList("SELECT project_id FROM tasks WHERE id = ?", 2L);
+
+        List<SlowQueryDTO> findings = slowQueryLog.findings("total", 10);
+        assertEquals(2, findings.size());
+        assertTrue(findings.stream().anyMatch(finding -> finding.sql().startsWith("SELECT project_id")));
+        findings.forEach(finding -> assertEquals(List.of("?"), finding.parameters()));
+
+        slowQueryLog.explainWorst();
+        slowQueryLog.findings("total", 10).forEach(finding -> assertTrue(finding.plan().startsWith("Not captured")));
+    }
+}
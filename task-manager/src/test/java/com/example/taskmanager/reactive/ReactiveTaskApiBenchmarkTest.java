@@ -0,0 +1,135 @@
+package com.example.taskmanager.reactive;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput and latency of the task listing on /api/v1 (servlet, JDBC) and /api/v2 (Netty,
+ * R2DBC) under growing numbers of concurrent clients, on PostgreSQL. Prints requests per
+ * second and p50/p99 latency per API and concurrency.
+ *
+ * Run with: mvn -Pbenchmark test -Dtest=ReactiveTaskApiBenchmarkTest (requires Docker).
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "taskmanager.reactive.enabled=true",
+        "taskmanager.reactive.port=0",
+        "logging.level.org.springframework.security=INFO"
+})
+@Testcontainers(disabledWithoutDocker = true)
+class ReactiveTaskApiBenchmarkTest {
+    private static final int REQUESTS = Integer.getInteger("reactive.benchmark.requests", 4000);
+    private static final int[] CONCURRENCY = { 16, 64, 256, 1024 };
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("taskmanager.reactive.url", () -> "r2dbc:postgresql://" + postgres.getHost() + ":"
+                + postgres.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT) + "/" + postgres.getDatabaseName());
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ReactiveTaskConfig.ReactiveServer reactiveServer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void servletVersusReactiveListing() {
+        jdbcTemplate.execute("INSERT INTO users (username, password) "
+                + "SELECT 'user' || g, 'x' FROM generate_series(1, 500) g");
+        jdbcTemplate.execute("INSERT INTO projects (name, owner_id, created_at) "
+                + "SELECT 'project ' || g, 1 + g % 500, now() FROM generate_series(1, 2000) g");
+        jdbcTemplate.execute("""
+                INSERT INTO tasks (title, description, status, priority, due_date, project_id, creator_id, assignee_id)
+                SELECT 'task ' || g, 'description ' || md5(g::text),
+                       (ARRAY['PENDING', 'IN_PROGRESS', 'COMPLETED', 'CANCELLED'])[1 + g % 4],
+                       (ARRAY['LOW', 'MEDIUM', 'HIGH'])[1 + g % 3],
+                       TIMESTAMP '2025-01-01' + (g % 730) * INTERVAL '1 day',
+                       1 + g % 2000, 1 + g % 500, 1 + (g * 13) % 500
+                FROM generate_series(1, 200000) g
+                """);
+        jdbcTemplate.execute("ANALYZE");
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String v1 = "http://localhost:" + port + "/api/v1/tasks";
+        String v2 = "http://localhost:" + reactiveServer.getPort() + "/api/v2/tasks";
+        // Warm up both stacks before measuring
+        run(client, v1, 64, REQUESTS / 2);
+        run(client, v2, 64, REQUESTS / 2);
+
+        System.out.printf("%n%-6s %12s %12s %10s %10s%n", "api", "concurrency", "requests/s", "p50 ms", "p99 ms");
+        for (int concurrency : CONCURRENCY) {
+            print("v1", concurrency, run(client, v1, concurrency, REQUESTS));
+            print("v2", concurrency, run(client, v2, concurrency, REQUESTS));
+        }
+    }
+
+    private record Result(double seconds, long[] latencies) {}
+
+    /** {@code requests} listings, keeping {@code concurrency} of them in flight. */
+    private static Result run(HttpClient client, String base, int concurrency, int requests) {
+        Semaphore inFlight = new Semaphore(concurrency);
+        long[] latencies = new long[requests];
+        AtomicInteger failures = new AtomicInteger();
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[requests];
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquireUninterruptibly();
+            int index = i;
+            long sent = System.nanoTime();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base + "?projectId=" + (1 + i % 2000) + "&size=20")).build();
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        latencies[index] = System.nanoTime() - sent;
+                        if (error != null || response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                        }
+                        inFlight.release();
+                    });
+        }
+        CompletableFuture.allOf(responses).exceptionally(error -> null).join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertEquals(0, failures.get(), "failed requests against " + base);
+        return new Result(seconds, latencies);
+    }
+
+    private static void print(String api, int concurrency, Result result) {
+        long[] sorted = result.latencies().clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-6s %12d %12.0f %10.2f %10.2f%n", api, concurrency, sorted.length / result.seconds(),
+                sorted[sorted.length / 2] / 1e6, sorted[(int) (sorted.length * 0.99)] / 1e6);
+    }
+}
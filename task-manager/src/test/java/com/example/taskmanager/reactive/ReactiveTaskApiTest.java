@@ -0,0 +1,165 @@
+package com.example.taskmanager.reactive;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import com.example.taskmanager.entities.Project;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.entities.User;
+import com.example.taskmanager.repository.ProjectRepository;
+import com.example.taskmanager.repository.TaskRepository;
+import com.example.taskmanager.repository.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** /api/v2/tasks against /api/v1/tasks over the same H2 database, read over R2DBC and JDBC. */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive",
+        "taskmanager.reactive.enabled=true",
+        "taskmanager.reactive.port=0",
+        "taskmanager.reactive.url=r2dbc:h2:mem:///reactive",
+        "taskmanager.reactive.username=sa"
+})
+class ReactiveTaskApiTest {
+    private static final String[] QUERIES = {
+            "",
+            "?page=1&size=5",
+            "?status=PENDING&size=50",
+            "?status=pending,completed&priority=HIGH",
+            "?search=ALPHA&size=50",
+            "?search=100%25",
+            "?dueDateFrom=2030-01-05&dueDateTo=2030-01-10&size=50",
+            "?withTotal=false&page=1&size=4&priority=low",
+            "?size=50&projectId=",
+            "?labels=release&size=50",
+            "?anyLabels=docs,RELEASE&notLabels=docs&status=PENDING,COMPLETED&size=50",
+            "?labels=a_b&size=50",
+            "?notLabels=a_b&size=50",
+    };
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ReactiveTaskConfig.ReactiveServer reactiveServer;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private CacheInvalidationBus invalidations;
+
+    private WebTestClient v1;
+    private WebTestClient v2;
+    private Project project;
+    private final List<Task> tasks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        v1 = WebTestClient.bindToServer().baseUrl("http://localhost:" + port).build();
+        v2 = WebTestClient.bindToServer().baseUrl("http://localhost:" + reactiveServer.getPort()).build();
+
+        User owner = userRepository.save(User.builder().username("reactive-owner").password("secret").build());
+        project = new Project();
+        project.setName("Reactive");
+        project.setOwner(owner);
+        project = projectRepository.save(project);
+        Task.Status[] statuses = Task.Status.values();
+        Task.Priority[] priorities = Task.Priority.values();
+        for (int i = 0; i < 23; i++) {
+            tasks.add(taskRepository.save(Task.builder()
+                    .title((i % 3 == 0 ? "Alpha " : "Beta ") + i)
+                    .description(i == 7 ? "done 100% of it" : "task " + i)
+                    .status(statuses[i % statuses.length])
+                    .priority(priorities[i % priorities.length])
+                    .dueDate(LocalDateTime.of(2030, 1, 1 + i % 14, 9 + i % 8, 30))
+                    .creator(owner)
+                    .assignee(i % 2 == 0 ? owner : null)
+                    .project(i % 4 == 0 ? null : project)
+                    .labels(i % 5 == 0 ? Set.of("release") : i % 5 == 1 ? Set.of("docs", "release")
+                            : i % 5 == 2 ? Set.of("a_b") : i % 5 == 3 ? Set.of("axb") : Set.of())
+                    .build()));
+        }
+        // Saved past TaskService, so v1's label index is told here
+        invalidations.invalidateAll(Invalidation.Type.TASK);
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskRepository.deleteAll();
+        projectRepository.deleteAll();
+        userRepository.deleteAll();
+        tasks.clear();
+    }
+
+    @Test
+    void listingMatchesV1() {
+        for (String query : QUERIES) {
+            JsonNode expected = get(v1, "/api/v1/tasks" + query);
+            JsonNode actual = get(v2, "/api/v2/tasks" + query);
+            assertEquals(expected, actual, query);
+        }
+    }
+
+    @Test
+    void underscoresInLabelsMatchLiterally() {
+        JsonNode data = get(v2, "/api/v2/tasks?labels=a_b&size=50").get("data");
+        assertEquals(tasks.stream().filter(task -> task.getLabels().contains("a_b")).count(), data.size());
+        data.forEach(task -> assertEquals("a_b", task.get("labels").get(0).asText()));
+    }
+
+    @Test
+    void listingByProjectAndAssigneeMatchesV1() {
+        Long assigneeId = tasks.get(0).getAssignee().getId();
+        String query = "?size=50&projectId=" + project.getId() + "&assigneeId=" + assigneeId;
+        JsonNode actual = get(v2, "/api/v2/tasks" + query);
+        assertEquals(get(v1, "/api/v1/tasks" + query), actual);
+        assertTrue(actual.get("data").size() > 0);
+    }
+
+    @Test
+    void singleTaskMatchesV1() {
+        for (Task task : tasks.subList(0, 5)) {
+            assertEquals(get(v1, "/api/v1/tasks/" + task.getId()), get(v2, "/api/v2/tasks/" + task.getId()));
+        }
+    }
+
+    @Test
+    void missingTaskIsNotFound() {
+        v2.get().uri("/api/v2/tasks/{id}", Long.MAX_VALUE).exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void invalidParametersAreBadRequests() {
+        v2.get().uri("/api/v2/tasks?status=SLEEPING").exchange().expectStatus().isBadRequest();
+        v2.get().uri("/api/v2/tasks?dueDateFrom=soon").exchange().expectStatus().isBadRequest();
+        v2.get().uri("/api/v2/tasks?size=0").exchange().expectStatus().isBadRequest();
+        v2.get().uri("/api/v2/tasks/abc").exchange().expectStatus().isBadRequest();
+    }
+
+    private static JsonNode get(WebTestClient client, String uri) {
+        return client.get().uri(uri).exchange()
+                .expectStatus().isOk()
+                .expectBody(JsonNode.class)
+                .returnResult()
+                .getResponseBody();
+    }
+}
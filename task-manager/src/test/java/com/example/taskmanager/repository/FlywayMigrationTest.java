@@ -0,0 +1,74 @@
+package com.example.taskmanager.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Applies every Flyway migration to an empty PostgreSQL with the application's own
+ * spring.flyway.* settings (src/main/resources/application.properties, which the test
+ * application.properties hides), as a fresh deploy does, and lets Hibernate validate the result.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class FlywayMigrationTest {
+    private static final int LATEST_VERSION = 13;
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        Properties application;
+        try {
+            application = PropertiesLoaderUtils.loadProperties(new FileSystemResource("src/main/resources/application.properties"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        application.stringPropertyNames().stream()
+                .filter(name -> name.startsWith("spring.flyway."))
+                .forEach(name -> registry.add(name, () -> application.getProperty(name)));
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void appliesEveryMigration() {
+        List<String> applied = jdbcTemplate.queryForList(
+                "SELECT version FROM flyway_schema_history WHERE success AND version IS NOT NULL "
+                        + "ORDER BY installed_rank", String.class);
+        assertEquals(IntStream.rangeClosed(1, LATEST_VERSION).mapToObj(String::valueOf).toList(), applied);
+    }
+
+    @Test
+    void buildsTheConcurrentIndexes() {
+        // A CONCURRENTLY build that was interrupted leaves an invalid index behind
+        List<String> indexes = jdbcTemplate.queryForList("SELECT c.relname FROM pg_index i "
+                + "JOIN pg_class c ON c.oid = i.indexrelid WHERE i.indisvalid", String.class);
+        assertTrue(indexes.containsAll(List.of("idx_tasks_project_status_priority", "idx_tasks_title_trgm",
+                "idx_tasks_finished_updated", "idx_tasks_open_due_id", "idx_tasks_board")), indexes::toString);
+    }
+}
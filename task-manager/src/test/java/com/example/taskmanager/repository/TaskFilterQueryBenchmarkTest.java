@@ -0,0 +1,161 @@
+package com.example.taskmanager.repository;
+
+import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.entities.Task;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Compares the composed filter query with the catch-all native query it replaced,
+ * across filter combinations, on PostgreSQL. Prints median latency per combination.
+ *
+ * Run with: mvn -Pbenchmark test -Dtest=TaskFilterQueryBenchmarkTest (requires Docker).
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class TaskFilterQueryBenchmarkTest {
+    private static final int ITERATIONS = Integer.getInteger("filter.benchmark.iterations", 200);
+
+    /** The former TaskRepository.findWithFilters native query. */
+    private static final String LEGACY_QUERY = """
+        SELECT t.* FROM tasks t
+        WHERE (cast(:search as text) IS NULL OR
+               LOWER(t.title) LIKE LOWER(CONCAT('%', :search, '%')) OR
+               LOWER(t.description) LIKE LOWER(CONCAT('%', :search, '%')))
+        AND (COALESCE(cast(:status as text), '') = '' OR t.status IN (:status))
+        AND (COALESCE(cast(:priority as text), '') = '' OR t.priority IN (:priority))
+        AND (cast(:assigneeId as bigint) IS NULL OR t.assignee_id = :assigneeId)
+        AND (cast(:projectId as bigint) IS NULL OR t.project_id = :projectId)
+        AND (cast(:dueDateFrom as date) IS NULL OR t.due_date >= :dueDateFrom)
+        AND (cast(:dueDateTo as date) IS NULL OR t.due_date <= :dueDateTo)
+        ORDER BY t.id
+        """;
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.properties.hibernate.query.in_clause_parameter_padding", () -> "true");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.show-sql", () -> "false");
+        registry.add("spring.flyway.enabled", () -> "true");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void composedQueryVersusCatchAllQuery() {
+        jdbcTemplate.execute("INSERT INTO users (username, password) "
+                + "SELECT 'user' || g, 'x' FROM generate_series(1, 500) g");
+        jdbcTemplate.execute("INSERT INTO projects (name, owner_id, created_at) "
+                + "SELECT 'project ' || g, 1 + g % 500, now() FROM generate_series(1, 2000) g");
+        jdbcTemplate.execute("""
+                INSERT INTO tasks (title, description, status, priority, due_date, project_id, creator_id, assignee_id)
+                SELECT 'task ' || g || ' ' || md5(g::text), 'description ' || md5((g * 7)::text),
+                       CASE WHEN g % 10 < 8 THEN 'COMPLETED' WHEN g % 10 = 8 THEN 'PENDING' ELSE 'IN_PROGRESS' END,
+                       (ARRAY['LOW', 'MEDIUM', 'HIGH'])[1 + g % 3],
+                       TIMESTAMP '2025-01-01' + (g % 730) * INTERVAL '1 day',
+                       1 + g % 2000, 1 + g % 500, 1 + (g * 13) % 500
+                FROM generate_series(1, 200000) g
+                """);
+        jdbcTemplate.execute("ANALYZE");
+
+        Map<String, Consumer<TaskFilterDTO>> combinations = new LinkedHashMap<>();
+        combinations.put("none", f -> { });
+        combinations.put("project", f -> f.setProjectId(42L));
+        combinations.put("project+status", f -> {
+            f.setProjectId(42L);
+            f.setStatus(new Task.Status[] { Task.Status.PENDING, Task.Status.IN_PROGRESS });
+        });
+        combinations.put("assignee+status+priority", f -> {
+            f.setAssigneeId(7L);
+            f.setStatus(new Task.Status[] { Task.Status.PENDING });
+            f.setPriority(new Task.Priority[] { Task.Priority.HIGH });
+        });
+        combinations.put("due date range", f -> {
+            f.setDueDateFrom(LocalDate.of(2025, 3, 1));
+            f.setDueDateTo(LocalDate.of(2025, 3, 2));
+        });
+        combinations.put("search", f -> f.setSearch("a1b2"));
+        combinations.put("search+project", f -> {
+            f.setSearch("task 1");
+            f.setProjectId(42L);
+        });
+
+        System.out.printf("%n%-28s %14s %14s%n", "filters", "catch-all ms", "composed ms");
+        combinations.forEach((name, setup) -> {
+            TaskFilterDTO filter = new TaskFilterDTO();
+            setup.accept(filter);
+            double legacy = medianMillis(() -> runLegacy(filter));
+            double composed = medianMillis(() -> taskRepository.findAll(
+                    TaskSpecifications.matching(filter), PageRequest.of(0, 20, Sort.by("id"))).getContent());
+            System.out.printf("%-28s %14.3f %14.3f%n", name, legacy, composed);
+        });
+    }
+
+    private List<?> runLegacy(TaskFilterDTO filter) {
+        Query query = entityManager.createNativeQuery(LEGACY_QUERY, Task.class);
+        query.setParameter("search", filter.getSearch());
+        query.setParameter("status", filter.getStatus() == null ? null
+                : Arrays.stream(filter.getStatus()).map(Enum::name).toList());
+        query.setParameter("priority", filter.getPriority() == null ? null
+                : Arrays.stream(filter.getPriority()).map(Enum::name).toList());
+        query.setParameter("assigneeId", filter.getAssigneeId());
+        query.setParameter("projectId", filter.getProjectId());
+        query.setParameter("dueDateFrom", filter.getDueDateFrom());
+        query.setParameter("dueDateTo", filter.getDueDateTo());
+        query.setMaxResults(20);
+        return query.getResultList();
+    }
+
+    private double medianMillis(Runnable query) {
+        long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status -> {
+                query.run();
+                entityManager.clear();
+            });
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[ITERATIONS / 2] / 1_000_000.0;
+    }
+}
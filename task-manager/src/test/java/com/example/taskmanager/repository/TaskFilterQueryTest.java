@@ -0,0 +1,277 @@
+package com.example.taskmanager.repository;
+
+import com.example.taskmanager.dto.EntityToDTOMapper;
+import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.entities.ArchivedTask;
+import com.example.taskmanager.entities.Project;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.entities.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+    "spring.jpa.properties.hibernate.query.in_clause_parameter_padding=true",
+    "spring.jpa.properties.hibernate.default_batch_fetch_size=64",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.example.taskmanager.repository.TaskFilterQueryTest$CapturingInspector"
+})
+class TaskFilterQueryTest {
+
+    public static class CapturingInspector implements StatementInspector {
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            // ignore the batched loads of User.roles that follow each listing
+            if (sql.contains(" from tasks ")) {
+                statements.add(sql);
+            }
+            return sql;
+        }
+    }
+
+    @Autowired
+    private TaskRepository taskRepository;
+
+    @Autowired
+    private ArchivedTaskRepository archivedTaskRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Project alpha;
+    private Project beta;
+    private User alice;
+
+    @BeforeEach
+    void setUp() {
+        alice = user("alice");
+        User bob = user("bob");
+        alpha = project("alpha", alice);
+        beta = project("beta", bob);
+
+        task("Write release notes", "covers 100% of changes", Task.Status.PENDING, Task.Priority.HIGH,
+                LocalDateTime.of(2025, 3, 2, 17, 30), alpha, alice, bob);
+        task("Fix login_form", "validation bug", Task.Status.IN_PROGRESS, Task.Priority.MEDIUM,
+                LocalDateTime.of(2025, 3, 5, 9, 0), alpha, bob, alice);
+        task("Archive old data", null, Task.Status.COMPLETED, Task.Priority.LOW,
+                null, beta, bob, null);
+        task("Plan sprint", "release planning", Task.Status.PENDING, Task.Priority.LOW,
+                LocalDateTime.of(2025, 3, 1, 8, 0), beta, alice, alice);
+        entityManager.flush();
+        entityManager.clear();
+        CapturingInspector.statements.clear();
+    }
+
+    private User user(String name) {
+        User user = new User();
+        user.setUsername(name);
+        user.setPassword("x");
+        return entityManager.persist(user);
+    }
+
+    private Project project(String name, User owner) {
+        Project project = new Project();
+        project.setName(name);
+        project.setOwner(owner);
+        return entityManager.persist(project);
+    }
+
+    private void task(String title, String description, Task.Status status, Task.Priority priority,
+                      LocalDateTime dueDate, Project project, User creator, User assignee) {
+        Task task = new Task();
+        task.setTitle(title);
+        task.setDescription(description);
+        task.setStatus(status);
+        task.setPriority(priority);
+        task.setDueDate(dueDate);
+        task.setProject(project);
+        task.setCreator(creator);
+        task.setAssignee(assignee);
+        entityManager.persist(task);
+    }
+
+    private List<String> titles(TaskFilterDTO filter) {
+        return taskRepository.findAll(TaskSpecifications.matching(filter), Sort.by("id"))
+                .stream().map(Task::getTitle).toList();
+    }
+
+    @Test
+    void noFiltersMatchesEverything() {
+        assertEquals(4, titles(new TaskFilterDTO()).size());
+        String sql = CapturingInspector.statements.get(0).toLowerCase();
+        assertFalse(sql.contains(" where "), sql);
+    }
+
+    @Test
+    void combinesOnlyPresentFilters() {
+        TaskFilterDTO filter = new TaskFilterDTO();
+        filter.setProjectId(alpha.getId());
+        filter.setStatus(new Task.Status[] { Task.Status.PENDING, Task.Status.IN_PROGRESS });
+        filter.setPriority(new Task.Priority[] { Task.Priority.HIGH });
+        assertEquals(List.of("Write release notes"), titles(filter));
+
+        String sql = CapturingInspector.statements.get(0).toLowerCase();
+        assertFalse(sql.contains("like"), sql);
+        assertFalse(sql.contains("due_date>"), sql);
+    }
+
+    @Test
+    void searchIsCaseInsensitiveAndTreatsWildcardsLiterally() {
+        TaskFilterDTO filter = new TaskFilterDTO();
+        filter.setSearch("RELEASE");
+        assertEquals(List.of("Write release notes", "Plan sprint"), titles(filter));
+
+        filter.setSearch("100%");
+        assertEquals(List.of("Write release notes"), titles(filter));
+
+        filter.setSearch("logi_");
+        assertTrue(titles(filter).isEmpty());
+        filter.setSearch("in_f");
+        assertEquals(List.of("Fix login_form"), titles(filter));
+    }
+
+    @Test
+    void dueDateRangeIncludesTheWholeLastDay() {
+        TaskFilterDTO filter = new TaskFilterDTO();
+        filter.setDueDateFrom(LocalDate.of(2025, 3, 2));
+        filter.setDueDateTo(LocalDate.of(2025, 3, 2));
+        assertEquals(List.of("Write release notes"), titles(filter));
+    }
+
+    @Test
+    void filterCombinationsReuseOneStatementShape() {
+        TaskFilterDTO three = new TaskFilterDTO();
+        three.setAssigneeId(alice.getId());
+        three.setStatus(new Task.Status[] { Task.Status.PENDING, Task.Status.IN_PROGRESS, Task.Status.COMPLETED });
+        titles(three);
+
+        TaskFilterDTO four = new TaskFilterDTO();
+        four.setAssigneeId(alice.getId() + 1000);
+        four.setStatus(Task.Status.values());
+        titles(four);
+
+        assertEquals(2, CapturingInspector.statements.size());
+        assertEquals(CapturingInspector.statements.get(0), CapturingInspector.statements.get(1));
+    }
+
+    @Test
+    void pageCountsWithoutFetchJoinsAndSliceSkipsTheCount() {
+        TaskFilterDTO filter = new TaskFilterDTO();
+        filter.setStatus(new Task.Status[] { Task.Status.PENDING });
+
+        Page<Task> page = taskRepository.findAll(TaskSpecifications.matching(filter), PageRequest.of(0, 1, Sort.by("id")));
+        assertEquals(2, page.getTotalElements());
+        String countSql = CapturingInspector.statements.get(1).toLowerCase();
+        assertTrue(countSql.contains("count("), countSql);
+        assertFalse(countSql.contains("join"), countSql);
+
+        CapturingInspector.statements.clear();
+        Slice<Task> slice = taskRepository.findSlice(TaskSpecifications.matching(filter), PageRequest.of(0, 1, Sort.by("id")));
+        assertEquals(1, slice.getNumberOfElements());
+        assertTrue(slice.hasNext());
+        assertEquals(1, CapturingInspector.statements.size());
+    }
+
+    @Test
+    void mappingListedTasksDoesNotLoadAssociationsPerRow() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Task> tasks = taskRepository.findAll(TaskSpecifications.matching(new TaskFilterDTO()), Sort.by("id"));
+        tasks.forEach(EntityToDTOMapper::toTaskDTO);
+        tasks.forEach(task -> {
+            if (task.getAssignee() != null) {
+                task.getAssignee().getUsername();
+            }
+            task.getProject().getName();
+        });
+
+        // the filter query plus at most one batched load of the users' roles
+        assertTrue(statistics.getPrepareStatementCount() <= 2,
+                "statements: " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void labelFiltersMatchWholeLabels() {
+        List<Task> tasks = taskRepository.findAll(Sort.by("id"));
+        assertTrue(tasks.stream().allMatch(task -> task.getLabels().isEmpty()));
+        tasks.get(0).setLabels(Set.of("release", "docs"));
+        tasks.get(1).setLabels(Set.of("release-1", "axb"));
+        tasks.get(2).setLabels(Set.of("a_b"));
+        tasks.get(3).setLabels(Set.of("release"));
+        entityManager.flush();
+        entityManager.clear();
+
+        TaskFilterDTO all = new TaskFilterDTO();
+        all.setLabels(new String[] { "RELEASE", "docs" });
+        assertEquals(List.of("Write release notes"), titles(all));
+
+        TaskFilterDTO any = new TaskFilterDTO();
+        any.setAnyLabels(new String[] { "release", "release-1" });
+        assertEquals(List.of("Write release notes", "Fix login_form", "Plan sprint"), titles(any));
+
+        // Tasks without labels are not excluded by a label they do not have
+        TaskFilterDTO not = new TaskFilterDTO();
+        not.setNotLabels(new String[] { "release" });
+        assertEquals(List.of("Fix login_form", "Archive old data"), titles(not));
+
+        // '_' is part of the label, not a LIKE wildcard
+        TaskFilterDTO underscore = new TaskFilterDTO();
+        underscore.setLabels(new String[] { "a_b" });
+        assertEquals(List.of("Archive old data"), titles(underscore));
+        underscore.setLabels(null);
+        underscore.setNotLabels(new String[] { "a_b" });
+        assertEquals(List.of("Write release notes", "Fix login_form", "Plan sprint"), titles(underscore));
+
+        assertThrows(IllegalArgumentException.class, () -> all.setLabels(new String[] { "no spaces" }));
+        assertEquals(Set.of("docs", "release"), taskRepository.findAll(Sort.by("id")).get(0).getLabels());
+    }
+
+    @Test
+    void archivedTierUsesTheSameFilters() {
+        entityManager.persist(new ArchivedTask(1000L, "Old release notes", null, Task.Status.COMPLETED, Task.Priority.HIGH,
+                null, alpha.getId(), alice.getId(), alice.getId(), LocalDateTime.now(), LocalDateTime.now(), Set.of("release")));
+        entityManager.persist(new ArchivedTask(1001L, "Old sprint", null, Task.Status.CANCELLED, Task.Priority.LOW,
+                null, beta.getId(), alice.getId(), null, LocalDateTime.now(), LocalDateTime.now(), null));
+        entityManager.flush();
+
+        TaskFilterDTO filter = new TaskFilterDTO();
+        filter.setSearch("release");
+        filter.setProjectId(alpha.getId());
+        List<ArchivedTask> archived = archivedTaskRepository.findBy(TaskSpecifications.archivedMatching(filter),
+                query -> query.sortBy(Sort.by("id")).limit(10).all());
+        assertEquals(List.of(1000L), archived.stream().map(ArchivedTask::getId).toList());
+        assertEquals(alice.getId(), archived.get(0).toTask().getAssignee().getId());
+
+        TaskFilterDTO labelled = new TaskFilterDTO();
+        labelled.setLabels(new String[] { "release" });
+        archived = archivedTaskRepository.findBy(TaskSpecifications.archivedMatching(labelled),
+                query -> query.sortBy(Sort.by("id")).limit(10).all());
+        assertEquals(List.of(1000L), archived.stream().map(ArchivedTask::getId).toList());
+        assertEquals(Set.of("release"), archived.get(0).toTask().getLabels());
+    }
+}
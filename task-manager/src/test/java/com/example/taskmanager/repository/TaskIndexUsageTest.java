@@ -0,0 +1,122 @@
+package com.example.taskmanager.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the Flyway migrations against a real PostgreSQL, lets Hibernate validate the
+ * resulting schema, and checks with EXPLAIN that the task filter predicates are served
+ * by the indexes from V3__task_filter_indexes.sql instead of a sequential scan.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class TaskIndexUsageTest {
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.PostgreSQLDialect");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("spring.flyway.postgresql.transactional-lock", () -> "false");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static boolean seeded;
+
+    private void seed() {
+        if (seeded) {
+            return;
+        }
+        jdbcTemplate.execute("INSERT INTO users (username, password) "
+                + "SELECT 'user' || g, 'x' FROM generate_series(1, 500) g");
+        jdbcTemplate.execute("INSERT INTO projects (name, owner_id, created_at) "
+                + "SELECT 'project ' || g, 1 + g % 500, now() FROM generate_series(1, 2000) g");
+        // 80% of the rows are finished, as in production
+        jdbcTemplate.execute("""
+                INSERT INTO tasks (title, description, status, priority, due_date, project_id, creator_id, assignee_id)
+                SELECT 'task ' || g || ' ' || md5(g::text),
+                       'description ' || md5((g * 7)::text),
+                       CASE WHEN g % 10 < 8 THEN 'COMPLETED' WHEN g % 10 = 8 THEN 'PENDING' ELSE 'IN_PROGRESS' END,
+                       (ARRAY['LOW', 'MEDIUM', 'HIGH'])[1 + g % 3],
+                       TIMESTAMP '2025-01-01' + (g % 730) * INTERVAL '1 day',
+                       1 + g % 2000,
+                       1 + g % 500,
+                       1 + (g * 13) % 500
+                FROM generate_series(1, 200000) g
+                """);
+        jdbcTemplate.execute("ANALYZE");
+        seeded = true;
+    }
+
+    private String explain(String where) {
+        seed();
+        List<String> lines = jdbcTemplate.queryForList("EXPLAIN SELECT t.* FROM tasks t WHERE " + where, String.class);
+        return String.join("\n", lines);
+    }
+
+    private static void assertUsesIndex(String plan, String... acceptableIndexes) {
+        assertFalse(plan.contains("Seq Scan on tasks"), () -> "Expected an index scan but got:\n" + plan);
+        for (String index : acceptableIndexes) {
+            if (plan.contains(index)) {
+                return;
+            }
+        }
+        fail("Expected one of " + List.of(acceptableIndexes) + " in plan:\n" + plan);
+    }
+
+    @Test
+    void projectFilterUsesProjectIndex() {
+        assertUsesIndex(explain("t.project_id = 42"), "idx_tasks_project_status_priority");
+    }
+
+    @Test
+    void projectAndOpenStatusFilterUsesProjectIndex() {
+        assertUsesIndex(explain("t.project_id = 42 AND t.status IN ('PENDING', 'IN_PROGRESS')"),
+                "idx_tasks_project_status_priority", "idx_tasks_open_project_due");
+    }
+
+    @Test
+    void assigneeAndStatusFilterUsesAssigneeIndex() {
+        assertUsesIndex(explain("t.assignee_id = 7 AND t.status IN ('PENDING') AND t.priority IN ('HIGH')"),
+                "idx_tasks_assignee_status_priority", "idx_tasks_open_assignee_due");
+    }
+
+    @Test
+    void openAssigneeQueueOrderedByDueDateUsesPartialIndex() {
+        assertUsesIndex(explain("t.assignee_id = 7 AND t.status IN ('PENDING', 'IN_PROGRESS') ORDER BY t.due_date LIMIT 10"),
+                "idx_tasks_open_assignee_due");
+    }
+
+    @Test
+    void dueDateRangeUsesDueDateIndex() {
+        assertUsesIndex(explain("t.due_date >= DATE '2025-03-01' AND t.due_date <= DATE '2025-03-02'"),
+                "idx_tasks_due_date");
+    }
+
+    @Test
+    void searchUsesTrigramIndexes() {
+        String term = jdbcTemplate.queryForObject("SELECT substr(md5('12345'), 3, 8)", String.class);
+        String plan = explain("LOWER(t.title) LIKE LOWER('%" + term + "%') OR LOWER(t.description) LIKE LOWER('%" + term + "%')");
+        assertUsesIndex(plan, "idx_tasks_title_trgm");
+        assertTrue(plan.contains("idx_tasks_description_trgm"), plan);
+    }
+}
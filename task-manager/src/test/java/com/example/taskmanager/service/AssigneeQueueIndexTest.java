@@ -0,0 +1,178 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AssigneeQueueIndexTest {
+    private static final LocalDateTime DUE = LocalDateTime.of(2030, 3, 1, 9, 0);
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private CacheInvalidationBus invalidations;
+    private TaskStatusWriteBehind statusWriteBehind;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE tasks (id BIGINT PRIMARY KEY, title VARCHAR(255), description VARCHAR(1024), "
+                + "status VARCHAR(20), priority VARCHAR(20), due_date TIMESTAMP, creator_id BIGINT, assignee_id BIGINT, "
+                + "project_id BIGINT, labels VARCHAR(1024))");
+        meterRegistry = new SimpleMeterRegistry();
+        invalidations = new CacheInvalidationBus(mock(ObjectProvider.class), meterRegistry, "node", Duration.ofMillis(50), 256);
+        statusWriteBehind = mock(TaskStatusWriteBehind.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    private AssigneeQueueIndex index(int queueCapacity, int maxQueues, Duration idleTimeout) {
+        return new AssigneeQueueIndex(new NamedParameterJdbcTemplate(jdbcTemplate), statusWriteBehind, invalidations,
+                ShardRouter.unsharded(), meterRegistry, queueCapacity, maxQueues, idleTimeout, 1000);
+    }
+
+    private void insert(long id, Task.Status status, Task.Priority priority, LocalDateTime dueDate, Long assigneeId) {
+        jdbcTemplate.update("INSERT INTO tasks VALUES (?, ?, NULL, ?, ?, ?, 1, ?, NULL, NULL)",
+                id, "Task " + id, status.name(), priority.name(), dueDate, assigneeId);
+    }
+
+    /** A write the way TaskService makes it: the row, then the announcement. */
+    private void update(long id, String set, Object... arguments) {
+        jdbcTemplate.update("UPDATE tasks SET " + set + " WHERE id = " + id, arguments);
+        invalidations.invalidate(Invalidation.Type.TASK, id);
+    }
+
+    private static List<Long> ids(List<TaskDTO> tasks) {
+        return tasks.stream().map(TaskDTO::getId).toList();
+    }
+
+    private double reads(String result) {
+        return meterRegistry.get("taskmanager.assignee_queues.reads").tag("result", result).counter().count();
+    }
+
+    @Test
+    void servesOpenTasksInWorkOrderFromMemory() {
+        insert(1, Task.Status.PENDING, Task.Priority.LOW, DUE, 7L);
+        insert(2, Task.Status.IN_PROGRESS, Task.Priority.HIGH, DUE.plusDays(2), 7L);
+        insert(3, Task.Status.PENDING, Task.Priority.HIGH, DUE, 7L);
+        insert(4, Task.Status.COMPLETED, Task.Priority.HIGH, DUE, 7L);
+        insert(5, Task.Status.PENDING, Task.Priority.MEDIUM, null, 7L);
+        insert(6, Task.Status.PENDING, Task.Priority.HIGH, DUE, 8L);
+        jdbcTemplate.update("UPDATE tasks SET labels = ',release,' WHERE id = 3");
+        AssigneeQueueIndex index = index(50, 100, Duration.ofMinutes(5));
+
+        List<TaskDTO> queue = index.queue(7L, 10);
+        assertEquals(List.of(3L, 2L, 5L, 1L), ids(queue));
+        assertEquals(List.of("release"), queue.get(0).getLabels());
+        jdbcTemplate.update("DELETE FROM tasks");
+        assertEquals(List.of(3L, 2L), ids(index.queue(7L, 2)));
+        assertEquals(1, reads("load"));
+        assertEquals(1, reads("hit"));
+        assertThrows(IllegalArgumentException.class, () -> index.queue(7L, 51));
+    }
+
+    @Test
+    void followsTaskWritesAnnouncedOnTheBus() {
+        insert(1, Task.Status.PENDING, Task.Priority.LOW, DUE, 7L);
+        insert(2, Task.Status.PENDING, Task.Priority.MEDIUM, DUE, 7L);
+        insert(3, Task.Status.PENDING, Task.Priority.MEDIUM, DUE, 8L);
+        AssigneeQueueIndex index = index(50, 100, Duration.ofMinutes(5));
+        index.queue(7L, 10);
+        index.queue(8L, 10);
+
+        update(1, "priority = 'HIGH'");
+        update(3, "assignee_id = 7");
+        update(2, "status = 'COMPLETED'");
+        insert(4, Task.Status.PENDING, Task.Priority.LOW, null, 8L);
+        invalidations.invalidate(Invalidation.Type.TASK, 4L);
+        insert(5, Task.Status.PENDING, Task.Priority.HIGH, null, 9L);
+        invalidations.invalidate(Invalidation.Type.TASK, 5L);
+
+        assertEquals(List.of(1L, 3L), ids(index.queue(7L, 10)));
+        assertEquals(List.of(4L), ids(index.queue(8L, 10)));
+        assertEquals(2, reads("load"));
+
+        jdbcTemplate.update("DELETE FROM tasks WHERE id = 1");
+        invalidations.invalidate(Invalidation.Type.TASK, 1L);
+        assertEquals(List.of(3L), ids(index.queue(7L, 10)));
+    }
+
+    @Test
+    void reloadsWhenAllTasksChangedOrATruncatedQueueRunsShort() {
+        for (long id = 1; id <= 5; id++) {
+            insert(id, Task.Status.PENDING, Task.Priority.MEDIUM, DUE.plusDays(id), 7L);
+        }
+        AssigneeQueueIndex index = index(3, 100, Duration.ofMinutes(5));
+        assertEquals(List.of(1L, 2L, 3L), ids(index.queue(7L, 3)));
+
+        update(1, "status = 'COMPLETED'");
+        assertEquals(List.of(2L, 3L), ids(index.queue(7L, 2)));
+        assertEquals(List.of(2L, 3L, 4L), ids(index.queue(7L, 3)));
+        assertEquals(2, reads("load"));
+
+        jdbcTemplate.update("UPDATE tasks SET priority = 'HIGH' WHERE id = 5");
+        invalidations.invalidateAll(Invalidation.Type.TASK);
+        assertEquals(List.of(5L, 2L, 3L), ids(index.queue(7L, 3)));
+        assertEquals(3, reads("load"));
+    }
+
+    @Test
+    void evictsIdleAndLeastRecentlyReadQueues() {
+        insert(1, Task.Status.PENDING, Task.Priority.LOW, DUE, 7L);
+        insert(2, Task.Status.PENDING, Task.Priority.LOW, DUE, 8L);
+        insert(3, Task.Status.PENDING, Task.Priority.LOW, DUE, 9L);
+        AssigneeQueueIndex bounded = index(10, 2, Duration.ofMinutes(5));
+        bounded.queue(7L, 1);
+        bounded.queue(8L, 1);
+        bounded.queue(7L, 1);
+        bounded.queue(9L, 1);
+        assertEquals(1, meterRegistry.get("taskmanager.assignee_queues.evictions").counter().count());
+        // 8 was read least recently and made room for 9
+        bounded.queue(7L, 1);
+        assertEquals(3, reads("load"));
+        bounded.queue(8L, 1);
+        assertEquals(4, reads("load"));
+
+        AssigneeQueueIndex idle = index(10, 100, Duration.ZERO);
+        idle.queue(7L, 1);
+        idle.evictIdle();
+        idle.queue(7L, 1);
+        assertEquals(6, reads("load"));
+    }
+
+    @Test
+    void leavesOutTasksWithAPendingWriteBehindStatus() {
+        insert(1, Task.Status.PENDING, Task.Priority.HIGH, DUE, 7L);
+        insert(2, Task.Status.PENDING, Task.Priority.LOW, DUE, 7L);
+        when(statusWriteBehind.hasPending()).thenReturn(true);
+        when(statusWriteBehind.pendingStatus(anyLong())).thenReturn(Optional.empty());
+        when(statusWriteBehind.pendingStatus(1L)).thenReturn(Optional.of(Task.Status.COMPLETED));
+
+        assertEquals(List.of(2L), ids(index(10, 10, Duration.ofMinutes(5)).queue(7L, 10)));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.TaskDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssigneeQueueTest {
+    private static final LocalDateTime DUE = LocalDateTime.of(2030, 3, 1, 9, 0);
+
+    private static TaskDTO task(long id, String priority, LocalDateTime dueDate) {
+        return new TaskDTO(id, "Task " + id, null, "PENDING", priority, dueDate, 1L, 7L, null);
+    }
+
+    private static List<Long> top(AssigneeQueue queue, int limit) {
+        return queue.top(limit, id -> false).stream().map(TaskDTO::getId).toList();
+    }
+
+    @Test
+    void ordersByPriorityThenDueDateThenId() {
+        AssigneeQueue queue = new AssigneeQueue(10);
+        queue.put(task(1, "LOW", DUE));
+        queue.put(task(2, "HIGH", null));
+        queue.put(task(3, "HIGH", DUE.plusHours(1)));
+        queue.put(task(4, "MEDIUM", DUE.minusDays(2)));
+        queue.put(task(5, "HIGH", DUE.plusHours(1)));
+        queue.put(task(6, null, DUE));
+
+        assertEquals(List.of(3L, 5L, 2L, 4L, 1L, 6L), top(queue, 10));
+        assertEquals(List.of(3L, 5L), top(queue, 2));
+        assertEquals(List.of(5L, 4L), queue.top(2, id -> id == 3 || id == 2).stream().map(TaskDTO::getId).toList());
+    }
+
+    @Test
+    void putMovesATaskAndRemoveDropsIt() {
+        AssigneeQueue queue = new AssigneeQueue(10);
+        queue.put(task(1, "HIGH", DUE));
+        queue.put(task(2, "MEDIUM", DUE));
+        queue.put(task(3, "LOW", DUE));
+
+        queue.put(task(3, "HIGH", DUE.minusDays(1)));
+        assertEquals(List.of(3L, 1L, 2L), top(queue, 10));
+        assertTrue(queue.remove(1));
+        assertFalse(queue.remove(1));
+        assertEquals(List.of(3L, 2L), top(queue, 10));
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    void fullQueueKeepsTheFirstTasksAndBecomesTruncated() {
+        AssigneeQueue queue = new AssigneeQueue(3);
+        queue.put(task(1, "MEDIUM", DUE));
+        queue.put(task(2, "MEDIUM", DUE.plusDays(1)));
+        queue.put(task(3, "MEDIUM", DUE.plusDays(2)));
+        assertFalse(queue.isTruncated());
+
+        assertEquals(4, queue.put(task(4, "LOW", DUE)));
+        assertEquals(3, queue.put(task(5, "HIGH", DUE)));
+        assertEquals(List.of(5L, 1L, 2L), top(queue, 10));
+        assertTrue(queue.isTruncated());
+
+        // Once truncated, tasks past the last held one may have unheld ones before them
+        queue.remove(2);
+        assertEquals(6, queue.put(task(6, "LOW", DUE)));
+        assertEquals(List.of(5L, 1L), top(queue, 10));
+        assertFalse(queue.isShort(2));
+        assertTrue(queue.isShort(3));
+    }
+
+    @Test
+    void matchesASortOfTheSameTasks() {
+        Random random = new Random(42);
+        String[] priorities = { "LOW", "MEDIUM", "HIGH", null };
+        AssigneeQueue queue = new AssigneeQueue(1000);
+        List<TaskDTO> tasks = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            TaskDTO task = task(id, priorities[random.nextInt(4)],
+                    random.nextInt(5) == 0 ? null : DUE.plusMinutes(random.nextInt(10_000)));
+            tasks.add(task);
+            queue.put(task);
+        }
+        for (int i = 0; i < 200; i++) {
+            int index = random.nextInt(tasks.size());
+            TaskDTO moved = task(tasks.get(index).getId(), priorities[random.nextInt(4)], DUE.plusMinutes(random.nextInt(10_000)));
+            tasks.set(index, moved);
+            queue.put(moved);
+        }
+
+        List<Long> expected = tasks.stream()
+                .sorted(Comparator.comparingLong((TaskDTO task) -> AssigneeQueue.sortKey(task.getPriority(), task.getDueDate()))
+                        .thenComparing(TaskDTO::getId))
+                .map(TaskDTO::getId)
+                .toList();
+        assertEquals(expected, top(queue, 1000));
+    }
+}
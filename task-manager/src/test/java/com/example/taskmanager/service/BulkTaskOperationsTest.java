@@ -0,0 +1,174 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.exception.ResourceNotFoundException;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class BulkTaskOperationsTest {
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private BulkTaskOperations operations;
+    private ProjectStatsService projectStats;
+    private final TaskHistoryService history = mock(TaskHistoryService.class);
+    private final CacheInvalidationBus invalidations = mock(CacheInvalidationBus.class);
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database) {
+            @Override
+            public int update(String sql, Object... args) {
+                statements.add(sql);
+                return super.update(sql, args);
+            }
+        };
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE projects (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE tasks (id BIGINT PRIMARY KEY, status VARCHAR(20), priority VARCHAR(20), "
+                + "due_date TIMESTAMP, project_id BIGINT REFERENCES projects(id), assignee_id BIGINT REFERENCES users(id), "
+                + "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE tasks_archive (id BIGINT PRIMARY KEY, status VARCHAR(20), priority VARCHAR(20), "
+                + "due_date TIMESTAMP, project_id BIGINT)");
+        ProjectStatsServiceTest.createStatsTables(jdbcTemplate);
+        jdbcTemplate.execute("INSERT INTO users VALUES (1), (2), (3)");
+        jdbcTemplate.execute("INSERT INTO projects VALUES (10), (20)");
+        // project 10: tasks 1-5 assigned to user 1, 1 and 2 open; project 20: tasks 6-7 assigned to user 2
+        jdbcTemplate.execute("INSERT INTO tasks (id, status, project_id, assignee_id) VALUES "
+                + "(1, 'PENDING', 10, 1), (2, 'IN_PROGRESS', 10, 1), (3, 'COMPLETED', 10, 1), "
+                + "(4, 'CANCELLED', 10, 1), (5, 'PENDING', 10, 1), (6, 'PENDING', 20, 2), (7, 'PENDING', 20, 2)");
+
+        projectStats = new ProjectStatsService(new NamedParameterJdbcTemplate(jdbcTemplate),
+                new DataSourceTransactionManager(database), new SimpleMeterRegistry(), ShardRouter.unsharded());
+        projectStats.reconcile();
+        TaskStatusWriteBehind writeBehind = new TaskStatusWriteBehind(jdbcTemplate, new DataSourceTransactionManager(database),
+                projectStats, mock(DueDateScheduler.class), mock(TaskHistoryService.class), mock(CacheInvalidationBus.class),
+                new SimpleMeterRegistry(), false,
+                Path.of("unused"), 1, false,
+                ShardRouter.unsharded());
+        operations = new BulkTaskOperations(jdbcTemplate, new DataSourceTransactionManager(database),
+                new TaskCountCache(Duration.ofSeconds(30), 100), writeBehind, null, projectStats, history, 2, Duration.ofHours(1),
+                invalidations, ShardRouter.unsharded());
+        statements.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        operations.shutdown();
+        database.shutdown();
+    }
+
+    private BulkJob await(BulkJob job) throws Exception {
+        return job.completion().get(10, TimeUnit.SECONDS);
+    }
+
+    private long count(String where) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tasks WHERE " + where, Long.class);
+    }
+
+    @Test
+    void reassignsInChunksAndReportsProgress() throws Exception {
+        BulkJob job = await(operations.reassignTasks(1L, 3L));
+
+        assertEquals(BulkJob.State.COMPLETED, job.getState());
+        assertEquals(5, job.getTotal());
+        assertEquals(5, job.getProcessed());
+        assertEquals(0, count("assignee_id = 1"));
+        assertEquals(5, count("assignee_id = 3"));
+        assertEquals(2, count("assignee_id = 2"));
+        // chunks of 2, 2 and 1 rows, each a single update
+        assertEquals(3, statements.size());
+        assertSame(job, operations.getJob(job.getId()).orElseThrow());
+        // Every chunk announces its tasks, in chunk order
+        InOrder announced = inOrder(invalidations);
+        for (long id = 1; id <= 5; id++) {
+            announced.verify(invalidations).invalidate(Invalidation.Type.TASK, id);
+        }
+    }
+
+    @Test
+    void closesOnlyOpenTasksOfTheProject() throws Exception {
+        BulkJob job = await(operations.closeOpenTasks(10L, Task.Status.CANCELLED));
+
+        assertEquals(3, job.getProcessed());
+        assertEquals(4, count("project_id = 10 AND status = 'CANCELLED'"));
+        assertEquals(1, count("project_id = 10 AND status = 'COMPLETED'"));
+        assertEquals(2, count("project_id = 20 AND status = 'PENDING'"));
+
+        Map<String, Long> byStatus = projectStats.getStats(10L).orElseThrow().byStatus();
+        assertEquals(4L, byStatus.get("CANCELLED"));
+        assertEquals(0L, byStatus.get("PENDING") + byStatus.get("IN_PROGRESS"));
+        assertEquals(0, projectStats.reconcile());
+        // The history sees each chunk's open tasks
+        verify(history).recordStatusChanges(Set.of(1L, 2L), Task.Status.CANCELLED);
+        verify(history).recordStatusChanges(Set.of(5L), Task.Status.CANCELLED);
+        verify(invalidations).invalidate(Invalidation.Type.TASK, 5L);
+        verify(invalidations, never()).invalidate(Invalidation.Type.TASK, 3L);
+    }
+
+    @Test
+    void deletesProjectAfterItsTasks() throws Exception {
+        jdbcTemplate.execute("INSERT INTO tasks_archive (id, project_id) VALUES (100, 10), (101, 10), (102, 20)");
+
+        BulkJob job = await(operations.deleteProjectWithTasks(10L));
+
+        assertEquals(BulkJob.State.COMPLETED, job.getState());
+        assertEquals(7, job.getTotal());
+        assertEquals(7, job.getProcessed());
+        assertEquals(0, count("project_id = 10"));
+        assertEquals(1L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tasks_archive", Long.class));
+        assertEquals(2, count("project_id = 20"));
+        assertEquals(1L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM projects", Long.class));
+        assertTrue(projectStats.getStats(10L).isEmpty());
+    }
+
+    @Test
+    void validatesBeforeStarting() {
+        assertThrows(ResourceNotFoundException.class, () -> operations.reassignTasks(1L, 99L));
+        assertThrows(IllegalArgumentException.class, () -> operations.reassignTasks(1L, 1L));
+        assertThrows(IllegalArgumentException.class, () -> operations.closeOpenTasks(10L, Task.Status.PENDING));
+        assertThrows(ResourceNotFoundException.class, () -> operations.deleteProjectWithTasks(99L));
+        assertTrue(statements.isEmpty());
+    }
+
+    @Test
+    void failedJobReportsErrorAndKeepsCommittedChunks() throws Exception {
+        jdbcTemplate.execute("CREATE TABLE task_notes (task_id BIGINT REFERENCES tasks(id))");
+        jdbcTemplate.execute("INSERT INTO task_notes VALUES (5)");
+
+        BulkJob job = await(operations.deleteProjectWithTasks(10L));
+
+        assertEquals(BulkJob.State.FAILED, job.getState());
+        assertNotNull(job.getError());
+        // the first two chunks (tasks 1-4) committed, the third could not delete task 5
+        assertEquals(4, job.getProcessed());
+        assertEquals(1, count("project_id = 10"));
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DueDateSchedulerTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 9, 0);
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private final MutableClock clock = new MutableClock(START);
+    private final List<TaskDueEvent> events = new ArrayList<>();
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(LocalDateTime now) {
+            this.now = now.toInstant(ZoneOffset.UTC);
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE tasks (id BIGINT PRIMARY KEY, status VARCHAR(20), due_date TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE task_due_watermark (id INTEGER PRIMARY KEY, fired_until TIMESTAMP NOT NULL)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    private DueDateScheduler scheduler() {
+        // 1 s ticks, reminders 30 minutes ahead, a 2 hour window, watermark saved on every tick
+        return new DueDateScheduler(new NamedParameterJdbcTemplate(jdbcTemplate), event -> events.add((TaskDueEvent) event),
+                new SimpleMeterRegistry(), clock, true, Duration.ofSeconds(1), 16, Duration.ofHours(2),
+                Duration.ofMinutes(30), Duration.ofMinutes(5), 1000, 2, Duration.ZERO, ShardRouter.unsharded());
+    }
+
+    private void insert(long id, Task.Status status, LocalDateTime dueDate) {
+        jdbcTemplate.update("INSERT INTO tasks (id, status, due_date) VALUES (?, ?, ?)", id, status.name(), dueDate);
+    }
+
+    private void tickAfter(Duration duration, DueDateScheduler scheduler) {
+        clock.advance(duration);
+        scheduler.tick();
+    }
+
+    @Test
+    void publishesReminderThenOverdueForOpenTasks() {
+        insert(1, Task.Status.PENDING, START.plusHours(1));
+        insert(2, Task.Status.IN_PROGRESS, START.plusMinutes(10));
+        insert(3, Task.Status.COMPLETED, START.plusMinutes(5));
+        insert(4, Task.Status.PENDING, START.plusDays(2));
+        insert(5, Task.Status.PENDING, START.plusMinutes(40));
+        DueDateScheduler scheduler = scheduler();
+        scheduler.tick();
+
+        tickAfter(Duration.ofMinutes(15), scheduler);
+        // Task 2 was due too soon for a reminder
+        assertEquals(List.of(new TaskDueEvent(2L, START.plusMinutes(10), TaskDueEvent.Kind.OVERDUE),
+                new TaskDueEvent(5L, START.plusMinutes(40), TaskDueEvent.Kind.REMINDER)), events);
+
+        events.clear();
+        tickAfter(Duration.ofMinutes(50), scheduler);
+        assertEquals(List.of(new TaskDueEvent(1L, START.plusHours(1), TaskDueEvent.Kind.REMINDER),
+                new TaskDueEvent(5L, START.plusMinutes(40), TaskDueEvent.Kind.OVERDUE),
+                new TaskDueEvent(1L, START.plusHours(1), TaskDueEvent.Kind.OVERDUE)), events);
+        assertEquals(0, scheduler.scheduledCount());
+    }
+
+    @Test
+    void writesRescheduleAndTasksChangedBehindItsBackAreDropped() {
+        insert(1, Task.Status.PENDING, START.plusMinutes(5));
+        insert(2, Task.Status.PENDING, START.plusMinutes(5));
+        insert(3, Task.Status.PENDING, START.plusMinutes(5));
+        DueDateScheduler scheduler = scheduler();
+        scheduler.tick();
+
+        // Task 1 is moved through the service, task 2 by a path that does not notify, task 3 is closed in bulk
+        jdbcTemplate.update("UPDATE tasks SET due_date = ? WHERE id = 1", START.plusMinutes(20));
+        scheduler.taskChanged(1L, new ProjectStatsService.TaskSnapshot(10L, Task.Status.PENDING, Task.Priority.LOW,
+                START.plusMinutes(5)), new ProjectStatsService.TaskSnapshot(10L, Task.Status.PENDING,
+                Task.Priority.LOW, START.plusMinutes(20)));
+        jdbcTemplate.update("UPDATE tasks SET due_date = ? WHERE id = 2", START.plusMinutes(25));
+        jdbcTemplate.update("UPDATE tasks SET status = 'COMPLETED' WHERE id = 3");
+        // A task created due within the loaded window
+        insert(4, Task.Status.PENDING, START.plusMinutes(8));
+        scheduler.taskChanged(4L, null, new ProjectStatsService.TaskSnapshot(10L, Task.Status.PENDING,
+                Task.Priority.LOW, START.plusMinutes(8)));
+
+        tickAfter(Duration.ofMinutes(10), scheduler);
+        assertEquals(List.of(new TaskDueEvent(4L, START.plusMinutes(8), TaskDueEvent.Kind.OVERDUE)), events);
+
+        events.clear();
+        tickAfter(Duration.ofMinutes(20), scheduler);
+        assertEquals(List.of(new TaskDueEvent(1L, START.plusMinutes(20), TaskDueEvent.Kind.OVERDUE),
+                new TaskDueEvent(2L, START.plusMinutes(25), TaskDueEvent.Kind.OVERDUE)), events);
+    }
+
+    @Test
+    void restartPublishesWhatFellDueWhileDownOnlyOnce() {
+        insert(1, Task.Status.PENDING, START.plusMinutes(10));
+        insert(2, Task.Status.PENDING, START.plusMinutes(50));
+        insert(3, Task.Status.PENDING, START.plusHours(5));
+        scheduler().tick();
+        tickAfter(Duration.ofMinutes(12), scheduler());
+        // A fresh instance primes from the watermark, like after a restart
+        assertEquals(List.of(new TaskDueEvent(1L, START.plusMinutes(10), TaskDueEvent.Kind.OVERDUE)), events);
+
+        events.clear();
+        clock.advance(Duration.ofHours(1));
+        DueDateScheduler restarted = scheduler();
+        restarted.tick();
+        restarted.tick();
+        assertEquals(List.of(new TaskDueEvent(2L, START.plusMinutes(50), TaskDueEvent.Kind.REMINDER),
+                new TaskDueEvent(2L, START.plusMinutes(50), TaskDueEvent.Kind.OVERDUE)), events);
+
+        // Task 3 comes into the window with a later load
+        events.clear();
+        clock.advance(Duration.ofHours(3));
+        restarted.loadAhead();
+        tickAfter(Duration.ofMinutes(20), restarted);
+        assertEquals(List.of(new TaskDueEvent(3L, START.plusHours(5), TaskDueEvent.Kind.REMINDER)), events);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.taskmanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdBitmapTest {
+
+    /** Ids spread over a few containers: some sparse (arrays), some dense (bitmaps). */
+    private static TreeSet<Long> ids(Random random, double density) {
+        TreeSet<Long> ids = new TreeSet<>();
+        for (long high : new long[]{0, 1, 7, 65535}) {
+            for (int low = 0; low < 65536; low++) {
+                if (random.nextDouble() < density * (high == 1 ? 0.01 : 1)) {
+                    ids.add(high << 16 | low);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static IdBitmap bitmap(TreeSet<Long> ids) {
+        IdBitmap bitmap = new IdBitmap();
+        ids.forEach(bitmap::add);
+        return bitmap;
+    }
+
+    private static List<Long> all(IdBitmap bitmap) {
+        return Arrays.stream(bitmap.range(0, Integer.MAX_VALUE)).boxed().toList();
+    }
+
+    @Test
+    void setOperationsMatchSortedSets() {
+        Random random = new Random(7);
+        TreeSet<Long> left = ids(random, 0.3);
+        TreeSet<Long> right = ids(random, 0.05);
+        IdBitmap leftBitmap = bitmap(left);
+        IdBitmap rightBitmap = bitmap(right);
+
+        TreeSet<Long> and = new TreeSet<>(left);
+        and.retainAll(right);
+        TreeSet<Long> or = new TreeSet<>(left);
+        or.addAll(right);
+        TreeSet<Long> andNot = new TreeSet<>(left);
+        andNot.removeAll(right);
+        TreeSet<Long> rightAndNot = new TreeSet<>(right);
+        rightAndNot.removeAll(left);
+
+        assertEquals(List.copyOf(left), all(leftBitmap));
+        assertEquals(List.copyOf(and), all(leftBitmap.and(rightBitmap)));
+        assertEquals(List.copyOf(and), all(rightBitmap.and(leftBitmap)));
+        assertEquals(List.copyOf(or), all(leftBitmap.or(rightBitmap)));
+        assertEquals(List.copyOf(or), all(IdBitmap.orAll(List.of(rightBitmap, leftBitmap))));
+        assertEquals(List.copyOf(andNot), all(leftBitmap.andNot(rightBitmap)));
+        assertEquals(List.copyOf(rightAndNot), all(rightBitmap.andNot(leftBitmap)));
+        assertEquals(or.size(), leftBitmap.or(rightBitmap).cardinality());
+        // The operands are unchanged
+        assertEquals(left.size(), leftBitmap.cardinality());
+        assertEquals(right.size(), rightBitmap.cardinality());
+    }
+
+    @Test
+    void pagesThroughTheIdsInOrder() {
+        TreeSet<Long> ids = ids(new Random(11), 0.2);
+        IdBitmap bitmap = bitmap(ids);
+        List<Long> expected = List.copyOf(ids);
+        for (long offset : new long[]{0, 1, 4095, 4096, 13107, expected.size() - 3}) {
+            long[] page = bitmap.range(offset, 10);
+            assertEquals(expected.subList((int) offset, (int) Math.min(expected.size(), offset + 10)),
+                    Arrays.stream(page).boxed().toList(), "offset " + offset);
+        }
+        assertEquals(0, bitmap.range(expected.size(), 10).length);
+    }
+
+    @Test
+    void convertsContainersBothWaysOnAddAndRemove() {
+        IdBitmap bitmap = new IdBitmap();
+        for (long id = 0; id < 10_000; id++) {
+            bitmap.add(id * 2);
+        }
+        bitmap.add(4294967295L);
+        long dense = bitmap.bytes();
+        for (long id = 0; id < 9_000; id++) {
+            bitmap.remove(id * 2);
+        }
+        assertTrue(bitmap.bytes() < dense);
+        assertEquals(1001, bitmap.cardinality());
+        assertTrue(bitmap.contains(18_000));
+        assertFalse(bitmap.contains(17_998));
+        assertFalse(bitmap.contains(18_001));
+        assertTrue(bitmap.contains(4294967295L));
+
+        for (long id = 9_000; id < 10_000; id++) {
+            bitmap.remove(id * 2);
+        }
+        bitmap.remove(4294967295L);
+        assertTrue(bitmap.isEmpty());
+        assertFalse(IdBitmap.fits(4294967296L));
+        assertFalse(IdBitmap.fits(-1));
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(4294967296L));
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import com.example.taskmanager.dto.ProjectMembershipDTO;
+import com.example.taskmanager.exception.ResourceNotFoundException;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProjectMembershipServiceTest {
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private ProjectStatsService projectStats;
+    private ProjectMembershipService membership;
+    private final TaskHistoryService history = mock(TaskHistoryService.class);
+    private final CacheInvalidationBus invalidations = mock(CacheInvalidationBus.class);
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database) {
+            @Override
+            public int update(PreparedStatementCreator creator) throws DataAccessException {
+                statements.add(((SqlProvider) creator).getSql());
+                return super.update(creator);
+            }
+        };
+        jdbcTemplate.execute("CREATE TABLE projects (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE tasks (id BIGINT PRIMARY KEY, status VARCHAR(20), priority VARCHAR(20), "
+                + "due_date TIMESTAMP, project_id BIGINT REFERENCES projects(id), "
+                + "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        jdbcTemplate.execute("CREATE TABLE tasks_archive (id BIGINT PRIMARY KEY, status VARCHAR(20), priority VARCHAR(20), "
+                + "due_date TIMESTAMP, project_id BIGINT)");
+        ProjectStatsServiceTest.createStatsTables(jdbcTemplate);
+        jdbcTemplate.execute("INSERT INTO projects VALUES (10), (20)");
+        // project 10: tasks 1-4; project 20: tasks 5-6; no project: task 7
+        jdbcTemplate.execute("INSERT INTO tasks (id, status, priority, due_date, project_id) VALUES "
+                + "(1, 'PENDING', 'HIGH', TIMESTAMP '2030-01-02 10:00:00', 10), (2, 'IN_PROGRESS', 'LOW', NULL, 10), "
+                + "(3, 'COMPLETED', 'LOW', NULL, 10), (4, 'PENDING', 'MEDIUM', NULL, 10), "
+                + "(5, 'PENDING', 'HIGH', NULL, 20), (6, 'CANCELLED', 'MEDIUM', NULL, 20), "
+                + "(7, 'PENDING', 'LOW', NULL, NULL)");
+
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(jdbcTemplate);
+        projectStats = new ProjectStatsService(named, new DataSourceTransactionManager(database),
+                new SimpleMeterRegistry(), ShardRouter.unsharded());
+        projectStats.reconcile();
+        TaskStatusWriteBehind writeBehind = mock(TaskStatusWriteBehind.class);
+        when(writeBehind.pendingStatus(anyLong())).thenReturn(Optional.empty());
+        membership = new ProjectMembershipService(named, projectStats, history, writeBehind, invalidations,
+                ShardRouter.unsharded(), 5);
+        statements.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    private List<Long> tasksOf(Long projectId) {
+        return jdbcTemplate.queryForList("SELECT id FROM tasks WHERE project_id " + (projectId != null ? "= " + projectId
+                : "IS NULL") + " ORDER BY id", Long.class);
+    }
+
+    private List<String> taskUpdates() {
+        return statements.stream().filter(sql -> sql.startsWith("UPDATE tasks")).toList();
+    }
+
+    @Test
+    void movesTasksInOneStatementAndKeepsTheStatsExact() {
+        ProjectMembershipDTO result = membership.addTasks(20L, Arrays.asList(1L, 2L, 7L, 5L, 99L, 1L));
+
+        assertEquals(new ProjectMembershipDTO(20L, 5, 3, List.of(99L)), result);
+        assertEquals(List.of(3L, 4L), tasksOf(10L));
+        assertEquals(List.of(1L, 2L, 5L, 6L, 7L), tasksOf(20L));
+        assertEquals(1, taskUpdates().size());
+
+        assertEquals(2, projectStats.getStats(10L).orElseThrow().totalTasks());
+        Map<String, Long> byStatus = projectStats.getStats(20L).orElseThrow().byStatus();
+        assertEquals(3L, byStatus.get("PENDING"));
+        assertEquals(1L, byStatus.get("IN_PROGRESS"));
+        assertEquals(0, projectStats.reconcile());
+
+        verify(history).recordProjectExits(Set.of(1L, 2L, 7L));
+        verify(history).recordProjectEntries(Set.of(1L, 2L, 7L));
+        verify(invalidations).invalidate(Invalidation.Type.TASK, 7L);
+        verify(invalidations, never()).invalidate(Invalidation.Type.TASK, 5L);
+        verify(invalidations).invalidate(Invalidation.Type.PROJECT, 10L);
+        verify(invalidations).invalidate(Invalidation.Type.PROJECT, 20L);
+    }
+
+    @Test
+    void removesOnlyTasksOfTheProject() {
+        ProjectMembershipDTO result = membership.removeTasks(10L, List.of(1L, 3L, 5L, 7L));
+
+        assertEquals(new ProjectMembershipDTO(10L, 4, 2, List.of(5L, 7L)), result);
+        assertEquals(List.of(2L, 4L), tasksOf(10L));
+        assertEquals(List.of(1L, 3L, 7L), tasksOf(null));
+        assertEquals(List.of(5L, 6L), tasksOf(20L));
+        assertEquals(1, taskUpdates().size());
+        assertEquals(2, projectStats.getStats(10L).orElseThrow().totalTasks());
+        assertEquals(0, projectStats.reconcile());
+
+        // Nothing left to remove: no task is written
+        statements.clear();
+        assertEquals(0, membership.removeTasks(10L, List.of(1L, 3L)).changed());
+        assertTrue(taskUpdates().isEmpty());
+    }
+
+    @Test
+    void validatesTheBatchAndTheProject() {
+        assertThrows(IllegalArgumentException.class, () -> membership.addTasks(10L, List.of()));
+        assertThrows(IllegalArgumentException.class, () -> membership.addTasks(10L, Arrays.asList(1L, null)));
+        assertThrows(IllegalArgumentException.class, () -> membership.addTasks(10L, List.of(1L, 2L, 3L, 4L, 5L, 6L)));
+        assertThrows(ResourceNotFoundException.class, () -> membership.removeTasks(99L, List.of(1L)));
+        assertTrue(statements.isEmpty());
+        assertEquals(List.of(1L, 2L, 3L, 4L), tasksOf(10L));
+    }
+}
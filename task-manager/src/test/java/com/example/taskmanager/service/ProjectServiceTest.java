@@ -1,15 +1,19 @@
 package com.example.taskmanager.service;
 
+import com.example.taskmanager.cache.CacheInvalidationBus;
 import com.example.taskmanager.entities.Project;
 import com.example.taskmanager.repository.ProjectRepository;
+import com.example.taskmanager.sharding.ShardRouter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -17,12 +21,26 @@ class ProjectServiceTest {
     @Mock
     private ProjectRepository projectRepository;
 
+    @Mock
+    private RequestCoalescer requestCoalescer;
+
+    @Mock
+    private ProjectStatsService projectStats;
+
+    @Mock
+    private CacheInvalidationBus invalidations;
+
+    @Spy
+    private ShardRouter shards = ShardRouter.unsharded();
+
     @InjectMocks
     private ProjectService projectService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(requestCoalescer.execute(anyString(), any(), any()))
+            .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
     }
 
     @Test
@@ -50,6 +68,7 @@ class ProjectServiceTest {
         when(projectRepository.save(project)).thenReturn(project);
         Project created = projectService.createProject(project);
         assertNotNull(created);
+        verify(projectStats).createFor(project.getId());
     }
 
     @Test
@@ -0,0 +1,148 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.ProjectStatsDTO;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProjectStatsServiceTest {
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private ProjectStatsService projectStats;
+    private final LocalDate today = LocalDate.now();
+
+    /** The tables of the V6 migration, in H2 syntax. */
+    static void createStatsTables(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE project_stats (project_id BIGINT PRIMARY KEY REFERENCES projects(id) ON DELETE CASCADE, "
+                + "total_tasks BIGINT DEFAULT 0 NOT NULL, pending_tasks BIGINT DEFAULT 0 NOT NULL, "
+                + "in_progress_tasks BIGINT DEFAULT 0 NOT NULL, completed_tasks BIGINT DEFAULT 0 NOT NULL, "
+                + "cancelled_tasks BIGINT DEFAULT 0 NOT NULL, low_priority_tasks BIGINT DEFAULT 0 NOT NULL, "
+                + "medium_priority_tasks BIGINT DEFAULT 0 NOT NULL, high_priority_tasks BIGINT DEFAULT 0 NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE project_stats_due (project_id BIGINT NOT NULL REFERENCES projects(id) ON DELETE CASCADE, "
+                + "due_date DATE NOT NULL, open_tasks BIGINT NOT NULL, PRIMARY KEY (project_id, due_date))");
+    }
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE projects (id BIGINT PRIMARY KEY)");
+        String columns = "id BIGINT PRIMARY KEY, status VARCHAR(20), priority VARCHAR(20), due_date TIMESTAMP, project_id BIGINT";
+        jdbcTemplate.execute("CREATE TABLE tasks (" + columns + ")");
+        jdbcTemplate.execute("CREATE TABLE tasks_archive (" + columns + ")");
+        createStatsTables(jdbcTemplate);
+        jdbcTemplate.execute("INSERT INTO projects VALUES (10), (20)");
+
+        projectStats = new ProjectStatsService(new NamedParameterJdbcTemplate(jdbcTemplate),
+                new DataSourceTransactionManager(database), new SimpleMeterRegistry(), ShardRouter.unsharded());
+        projectStats.createFor(10L);
+        projectStats.createFor(20L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    /** Inserts a task the way TaskService.createTask does: the row, then its delta. */
+    private void create(long id, Long projectId, Task.Status status, Task.Priority priority, LocalDate due) {
+        jdbcTemplate.update("INSERT INTO tasks (id, status, priority, due_date, project_id) VALUES (?, ?, ?, ?, ?)",
+                id, status.name(), priority.name(), due != null ? due.atTime(17, 0) : null, projectId);
+        projectStats.recordChange(null, new ProjectStatsService.TaskSnapshot(projectId, status, priority,
+                due != null ? due.atTime(17, 0) : null));
+    }
+
+    private void update(long id, String set, Object... arguments) {
+        ProjectStatsService.TaskSnapshot before = projectStats.lockTask(id);
+        jdbcTemplate.update("UPDATE tasks SET " + set + " WHERE id = " + id, arguments);
+        projectStats.recordChange(before, projectStats.lockTask(id));
+    }
+
+    @Test
+    void writesMaintainCountsByDelta() {
+        create(1, 10L, Task.Status.PENDING, Task.Priority.HIGH, today.minusDays(3));
+        create(2, 10L, Task.Status.IN_PROGRESS, Task.Priority.LOW, today.minusDays(1));
+        create(3, 10L, Task.Status.PENDING, Task.Priority.LOW, today);
+        create(4, 10L, Task.Status.CANCELLED, Task.Priority.MEDIUM, today.minusDays(9));
+        create(5, 20L, Task.Status.PENDING, Task.Priority.HIGH, null);
+
+        ProjectStatsDTO stats = projectStats.getStats(10L).orElseThrow();
+        assertEquals(4, stats.totalTasks());
+        assertEquals(Map.of("PENDING", 2L, "IN_PROGRESS", 1L, "COMPLETED", 0L, "CANCELLED", 1L), stats.byStatus());
+        assertEquals(Map.of("LOW", 2L, "MEDIUM", 1L, "HIGH", 1L), stats.byPriority());
+        // due today is not overdue yet, and cancelled tasks are never overdue
+        assertEquals(2, stats.overdueTasks());
+        assertEquals(0.0, stats.completionPercentage());
+
+        update(1, "status = 'COMPLETED'");
+        update(2, "project_id = 20");
+        jdbcTemplate.update("DELETE FROM tasks WHERE id = 3");
+        projectStats.recordChange(new ProjectStatsService.TaskSnapshot(10L, Task.Status.PENDING, Task.Priority.LOW,
+                today.atTime(17, 0)), null);
+
+        stats = projectStats.getStats(10L).orElseThrow();
+        assertEquals(2, stats.totalTasks());
+        assertEquals(1L, stats.byStatus().get("COMPLETED"));
+        assertEquals(0, stats.overdueTasks());
+        assertEquals(100.0, stats.completionPercentage());
+        ProjectStatsDTO other = projectStats.getStats(20L).orElseThrow();
+        assertEquals(2, other.totalTasks());
+        assertEquals(1, other.overdueTasks());
+
+        assertEquals(0, projectStats.reconcile());
+    }
+
+    @Test
+    void unchangedFieldsWriteNothing() {
+        create(1, 10L, Task.Status.PENDING, Task.Priority.HIGH, today);
+        jdbcTemplate.execute("UPDATE project_stats SET total_tasks = 42");
+
+        update(1, "due_date = due_date");
+
+        assertEquals(42, projectStats.getStats(10L).orElseThrow().totalTasks());
+    }
+
+    @Test
+    void reconcileRepairsDriftIncludingArchivedTasks() {
+        create(1, 10L, Task.Status.PENDING, Task.Priority.HIGH, today.minusDays(2));
+        jdbcTemplate.execute("INSERT INTO tasks (id, status, priority, due_date, project_id) "
+                + "VALUES (2, 'IN_PROGRESS', 'LOW', DATEADD('DAY', -5, CURRENT_DATE), 10)");
+        jdbcTemplate.execute("INSERT INTO tasks_archive (id, status, priority, project_id) VALUES (3, 'COMPLETED', 'LOW', 10)");
+        jdbcTemplate.execute("UPDATE project_stats SET pending_tasks = 7 WHERE project_id = 20");
+
+        assertEquals(2, projectStats.reconcile());
+
+        ProjectStatsDTO stats = projectStats.getStats(10L).orElseThrow();
+        assertEquals(3, stats.totalTasks());
+        assertEquals(Map.of("PENDING", 1L, "IN_PROGRESS", 1L, "COMPLETED", 1L, "CANCELLED", 0L), stats.byStatus());
+        assertEquals(2, stats.overdueTasks());
+        assertEquals(33.3, stats.completionPercentage());
+        assertEquals(0, projectStats.getStats(20L).orElseThrow().byStatus().get("PENDING"));
+        assertEquals(0, projectStats.reconcile());
+    }
+
+    @Test
+    void listingsReadStatsOfSeveralProjectsAtOnce() {
+        create(1, 20L, Task.Status.PENDING, Task.Priority.HIGH, null);
+
+        Map<Long, ProjectStatsDTO> stats = projectStats.getStats(List.of(10L, 20L, 30L));
+
+        assertEquals(List.of(10L, 20L), stats.keySet().stream().sorted().toList());
+        assertEquals(1, stats.get(20L).totalTasks());
+    }
+}
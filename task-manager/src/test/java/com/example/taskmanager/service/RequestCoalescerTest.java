@@ -0,0 +1,152 @@
+package com.example.taskmanager.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+    /** Transaction manager without a resource; enough for TransactionTemplate. */
+    static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, org.springframework.transaction.TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+
+    private SimpleMeterRegistry meterRegistry;
+    private RequestCoalescer coalescer;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new RequestCoalescer(meterRegistry, new NoOpTransactionManager());
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private double calls(String result) {
+        return meterRegistry.counter("taskmanager.coalescing.calls", "operation", "op", "result", result).count();
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Object shared = new Object();
+
+        Future<Object> leader = executor.submit(() -> coalescer.execute("op", 1L, () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return shared;
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        List<Future<Object>> followers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            followers.add(executor.submit(() -> coalescer.execute("op", 1L, () -> {
+                loads.incrementAndGet();
+                return new Object();
+            })));
+        }
+        // wait until all followers have joined the flight
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (calls("coalesced") < 5 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertSame(shared, leader.get(5, TimeUnit.SECONDS));
+        for (Future<Object> follower : followers) {
+            assertSame(shared, follower.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, calls("executed"));
+        assertEquals(5, calls("coalesced"));
+    }
+
+    @Test
+    void resultIsNotKeptAfterTheFlight() {
+        AtomicInteger loads = new AtomicInteger();
+        coalescer.execute("op", 1L, loads::incrementAndGet);
+        coalescer.execute("op", 1L, loads::incrementAndGet);
+        coalescer.execute("op", 2L, loads::incrementAndGet);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void followersReceiveTheLeadersException() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> leader = executor.submit(() -> coalescer.execute("op", 1L, () -> {
+            loading.countDown();
+            await(release);
+            throw new IllegalStateException("database down");
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        Future<Object> follower = executor.submit(() -> coalescer.execute("op", 1L, Object::new));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (calls("coalesced") < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        Exception e = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+        // the failed flight is gone, the next call loads again
+        assertEquals("ok", coalescer.execute("op", 1L, () -> "ok"));
+    }
+
+    @Test
+    void callersInsideATransactionAreNotCoalesced() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertEquals("own", coalescer.execute("op", 1L, () -> "own"));
+            assertEquals(1, calls("bypassed"));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
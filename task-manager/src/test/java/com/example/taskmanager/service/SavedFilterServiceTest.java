@@ -0,0 +1,242 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import com.example.taskmanager.dto.SavedFilterDTO;
+import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.entities.Project;
+import com.example.taskmanager.entities.SavedFilter;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.exception.ConflictException;
+import com.example.taskmanager.exception.ResourceNotFoundException;
+import com.example.taskmanager.repository.SavedFilterRepository;
+import com.example.taskmanager.repository.TaskRepository;
+import com.example.taskmanager.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SavedFilterServiceTest {
+    private static final SavedFilterDTO.Criteria HIGH_BACKEND = new SavedFilterDTO.Criteria(null, null,
+            List.of("high"), null, null, null, null, List.of("backend"), null, null);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final SavedFilterRepository savedFilters = mock(SavedFilterRepository.class);
+    private final TaskRepository taskRepository = mock(TaskRepository.class);
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transaction;
+    private CacheInvalidationBus invalidations;
+    private SimpleMeterRegistry meterRegistry;
+    private SavedFilterService service;
+    private SavedFilter saved;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE tasks (id BIGINT PRIMARY KEY, title VARCHAR(255), description VARCHAR(1024), "
+                + "status VARCHAR(20), priority VARCHAR(20), due_date TIMESTAMP, project_id BIGINT, "
+                + "assignee_id BIGINT, labels VARCHAR(1024))");
+        transaction = new TransactionTemplate(new DataSourceTransactionManager(database));
+        meterRegistry = new SimpleMeterRegistry();
+        invalidations = new CacheInvalidationBus(mock(ObjectProvider.class), meterRegistry, "node", Duration.ofMillis(50), 256);
+        service = new SavedFilterService(savedFilters, taskRepository, new NamedParameterJdbcTemplate(jdbcTemplate),
+                invalidations, ShardRouter.unsharded(), objectMapper, meterRegistry, true, 2, 1000);
+
+        saved = new SavedFilter(7L, 1L, "Backend, high", objectMapper.writeValueAsString(HIGH_BACKEND), null);
+        when(savedFilters.findAll()).thenReturn(List.of(saved));
+        when(savedFilters.findById(7L)).thenReturn(Optional.of(saved));
+        when(taskRepository.findIds(any())).thenReturn(List.of(1L));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    private static Task task(long id, Task.Priority priority, String... labels) {
+        return Task.builder().id(id).title("Task " + id).status(Task.Status.PENDING).priority(priority)
+                .labels(Set.of(labels)).build();
+    }
+
+    private List<Long> open() {
+        return Arrays.stream(service.open(1L, 7L, 0, 10).ids()).boxed().toList();
+    }
+
+    private long count() {
+        return service.open(1L, 7L, 0, 10).filter().matchCount();
+    }
+
+    private double changes(String source) {
+        return meterRegistry.get("taskmanager.saved_filters.changes").tag("source", source).counter().count();
+    }
+
+    @Test
+    void matchesTasksLikeTheFilterQuery() {
+        SavedFilterService.Row row = new SavedFilterService.Row(1, "Fix Login", "on mobile", Task.Status.PENDING,
+                Task.Priority.HIGH, LocalDateTime.of(2030, 1, 2, 23, 30), 10L, null, Set.of("backend", "bug"));
+
+        TaskFilterDTO search = new TaskFilterDTO();
+        search.setSearch("MOBILE");
+        assertTrue(SavedFilterService.matches(search, row));
+        search.setStatus(new Task.Status[]{Task.Status.COMPLETED});
+        assertFalse(SavedFilterService.matches(search, row));
+
+        // Whole days: the 2nd includes 23:30 that day
+        TaskFilterDTO due = new TaskFilterDTO();
+        due.setDueDateFrom(LocalDate.of(2030, 1, 2));
+        due.setDueDateTo(LocalDate.of(2030, 1, 2));
+        assertTrue(SavedFilterService.matches(due, row));
+        due.setDueDateTo(LocalDate.of(2030, 1, 1));
+        assertFalse(SavedFilterService.matches(due, row));
+
+        TaskFilterDTO labels = new TaskFilterDTO();
+        labels.setLabels(new String[]{"Backend"});
+        labels.setAnyLabels(new String[]{"bug", "feature"});
+        labels.setProjectId(10L);
+        assertTrue(SavedFilterService.matches(labels, row));
+        labels.setNotLabels(new String[]{"bug"});
+        assertFalse(SavedFilterService.matches(labels, row));
+
+        TaskFilterDTO assigned = new TaskFilterDTO();
+        assigned.setAssigneeId(3L);
+        assertFalse(SavedFilterService.matches(assigned, row));
+    }
+
+    @Test
+    void appliesCommittedTaskWritesWithoutReadingThemBack() {
+        service.loadOnStartup();
+        assertEquals(List.of(1L), open());
+
+        // None of these rows is in the database: only the written row can put them in the set
+        transaction.executeWithoutResult(status -> {
+            service.taskWritten(task(2, Task.Priority.HIGH, "backend", "api"));
+            invalidations.invalidate(Invalidation.Type.TASK, 2L);
+            service.taskWritten(task(3, Task.Priority.LOW, "backend"));
+            invalidations.invalidate(Invalidation.Type.TASK, 3L);
+        });
+        assertEquals(List.of(1L, 2L), open());
+
+        transaction.executeWithoutResult(status -> {
+            service.taskWritten(task(4, Task.Priority.HIGH, "backend"));
+            invalidations.invalidate(Invalidation.Type.TASK, 4L);
+            status.setRollbackOnly();
+        });
+        transaction.executeWithoutResult(status -> {
+            service.taskWritten(task(1, Task.Priority.HIGH, "frontend"));
+            invalidations.invalidate(Invalidation.Type.TASK, 1L);
+            service.taskDeleted(3L);
+            invalidations.invalidate(Invalidation.Type.TASK, 3L);
+        });
+        assertEquals(List.of(2L), open());
+        assertEquals(1, count());
+        assertEquals(4, changes("write"));
+        assertEquals(0, changes("reread"));
+        verify(taskRepository, times(1)).findIds(any());
+    }
+
+    @Test
+    void rereadsTasksAnnouncedOnlyByIdAndRebuildsOnInvalidateAll() {
+        service.loadOnStartup();
+        jdbcTemplate.update("INSERT INTO tasks VALUES (5, 'Five', NULL, 'PENDING', 'HIGH', NULL, NULL, NULL, ',backend,')");
+        jdbcTemplate.update("INSERT INTO tasks VALUES (6, 'Six', NULL, 'PENDING', 'MEDIUM', NULL, NULL, NULL, ',backend,')");
+        invalidations.invalidate(Invalidation.Type.TASK, 5L);
+        invalidations.invalidate(Invalidation.Type.TASK, 6L);
+        // Task 1 is not in the database any more
+        invalidations.invalidate(Invalidation.Type.TASK, 1L);
+
+        assertEquals(List.of(5L), open());
+        assertEquals(3, changes("reread"));
+
+        when(taskRepository.findIds(any())).thenReturn(List.of(5L, 6L));
+        invalidations.invalidateAll(Invalidation.Type.TASK);
+        assertEquals(List.of(5L, 6L), open());
+        assertEquals(2, meterRegistry.get("taskmanager.saved_filters.builds").counter().count());
+    }
+
+    @Test
+    void readsEmptyListsAsNoFilterLikeTheQuery() throws Exception {
+        SavedFilterDTO.Criteria anyStatus = new SavedFilterDTO.Criteria(null, List.of(), List.of(), null, null, null,
+                null, List.of("backend"), List.of(), List.of());
+        TaskFilterDTO filter = anyStatus.toFilter();
+        assertNull(filter.getStatus());
+        assertNull(filter.getPriority());
+        assertNull(filter.getAnyLabels());
+        saved = new SavedFilter(7L, 1L, "Backend, any status", objectMapper.writeValueAsString(anyStatus), null);
+        when(savedFilters.findAll()).thenReturn(List.of(saved));
+        when(savedFilters.findById(7L)).thenReturn(Optional.of(saved));
+        service.loadOnStartup();
+        assertEquals(List.of(1L), open());
+
+        // The query put task 1 in the set; writing it or another backend task keeps them there
+        transaction.executeWithoutResult(status -> {
+            service.taskWritten(task(1, Task.Priority.LOW, "backend"));
+            invalidations.invalidate(Invalidation.Type.TASK, 1L);
+            service.taskWritten(task(2, Task.Priority.HIGH, "backend"));
+            invalidations.invalidate(Invalidation.Type.TASK, 2L);
+        });
+        assertEquals(List.of(1L, 2L), open());
+        assertEquals(2, count());
+
+        // A filter bound from blank request parameters matches like one without them
+        TaskFilterDTO blanks = new TaskFilterDTO();
+        blanks.setStatus(new Task.Status[]{null});
+        blanks.setPriority(new Task.Priority[]{null});
+        assertTrue(SavedFilterService.matches(blanks, new SavedFilterService.Row(1, "Task", null,
+                Task.Status.PENDING, Task.Priority.LOW, null, null, null, Set.of())));
+    }
+
+    @Test
+    void keepsFiltersPerUser() throws Exception {
+        when(savedFilters.save(any())).thenAnswer(invocation -> {
+            SavedFilter created = invocation.getArgument(0);
+            return new SavedFilter(8L, created.getUserId(), created.getName(), created.getDefinition(), null);
+        });
+        SavedFilterDTO created = service.create(1L, "  Mine ", HIGH_BACKEND);
+        assertEquals(new SavedFilterDTO(8L, "Mine", HIGH_BACKEND, 1L), created);
+
+        when(savedFilters.existsByUserIdAndName(1L, "Mine")).thenReturn(true);
+        assertThrows(ConflictException.class, () -> service.create(1L, "Mine", HIGH_BACKEND));
+        SavedFilterDTO.Criteria badStatus = new SavedFilterDTO.Criteria(null, List.of("done"), null, null, null,
+                null, null, null, null, null);
+        assertThrows(IllegalArgumentException.class, () -> service.create(1L, "Done", badStatus));
+        assertThrows(IllegalArgumentException.class, () -> service.create(1L, " ", HIGH_BACKEND));
+        when(savedFilters.countByUserId(1L)).thenReturn(2L);
+        assertThrows(IllegalArgumentException.class, () -> service.create(1L, "Third", HIGH_BACKEND));
+
+        // Another user's filter is not found, whether its set is held or not
+        assertThrows(ResourceNotFoundException.class, () -> service.open(2L, 8L, 0, 10));
+        assertThrows(ResourceNotFoundException.class, () -> service.open(2L, 7L, 0, 10));
+        assertThrows(ResourceNotFoundException.class, () -> service.delete(2L, 7L));
+
+        when(savedFilters.findById(8L)).thenReturn(Optional.of(new SavedFilter(8L, 1L, "Mine",
+                objectMapper.writeValueAsString(HIGH_BACKEND), null)));
+        service.delete(1L, 8L);
+        verify(savedFilters).delete(any());
+        assertEquals(0, meterRegistry.get("taskmanager.saved_filters.materialized").gauge().value());
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import com.example.taskmanager.dto.TaskAggregateDTO;
+import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TaskAggregationServiceTest {
+    private static final LocalDate TODAY = LocalDate.of(2030, 3, 4);
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private CacheInvalidationBus invalidations;
+    private SimpleMeterRegistry meterRegistry;
+    private TaskAggregationService aggregates;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE tasks (id BIGINT PRIMARY KEY, status VARCHAR(20), priority VARCHAR(20), "
+                + "due_date TIMESTAMP, project_id BIGINT, assignee_id BIGINT)");
+        meterRegistry = new SimpleMeterRegistry();
+        invalidations = new CacheInvalidationBus(mock(ObjectProvider.class), meterRegistry, "node", Duration.ofMillis(50), 256);
+        aggregates = new TaskAggregationService(new NamedParameterJdbcTemplate(jdbcTemplate), invalidations,
+                ShardRouter.unsharded(), meterRegistry, 2, 100, 1000,
+                Clock.fixed(TODAY.atTime(12, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    private void insert(long id, Task.Status status, Task.Priority priority, LocalDateTime dueDate, Long projectId,
+                        Long assigneeId) {
+        jdbcTemplate.update("INSERT INTO tasks VALUES (?, ?, ?, ?, ?, ?)", id, status.name(), priority.name(), dueDate,
+                projectId, assigneeId);
+    }
+
+    private static List<TaskAggregationService.Dimension> groupBy(String... dimensions) {
+        return Arrays.stream(dimensions).map(TaskAggregationService.Dimension::parse).toList();
+    }
+
+    private static List<Map<String, Object>> keys(TaskAggregateDTO result) {
+        return result.groups().stream().map(TaskAggregateDTO.Group::key).toList();
+    }
+
+    private static List<Long> counts(TaskAggregateDTO result) {
+        return result.groups().stream().map(TaskAggregateDTO.Group::count).toList();
+    }
+
+    private double loads() {
+        return meterRegistry.get("taskmanager.task_aggregates.loads").counter().count();
+    }
+
+    @Test
+    void groupsAndFiltersTheTasksHeldInMemory() {
+        LocalDateTime yesterday = TODAY.minusDays(1).atTime(9, 0);
+        insert(1, Task.Status.PENDING, Task.Priority.HIGH, yesterday, 10L, 7L);
+        insert(2, Task.Status.PENDING, Task.Priority.LOW, null, 10L, null);
+        insert(3, Task.Status.IN_PROGRESS, Task.Priority.HIGH, TODAY.atTime(9, 0), 10L, 7L);
+        insert(4, Task.Status.COMPLETED, Task.Priority.HIGH, yesterday, 20L, 8L);
+        insert(5, Task.Status.PENDING, Task.Priority.MEDIUM, yesterday, 20L, 8L);
+
+        TaskAggregateDTO byProjectAndStatus = aggregates.aggregate(new TaskFilterDTO(), groupBy("project", "status"));
+        assertEquals(List.of("projectId", "status"), byProjectAndStatus.groupBy());
+        assertEquals(List.of(Map.of("projectId", 10L, "status", "PENDING"), Map.of("projectId", 10L, "status", "IN_PROGRESS"),
+                Map.of("projectId", 20L, "status", "PENDING"), Map.of("projectId", 20L, "status", "COMPLETED")),
+                keys(byProjectAndStatus));
+        assertEquals(List.of(2L, 1L, 1L, 1L), counts(byProjectAndStatus));
+        assertEquals(5, byProjectAndStatus.total());
+        assertEquals(2, byProjectAndStatus.overdue());
+
+        TaskFilterDTO highOfSeven = new TaskFilterDTO();
+        highOfSeven.setPriority(new Task.Priority[]{Task.Priority.HIGH});
+        highOfSeven.setAssigneeId(7L);
+        highOfSeven.setDueDateTo(TODAY.minusDays(1));
+        assertEquals(1, aggregates.aggregate(highOfSeven, List.of()).total());
+
+        TaskFilterDTO unknownProject = new TaskFilterDTO();
+        unknownProject.setProjectId(99L);
+        assertEquals(0, aggregates.aggregate(unknownProject, groupBy("status")).total());
+        assertEquals(1, loads());
+        assertTrue(meterRegistry.get("taskmanager.task_aggregates.bytes").gauge().value() > 0);
+    }
+
+    @Test
+    void followsTaskWritesAnnouncedOnTheBus() {
+        insert(1, Task.Status.PENDING, Task.Priority.HIGH, null, 10L, 7L);
+        insert(2, Task.Status.PENDING, Task.Priority.HIGH, null, 10L, 7L);
+        insert(3, Task.Status.PENDING, Task.Priority.HIGH, null, 10L, 7L);
+        assertEquals(List.of(3L), counts(aggregates.aggregate(new TaskFilterDTO(), groupBy("status"))));
+
+        jdbcTemplate.update("UPDATE tasks SET status = 'COMPLETED' WHERE id = 1");
+        invalidations.invalidate(Invalidation.Type.TASK, 1L);
+        jdbcTemplate.update("DELETE FROM tasks WHERE id = 2");
+        invalidations.invalidate(Invalidation.Type.TASK, 2L);
+        insert(4, Task.Status.IN_PROGRESS, Task.Priority.HIGH, null, 10L, 7L);
+        invalidations.invalidate(Invalidation.Type.TASK, 4L);
+
+        TaskAggregateDTO byStatus = aggregates.aggregate(new TaskFilterDTO(), groupBy("status"));
+        assertEquals(List.of(Map.of("status", "PENDING"), Map.of("status", "IN_PROGRESS"), Map.of("status", "COMPLETED")),
+                keys(byStatus));
+        assertEquals(List.of(1L, 1L, 1L), counts(byStatus));
+        assertEquals(1, loads());
+
+        jdbcTemplate.update("UPDATE tasks SET status = 'CANCELLED'");
+        invalidations.invalidateAll(Invalidation.Type.TASK);
+        assertEquals(List.of(3L), counts(aggregates.aggregate(new TaskFilterDTO(), groupBy("status"))));
+        assertEquals(2, loads());
+    }
+
+    @Test
+    void rejectsWhatIsNotHeldInMemory() {
+        TaskFilterDTO search = new TaskFilterDTO();
+        search.setSearch("report");
+        assertThrows(IllegalArgumentException.class, () -> aggregates.aggregate(search, List.of()));
+        TaskFilterDTO archived = new TaskFilterDTO();
+        archived.setIncludeArchived(true);
+        assertThrows(IllegalArgumentException.class, () -> aggregates.aggregate(archived, List.of()));
+        assertThrows(IllegalArgumentException.class, () -> aggregates.aggregate(new TaskFilterDTO(), groupBy("status", "status")));
+        assertThrows(IllegalArgumentException.class, () -> TaskAggregationService.Dimension.parse("title"));
+
+        for (long id = 1; id <= 40; id++) {
+            insert(id, Task.Status.PENDING, Task.Priority.HIGH, null, id, id);
+        }
+        // 40 projects and none, by 40 assignees and none, exceed the 1000 groups allowed
+        assertThrows(IllegalArgumentException.class, () -> aggregates.aggregate(new TaskFilterDTO(),
+                groupBy("project", "assignee")));
+        assertEquals(40, aggregates.aggregate(new TaskFilterDTO(), groupBy("assigneeId")).groups().size());
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.exception.ResourceNotFoundException;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class TaskArchiverTest {
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private TaskArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        String columns = "id BIGINT PRIMARY KEY, title VARCHAR(255) NOT NULL, description VARCHAR(1024), "
+                + "status VARCHAR(255), priority VARCHAR(255), due_date TIMESTAMP(6), project_id BIGINT, "
+                + "creator_id BIGINT NOT NULL, assignee_id BIGINT, updated_at TIMESTAMP(6) NOT NULL, labels VARCHAR(1024)";
+        jdbcTemplate.execute("CREATE TABLE tasks (" + columns + ")");
+        jdbcTemplate.execute("CREATE TABLE tasks_archive (" + columns + ", archived_at TIMESTAMP(6) NOT NULL)");
+        // 1-5 finished long ago, 6 finished recently, 7 open but old
+        for (long id = 1; id <= 5; id++) {
+            insert(id, id % 2 == 0 ? "CANCELLED" : "COMPLETED", "DATEADD('DAY', -40, CURRENT_TIMESTAMP)");
+        }
+        insert(6, "COMPLETED", "DATEADD('DAY', -2, CURRENT_TIMESTAMP)");
+        insert(7, "IN_PROGRESS", "DATEADD('DAY', -90, CURRENT_TIMESTAMP)");
+
+        meterRegistry = new SimpleMeterRegistry();
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(database);
+        TaskStatusWriteBehind writeBehind = new TaskStatusWriteBehind(jdbcTemplate, transactionManager,
+                mock(ProjectStatsService.class), mock(DueDateScheduler.class), mock(TaskHistoryService.class),
+                mock(CacheInvalidationBus.class), meterRegistry,
+                false, Path.of("unused"), 1, false,
+                ShardRouter.unsharded());
+        archiver = new TaskArchiver(new NamedParameterJdbcTemplate(jdbcTemplate), transactionManager, writeBehind,
+                new TaskCountCache(Duration.ofSeconds(30), 100), meterRegistry, true, Duration.ofDays(30), 2, Duration.ZERO,
+                ShardRouter.unsharded());
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    private void insert(long id, String status, String updatedAt) {
+        jdbcTemplate.update("INSERT INTO tasks (id, title, status, priority, project_id, creator_id, assignee_id, updated_at) "
+                + "VALUES (?, ?, ?, 'LOW', 10, 1, 2, " + updatedAt + ")", id, "task " + id, status);
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    private double tierRows(String tier) {
+        return meterRegistry.get("taskmanager.tasks.tier.rows").tag("tier", tier).gauge().value();
+    }
+
+    @Test
+    void archivesOnlyFinishedTasksPastTheCutoffInChunks() {
+        assertEquals(5, archiver.archive());
+
+        assertEquals(2, count("tasks"));
+        assertEquals(5, count("tasks_archive"));
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tasks WHERE id <= 5", Long.class));
+        assertEquals("task 3", jdbcTemplate.queryForObject("SELECT title FROM tasks_archive WHERE id = 3", String.class));
+        assertEquals(2, tierRows("hot"));
+        assertEquals(5, tierRows("archive"));
+        assertEquals(5, meterRegistry.get("taskmanager.tasks.tier.moved").tag("direction", "archived").counter().count());
+
+        // nothing left to do on the next run
+        assertEquals(0, archiver.archive());
+    }
+
+    @Test
+    void restoresTasksAsJustChanged() {
+        archiver.archive();
+
+        archiver.restoreTask(3L);
+        assertEquals(3, count("tasks"));
+        assertEquals(4, count("tasks_archive"));
+        // updated_at is reset, so the restored task is not archived again right away
+        archiver.archive();
+        assertEquals(1L, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tasks WHERE id = 3", Long.class));
+
+        assertThrows(ResourceNotFoundException.class, () -> archiver.restoreTask(3L));
+    }
+
+    @Test
+    void restoresAProjectChunkByChunk() {
+        archiver.archive();
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(database));
+
+        assertEquals(Integer.valueOf(2), transaction.execute(status -> archiver.restoreProjectChunk(10L, 2)));
+        assertEquals(Integer.valueOf(2), transaction.execute(status -> archiver.restoreProjectChunk(10L, 2)));
+        assertEquals(Integer.valueOf(1), transaction.execute(status -> archiver.restoreProjectChunk(10L, 2)));
+        assertEquals(0, count("tasks_archive"));
+        assertEquals(7, count("tasks"));
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.TaskBoardDTO;
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.sharding.ShardRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TaskBoardServiceTest {
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private TaskStatusWriteBehind statusWriteBehind;
+    private TaskBoardService board;
+    private final LocalDateTime due = LocalDateTime.of(2030, 6, 1, 12, 0);
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE tasks (id BIGINT PRIMARY KEY, title VARCHAR(255), description VARCHAR(1024), "
+                + "status VARCHAR(20), priority VARCHAR(20), due_date TIMESTAMP, creator_id BIGINT, assignee_id BIGINT, "
+                + "project_id BIGINT, labels VARCHAR(1024))");
+        statusWriteBehind = mock(TaskStatusWriteBehind.class);
+        board = new TaskBoardService(new NamedParameterJdbcTemplate(jdbcTemplate), statusWriteBehind,
+                ShardRouter.unsharded(), 50);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    private void insert(long id, long projectId, Task.Status status, Task.Priority priority, LocalDateTime dueDate, Long assigneeId) {
+        jdbcTemplate.update("INSERT INTO tasks VALUES (?, ?, NULL, ?, ?, ?, 1, ?, ?, NULL)",
+                id, "Task " + id, status.name(), priority.name(), dueDate, assigneeId, projectId);
+    }
+
+    private static List<Long> ids(TaskBoardDTO.Column column) {
+        return column.tasks().stream().map(TaskDTO::getId).toList();
+    }
+
+    @Test
+    void columnsHoldTheFirstTasksByPriorityAndDueDate() {
+        insert(1, 10, Task.Status.PENDING, Task.Priority.LOW, due, null);
+        insert(2, 10, Task.Status.PENDING, Task.Priority.HIGH, null, null);
+        insert(3, 10, Task.Status.PENDING, Task.Priority.HIGH, due.plusDays(1), null);
+        insert(4, 10, Task.Status.PENDING, Task.Priority.MEDIUM, due.minusDays(1), null);
+        insert(5, 10, Task.Status.PENDING, Task.Priority.HIGH, due, null);
+        insert(6, 10, Task.Status.COMPLETED, Task.Priority.LOW, null, null);
+        insert(7, 20, Task.Status.PENDING, Task.Priority.HIGH, due.minusYears(1), null);
+        jdbcTemplate.update("UPDATE tasks SET labels = ',backend,ui,' WHERE id = 5");
+
+        TaskBoardDTO result = board.getBoard(10L, 3, null, null);
+
+        assertEquals(10L, result.projectId());
+        assertEquals(List.of("PENDING", "IN_PROGRESS", "COMPLETED", "CANCELLED"),
+                result.columns().stream().map(TaskBoardDTO.Column::status).toList());
+        TaskBoardDTO.Column pending = result.columns().get(0);
+        // High first, by due date with undated ones last; the other project's task is not there
+        assertEquals(List.of(5L, 3L, 2L), ids(pending));
+        assertEquals(List.of("backend", "ui"), pending.tasks().get(0).getLabels());
+        assertEquals(List.of(), pending.tasks().get(1).getLabels());
+        assertEquals(5L, pending.total());
+        assertNotNull(pending.nextCursor());
+        assertEquals(0L, result.columns().get(1).total());
+        assertTrue(result.columns().get(1).tasks().isEmpty());
+        assertNull(result.columns().get(1).nextCursor());
+        assertEquals(List.of(6L), ids(result.columns().get(2)));
+        assertNull(result.columns().get(2).nextCursor());
+    }
+
+    @Test
+    void pendingStatusesMoveCardsWithoutFlushing() {
+        for (long id = 1; id <= 6; id++) {
+            insert(id, 10, Task.Status.PENDING, Task.Priority.MEDIUM, due.plusDays(id), id % 2 == 0 ? 7L : null);
+        }
+        insert(7, 10, Task.Status.IN_PROGRESS, Task.Priority.HIGH, null, 7L);
+        insert(8, 20, Task.Status.PENDING, Task.Priority.HIGH, due, null);
+        // Tasks 1 and 2 lead the PENDING column, 7 moves back into it, 8 is another project's
+        when(statusWriteBehind.pendingStatuses()).thenReturn(Map.of(
+                1L, Task.Status.COMPLETED, 2L, Task.Status.IN_PROGRESS,
+                7L, Task.Status.PENDING, 8L, Task.Status.COMPLETED));
+
+        TaskBoardDTO result = board.getBoard(10L, 3, null, null);
+        TaskBoardDTO.Column pending = result.columns().get(0);
+        // The column stays full although two of the cards read leave it
+        assertEquals(List.of(7L, 3L, 4L), ids(pending));
+        assertEquals(5L, pending.total());
+        assertEquals("PENDING", pending.tasks().get(0).getStatus());
+        assertNull(pending.tasks().get(0).getAssigneeId());
+        assertEquals(List.of(2L), ids(result.columns().get(1)));
+        assertEquals(1L, result.columns().get(1).total());
+        assertEquals(List.of(1L), ids(result.columns().get(2)));
+        assertEquals(1L, result.columns().get(2).total());
+
+        // Continuations move them too; the cursor after task 7 precedes every MEDIUM task
+        String afterFirst = board.getBoard(10L, 1, null, null).columns().get(0).nextCursor();
+        TaskBoardDTO.Column rest = board.getColumn(10L, Task.Status.PENDING, afterFirst, 3, null, null);
+        assertEquals(List.of(3L, 4L, 5L), ids(rest));
+        assertNotNull(rest.nextCursor());
+        assertEquals(List.of(1L), ids(board.getColumn(10L, Task.Status.COMPLETED, afterFirst, 3, null, null)));
+
+        // The flush clears the assignee: pending tasks leave an assignee's board
+        TaskBoardDTO mine = board.getBoard(10L, 3, 7L, null);
+        assertEquals(List.of(4L, 6L), ids(mine.columns().get(0)));
+        assertEquals(2L, mine.columns().get(0).total());
+        assertEquals(List.of(), ids(mine.columns().get(1)));
+        assertEquals(0L, mine.columns().get(1).total());
+
+        verify(statusWriteBehind, never()).flush();
+    }
+
+    @Test
+    void cursorsContinueAColumnToItsEnd() {
+        Task.Priority[] priorities = Task.Priority.values();
+        for (long id = 1; id <= 23; id++) {
+            insert(id, 10, Task.Status.IN_PROGRESS, priorities[(int) (id % 3)], id % 4 == 0 ? null : due.plusDays(id % 5), null);
+        }
+        List<Long> expected = jdbcTemplate.queryForList("SELECT id FROM tasks ORDER BY "
+                + "CASE priority WHEN 'HIGH' THEN 0 WHEN 'MEDIUM' THEN 1 ELSE 2 END, due_date NULLS LAST, id", Long.class);
+
+        TaskBoardDTO.Column column = board.getBoard(10L, 5, null, null).columns().get(1);
+        List<Long> read = new ArrayList<>(ids(column));
+        int requests = 1;
+        while (column.nextCursor() != null) {
+            column = board.getColumn(10L, Task.Status.IN_PROGRESS, column.nextCursor(), 5, null, null);
+            assertNull(column.total());
+            read.addAll(ids(column));
+            requests++;
+        }
+
+        assertEquals(expected, read);
+        assertEquals(5, requests);
+    }
+
+    @Test
+    void filtersApplyToTasksTotalsAndContinuations() {
+        for (long id = 1; id <= 12; id++) {
+            insert(id, 10, Task.Status.PENDING, id % 2 == 0 ? Task.Priority.HIGH : Task.Priority.LOW, due.plusDays(id),
+                    id % 3 == 0 ? 7L : 8L);
+        }
+        Task.Priority[] high = { Task.Priority.HIGH };
+
+        TaskBoardDTO.Column column = board.getBoard(10L, 1, 7L, high).columns().get(0);
+        assertEquals(List.of(6L), ids(column));
+        assertEquals(2L, column.total());
+
+        TaskBoardDTO.Column rest = board.getColumn(10L, Task.Status.PENDING, column.nextCursor(), 10, 7L, high);
+        assertEquals(List.of(12L), ids(rest));
+        assertNull(rest.nextCursor());
+    }
+
+    @Test
+    void columnSizeIsCappedAndValidated() {
+        for (long id = 1; id <= 60; id++) {
+            insert(id, 10, Task.Status.CANCELLED, Task.Priority.MEDIUM, null, null);
+        }
+        assertEquals(50, board.getBoard(10L, 1000, null, null).columns().get(3).tasks().size());
+        assertThrows(IllegalArgumentException.class, () -> board.getBoard(10L, 0, null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> board.getColumn(10L, Task.Status.CANCELLED, "not-a-cursor", 10, null, null));
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.TaskAggregateDTO;
+import com.example.taskmanager.dto.TaskDTO;
+import com.example.taskmanager.entities.Task;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark of {@link TaskColumns} aggregations over a million synthetic tasks, next to the
+ * same count over TaskDTO objects, followed by the heap each takes per million tasks.
+ *
+ * Run with: mvn -Pbenchmark test -Dtest=TaskColumnsBenchmarkTest. JMH needs the benchmark and
+ * state classes public.
+ */
+@Tag("benchmark")
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class TaskColumnsBenchmarkTest {
+    private static final int MILLION = 1_000_000;
+    private static final int PROJECTS = 1_000;
+    private static final int ASSIGNEES = 5_000;
+    private static final LocalDate TODAY = LocalDate.of(2030, 3, 4);
+    private static final TaskColumns.Filter ALL = new TaskColumns.Filter(TaskColumns.Filter.ALL, TaskColumns.Filter.ALL,
+            null, null, null, null);
+
+    @State(Scope.Benchmark)
+    public static class Tasks {
+        @Param("1000000")
+        public int tasks;
+
+        TaskColumns columns;
+        TaskDTO[] objects;
+
+        @Setup
+        public void setUp() {
+            columns = columns(tasks);
+            objects = objects(tasks);
+        }
+    }
+
+    /** Deterministic tasks: a fifth unassigned, a third without a due date, the rest due within two months of today. */
+    private static TaskColumns.Row row(Random random, long id) {
+        Task.Status status = Task.Status.values()[random.nextInt(Task.Status.values().length)];
+        Task.Priority priority = Task.Priority.values()[random.nextInt(Task.Priority.values().length)];
+        Long assigneeId = random.nextInt(5) == 0 ? null : (long) random.nextInt(ASSIGNEES) + 1;
+        LocalDate dueDate = random.nextInt(3) == 0 ? null : TODAY.plusDays(random.nextInt(120) - 60);
+        return new TaskColumns.Row(id, status, priority, dueDate != null ? dueDate.atTime(17, 0) : null,
+                (long) random.nextInt(PROJECTS) + 1, assigneeId);
+    }
+
+    static TaskColumns columns(int tasks) {
+        Random random = new Random(42);
+        TaskColumns columns = new TaskColumns(tasks);
+        for (long id = 1; id <= tasks; id++) {
+            columns.put(row(random, id));
+        }
+        return columns;
+    }
+
+    static TaskDTO[] objects(int tasks) {
+        Random random = new Random(42);
+        TaskDTO[] objects = new TaskDTO[tasks];
+        for (int index = 0; index < tasks; index++) {
+            TaskColumns.Row row = row(random, index + 1);
+            objects[index] = new TaskDTO(row.id(), null, null, row.status().name(), row.priority().name(), row.dueDate(),
+                    1L, row.assigneeId(), row.projectId());
+        }
+        return objects;
+    }
+
+    @Benchmark
+    public TaskAggregateDTO columnsByStatus(Tasks tasks) {
+        return tasks.columns.aggregate(ALL, List.of(TaskAggregationService.Dimension.STATUS),
+                (int) TODAY.toEpochDay(), Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public TaskAggregateDTO columnsOfProjectByPriority(Tasks tasks) {
+        TaskColumns.Filter project = new TaskColumns.Filter(TaskColumns.Filter.ALL, TaskColumns.Filter.ALL, 500L, null,
+                null, null);
+        return tasks.columns.aggregate(project, List.of(TaskAggregationService.Dimension.PRIORITY),
+                (int) TODAY.toEpochDay(), Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public TaskAggregateDTO columnsByAssigneeAndStatus(Tasks tasks) {
+        return tasks.columns.aggregate(ALL, List.of(TaskAggregationService.Dimension.ASSIGNEE,
+                TaskAggregationService.Dimension.STATUS), (int) TODAY.toEpochDay(), Integer.MAX_VALUE);
+    }
+
+    /** The status count the way a cache of task objects would answer it. */
+    @Benchmark
+    public Map<String, Long> objectsByStatus(Tasks tasks) {
+        Map<String, Long> counts = new HashMap<>();
+        for (TaskDTO task : tasks.objects) {
+            counts.merge(task.getStatus(), 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    @Test
+    void aggregatesAtMemoryBandwidth() throws RunnerException {
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(TaskColumnsBenchmarkTest.class.getName() + "\\.")
+                .verbosity(VerboseMode.SILENT)
+                .build()).run();
+
+        System.out.printf("%n%-30s %14s %14s%n", "benchmark", "us/op", "error");
+        for (RunResult result : results) {
+            System.out.printf("%-30s %14.1f %14.1f%n", result.getParams().getBenchmark().replaceAll(".*\\.", ""),
+                    result.getPrimaryResult().getScore(), result.getPrimaryResult().getScoreError());
+        }
+
+        long before = usedHeap();
+        TaskColumns columns = columns(MILLION);
+        long columnsHeap = usedHeap() - before;
+        before = usedHeap();
+        TaskDTO[] objects = objects(MILLION);
+        long objectsHeap = usedHeap() - before;
+
+        System.out.printf("%n%-30s %14s %14s%n", "per million tasks", "measured MB", "estimated MB");
+        System.out.printf("%-30s %14.1f %14.1f%n", "columns", columnsHeap / 1e6, columns.bytes() / 1e6);
+        System.out.printf("%-30s %14.1f %14s%n", "TaskDTO objects", objectsHeap / 1e6, "");
+        System.out.printf("%-30s %14d%n", "column bytes per task", TaskColumns.ROW_BYTES);
+        // Measured while still reachable
+        Reference.reachabilityFence(columns);
+        Reference.reachabilityFence(objects);
+    }
+
+    private static long usedHeap() {
+        for (int collection = 0; collection < 3; collection++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.TaskAggregateDTO;
+import com.example.taskmanager.entities.Task;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskColumnsTest {
+    private static final TaskColumns.Filter ALL = new TaskColumns.Filter(TaskColumns.Filter.ALL, TaskColumns.Filter.ALL,
+            null, null, null, null);
+    private static final List<TaskAggregationService.Dimension> BY_STATUS = List.of(TaskAggregationService.Dimension.STATUS);
+
+    private static TaskColumns.Row row(long id, Task.Status status, Long projectId) {
+        return new TaskColumns.Row(id, status, Task.Priority.MEDIUM, null, projectId, null);
+    }
+
+    private static Map<String, Long> countsByStatus(TaskColumns columns) {
+        TaskAggregateDTO result = columns.aggregate(ALL, BY_STATUS, 0, 100);
+        return result.groups().stream().collect(Collectors.toMap(
+                group -> String.valueOf(group.key().get("status")), TaskAggregateDTO.Group::count));
+    }
+
+    @Test
+    void keepsRowsInIdOrderWhateverOrderTheyCameIn() {
+        TaskColumns columns = new TaskColumns(2);
+        for (long id : new long[]{5, 1, 9, 3, 7}) {
+            columns.put(row(id, Task.Status.PENDING, 10L));
+        }
+        columns.put(row(3, Task.Status.COMPLETED, 10L));
+        assertEquals(5, columns.size());
+        assertEquals(Map.of("PENDING", 4L, "COMPLETED", 1L), countsByStatus(columns));
+    }
+
+    @Test
+    void removedRowsStopCountingAndAreCompactedAway() {
+        TaskColumns columns = new TaskColumns(16);
+        for (long id = 1; id <= 8; id++) {
+            columns.put(row(id, Task.Status.PENDING, 10L));
+        }
+        columns.remove(2);
+        columns.remove(2);
+        columns.remove(42);
+        assertEquals(7, columns.size());
+        columns.remove(4);
+        columns.remove(6);
+        assertEquals(5, columns.size());
+        // Back after its removal
+        columns.put(row(4, Task.Status.IN_PROGRESS, 10L));
+        assertEquals(Map.of("PENDING", 5L, "IN_PROGRESS", 1L), countsByStatus(columns));
+    }
+
+    @Test
+    void mergesShardsIntoOneIdOrder() {
+        TaskColumns first = new TaskColumns(16);
+        first.put(row(1, Task.Status.PENDING, 10L));
+        first.put(row(4, Task.Status.PENDING, 10L));
+        first.put(row(6, Task.Status.PENDING, 10L));
+        first.remove(6);
+        TaskColumns second = new TaskColumns(16);
+        second.put(row(2, Task.Status.COMPLETED, 20L));
+        second.put(row(3, Task.Status.COMPLETED, null));
+
+        TaskColumns merged = TaskColumns.merge(List.of(first, second));
+        assertEquals(4, merged.size());
+        merged.put(row(3, Task.Status.PENDING, 20L));
+        TaskAggregateDTO byProject = merged.aggregate(ALL, List.of(TaskAggregationService.Dimension.PROJECT), 0, 100);
+        assertEquals(List.of(10L, 20L), byProject.groups().stream().map(group -> group.key().get("projectId")).toList());
+        assertEquals(List.of(2L, 2L), byProject.groups().stream().map(TaskAggregateDTO.Group::count).toList());
+    }
+
+    @Test
+    void countsOpenTasksDueBeforeTodayAsOverdue() {
+        LocalDateTime due = LocalDateTime.of(2030, 3, 1, 17, 0);
+        int today = (int) due.toLocalDate().toEpochDay();
+        TaskColumns columns = new TaskColumns(16);
+        columns.put(new TaskColumns.Row(1, Task.Status.PENDING, Task.Priority.HIGH, due.minusDays(1), 10L, null));
+        columns.put(new TaskColumns.Row(2, Task.Status.COMPLETED, Task.Priority.HIGH, due.minusDays(1), 10L, null));
+        columns.put(new TaskColumns.Row(3, Task.Status.IN_PROGRESS, Task.Priority.HIGH, due, 10L, null));
+        columns.put(new TaskColumns.Row(4, Task.Status.IN_PROGRESS, Task.Priority.HIGH, null, 10L, null));
+
+        TaskAggregateDTO result = columns.aggregate(ALL, List.of(), today, 100);
+        assertEquals(4, result.total());
+        assertEquals(1, result.overdue());
+        // Tasks without a due date fail due date filters
+        TaskColumns.Filter dueToday = new TaskColumns.Filter(TaskColumns.Filter.ALL, TaskColumns.Filter.ALL, null, null,
+                null, today);
+        assertEquals(3, columns.aggregate(dueToday, List.of(), today, 100).total());
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.dto.CycleTimeDTO;
+import com.example.taskmanager.dto.TaskTrendDTO;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskHistoryServiceTest {
+    private static final LocalDateTime START = LocalDateTime.of(2030, 3, 4, 9, 0);
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private final MutableClock clock = new MutableClock(START);
+    private TaskHistoryService history;
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(LocalDateTime now) {
+            this.now = now.toInstant(ZoneOffset.UTC);
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        // The tables of the V10 migration, in H2 syntax
+        String columns = "id BIGINT PRIMARY KEY, status VARCHAR(20), project_id BIGINT, assignee_id BIGINT, updated_at TIMESTAMP";
+        jdbcTemplate.execute("CREATE TABLE tasks (" + columns + ")");
+        jdbcTemplate.execute("CREATE TABLE tasks_archive (" + columns + ")");
+        jdbcTemplate.execute("CREATE TABLE task_status_transitions (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "task_id BIGINT NOT NULL, project_id BIGINT, assignee_id BIGINT, from_status SMALLINT, to_status SMALLINT, "
+                + "changed_at TIMESTAMP(6) NOT NULL, rolled_up BOOLEAN DEFAULT FALSE NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE task_flow_rollups (project_id BIGINT NOT NULL, resolution VARCHAR(4) NOT NULL, "
+                + "bucket_start TIMESTAMP(6) NOT NULL, status SMALLINT NOT NULL, entered BIGINT DEFAULT 0 NOT NULL, "
+                + "exited BIGINT DEFAULT 0 NOT NULL, PRIMARY KEY (project_id, resolution, bucket_start, status))");
+        jdbcTemplate.execute("CREATE TABLE task_cycle_time_rollups (scope VARCHAR(8) NOT NULL, scope_id BIGINT NOT NULL, "
+                + "resolution VARCHAR(4) NOT NULL, bucket_start TIMESTAMP(6) NOT NULL, bin SMALLINT NOT NULL, "
+                + "completions BIGINT DEFAULT 0 NOT NULL, PRIMARY KEY (scope, scope_id, resolution, bucket_start, bin))");
+        jdbcTemplate.execute("CREATE TABLE task_history_rollup_lock (id INT PRIMARY KEY)");
+        jdbcTemplate.execute("INSERT INTO task_history_rollup_lock VALUES (1)");
+        history = new TaskHistoryService(new NamedParameterJdbcTemplate(jdbcTemplate),
+                new DataSourceTransactionManager(database), new SimpleMeterRegistry(), ShardRouter.unsharded(), true, 2,
+                100, clock);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    private static ProjectStatsService.TaskSnapshot task(Long projectId, Task.Status status) {
+        return new ProjectStatsService.TaskSnapshot(projectId, status, Task.Priority.MEDIUM, null);
+    }
+
+    private static List<Long> open(TaskTrendDTO trend) {
+        return trend.buckets().stream().map(TaskTrendDTO.Bucket::open).toList();
+    }
+
+    private static List<Long> completed(TaskTrendDTO trend) {
+        return trend.buckets().stream().map(TaskTrendDTO.Bucket::completed).toList();
+    }
+
+    private long transitions() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM task_status_transitions", Long.class);
+    }
+
+    @Test
+    void rollsTransitionsUpIntoBurndownThroughputAndCycleTime() {
+        history.record(1L, null, task(10L, Task.Status.PENDING), 7L);
+        history.record(2L, null, task(10L, Task.Status.PENDING), null);
+        clock.advance(Duration.ofHours(2));
+        history.record(1L, task(10L, Task.Status.PENDING), task(10L, Task.Status.IN_PROGRESS), 7L);
+        // An edit that leaves the status alone is no transition
+        history.record(1L, task(10L, Task.Status.IN_PROGRESS), task(10L, Task.Status.IN_PROGRESS), 7L);
+        clock.advance(Duration.ofHours(5));
+        history.record(1L, task(10L, Task.Status.IN_PROGRESS), task(10L, Task.Status.COMPLETED), 7L);
+        clock.advance(Duration.ofDays(1));
+        history.record(2L, task(10L, Task.Status.PENDING), null, null);
+
+        assertEquals(5, transitions());
+        assertEquals(5, history.rollUp());
+        assertEquals(0, history.rollUp());
+
+        TaskHistoryService.Resolution day = TaskHistoryService.Resolution.DAY;
+        TaskTrendDTO daily = history.getBurndown(10L, START, START.plusDays(1).plusHours(3), day);
+        assertEquals(List.of(START.toLocalDate().atStartOfDay(), START.toLocalDate().plusDays(1).atStartOfDay()),
+                daily.buckets().stream().map(TaskTrendDTO.Bucket::start).toList());
+        assertEquals(List.of(1L, 0L), open(daily));
+        assertEquals(List.of(1L, 0L), completed(daily));
+
+        TaskHistoryService.Resolution hour = TaskHistoryService.Resolution.HOUR;
+        assertEquals(List.of(2L, 2L, 2L, 2L, 2L, 2L, 2L, 1L), open(history.getBurndown(10L, START, START.plusHours(8), hour)));
+        // Carried in from the earlier hours of the day
+        assertEquals(List.of(2L, 1L), open(history.getBurndown(10L, START.plusHours(6), START.plusHours(8), hour)));
+
+        assertEquals(List.of(1L, 0L, 0L), completed(history.getThroughput(7L, START, START.plusDays(2), day)));
+        // 5 hours from start to finish, in the 4 to 8 hour bin
+        CycleTimeDTO cycleTime = history.getCycleTime(TaskHistoryService.Scope.PROJECT, 10L, START, START.plusDays(2), day,
+                List.of(50, 100));
+        assertEquals(1, cycleTime.completions());
+        assertEquals(Map.of("p50", 6.0, "p100", 8.0), cycleTime.percentileHours());
+        assertEquals(1, history.getCycleTime(TaskHistoryService.Scope.ASSIGNEE, 7L, START, START.plusDays(2), day,
+                List.of(50)).completions());
+    }
+
+    @Test
+    void movesBetweenProjectsLeaveOneAndEnterTheOther() {
+        history.record(1L, null, task(10L, Task.Status.IN_PROGRESS), null);
+        history.record(1L, task(10L, Task.Status.IN_PROGRESS), task(20L, Task.Status.IN_PROGRESS), null);
+        history.rollUp();
+
+        TaskHistoryService.Resolution day = TaskHistoryService.Resolution.DAY;
+        assertEquals(List.of(0L), open(history.getBurndown(10L, START, START.plusHours(1), day)));
+        assertEquals(List.of(1L), open(history.getBurndown(20L, START, START.plusHours(1), day)));
+    }
+
+    @Test
+    void setBasedWritesAndTheBackfillReadTheRows() {
+        LocalDateTime yesterday = START.minusDays(1);
+        jdbcTemplate.update("INSERT INTO tasks VALUES (1, 'PENDING', 10, 7, ?), (2, 'IN_PROGRESS', 10, 8, ?), "
+                + "(3, 'COMPLETED', 10, 8, ?)", yesterday, yesterday, yesterday);
+        jdbcTemplate.update("INSERT INTO tasks_archive VALUES (4, 'CANCELLED', 10, NULL, ?)", yesterday);
+        assertEquals(4, history.countUnrecorded());
+
+        assertEquals(2, history.backfill(false, 2));
+        assertEquals(1, history.backfill(false, 2));
+        assertEquals(0, history.backfill(false, 2));
+        assertEquals(1, history.backfill(true, 2));
+        assertEquals(0, history.countUnrecorded());
+
+        // Task 3 is completed already
+        history.recordStatusChanges(List.of(1L, 2L, 3L), Task.Status.COMPLETED);
+        assertEquals(6, transitions());
+        assertEquals(6, history.rollUp());
+
+        TaskHistoryService.Resolution day = TaskHistoryService.Resolution.DAY;
+        TaskTrendDTO burndown = history.getBurndown(10L, yesterday, START.plusHours(1), day);
+        assertEquals(List.of(2L, 0L), open(burndown));
+        // Backfilled completions are not known to have happened then
+        assertEquals(List.of(0L, 2L), completed(burndown));
+        // Task 2 was in progress since its last update, a day before
+        CycleTimeDTO cycleTime = history.getCycleTime(TaskHistoryService.Scope.ASSIGNEE, 8L, START, START.plusHours(1), day,
+                List.of(50));
+        assertEquals(1, cycleTime.completions());
+        assertEquals(36.0, cycleTime.percentileHours().get("p50"));
+    }
+
+    @Test
+    void rejectsInvalidRanges() {
+        TaskHistoryService.Resolution hour = TaskHistoryService.Resolution.HOUR;
+        assertThrows(IllegalArgumentException.class, () -> history.getBurndown(10L, START, START, hour));
+        assertThrows(IllegalArgumentException.class, () -> history.getBurndown(10L, START, START.plusDays(5), hour));
+        assertThrows(IllegalArgumentException.class, () -> history.getCycleTime(TaskHistoryService.Scope.PROJECT, 10L,
+                START, START.plusHours(1), hour, List.of(0)));
+        assertThrows(IllegalArgumentException.class, () -> TaskHistoryService.Resolution.parse("week"));
+        assertEquals(48, history.getThroughput(7L, null, START, hour).buckets().size());
+    }
+}
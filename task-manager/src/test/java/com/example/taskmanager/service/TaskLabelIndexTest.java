@@ -0,0 +1,152 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TaskLabelIndexTest {
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private CacheInvalidationBus invalidations;
+    private SimpleMeterRegistry meterRegistry;
+    private TaskLabelIndex index;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE tasks (id BIGINT PRIMARY KEY, status VARCHAR(20), priority VARCHAR(20), "
+                + "labels VARCHAR(1024))");
+        meterRegistry = new SimpleMeterRegistry();
+        invalidations = new CacheInvalidationBus(mock(ObjectProvider.class), meterRegistry, "node", Duration.ofMillis(50), 256);
+        index = new TaskLabelIndex(new NamedParameterJdbcTemplate(jdbcTemplate), invalidations,
+                ShardRouter.unsharded(), meterRegistry, true, 2, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    private void insert(long id, Task.Status status, Task.Priority priority, String labels) {
+        jdbcTemplate.update("INSERT INTO tasks VALUES (?, ?, ?, ?)", id, status.name(), priority.name(), labels);
+    }
+
+    private List<Long> matching(TaskFilterDTO filter) {
+        return Arrays.stream(index.matching(filter).orElseThrow().range(0, Integer.MAX_VALUE)).boxed().toList();
+    }
+
+    private double loads() {
+        return meterRegistry.get("taskmanager.task_labels.loads").counter().count();
+    }
+
+    @Test
+    void combinesLabelStatusAndPriorityBitmaps() {
+        insert(1, Task.Status.PENDING, Task.Priority.HIGH, ",backend,release,");
+        insert(2, Task.Status.PENDING, Task.Priority.LOW, ",backend,");
+        insert(3, Task.Status.COMPLETED, Task.Priority.HIGH, ",frontend,release,");
+        insert(4, Task.Status.IN_PROGRESS, Task.Priority.MEDIUM, null);
+        insert(5, Task.Status.PENDING, Task.Priority.HIGH, ",backend,blocked,");
+        index.loadOnStartup();
+
+        TaskFilterDTO all = new TaskFilterDTO();
+        all.setLabels(new String[]{"backend", "release"});
+        assertEquals(List.of(1L), matching(all));
+
+        TaskFilterDTO any = new TaskFilterDTO();
+        any.setAnyLabels(new String[]{"release", "blocked"});
+        assertEquals(List.of(1L, 3L, 5L), matching(any));
+
+        TaskFilterDTO not = new TaskFilterDTO();
+        not.setLabels(new String[]{"backend"});
+        not.setNotLabels(new String[]{"blocked"});
+        assertEquals(List.of(1L, 2L), matching(not));
+
+        TaskFilterDTO withStatus = new TaskFilterDTO();
+        withStatus.setNotLabels(new String[]{"backend", "unknown"});
+        withStatus.setStatus(new Task.Status[]{Task.Status.IN_PROGRESS, Task.Status.COMPLETED});
+        withStatus.setPriority(new Task.Priority[]{Task.Priority.HIGH});
+        assertEquals(List.of(3L), matching(withStatus));
+
+        // Empty status and priority lists, or ones of only blanks, are no filter, as in the SQL specification
+        TaskFilterDTO emptyLists = new TaskFilterDTO();
+        emptyLists.setLabels(new String[]{"release"});
+        emptyLists.setStatus(new Task.Status[0]);
+        emptyLists.setPriority(new Task.Priority[]{null});
+        assertEquals(List.of(1L, 3L), matching(emptyLists));
+
+        TaskFilterDTO unknown = new TaskFilterDTO();
+        unknown.setLabels(new String[]{"unknown"});
+        assertEquals(List.of(), matching(unknown));
+
+        assertEquals(Map.of("backend", 3L, "blocked", 1L, "frontend", 1L, "release", 2L), index.labelCounts());
+        // Five rows in batches of two
+        assertEquals(1, loads());
+        assertEquals(4, meterRegistry.get("taskmanager.task_labels.labels").gauge().value());
+        assertTrue(meterRegistry.get("taskmanager.task_labels.bytes").gauge().value() > 0);
+    }
+
+    @Test
+    void followsTaskWritesAnnouncedOnTheBus() {
+        insert(1, Task.Status.PENDING, Task.Priority.HIGH, ",backend,");
+        insert(2, Task.Status.PENDING, Task.Priority.HIGH, ",backend,");
+        index.loadOnStartup();
+        TaskFilterDTO backend = new TaskFilterDTO();
+        backend.setLabels(new String[]{"backend"});
+        assertEquals(List.of(1L, 2L), matching(backend));
+
+        jdbcTemplate.update("UPDATE tasks SET labels = ',frontend,' WHERE id = 1");
+        invalidations.invalidate(Invalidation.Type.TASK, 1L);
+        jdbcTemplate.update("DELETE FROM tasks WHERE id = 2");
+        invalidations.invalidate(Invalidation.Type.TASK, 2L);
+        insert(3, Task.Status.PENDING, Task.Priority.LOW, ",backend,");
+        invalidations.invalidate(Invalidation.Type.TASK, 3L);
+        index.drain();
+
+        assertEquals(List.of(3L), matching(backend));
+        assertEquals(Map.of("backend", 1L, "frontend", 1L), index.labelCounts());
+        assertEquals(1, loads());
+
+        jdbcTemplate.update("UPDATE tasks SET labels = NULL");
+        invalidations.invalidateAll(Invalidation.Type.TASK);
+        assertEquals(List.of(), matching(backend));
+        assertEquals(Map.of(), index.labelCounts());
+        assertEquals(2, loads());
+    }
+
+    @Test
+    void turnsItselfOffForIdsThatDoNotFit() {
+        insert(1, Task.Status.PENDING, Task.Priority.HIGH, ",backend,");
+        index.loadOnStartup();
+        TaskFilterDTO backend = new TaskFilterDTO();
+        backend.setLabels(new String[]{"backend"});
+        assertEquals(List.of(1L), matching(backend));
+
+        insert(1L << 32, Task.Status.PENDING, Task.Priority.HIGH, ",backend,");
+        invalidations.invalidate(Invalidation.Type.TASK, 1L << 32);
+
+        assertTrue(index.matching(backend).isEmpty());
+        assertEquals(Map.of(), index.labelCounts());
+    }
+}
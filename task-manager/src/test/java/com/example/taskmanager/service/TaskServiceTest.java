@@ -1,19 +1,32 @@
 package com.example.taskmanager.service;
 
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.dto.TaskListResult;
+import com.example.taskmanager.entities.ArchivedTask;
 import com.example.taskmanager.entities.Task;
 import com.example.taskmanager.entities.User;
 import com.example.taskmanager.entities.Project;
+import com.example.taskmanager.repository.ArchivedTaskRepository;
 import com.example.taskmanager.repository.TaskRepository;
 import com.example.taskmanager.repository.UserRepository;
 import com.example.taskmanager.repository.ProjectRepository;
+import com.example.taskmanager.sharding.ShardRouter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -27,12 +40,47 @@ class TaskServiceTest {
     @Mock
     private ProjectRepository projectRepository;
 
+    @Mock
+    private TaskCountCache taskCountCache;
+
+    @Mock
+    private RequestCoalescer requestCoalescer;
+
+    @Mock
+    private TaskStatusWriteBehind statusWriteBehind;
+
+    @Mock
+    private ArchivedTaskRepository archivedTaskRepository;
+
+    @Mock
+    private TaskArchiver taskArchiver;
+
+    @Mock
+    private ProjectStatsService projectStats;
+
+    @Mock
+    private DueDateScheduler dueDates;
+
+    @Mock
+    private TaskHistoryService history;
+
+    @Mock
+    private CacheInvalidationBus invalidations;
+
+    @Mock
+    private SavedFilterService savedFilters;
+
+    @Spy
+    private ShardRouter shards = ShardRouter.unsharded();
+
     @InjectMocks
     private TaskService taskService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(requestCoalescer.execute(anyString(), any(), any()))
+            .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
     }
 
     @Test
@@ -115,4 +163,143 @@ class TaskServiceTest {
         taskService.deleteTask(1L);
         verify(taskRepository, times(1)).deleteById(1L);
     }
+
+    @Test
+    void testWritesRecordProjectStatsDeltas() {
+        Project project = new Project();
+        project.setId(1L);
+        Task existingTask = new Task();
+        existingTask.setId(1L);
+        existingTask.setStatus(Task.Status.PENDING);
+        existingTask.setProject(project);
+        ProjectStatsService.TaskSnapshot before = ProjectStatsService.TaskSnapshot.of(existingTask);
+        when(projectStats.lockTask(1L)).thenReturn(before);
+        when(taskRepository.findById(1L)).thenReturn(Optional.of(existingTask));
+        when(taskRepository.save(any(Task.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        taskService.partialUpdateTask(1L, Task.Status.COMPLETED, null);
+        verify(projectStats).recordChange(before, before.withStatus(Task.Status.COMPLETED));
+
+        taskService.deleteTask(1L);
+        verify(projectStats).recordChange(before, null);
+        verify(dueDates).taskChanged(1L, before, null);
+
+        // deleting a task that does not exist changes nothing
+        taskService.deleteTask(2L);
+        verify(projectStats, times(2)).recordChange(any(), any());
+    }
+
+    @Test
+    void testListTasksWithoutTotalSkipsCount() {
+        TaskFilterDTO filter = new TaskFilterDTO();
+        filter.setWithTotal(false);
+        filter.setSize(2);
+        Slice<Task> slice = new SliceImpl<>(List.of(new Task(), new Task()), PageRequest.of(0, 2), true);
+        when(taskRepository.findSlice(any(), any())).thenReturn(slice);
+
+        TaskListResult result = taskService.listTasks(filter);
+
+        assertTrue(result.hasNext());
+        assertNull(result.total());
+        assertNull(result.totalPages());
+        verify(taskRepository, never()).count(any(Specification.class));
+        verify(taskRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    @Test
+    void testListTasksWithEstimatedTotalUsesCountCache() {
+        TaskFilterDTO filter = new TaskFilterDTO();
+        filter.setEstimateTotal(true);
+        filter.setSize(2);
+        Slice<Task> slice = new SliceImpl<>(List.of(new Task(), new Task()), PageRequest.of(0, 2), true);
+        when(taskRepository.findSlice(any(), any())).thenReturn(slice);
+        when(taskCountCache.estimate(eq(filter.filterKey()), any()))
+            .thenReturn(new TaskCountCache.Estimate(41, false));
+
+        TaskListResult result = taskService.listTasks(filter);
+
+        assertEquals(41L, result.total());
+        assertEquals(21, result.totalPages());
+        assertFalse(result.totalExact());
+    }
+
+    @Test
+    void testListTasksWithEstimatedTotalOnLastPageIsExact() {
+        TaskFilterDTO filter = new TaskFilterDTO();
+        filter.setEstimateTotal(true);
+        filter.setPage(1);
+        filter.setSize(2);
+        Slice<Task> slice = new SliceImpl<>(List.of(new Task()), PageRequest.of(1, 2), false);
+        when(taskRepository.findSlice(any(), any())).thenReturn(slice);
+        when(taskCountCache.estimate(any(), any())).thenReturn(new TaskCountCache.Estimate(10, false));
+
+        TaskListResult result = taskService.listTasks(filter);
+
+        assertEquals(3L, result.total());
+        assertTrue(result.totalExact());
+    }
+
+    @Test
+    void testStatusOnlyPatchIsWrittenBehindWhenEnabled() {
+        Task task = new Task();
+        task.setId(1L);
+        task.setStatus(Task.Status.PENDING);
+        task.setAssignee(new User());
+        when(taskRepository.findById(1L)).thenReturn(Optional.of(task));
+        when(statusWriteBehind.isEnabled()).thenReturn(true);
+        when(statusWriteBehind.pendingStatus(1L)).thenReturn(Optional.of(Task.Status.COMPLETED));
+
+        Task result = taskService.partialUpdateTask(1L, Task.Status.COMPLETED, null);
+
+        verify(statusWriteBehind).append(1L, Task.Status.COMPLETED);
+        verify(taskRepository, never()).save(any());
+        assertEquals(Task.Status.COMPLETED, result.getStatus());
+        assertNull(result.getAssignee());
+        // the managed entity is left untouched
+        assertEquals(Task.Status.PENDING, task.getStatus());
+    }
+
+    @Test
+    void testReadsSeePendingStatus() {
+        Task task = new Task();
+        task.setId(1L);
+        task.setStatus(Task.Status.PENDING);
+        when(taskRepository.findById(1L)).thenReturn(Optional.of(task));
+        when(statusWriteBehind.pendingStatus(1L)).thenReturn(Optional.of(Task.Status.IN_PROGRESS));
+
+        assertEquals(Task.Status.IN_PROGRESS, taskService.getTaskById(1L).get().getStatus());
+    }
+
+    @Test
+    void testListTasksIncludingArchivedMergesBothTiersById() {
+        TaskFilterDTO filter = new TaskFilterDTO();
+        filter.setIncludeArchived(true);
+        filter.setPage(1);
+        filter.setSize(2);
+        List<Task> hot = List.of(task(1L), task(4L), task(6L));
+        List<ArchivedTask> archived = List.of(archivedTask(2L), archivedTask(3L), archivedTask(5L));
+        doReturn(hot).when(taskRepository).findBy(any(Specification.class), any());
+        doReturn(archived).when(archivedTaskRepository).findBy(any(Specification.class), any());
+        when(taskRepository.count(any(Specification.class))).thenReturn(3L);
+        when(archivedTaskRepository.count(any(Specification.class))).thenReturn(3L);
+
+        TaskListResult result = taskService.listTasks(filter);
+
+        assertEquals(List.of(3L, 4L), result.content().stream().map(Task::getId).toList());
+        assertTrue(result.hasNext());
+        assertEquals(6L, result.total());
+        assertEquals(7L, result.content().get(0).getProject().getId());
+        verify(taskRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    private static Task task(Long id) {
+        Task task = new Task();
+        task.setId(id);
+        return task;
+    }
+
+    private static ArchivedTask archivedTask(Long id) {
+        return new ArchivedTask(id, "archived " + id, null, Task.Status.COMPLETED, Task.Priority.LOW, null,
+            7L, 1L, null, null, null, null);
+    }
 }
@@ -0,0 +1,193 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TaskStatusWriteBehindTest {
+    @TempDir
+    Path logDirectory;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private final AtomicInteger updateStatements = new AtomicInteger();
+    private final ProjectStatsService projectStats = mock(ProjectStatsService.class);
+    private final DueDateScheduler dueDates = mock(DueDateScheduler.class);
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database) {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                updateStatements.incrementAndGet();
+                return super.batchUpdate(sql, batchArgs);
+            }
+        };
+        jdbcTemplate.execute("CREATE TABLE tasks (id BIGINT PRIMARY KEY, status VARCHAR(20), assignee_id BIGINT, "
+                + "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        for (long id = 1; id <= 5; id++) {
+            jdbcTemplate.update("INSERT INTO tasks (id, status, assignee_id) VALUES (?, 'PENDING', 7)", id);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    private TaskStatusWriteBehind writeBehind() {
+        TaskStatusWriteBehind writeBehind = new TaskStatusWriteBehind(jdbcTemplate,
+                new DataSourceTransactionManager(database), projectStats, dueDates, mock(TaskHistoryService.class), mock(CacheInvalidationBus.class),
+                new SimpleMeterRegistry(),
+                true, logDirectory, 2, true, ShardRouter.unsharded());
+        writeBehind.start();
+        return writeBehind;
+    }
+
+    private String status(long id) {
+        return jdbcTemplate.queryForObject("SELECT status FROM tasks WHERE id = ?", String.class, id);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(logDirectory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @Test
+    void mergesRepeatedUpdatesAndFlushesInBatches() {
+        TaskStatusWriteBehind writeBehind = writeBehind();
+        writeBehind.append(1L, Task.Status.IN_PROGRESS);
+        writeBehind.append(1L, Task.Status.COMPLETED);
+        writeBehind.append(2L, Task.Status.IN_PROGRESS);
+        writeBehind.append(3L, Task.Status.CANCELLED);
+
+        assertEquals("PENDING", status(1));
+        assertEquals(Task.Status.COMPLETED, writeBehind.pendingStatus(1L).orElseThrow());
+
+        writeBehind.flush();
+
+        assertEquals("COMPLETED", status(1));
+        assertEquals("IN_PROGRESS", status(2));
+        assertEquals("CANCELLED", status(3));
+        assertEquals("PENDING", status(4));
+        assertNull(jdbcTemplate.queryForObject("SELECT assignee_id FROM tasks WHERE id = 1", Long.class));
+        // three tasks with a batch size of two
+        assertEquals(2, updateStatements.get());
+        assertFalse(writeBehind.hasPending());
+        writeBehind.stop();
+    }
+
+    @Test
+    void flushRecordsTheStatusChangesInProjectStats() {
+        ProjectStatsService.TaskSnapshot before = new ProjectStatsService.TaskSnapshot(10L, Task.Status.PENDING,
+                Task.Priority.HIGH, LocalDateTime.of(2025, 3, 1, 12, 0));
+        when(projectStats.lockTasks(List.of(1L, 2L))).thenReturn(Map.of(1L, before));
+        TaskStatusWriteBehind writeBehind = writeBehind();
+        writeBehind.append(2L, Task.Status.COMPLETED);
+        writeBehind.append(1L, Task.Status.COMPLETED);
+
+        writeBehind.flush();
+
+        // task 2 no longer exists, so only task 1 changes the stats
+        verify(projectStats).recordChanges(argThat(removed -> List.copyOf(removed).equals(List.of(before))),
+                eq(List.of(before.withStatus(Task.Status.COMPLETED))));
+        verify(dueDates).taskChanged(1L, before, before.withStatus(Task.Status.COMPLETED));
+        writeBehind.stop();
+    }
+
+    @Test
+    void flushDeletesSealedSegments() throws IOException {
+        TaskStatusWriteBehind writeBehind = writeBehind();
+        writeBehind.append(1L, Task.Status.COMPLETED);
+        writeBehind.flush();
+        assertEquals(1, segments().size());
+        assertEquals(0, Files.size(segments().get(0)));
+        writeBehind.stop();
+    }
+
+    @Test
+    void recoversAcknowledgedUpdatesAfterCrash() throws IOException {
+        TaskStatusWriteBehind crashed = writeBehind();
+        crashed.append(1L, Task.Status.IN_PROGRESS);
+        crashed.append(2L, Task.Status.COMPLETED);
+        crashed.append(1L, Task.Status.CANCELLED);
+        // the process dies before flushing, in the middle of writing another record
+        ByteBuffer record = TaskStatusWriteBehind.encode(99, 3L, Task.Status.COMPLETED);
+        byte[] torn = new byte[record.remaining() - 3];
+        record.get(torn);
+        Files.write(segments().get(segments().size() - 1), torn, StandardOpenOption.APPEND);
+        assertEquals("PENDING", status(1));
+
+        TaskStatusWriteBehind restarted = writeBehind();
+
+        assertEquals("CANCELLED", status(1));
+        assertEquals("COMPLETED", status(2));
+        assertEquals("PENDING", status(3));
+        assertFalse(restarted.hasPending());
+        assertEquals(1, segments().size());
+
+        // new updates continue after the recovered ones
+        restarted.append(2L, Task.Status.IN_PROGRESS);
+        restarted.flush();
+        assertEquals("IN_PROGRESS", status(2));
+        restarted.stop();
+    }
+
+    @Test
+    void recoveryIgnoresCorruptedRecords() throws IOException {
+        TaskStatusWriteBehind crashed = writeBehind();
+        crashed.append(1L, Task.Status.COMPLETED);
+        crashed.append(2L, Task.Status.COMPLETED);
+        Path segment = segments().get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        // flip a bit in the second record's payload
+        bytes[bytes.length - 10] ^= 1;
+        Files.write(segment, bytes);
+
+        writeBehind().stop();
+
+        assertEquals("COMPLETED", status(1));
+        assertEquals("PENDING", status(2));
+    }
+
+    @Test
+    void failedFlushKeepsUpdatesForTheNextAttempt() {
+        TaskStatusWriteBehind writeBehind = writeBehind();
+        writeBehind.append(1L, Task.Status.COMPLETED);
+        jdbcTemplate.execute("ALTER TABLE tasks RENAME TO tasks_offline");
+        writeBehind.flush();
+        assertTrue(writeBehind.hasPending());
+
+        jdbcTemplate.execute("ALTER TABLE tasks_offline RENAME TO tasks");
+        writeBehind.flush();
+        assertEquals("COMPLETED", status(1));
+        assertFalse(writeBehind.hasPending());
+        writeBehind.stop();
+    }
+}
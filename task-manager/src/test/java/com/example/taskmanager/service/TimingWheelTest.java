@@ -0,0 +1,64 @@
+package com.example.taskmanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private static List<Long> advance(TimingWheel<Long> wheel, long now) {
+        List<TimingWheel.Entry<Long>> expired = new ArrayList<>();
+        wheel.advanceTo(now, expired);
+        return expired.stream().map(entry -> entry.value).toList();
+    }
+
+    @Test
+    void entriesOnEveryLevelExpireInOrderAndNeverEarly() {
+        // 10 ms ticks, 4 buckets per level: level 0 spans 40 ms, level 1 160 ms, level 2 640 ms
+        TimingWheel<Long> wheel = new TimingWheel<>(10, 4, 1000);
+        for (long at : new long[] { 1005, 1035, 1100, 1155, 1500, 2300 }) {
+            assertTrue(wheel.add(new TimingWheel.Entry<>(at, at)));
+        }
+        assertEquals(6, wheel.size());
+
+        assertEquals(List.of(), advance(wheel, 1009));
+        assertEquals(List.of(1005L), advance(wheel, 1010));
+        assertEquals(List.of(1035L, 1100L), advance(wheel, 1110));
+        assertEquals(List.of(), advance(wheel, 1155));
+        assertEquals(List.of(1155L), advance(wheel, 1160));
+        assertEquals(List.of(1500L), advance(wheel, 1510));
+        assertEquals(List.of(), advance(wheel, 2300));
+        assertEquals(List.of(2300L), advance(wheel, 5000));
+        assertEquals(0, wheel.size());
+        assertEquals(5000, wheel.currentTime());
+    }
+
+    @Test
+    void removedEntriesDoNotExpire() {
+        TimingWheel<Long> wheel = new TimingWheel<>(10, 4, 0);
+        TimingWheel.Entry<Long> near = new TimingWheel.Entry<>(15, 1L);
+        TimingWheel.Entry<Long> far = new TimingWheel.Entry<>(500, 2L);
+        wheel.add(near);
+        wheel.add(far);
+
+        wheel.remove(far);
+        wheel.remove(far);
+
+        assertFalse(far.isScheduled());
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(1L), advance(wheel, 1000));
+    }
+
+    @Test
+    void entriesThatAlreadyExpiredAreRejected() {
+        TimingWheel<Long> wheel = new TimingWheel<>(10, 4, 100);
+
+        assertFalse(wheel.add(new TimingWheel.Entry<>(99, 1L)));
+        // Still within the current tick
+        assertTrue(wheel.add(new TimingWheel.Entry<>(105, 2L)));
+        assertEquals(List.of(2L), advance(wheel, 110));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.taskmanager.service;
+
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.cache.Invalidation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserDirectoryTest {
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private CacheInvalidationBus invalidations;
+    private SimpleMeterRegistry meterRegistry;
+    private UserDirectory directory;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, username VARCHAR(50) UNIQUE)");
+        jdbcTemplate.execute("INSERT INTO users VALUES (1, 'alice'), (2, 'Albert'), (3, 'bob'), (4, 'al_x')");
+        meterRegistry = new SimpleMeterRegistry();
+        invalidations = new CacheInvalidationBus(mock(ObjectProvider.class), meterRegistry, "node", Duration.ofMillis(50), 256);
+        directory = new UserDirectory(jdbcTemplate, invalidations, meterRegistry, 100, 0.01, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    private List<String> suggest(String prefix) {
+        return directory.suggest(prefix, 10).stream().map(UserDirectory.Suggestion::username).toList();
+    }
+
+    @Test
+    void answersFromTheDatabaseUntilLoaded() {
+        assertEquals(List.of("al_x", "Albert", "alice"), suggest("AL"));
+        assertEquals(List.of("al_x"), suggest("al_"));
+        assertTrue(directory.isTaken("bob"));
+        assertFalse(directory.isTaken("carol"));
+    }
+
+    @Test
+    void answersFreeNamesFromTheFilterOnceLoaded() {
+        directory.load();
+
+        assertEquals(List.of("al_x", "Albert", "alice"), suggest("al"));
+        assertTrue(directory.isTaken("bob"));
+        for (int i = 0; i < 50; i++) {
+            assertFalse(directory.isTaken("free" + i));
+        }
+        double fromFilter = meterRegistry.get("taskmanager.users.availability_checks").tag("answer", "filter").counter().count();
+        assertTrue(fromFilter >= 45, "Answered by the filter: " + fromFilter);
+    }
+
+    @Test
+    void followsUserWritesAnnouncedOnTheBus() {
+        directory.load();
+
+        jdbcTemplate.update("INSERT INTO users VALUES (5, 'alfred')");
+        invalidations.invalidate(Invalidation.Type.USER, 5L);
+        jdbcTemplate.update("UPDATE users SET username = 'robert' WHERE id = 3");
+        invalidations.invalidate(Invalidation.Type.USER, 3L);
+        jdbcTemplate.update("DELETE FROM users WHERE id = 1");
+        invalidations.invalidate(Invalidation.Type.USER, 1L);
+
+        assertEquals(List.of("al_x", "Albert", "alfred"), suggest("al"));
+        assertEquals(List.of(), suggest("b"));
+        assertEquals(List.of("robert"), suggest("r"));
+        assertTrue(directory.isTaken("alfred"));
+        assertFalse(directory.isTaken("alice"), "Removed names are checked in the database");
+
+        jdbcTemplate.update("INSERT INTO users VALUES (6, 'zed')");
+        invalidations.invalidateAll(Invalidation.Type.USER);
+        assertEquals(List.of("zed"), suggest("z"));
+    }
+}
@@ -1,7 +1,11 @@
 package com.example.taskmanager.service;
 
+import com.example.taskmanager.cache.CacheInvalidationBus;
+import com.example.taskmanager.dto.UserListResult;
 import com.example.taskmanager.entities.User;
+import com.example.taskmanager.exception.ConflictException;
 import com.example.taskmanager.repository.UserRepository;
+import com.example.taskmanager.sharding.ReferenceDataReplicator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -23,6 +27,15 @@ class UserServiceTest {
     @Mock
     private org.springframework.security.crypto.password.PasswordEncoder passwordEncoder;
 
+    @Mock
+    private ReferenceDataReplicator referenceData;
+
+    @Mock
+    private CacheInvalidationBus invalidations;
+
+    @Mock
+    private UserDirectory userDirectory;
+
     @InjectMocks
     private UserService userService;
 
@@ -58,6 +71,29 @@ class UserServiceTest {
         assertNotNull(created);
     }
 
+    @Test
+    void createUserRejectsATakenUsername() {
+        User user = User.builder().username("taken").password("secret").build();
+        when(userDirectory.isTaken("taken")).thenReturn(true);
+        assertThrows(ConflictException.class, () -> userService.createUser(user));
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void listUsersLoadsThePageWithItsRolesInOneQuery() {
+        User first = User.builder().id(1L).username("a").build();
+        User second = User.builder().id(2L).username("b").build();
+        when(userRepository.findIds(any())).thenReturn(List.of(1L, 2L, 3L));
+        when(userRepository.findWithRolesByIdIn(List.of(1L, 2L))).thenReturn(List.of(second, first));
+
+        UserListResult page = userService.listUsers(0, 2, false);
+
+        assertEquals(List.of(first, second), page.content());
+        assertTrue(page.hasNext());
+        assertNull(page.total());
+        verify(userRepository, never()).findById(any());
+    }
+
     @Test
     void testUpdateUser() {
         User user = new User();
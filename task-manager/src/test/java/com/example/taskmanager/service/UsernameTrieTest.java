@@ -0,0 +1,94 @@
+package com.example.taskmanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UsernameTrieTest {
+
+    private static List<String> names(List<UsernameTrie.Entry> entries) {
+        return entries.stream().map(UsernameTrie.Entry::username).toList();
+    }
+
+    @Test
+    void findsUsernamesByPrefixInOrderIgnoringCase() {
+        UsernameTrie trie = new UsernameTrie();
+        long id = 1;
+        for (String name : List.of("romane", "Romanus", "romulus", "rubens", "ruber", "rubicon", "rubicundus", "r", "Bob")) {
+            trie.add(id++, name);
+        }
+        assertEquals(9, trie.size());
+
+        assertEquals(List.of("romane", "Romanus", "romulus"), names(trie.withPrefix("ROM", 10)));
+        assertEquals(List.of("romane", "Romanus"), names(trie.withPrefix("roman", 10)));
+        // Prefixes ending inside an edge
+        assertEquals(List.of("rubicon", "rubicundus"), names(trie.withPrefix("rubi", 10)));
+        assertEquals(List.of("r", "romane", "Romanus"), names(trie.withPrefix("r", 3)));
+        assertEquals(List.of(), names(trie.withPrefix("rx", 10)));
+        assertEquals(List.of(), names(trie.withPrefix("rubiconx", 10)));
+        assertEquals(9, trie.withPrefix("", 100).size());
+    }
+
+    @Test
+    void keepsUsersThatDifferOnlyInCase() {
+        UsernameTrie trie = new UsernameTrie();
+        trie.add(1, "bob");
+        trie.add(2, "Bob");
+
+        assertEquals(List.of("Bob", "bob"), names(trie.withPrefix("bo", 10)));
+        assertTrue(trie.remove(2, "Bob"));
+        assertEquals(List.of(new UsernameTrie.Entry(1, "bob")), trie.withPrefix("BOB", 10));
+    }
+
+    @Test
+    void removingKeepsTheRestFindable() {
+        UsernameTrie trie = new UsernameTrie();
+        trie.add(1, "test");
+        trie.add(2, "tester");
+        trie.add(3, "testing");
+        trie.add(4, "team");
+
+        assertTrue(trie.remove(1, "test"));
+        assertFalse(trie.remove(1, "test"));
+        assertFalse(trie.remove(9, "tester"));
+        assertEquals(List.of("tester", "testing"), names(trie.withPrefix("tes", 10)));
+        assertTrue(trie.remove(3, "testing"));
+        assertEquals(List.of("tester"), names(trie.withPrefix("test", 10)));
+        assertTrue(trie.remove(2, "tester"));
+        assertEquals(List.of("team"), names(trie.withPrefix("t", 10)));
+        assertEquals(1, trie.size());
+    }
+
+    @Test
+    void agreesWithASortedMapUnderRandomChanges() {
+        Random random = new Random(7);
+        UsernameTrie trie = new UsernameTrie();
+        TreeMap<String, Long> expected = new TreeMap<>();
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder name = new StringBuilder();
+            int length = 1 + random.nextInt(6);
+            for (int c = 0; c < length; c++) {
+                name.append((char) ('a' + random.nextInt(3)));
+            }
+            String username = name.toString();
+            Long id = expected.get(username);
+            if (id != null) {
+                assertTrue(trie.remove(id, username));
+                expected.remove(username);
+            } else {
+                trie.add(i, username);
+                expected.put(username, (long) i);
+            }
+        }
+        for (String prefix : List.of("", "a", "ab", "abc", "cab", "ccccc")) {
+            List<String> matching = new ArrayList<>(expected.subMap(prefix, prefix + Character.MAX_VALUE).keySet());
+            assertEquals(matching.subList(0, Math.min(20, matching.size())), names(trie.withPrefix(prefix, 20)), prefix);
+        }
+        assertEquals(expected.size(), trie.size());
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.taskmanager.sharding;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardRebalancerTest {
+    private static final int PROJECTS = 60;
+    private static final int VIRTUAL_NODES = 16;
+
+    private final List<EmbeddedDatabase> databases = new ArrayList<>();
+    private ShardDataSources shards;
+    private ShardRebalancer rebalancer;
+
+    @BeforeEach
+    void setUp() {
+        for (int shard = 0; shard < 3; shard++) {
+            databases.add(new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true)
+                    .addScript("sharding/schema.sql").build());
+        }
+        shards = new ShardDataSources(databases);
+
+        // Two shards in use; the third was just added and is empty
+        for (int shard = 0; shard < 2; shard++) {
+            JdbcTemplate jdbc = shards.jdbc(shard);
+            jdbc.update("INSERT INTO roles (id, name) VALUES (1, 'USER')");
+            jdbc.update("INSERT INTO users (id, username, password) VALUES (1, 'owner', 'x')");
+            jdbc.update("INSERT INTO user_roles (user_id, role_id) VALUES (1, 1)");
+        }
+        shards.jdbc(0).update("INSERT INTO users (id, username, password) VALUES (2, 'added-later', 'x')");
+        ShardRing ring = new ShardRing(2, VIRTUAL_NODES);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (long projectId = 1; projectId <= PROJECTS; projectId++) {
+            JdbcTemplate jdbc = shards.jdbc(ring.shardOf(projectId));
+            jdbc.update("INSERT INTO projects (id, name, owner_id) VALUES (?, ?, 1)", projectId, "Project " + projectId);
+            jdbc.update("INSERT INTO project_stats (project_id, total_tasks, pending_tasks, completed_tasks) VALUES (?, 3, 2, 1)",
+                    projectId);
+            jdbc.update("INSERT INTO project_stats_due (project_id, due_date, open_tasks) VALUES (?, ?, 2)",
+                    projectId, LocalDate.of(2030, 1, 1));
+            for (int task = 0; task < 2; task++) {
+                jdbc.update("INSERT INTO tasks (id, title, status, due_date, project_id, creator_id) "
+                        + "VALUES (?, 'Task', 'PENDING', ?, ?, 1)", projectId * 10 + task,
+                        Timestamp.valueOf(LocalDateTime.of(2030, 1, 1, 12, 0)), projectId);
+            }
+            jdbc.update("INSERT INTO tasks_archive (id, title, status, project_id, creator_id, updated_at, archived_at) "
+                    + "VALUES (?, 'Old', 'COMPLETED', ?, 1, ?, ?)", projectId * 10 + 9, projectId, now, now);
+        }
+        rebalancer = new ShardRebalancer(shards, new ReferenceDataReplicator(shards), VIRTUAL_NODES, 2, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        databases.forEach(EmbeddedDatabase::shutdown);
+    }
+
+    @Test
+    void movesProjectsWithAllTheirRowsToTheirShardInTheLargerRing() {
+        List<ShardRebalancer.Move> plan = rebalancer.plan(2);
+        assertFalse(plan.isEmpty());
+        plan.forEach(move -> assertEquals(2, move.to(), "Only the new shard takes projects"));
+
+        assertEquals(plan.size(), rebalancer.rebalance(2));
+
+        ShardRing ring = new ShardRing(3, VIRTUAL_NODES);
+        Set<Long> seen = new HashSet<>();
+        for (int shard = 0; shard < 3; shard++) {
+            JdbcTemplate jdbc = shards.jdbc(shard);
+            for (Long projectId : jdbc.queryForList("SELECT id FROM projects", Long.class)) {
+                assertEquals(ring.shardOf(projectId), shard, "Project " + projectId + " on the wrong shard");
+                assertTrue(seen.add(projectId), "Project " + projectId + " on two shards");
+                assertEquals(2, count(jdbc, "SELECT COUNT(*) FROM tasks WHERE project_id = ?", projectId));
+                assertEquals(1, count(jdbc, "SELECT COUNT(*) FROM tasks_archive WHERE project_id = ?", projectId));
+                assertEquals(3, count(jdbc, "SELECT total_tasks FROM project_stats WHERE project_id = ?", projectId));
+                assertEquals(1, count(jdbc, "SELECT COUNT(*) FROM project_stats_due WHERE project_id = ?", projectId));
+            }
+            assertEquals(0, count(jdbc, "SELECT COUNT(*) FROM tasks t WHERE NOT EXISTS "
+                    + "(SELECT 1 FROM projects p WHERE p.id = t.project_id)", null), "Tasks left behind on shard " + shard);
+        }
+        assertEquals(PROJECTS, seen.size());
+        assertEquals(2, count(shards.jdbc(2), "SELECT COUNT(*) FROM users", null), "Users copied to the new shard");
+        assertEquals(1, count(shards.jdbc(2), "SELECT COUNT(*) FROM user_roles", null));
+    }
+
+    @Test
+    void runningAgainMovesNothing() {
+        rebalancer.rebalance(2);
+
+        assertTrue(rebalancer.plan(2).isEmpty());
+        assertEquals(0, rebalancer.rebalance(2));
+    }
+
+    @Test
+    void completesAMoveThatWasInterruptedAfterCopying() {
+        ShardRebalancer.Move move = rebalancer.plan(2).get(0);
+        // A previous run copied the project's rows and died before deleting them on the source
+        JdbcTemplate source = shards.jdbc(move.from());
+        JdbcTemplate target = shards.jdbc(move.to());
+        new ReferenceDataReplicator(shards).replicateAll();
+        for (var table : ShardRebalancer.PROJECT_TABLES) {
+            ShardRows.insert(target, table.getKey(), source.queryForList(
+                    "SELECT * FROM " + table.getKey() + " WHERE " + table.getValue() + " = ?", move.projectId()));
+        }
+
+        rebalancer.rebalance(2);
+
+        assertEquals(0, count(source, "SELECT COUNT(*) FROM projects WHERE id = ?", move.projectId()));
+        assertEquals(2, count(target, "SELECT COUNT(*) FROM tasks WHERE project_id = ?", move.projectId()));
+    }
+
+    private static long count(JdbcTemplate jdbc, String sql, Long id) {
+        Long count = id != null ? jdbc.queryForObject(sql, Long.class, id) : jdbc.queryForObject(sql, Long.class);
+        return count != null ? count : 0;
+    }
+}
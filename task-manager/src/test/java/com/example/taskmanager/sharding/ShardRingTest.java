@@ -0,0 +1,61 @@
+package com.example.taskmanager.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardRingTest {
+
+    @Test
+    void placesEveryIdOnTheSameShardEachTime() {
+        ShardRing ring = new ShardRing(4, 128);
+        ShardRing again = new ShardRing(4, 128);
+        for (long id = 1; id <= 1_000; id++) {
+            int shard = ring.shardOf(id);
+            assertTrue(shard >= 0 && shard < 4);
+            assertEquals(shard, again.shardOf(id));
+        }
+        assertEquals(0, new ShardRing(1, 128).shardOf(42));
+    }
+
+    @Test
+    void spreadsConsecutiveIdsEvenly() {
+        ShardRing ring = new ShardRing(4, 128);
+        int[] counts = new int[4];
+        for (long id = 1; id <= 100_000; id++) {
+            counts[ring.shardOf(id)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 20_000 && count < 30_000, "Unbalanced shard with " + count + " of 100000 ids");
+        }
+    }
+
+    @Test
+    void addingAShardOnlyMovesIdsOntoIt() {
+        ShardRing three = new ShardRing(3, 128);
+        ShardRing four = new ShardRing(4, 128);
+        int moved = 0;
+        for (long id = 1; id <= 100_000; id++) {
+            int before = three.shardOf(id);
+            int after = four.shardOf(id);
+            if (before != after) {
+                assertEquals(3, after, "Id " + id + " moved between existing shards");
+                moved++;
+            }
+        }
+        assertTrue(moved > 18_000 && moved < 32_000, "Moved " + moved + " of 100000 ids, expected about a quarter");
+    }
+
+    @Test
+    void mergesSortedRunsUpToTheLimit() {
+        List<List<Integer>> runs = List.of(List.of(1, 4, 9), List.of(), List.of(2, 3, 10, 11), List.of(5));
+        assertEquals(List.of(1, 2, 3, 4, 5, 9), ShardRouter.mergeSorted(runs, Integer::compare, 6));
+        assertEquals(List.of(1, 2, 3, 4, 5, 9, 10, 11), ShardRouter.mergeSorted(runs, Integer::compare, 100));
+
+        // A row caught on two shards by a move is merged once
+        List<List<Integer>> copies = List.of(List.of(1, 4, 6), List.of(4, 5));
+        assertEquals(List.of(1, 4, 5), ShardRouter.mergeSorted(copies, Integer::compare, 3));
+    }
+}
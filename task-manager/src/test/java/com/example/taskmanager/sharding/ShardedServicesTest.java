@@ -0,0 +1,386 @@
+package com.example.taskmanager.sharding;
+
+import com.example.taskmanager.dto.ProjectMembershipDTO;
+import com.example.taskmanager.dto.SavedFilterDTO;
+import com.example.taskmanager.dto.TaskFilterDTO;
+import com.example.taskmanager.dto.TaskListResult;
+import com.example.taskmanager.entities.Project;
+import com.example.taskmanager.entities.Task;
+import com.example.taskmanager.entities.User;
+import com.example.taskmanager.service.ProjectMembershipService;
+import com.example.taskmanager.service.ProjectService;
+import com.example.taskmanager.service.ProjectStatsService;
+import com.example.taskmanager.service.SavedFilterService;
+import com.example.taskmanager.service.TaskHistoryService;
+import com.example.taskmanager.service.TaskService;
+import com.example.taskmanager.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** The services over three in-memory shards, each created from sharding/schema.sql. */
+@SpringBootTest(properties = {
+        "taskmanager.sharding.enabled=true",
+        "taskmanager.sharding.urls="
+                + "jdbc:h2:mem:sharded-0;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:sharding/schema.sql',"
+                + "jdbc:h2:mem:sharded-1;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:sharding/schema.sql',"
+                + "jdbc:h2:mem:sharded-2;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:sharding/schema.sql'",
+        "taskmanager.sharding.project-id-sql=SELECT NEXT VALUE FOR project_ids",
+        "spring.jpa.open-in-view=false",
+        "spring.jpa.hibernate.ddl-auto=none",
+        "taskmanager.task-history.enabled=true"
+})
+class ShardedServicesTest {
+    private static final String[] TABLES =
+            { "task_status_transitions", "task_flow_rollups", "task_cycle_time_rollups", "tasks", "tasks_archive", "project_stats_due", "project_stats", "projects", "saved_filters", "shard_moves", "user_roles", "users" };
+
+    @Autowired
+    private ShardRouter router;
+
+    @Autowired
+    private ShardDataSources shards;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ProjectService projectService;
+
+    @Autowired
+    private TaskService taskService;
+
+    @Autowired
+    private ProjectStatsService projectStats;
+
+    @Autowired
+    private TaskHistoryService taskHistory;
+
+    @Autowired
+    private ProjectMembershipService projectMembership;
+
+    @Autowired
+    private SavedFilterService savedFilters;
+
+    private User owner;
+    private final List<Project> projects = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        owner = userService.createUser(User.builder().username("owner").password("secret").build());
+        for (int i = 0; i < 12; i++) {
+            Project project = new Project();
+            project.setName("Project " + i);
+            project.setOwner(owner);
+            projects.add(projectService.createProject(project));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            for (String table : TABLES) {
+                shards.jdbc(shard).update("DELETE FROM " + table);
+            }
+        }
+        projects.clear();
+    }
+
+    @Test
+    void storesEachProjectOnlyOnItsShard() {
+        assertTrue(router.isSharded());
+        for (Project project : projects) {
+            int home = router.shardOf(project.getId());
+            for (int shard = 0; shard < shards.size(); shard++) {
+                assertEquals(shard == home ? 1 : 0, count(shards.jdbc(shard), "SELECT COUNT(*) FROM projects WHERE id = ?",
+                        project.getId()), "Project " + project.getId() + " on shard " + shard);
+            }
+            Project loaded = projectService.getProjectById(project.getId()).orElseThrow();
+            assertEquals(project.getName(), loaded.getName());
+            assertEquals("owner", loaded.getOwner().getUsername());
+        }
+        assertTrue(projects.stream().map(project -> router.shardOf(project.getId())).distinct().count() > 1);
+        assertEquals(projects.size(), projectService.getAllProjects().size());
+    }
+
+    @Test
+    void mergesListingsFromAllShardsInIdOrder() {
+        List<Long> ids = new ArrayList<>();
+        for (Project project : projects) {
+            for (int i = 0; i < 3; i++) {
+                ids.add(createTask(project).getId());
+            }
+        }
+        ids.sort(Comparator.naturalOrder());
+
+        TaskFilterDTO filter = new TaskFilterDTO();
+        filter.setPage(2);
+        filter.setSize(5);
+        TaskListResult page = taskService.listTasks(filter);
+        assertEquals(ids.subList(10, 15), page.content().stream().map(Task::getId).toList());
+        assertEquals(36L, page.total());
+        assertTrue(page.hasNext());
+
+        filter.setWithTotal(false);
+        filter.setPage(7);
+        TaskListResult last = taskService.listTasks(filter);
+        assertEquals(ids.subList(35, 36), last.content().stream().map(Task::getId).toList());
+        assertFalse(last.hasNext());
+
+        Project project = projects.get(0);
+        TaskFilterDTO byProject = new TaskFilterDTO();
+        byProject.setProjectId(project.getId());
+        TaskListResult projectPage = taskService.listTasks(byProject);
+        assertEquals(3L, projectPage.total());
+        projectPage.content().forEach(task -> assertEquals(project.getId(), task.getProject().getId()));
+    }
+
+    @Test
+    void listsLabelledTasksFromTheLabelIndex() {
+        List<Long> even = new ArrayList<>();
+        List<Long> evenFirst = new ArrayList<>();
+        for (int i = 0; i < projects.size(); i++) {
+            for (int j = 0; j < 3; j++) {
+                Set<String> labels = new TreeSet<>();
+                if (i % 2 == 0) {
+                    labels.add("even");
+                }
+                if (j == 0) {
+                    labels.add("first");
+                }
+                Task task = createTask(projects.get(i), labels);
+                if (i % 2 == 0) {
+                    even.add(task.getId());
+                    if (j == 0) {
+                        evenFirst.add(task.getId());
+                    }
+                }
+            }
+        }
+        even.sort(Comparator.naturalOrder());
+        evenFirst.sort(Comparator.naturalOrder());
+
+        TaskFilterDTO filter = new TaskFilterDTO();
+        filter.setLabels(new String[] { "even" });
+        filter.setPage(1);
+        filter.setSize(5);
+        TaskListResult page = taskService.listTasks(filter);
+        assertEquals(even.subList(5, 10), page.content().stream().map(Task::getId).toList());
+        assertEquals(18L, page.total());
+        assertEquals(Set.of("even", "first"), taskService.getTaskById(evenFirst.get(0)).orElseThrow().getLabels());
+
+        filter.setPage(0);
+        filter.setSize(20);
+        filter.setAnyLabels(new String[] { "first" });
+        assertEquals(evenFirst, taskService.listTasks(filter).content().stream().map(Task::getId).toList());
+
+        // A project filter is applied by the database to the index's candidates
+        TaskFilterDTO byProject = new TaskFilterDTO();
+        byProject.setProjectId(projects.get(2).getId());
+        byProject.setNotLabels(new String[] { "first" });
+        TaskListResult projectPage = taskService.listTasks(byProject);
+        assertEquals(2L, projectPage.total());
+        projectPage.content().forEach(task -> assertEquals(Set.of("even"), task.getLabels()));
+    }
+
+    @Test
+    void movesATaskToTheShardOfItsNewProject() {
+        Project from = projects.get(0);
+        Project to = projects.stream()
+                .filter(project -> router.shardOf(project.getId()) != router.shardOf(from.getId()))
+                .findFirst().orElseThrow();
+        Task task = createTask(from);
+
+        Task changes = new Task();
+        changes.setTitle("Moved");
+        changes.setStatus(Task.Status.IN_PROGRESS);
+        changes.setPriority(Task.Priority.HIGH);
+        taskService.updateTask(task.getId(), changes, to.getId(), null);
+
+        assertEquals(0, count(shards.jdbc(router.shardOf(from.getId())), "SELECT COUNT(*) FROM tasks WHERE id = ?", task.getId()));
+        Task moved = taskService.getTaskById(task.getId()).orElseThrow();
+        assertEquals("Moved", moved.getTitle());
+        assertEquals(to.getId(), moved.getProject().getId());
+        assertEquals(0, projectStats.getStats(from.getId()).orElseThrow().totalTasks());
+        assertEquals(1, projectStats.getStats(to.getId()).orElseThrow().totalTasks());
+
+        // The history of each project stays on its shard: created and moved out there, moved in here
+        assertEquals(2, count(shards.jdbc(router.shardOf(from.getId())),
+                "SELECT COUNT(*) FROM task_status_transitions WHERE task_id = ?", task.getId()));
+        assertEquals(1, count(shards.jdbc(router.shardOf(to.getId())),
+                "SELECT COUNT(*) FROM task_status_transitions WHERE task_id = ?", task.getId()));
+        taskHistory.rollUp();
+        LocalDateTime now = LocalDateTime.now();
+        assertEquals(0, taskHistory.getBurndown(from.getId(), now.minusDays(1), now, TaskHistoryService.Resolution.DAY)
+                .buckets().get(1).open());
+        assertEquals(1, taskHistory.getBurndown(to.getId(), now.minusDays(1), now, TaskHistoryService.Resolution.DAY)
+                .buckets().get(1).open());
+    }
+
+    @Test
+    void dropsTheCopyWhenTheMoveRollsBack() {
+        Project from = projects.get(0);
+        Project to = projects.stream()
+                .filter(project -> router.shardOf(project.getId()) != router.shardOf(from.getId()))
+                .findFirst().orElseThrow();
+        Task task = createTask(from);
+        int source = router.shardOf(from.getId());
+        int target = router.shardOf(to.getId());
+
+        assertThrows(IllegalStateException.class, () -> router.onShard(source, () -> {
+            router.moveRow("tasks", task.getId(), target, Map.of("project_id", to.getId()));
+            assertEquals(1, count(shards.jdbc(target), "SELECT COUNT(*) FROM tasks WHERE id = ?", task.getId()));
+            throw new IllegalStateException("Failed after the copy");
+        }));
+
+        assertEquals(1, count(shards.jdbc(source), "SELECT COUNT(*) FROM tasks WHERE id = ?", task.getId()));
+        assertEquals(0, count(shards.jdbc(target), "SELECT COUNT(*) FROM tasks WHERE id = ?", task.getId()));
+        assertEquals(0, count(shards.jdbc(target), "SELECT COUNT(*) FROM shard_moves WHERE row_id = ?", task.getId()));
+        assertEquals(from.getId(), taskService.getTaskById(task.getId()).orElseThrow().getProject().getId());
+    }
+
+    @Test
+    void settlesMovesLeftUnfinishedByAnInterruptedProcess() {
+        Project from = projects.get(0);
+        Project to = projects.stream()
+                .filter(project -> router.shardOf(project.getId()) != router.shardOf(from.getId()))
+                .findFirst().orElseThrow();
+        Task stayed = createTask(from);
+        Task moved = createTask(from);
+        int source = router.shardOf(from.getId());
+        int target = router.shardOf(to.getId());
+
+        // What a process that died before the source transaction ended leaves behind: copies
+        // with markers on the target, one of whose rows was deleted on the source meanwhile
+        for (Task task : List.of(stayed, moved)) {
+            List<Map<String, Object>> rows = shards.jdbc(source).queryForList("SELECT * FROM tasks WHERE id = ?", task.getId());
+            rows.forEach(row -> row.put("project_id", to.getId()));
+            ShardRows.insert(shards.jdbc(target), "tasks", rows);
+            shards.jdbc(target).update("INSERT INTO shard_moves (table_name, row_id, source_shard, moved_at) VALUES (?, ?, ?, ?)",
+                    "tasks", task.getId(), source, LocalDateTime.now().minusHours(1));
+        }
+        shards.jdbc(source).update("DELETE FROM tasks WHERE id = ?", moved.getId());
+
+        // Listings show the task caught on both shards once, and count it once
+        TaskFilterDTO filter = new TaskFilterDTO();
+        filter.setSize(20);
+        TaskListResult listed = taskService.listTasks(filter);
+        assertEquals(List.of(stayed.getId(), moved.getId()), listed.content().stream().map(Task::getId).toList());
+        assertEquals(2L, listed.total());
+        filter.setSize(1);
+        filter.setEstimateTotal(true);
+        assertEquals(2L, taskService.listTasks(filter).total());
+
+        router.settleMoves();
+
+        assertEquals(0, count(shards.jdbc(target), "SELECT COUNT(*) FROM tasks WHERE id = ?", stayed.getId()));
+        assertEquals(1, count(shards.jdbc(source), "SELECT COUNT(*) FROM tasks WHERE id = ?", stayed.getId()));
+        assertEquals(1, count(shards.jdbc(target), "SELECT COUNT(*) FROM tasks WHERE id = ?", moved.getId()));
+        assertEquals(0L, shards.jdbc(target).queryForObject("SELECT COUNT(*) FROM shard_moves", Long.class));
+    }
+
+    @Test
+    void movesBatchesOfTasksToTheShardOfTheirProject() {
+        Project target = projects.get(0);
+        Project other = projects.stream()
+                .filter(project -> router.shardOf(project.getId()) != router.shardOf(target.getId()))
+                .findFirst().orElseThrow();
+        Task local = createTask(target);
+        Task remote = createTask(other);
+        Task unassigned = createTask(null);
+        createTask(other);
+
+        ProjectMembershipDTO added = projectMembership.addTasks(target.getId(),
+                List.of(local.getId(), remote.getId(), unassigned.getId()));
+        assertEquals(2, added.changed());
+        assertEquals(List.of(), added.notFound());
+        int home = router.shardOf(target.getId());
+        assertEquals(3, count(shards.jdbc(home), "SELECT COUNT(*) FROM tasks WHERE project_id = ?", target.getId()));
+        assertEquals(3L, projectStats.getStats(target.getId()).orElseThrow().totalTasks());
+        assertEquals(1L, projectStats.getStats(other.getId()).orElseThrow().totalTasks());
+
+        ProjectMembershipDTO removed = projectMembership.removeTasks(target.getId(), List.of(remote.getId()));
+        assertEquals(1, removed.changed());
+        assertNull(taskService.getTaskById(remote.getId()).orElseThrow().getProject());
+        assertEquals(2L, projectStats.getStats(target.getId()).orElseThrow().totalTasks());
+        assertEquals(1, count(shards.jdbc(ShardRouter.HOME), "SELECT COUNT(*) FROM tasks WHERE id = ?", remote.getId())
+                + (home == ShardRouter.HOME ? 0 : count(shards.jdbc(home), "SELECT COUNT(*) FROM tasks WHERE id = ?",
+                remote.getId())));
+    }
+
+    @Test
+    void keepsSavedFilterSetsInStepWithTaskWritesOnEveryShard() {
+        Task before = createTask(projects.get(0), Set.of("saved"));
+        createTask(projects.get(1), Set.of("other"));
+        SavedFilterDTO.Criteria criteria = new SavedFilterDTO.Criteria(null, null, null, null, null, null, null,
+                List.of("saved"), null, null);
+        SavedFilterDTO created = savedFilters.create(owner.getId(), "Saved", criteria);
+        assertEquals(1L, created.matchCount());
+
+        List<Long> expected = new ArrayList<>(List.of(before.getId()));
+        for (int i = 1; i < projects.size(); i++) {
+            expected.add(createTask(projects.get(i), Set.of("saved")).getId());
+        }
+        Task unlabelled = createTask(projects.get(2), Set.of());
+        Task relabelled = taskService.getTaskById(expected.get(3)).orElseThrow();
+        taskService.updateTask(relabelled.getId(), Task.builder().title("Task").status(Task.Status.PENDING)
+                .priority(Task.Priority.LOW).labels(Set.of("elsewhere")).build(), projects.get(3).getId(), null);
+        taskService.deleteTask(expected.get(5));
+        taskService.updateTask(unlabelled.getId(), Task.builder().title("Task").status(Task.Status.PENDING)
+                .priority(Task.Priority.LOW).labels(Set.of("saved")).build(), null, null);
+        expected.remove(5);
+        expected.remove(3);
+        expected.add(unlabelled.getId());
+        expected.sort(Comparator.naturalOrder());
+
+        SavedFilterService.Opened opened = savedFilters.open(owner.getId(), created.id(), 1, 4);
+        assertEquals(expected.size(), opened.filter().matchCount());
+        assertEquals(expected.subList(4, 8), taskService.getTasksByIds(opened.ids()).stream().map(Task::getId).toList());
+        assertEquals(List.of(created.id()), savedFilters.list(owner.getId()).stream().map(SavedFilterDTO::id).toList());
+    }
+
+    @Test
+    void copiesUsersToEveryShard() {
+        User user = userService.createUser(User.builder().username("copied").password("secret").build());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            assertEquals(1, count(shards.jdbc(shard), "SELECT COUNT(*) FROM users WHERE id = ?", user.getId()));
+            assertEquals(1, count(shards.jdbc(shard), "SELECT COUNT(*) FROM user_roles WHERE user_id = ?", user.getId()));
+        }
+
+        userService.deleteUser(user.getId());
+
+        for (int shard = 0; shard < shards.size(); shard++) {
+            assertEquals(0, count(shards.jdbc(shard), "SELECT COUNT(*) FROM users WHERE id = ?", user.getId()));
+        }
+    }
+
+    private Task createTask(Project project) {
+        return createTask(project, Set.of());
+    }
+
+    private Task createTask(Project project, Set<String> labels) {
+        Task task = new Task();
+        task.setLabels(labels);
+        task.setTitle("Task");
+        task.setStatus(Task.Status.PENDING);
+        task.setPriority(Task.Priority.MEDIUM);
+        return taskService.createTask(task, project != null ? project.getId() : null, owner.getId(), null);
+    }
+
+    private static long count(JdbcTemplate jdbc, String sql, Long id) {
+        Long count = jdbc.queryForObject(sql, Long.class, id);
+        return count != null ? count : 0;
+    }
+}
@@ -0,0 +1,137 @@
+-- The Flyway schema (V1-V13) in H2 syntax for the sharded tests, where every connection to an
+-- in-memory shard runs it (INIT=RUNSCRIPT), so it has to be repeatable.
+CREATE SEQUENCE IF NOT EXISTS project_ids START WITH 1;
+
+CREATE TABLE IF NOT EXISTS roles (
+    id   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS user_roles (
+    user_id BIGINT NOT NULL REFERENCES users (id),
+    role_id BIGINT NOT NULL REFERENCES roles (id),
+    PRIMARY KEY (user_id, role_id)
+);
+
+CREATE TABLE IF NOT EXISTS projects (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name        VARCHAR(255) NOT NULL,
+    description VARCHAR(1024),
+    owner_id    BIGINT REFERENCES users (id),
+    created_at  TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS tasks (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title       VARCHAR(255) NOT NULL,
+    description VARCHAR(1024),
+    status      VARCHAR(255),
+    priority    VARCHAR(255),
+    due_date    TIMESTAMP(6),
+    project_id  BIGINT REFERENCES projects (id),
+    creator_id  BIGINT NOT NULL REFERENCES users (id),
+    assignee_id BIGINT REFERENCES users (id),
+    updated_at  TIMESTAMP(6) DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    labels      VARCHAR(1024)
+);
+
+CREATE TABLE IF NOT EXISTS tasks_archive (
+    id          BIGINT PRIMARY KEY,
+    title       VARCHAR(255) NOT NULL,
+    description VARCHAR(1024),
+    status      VARCHAR(255),
+    priority    VARCHAR(255),
+    due_date    TIMESTAMP(6),
+    project_id  BIGINT,
+    creator_id  BIGINT NOT NULL,
+    assignee_id BIGINT,
+    updated_at  TIMESTAMP(6) NOT NULL,
+    archived_at TIMESTAMP(6) NOT NULL,
+    labels      VARCHAR(1024)
+);
+
+CREATE TABLE IF NOT EXISTS project_stats (
+    project_id            BIGINT PRIMARY KEY REFERENCES projects (id) ON DELETE CASCADE,
+    total_tasks           BIGINT DEFAULT 0 NOT NULL,
+    pending_tasks         BIGINT DEFAULT 0 NOT NULL,
+    in_progress_tasks     BIGINT DEFAULT 0 NOT NULL,
+    completed_tasks       BIGINT DEFAULT 0 NOT NULL,
+    cancelled_tasks       BIGINT DEFAULT 0 NOT NULL,
+    low_priority_tasks    BIGINT DEFAULT 0 NOT NULL,
+    medium_priority_tasks BIGINT DEFAULT 0 NOT NULL,
+    high_priority_tasks   BIGINT DEFAULT 0 NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS project_stats_due (
+    project_id BIGINT NOT NULL REFERENCES projects (id) ON DELETE CASCADE,
+    due_date   DATE NOT NULL,
+    open_tasks BIGINT NOT NULL,
+    PRIMARY KEY (project_id, due_date)
+);
+
+CREATE TABLE IF NOT EXISTS task_due_watermark (
+    id          INT PRIMARY KEY,
+    fired_until TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS task_status_transitions (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    task_id     BIGINT NOT NULL,
+    project_id  BIGINT,
+    assignee_id BIGINT,
+    from_status SMALLINT,
+    to_status   SMALLINT,
+    changed_at  TIMESTAMP(6) NOT NULL,
+    rolled_up   BOOLEAN DEFAULT FALSE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_task_status_transitions_task ON task_status_transitions (task_id, id);
+
+CREATE TABLE IF NOT EXISTS task_flow_rollups (
+    project_id   BIGINT NOT NULL,
+    resolution   VARCHAR(4) NOT NULL,
+    bucket_start TIMESTAMP(6) NOT NULL,
+    status       SMALLINT NOT NULL,
+    entered      BIGINT DEFAULT 0 NOT NULL,
+    exited       BIGINT DEFAULT 0 NOT NULL,
+    PRIMARY KEY (project_id, resolution, bucket_start, status)
+);
+
+CREATE TABLE IF NOT EXISTS task_cycle_time_rollups (
+    scope        VARCHAR(8) NOT NULL,
+    scope_id     BIGINT NOT NULL,
+    resolution   VARCHAR(4) NOT NULL,
+    bucket_start TIMESTAMP(6) NOT NULL,
+    bin          SMALLINT NOT NULL,
+    completions  BIGINT DEFAULT 0 NOT NULL,
+    PRIMARY KEY (scope, scope_id, resolution, bucket_start, bin)
+);
+
+CREATE TABLE IF NOT EXISTS task_history_rollup_lock (
+    id INT PRIMARY KEY
+);
+
+MERGE INTO task_history_rollup_lock KEY (id) VALUES (1);
+
+CREATE TABLE IF NOT EXISTS saved_filters (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id    BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    name       VARCHAR(100) NOT NULL,
+    definition VARCHAR(4000) NOT NULL,
+    created_at TIMESTAMP(6),
+    CONSTRAINT saved_filters_user_name UNIQUE (user_id, name)
+);
+
+CREATE TABLE IF NOT EXISTS shard_moves (
+    table_name   VARCHAR(64) NOT NULL,
+    row_id       BIGINT NOT NULL,
+    source_shard INT NOT NULL,
+    moved_at     TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (table_name, row_id)
+);